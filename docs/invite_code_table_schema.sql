@@ -0,0 +1,22 @@
+-- 邀请码表
+CREATE TABLE `invite_code` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `code` VARCHAR(12) NOT NULL COMMENT '邀请码',
+    `seq_index` BIGINT NOT NULL COMMENT '分配器中的序号',
+    `created_by` BIGINT DEFAULT NULL COMMENT '生成人用户ID',
+    `used_by` BIGINT DEFAULT NULL COMMENT '使用人用户ID',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0-未使用，1-已使用',
+    `create_time` DATETIME NOT NULL COMMENT '创建时间',
+    `use_time` DATETIME DEFAULT NULL COMMENT '使用时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_code` (`code`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='邀请码表';
+
+-- 邀请码序号分配器，每种长度一行，序号经置换后编码为邀请码
+CREATE TABLE `invite_code_allocator` (
+    `code_length` INT NOT NULL COMMENT '邀请码长度',
+    `permutation_key` BIGINT NOT NULL COMMENT '序号置换密钥',
+    `next_index` BIGINT NOT NULL DEFAULT 0 COMMENT '下一个可分配的序号',
+    `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
+    PRIMARY KEY (`code_length`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='邀请码序号分配器';
@@ -0,0 +1,27 @@
+-- 论文摘要（TL;DR）结果表
+CREATE TABLE `paper_summary` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `paper_id` VARCHAR(128) NOT NULL COMMENT '论文ID（数据源_原始ID）',
+    `title` VARCHAR(500) DEFAULT NULL COMMENT '论文标题',
+    `summary` TEXT NOT NULL COMMENT 'AI 生成的摘要',
+    `prompt_tokens` INT DEFAULT NULL COMMENT '输入 token 数',
+    `completion_tokens` INT DEFAULT NULL COMMENT '输出 token 数',
+    `create_time` DATETIME DEFAULT NULL COMMENT '创建时间',
+    `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
+    UNIQUE KEY `uk_paper_id` (`paper_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='论文摘要表';
+
+-- 论文摘要批处理任务表
+CREATE TABLE `paper_summary_job` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `job_id` VARCHAR(64) NOT NULL COMMENT '任务ID',
+    `status` VARCHAR(32) NOT NULL COMMENT '任务状态：RUNNING, COMPLETED, COMPLETED_WITH_ERRORS',
+    `paper_ids` MEDIUMTEXT NOT NULL COMMENT '论文ID列表，逗号分隔',
+    `total` INT NOT NULL DEFAULT 0 COMMENT '论文总数',
+    `completed` INT NOT NULL DEFAULT 0 COMMENT '已完成数',
+    `failed` INT NOT NULL DEFAULT 0 COMMENT '失败数',
+    `create_time` DATETIME DEFAULT NULL COMMENT '创建时间',
+    `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
+    UNIQUE KEY `uk_job_id` (`job_id`),
+    INDEX `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='论文摘要批处理任务表';
@@ -0,0 +1,17 @@
+-- 支付宝异步通知事件表，回调只负责验签后写入，订单状态由后台工作线程应用
+CREATE TABLE `payment_notify_event` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `notify_id` VARCHAR(64) NOT NULL COMMENT '支付宝通知ID',
+    `trade_no` VARCHAR(64) NOT NULL DEFAULT '' COMMENT '支付宝交易号',
+    `out_trade_no` VARCHAR(64) NOT NULL COMMENT '商户订单号',
+    `trade_status` VARCHAR(32) DEFAULT NULL COMMENT '交易状态',
+    `buyer_id` VARCHAR(64) DEFAULT NULL COMMENT '买家ID',
+    `buyer_logon_id` VARCHAR(64) DEFAULT NULL COMMENT '买家登录ID',
+    `status` VARCHAR(16) NOT NULL DEFAULT 'PENDING' COMMENT '处理状态：PENDING、APPLIED、FAILED',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已尝试处理次数',
+    `last_error` VARCHAR(255) DEFAULT NULL COMMENT '最近一次处理失败的原因',
+    `create_time` DATETIME NOT NULL COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL COMMENT '更新时间',
+    UNIQUE KEY `uk_trade_notify` (`trade_no`, `notify_id`),
+    INDEX `idx_status_id` (`status`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='支付通知事件表';
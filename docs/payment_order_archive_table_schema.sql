@@ -0,0 +1,22 @@
+-- 支付订单归档表：已关闭超过 payment.storage.archive-after-months 个月的订单从各分表移入，保留原主键
+CREATE TABLE `payment_order_archive` (
+    `id` BIGINT PRIMARY KEY COMMENT '原订单主键ID',
+    `user_id` BIGINT DEFAULT NULL COMMENT '下单用户ID',
+    `body` VARCHAR(500) DEFAULT NULL COMMENT '订单描述',
+    `buyer_id` VARCHAR(64) DEFAULT NULL COMMENT '买家ID',
+    `buyer_logon_id` VARCHAR(64) DEFAULT NULL COMMENT '买家登录ID',
+    `create_time` DATETIME DEFAULT NULL COMMENT '创建时间',
+    `expire_time` DATETIME DEFAULT NULL COMMENT '过期时间',
+    `out_trade_no` VARCHAR(64) NOT NULL COMMENT '商户订单号',
+    `payment_time` DATETIME DEFAULT NULL COMMENT '支付时间',
+    `status` VARCHAR(32) DEFAULT NULL COMMENT '订单状态',
+    `subject` VARCHAR(255) DEFAULT NULL COMMENT '订单标题',
+    `total_amount` DECIMAL(10, 2) DEFAULT NULL COMMENT '订单总金额',
+    `trade_no` VARCHAR(64) DEFAULT NULL COMMENT '支付宝交易号',
+    `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
+    `version` BIGINT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
+    `archive_time` DATETIME NOT NULL COMMENT '归档时间',
+    INDEX `idx_out_trade_no` (`out_trade_no`),
+    INDEX `idx_trade_no` (`trade_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8
+  COMMENT='支付订单归档表';
@@ -0,0 +1,28 @@
+-- 支付订单分表和按月分区
+-- 分表数由 payment.storage.shard-count 配置，0 号分表沿用 payment_order，其余分表为 payment_order_01、payment_order_02 ...
+-- 分表号编码在商户订单号中（见 OutTradeNoGenerator），按订单号的读写只访问一张表；ORDER 开头的旧订单号属于 0 号分表
+
+-- 1. 订单表按 create_time 做月分区。分区表的主键必须包含分区列，主键改为 (id, create_time)，create_time 不能为空
+UPDATE `payment_order` SET `create_time` = COALESCE(`update_time`, NOW()) WHERE `create_time` IS NULL;
+
+ALTER TABLE `payment_order`
+    MODIFY COLUMN `create_time` DATETIME NOT NULL COMMENT '创建时间',
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (`id`, `create_time`);
+
+-- 之前的数据放在 pold，之后的月分区由 PaymentOrderStorageMaintainer 从 pmax 中拆出，pmax 必须保留
+ALTER TABLE `payment_order` PARTITION BY RANGE COLUMNS (`create_time`) (
+    PARTITION `pold` VALUES LESS THAN ('2026-10-01'),
+    PARTITION `p202610` VALUES LESS THAN ('2026-11-01'),
+    PARTITION `pmax` VALUES LESS THAN (MAXVALUE)
+);
+
+-- 2. 新建分表：结构和分区与 payment_order 相同，自增主键从 分表号 * 10^15 开始，主键全局唯一
+CREATE TABLE `payment_order_01` LIKE `payment_order`;
+ALTER TABLE `payment_order_01` AUTO_INCREMENT = 1000000000000000;
+
+CREATE TABLE `payment_order_02` LIKE `payment_order`;
+ALTER TABLE `payment_order_02` AUTO_INCREMENT = 2000000000000000;
+
+CREATE TABLE `payment_order_03` LIKE `payment_order`;
+ALTER TABLE `payment_order_03` AUTO_INCREMENT = 3000000000000000;
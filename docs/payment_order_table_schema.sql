@@ -1,6 +1,7 @@
 -- 还原 payment_order 表的创建语句
 CREATE TABLE `payment_order` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `user_id` BIGINT DEFAULT NULL COMMENT '下单用户ID',
     `body` VARCHAR(500) DEFAULT NULL COMMENT '订单描述',
     `buyer_id` VARCHAR(64) DEFAULT NULL COMMENT '买家ID',
     `buyer_logon_id` VARCHAR(64) DEFAULT NULL COMMENT '买家登录ID',
@@ -13,7 +14,19 @@ CREATE TABLE `payment_order` (
     `total_amount` DECIMAL(10, 2) DEFAULT NULL COMMENT '订单总金额',
     `trade_no` VARCHAR(64) DEFAULT NULL COMMENT '支付宝交易号',
     `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
-    INDEX `idx_out_trade_no` (`out_trade_no`),
+    `version` BIGINT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
+    INDEX `idx_out_trade_no_status` (`out_trade_no`, `status`, `version`),
     INDEX `idx_trade_no` (`trade_no`),
-    INDEX `idx_create_time` (`create_time`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='支付订单表';
\ No newline at end of file
+    INDEX `idx_create_time` (`create_time`),
+    INDEX `idx_user_status` (`user_id`, `status`),
+    INDEX `idx_status_expire` (`status`, `expire_time`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='支付订单表';
+
+-- 已有表升级：增加乐观锁版本号
+-- ALTER TABLE `payment_order` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号' AFTER `update_time`;
+
+-- 已有表升级：过期关闭按状态和过期时间扫描
+-- ALTER TABLE `payment_order` ADD INDEX `idx_status_expire` (`status`, `expire_time`, `id`);
+
+-- 已有表升级：按商户订单号查询状态只读索引
+-- ALTER TABLE `payment_order` DROP INDEX `idx_out_trade_no`, ADD INDEX `idx_out_trade_no_status` (`out_trade_no`, `status`, `version`);
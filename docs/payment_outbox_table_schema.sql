@@ -0,0 +1,18 @@
+-- 支付事件发件箱表，与订单状态变更在同一事务中写入，由转发任务按主键顺序投递给进程内订阅者
+-- (out_trade_no, order_version) 唯一：订单的每个版本只产生一个事件，重复写入被忽略
+CREATE TABLE `payment_outbox` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID，即投递顺序',
+    `out_trade_no` VARCHAR(64) NOT NULL COMMENT '商户订单号',
+    `order_version` BIGINT NOT NULL COMMENT '事件对应的订单版本号',
+    `event_type` VARCHAR(32) NOT NULL COMMENT '事件类型：ORDER_CREATED、ORDER_PAID、ORDER_CLOSED',
+    `user_id` BIGINT DEFAULT NULL COMMENT '下单用户ID',
+    `total_amount` DECIMAL(10, 2) DEFAULT NULL COMMENT '订单总金额',
+    `order_create_time` DATETIME DEFAULT NULL COMMENT '订单创建时间',
+    `status` VARCHAR(16) NOT NULL DEFAULT 'PENDING' COMMENT '投递状态：PENDING、PUBLISHED、FAILED',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '投递失败次数',
+    `last_error` VARCHAR(255) DEFAULT NULL COMMENT '最近一次投递失败的原因',
+    `create_time` DATETIME NOT NULL COMMENT '事件发生时间',
+    `publish_time` DATETIME DEFAULT NULL COMMENT '投递完成时间',
+    UNIQUE KEY `uk_order_version` (`out_trade_no`, `order_version`),
+    INDEX `idx_status_id` (`status`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='支付事件发件箱表';
@@ -0,0 +1,15 @@
+-- 支付订单对账报告表，每次对账一条记录
+CREATE TABLE `payment_reconciliation` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `status` VARCHAR(16) NOT NULL COMMENT '对账状态：RUNNING、COMPLETED、FAILED',
+    `scanned` INT NOT NULL DEFAULT 0 COMMENT '核对的订单数',
+    `matched` INT NOT NULL DEFAULT 0 COMMENT '与支付宝状态一致的订单数',
+    `paid` INT NOT NULL DEFAULT 0 COMMENT '更新为已支付的订单数',
+    `closed` INT NOT NULL DEFAULT 0 COMMENT '更新为已关闭的订单数',
+    `not_exist` INT NOT NULL DEFAULT 0 COMMENT '支付宝侧不存在交易的订单数',
+    `failed` INT NOT NULL DEFAULT 0 COMMENT '查询或更新失败的订单数',
+    `last_error` VARCHAR(255) DEFAULT NULL COMMENT '对账失败的原因',
+    `start_time` DATETIME NOT NULL COMMENT '开始时间',
+    `finish_time` DATETIME DEFAULT NULL COMMENT '结束时间',
+    INDEX `idx_start_time` (`start_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='支付订单对账报告表';
@@ -0,0 +1,25 @@
+-- 支付统计汇总表，由支付事件增量累加，统计查询只读取本表，不扫描订单表
+-- 下单数和下单金额计入订单创建时间所在的时间段，支付数、支付金额和关闭数计入事件发生时间所在的时间段；
+-- 转化数计入订单创建时间所在的时间段，因此某个时间段的转化率会随之后陆续支付的订单上升
+CREATE TABLE `payment_stats_rollup` (
+    `granularity` VARCHAR(8) NOT NULL COMMENT '统计粒度：MINUTE、HOUR、DAY',
+    `bucket_start` DATETIME NOT NULL COMMENT '时间段开始时间',
+    `created_count` BIGINT NOT NULL DEFAULT 0 COMMENT '下单数',
+    `created_amount` DECIMAL(16, 2) NOT NULL DEFAULT 0 COMMENT '下单金额',
+    `paid_count` BIGINT NOT NULL DEFAULT 0 COMMENT '支付数',
+    `paid_amount` DECIMAL(16, 2) NOT NULL DEFAULT 0 COMMENT '支付金额',
+    `converted_count` BIGINT NOT NULL DEFAULT 0 COMMENT '该时间段创建的订单中已支付的数量',
+    `closed_count` BIGINT NOT NULL DEFAULT 0 COMMENT '关闭数',
+    `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
+    PRIMARY KEY (`granularity`, `bucket_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='支付统计汇总表';
+
+-- 已计入汇总的支付事件，与汇总更新在同一事务中写入，重复投递的事件据此跳过
+-- 保留时长需要超过 payment_outbox 的保留时长
+CREATE TABLE `payment_stats_applied` (
+    `out_trade_no` VARCHAR(64) NOT NULL COMMENT '商户订单号',
+    `order_version` BIGINT NOT NULL COMMENT '事件对应的订单版本号',
+    `apply_time` DATETIME NOT NULL COMMENT '计入时间',
+    PRIMARY KEY (`out_trade_no`, `order_version`),
+    INDEX `idx_apply_time` (`apply_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已计入统计的支付事件表';
@@ -13,10 +13,9 @@ CREATE TABLE `user`
     `create_time` datetime                                DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` datetime                                DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
-    UNIQUE KEY `username` (`username`),
-    UNIQUE KEY `email` (`email`),
-    KEY `idx_username` (`username`),
-    KEY `idx_email` (`email`),
+    -- 注册不再预查询用户名和邮箱，唯一性由以下两个唯一索引保证
+    UNIQUE KEY `uk_username` (`username`),
+    UNIQUE KEY `uk_email` (`email`),
     KEY `idx_phone` (`phone`),
     KEY `idx_create_time` (`create_time`)
 ) ENGINE = InnoDB
@@ -0,0 +1,9 @@
+-- 用户 AI token 累计用量表
+CREATE TABLE `user_token_usage` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `prompt_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '累计输入 token 数',
+    `completion_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '累计输出 token 数',
+    `total_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '累计 token 数',
+    `update_time` DATETIME DEFAULT NULL COMMENT '更新时间',
+    PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户 AI token 用量表';
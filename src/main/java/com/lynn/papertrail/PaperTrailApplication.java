@@ -2,11 +2,13 @@ package com.lynn.papertrail;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @author lynn
  */
 @SpringBootApplication
+@EnableScheduling
 public class PaperTrailApplication {
 
     public static void main(String[] args) {
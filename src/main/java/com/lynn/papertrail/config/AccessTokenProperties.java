@@ -0,0 +1,38 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 访问令牌配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "user.token")
+public class AccessTokenProperties {
+
+    /**
+     * 令牌类型：signed-无状态签名令牌，session-服务端会话
+     */
+    private String type = "signed";
+
+    /**
+     * 签名密钥（Base64），为空时启动时随机生成，重启后已签发的令牌失效
+     */
+    private String secret;
+
+    /**
+     * 签名令牌有效期
+     */
+    private Duration ttl = Duration.ofHours(2);
+
+    /**
+     * 验证结果缓存槽位数（2 的幂），0 表示不缓存
+     */
+    private int verificationCacheSize = 4096;
+}
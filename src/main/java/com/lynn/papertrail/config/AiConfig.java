@@ -1,11 +1,17 @@
 package com.lynn.papertrail.config;
 
+import com.lynn.papertrail.service.routing.ChatEndpoint;
+import com.lynn.papertrail.service.routing.ChatModelRouter;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * AI 相关配置
@@ -15,12 +21,37 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class AiConfig {
 
+    /**
+     * 自动配置的 OpenAI 模型对应的端点名称
+     */
+    public static final String DEFAULT_ENDPOINT = "default";
+
     @Bean
     public ChatClient chatClient(OpenAiChatModel chatModel) {
         return ChatClient.builder(chatModel).build();
     }
 
     /**
-     * 如果需要自定义 WebClient 或其他配置，可以在这里添加
+     * 多模型路由：自动配置的模型作为默认端点，ai.routing.endpoints 中的模型作为附加端点
      */
-}
\ No newline at end of file
+    @Bean(destroyMethod = "close")
+    public ChatModelRouter chatModelRouter(OpenAiChatModel chatModel, AiRoutingProperties properties) {
+        List<ChatEndpoint> endpoints = new ArrayList<>();
+        endpoints.add(new ChatEndpoint(DEFAULT_ENDPOINT, chatModel.getDefaultOptions().getModel(), chatModel, 0, Set.of()));
+
+        for (AiRoutingProperties.Endpoint endpoint : properties.getEndpoints()) {
+            OpenAiApi openAiApi = OpenAiApi.builder()
+                    .baseUrl(endpoint.getBaseUrl())
+                    .apiKey(endpoint.getApiKey())
+                    .build();
+            OpenAiChatModel endpointModel = OpenAiChatModel.builder()
+                    .openAiApi(openAiApi)
+                    .defaultOptions(OpenAiChatOptions.builder().model(endpoint.getModel()).build())
+                    .build();
+            endpoints.add(new ChatEndpoint(endpoint.getName(), endpoint.getModel(), endpointModel,
+                    endpoint.getMaxInputChars(), endpoint.getTiers()));
+        }
+
+        return new ChatModelRouter(endpoints, properties);
+    }
+}
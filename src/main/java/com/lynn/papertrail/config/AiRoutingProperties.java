@@ -0,0 +1,81 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * AI 多模型路由配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "ai.routing")
+public class AiRoutingProperties {
+
+    /**
+     * 是否启用对冲请求
+     */
+    private boolean hedgeEnabled = true;
+
+    /**
+     * 对冲等待时间下限
+     */
+    private Duration minHedgeDelay = Duration.ofMillis(300);
+
+    /**
+     * 对冲等待时间上限
+     */
+    private Duration maxHedgeDelay = Duration.ofSeconds(10);
+
+    /**
+     * 延迟样本不足时使用的对冲等待时间
+     */
+    private Duration warmupHedgeDelay = Duration.ofSeconds(3);
+
+    /**
+     * 除默认模型外的其他模型端点
+     */
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 端点名称，同时可作为请求中的 model 参数
+         */
+        private String name;
+
+        /**
+         * OpenAI 兼容接口地址
+         */
+        private String baseUrl;
+
+        /**
+         * API 密钥
+         */
+        private String apiKey;
+
+        /**
+         * 模型名称
+         */
+        private String model;
+
+        /**
+         * 允许的最大输入字符数，0 表示不限制
+         */
+        private int maxInputChars = 0;
+
+        /**
+         * 允许使用该端点的用户角色，为空表示不限制
+         */
+        private Set<String> tiers = new HashSet<>();
+    }
+}
@@ -0,0 +1,25 @@
+package com.lynn.papertrail.config;
+
+import com.lynn.papertrail.service.cache.CacheInvalidationChannel;
+import com.lynn.papertrail.service.cache.InProcessCacheInvalidationChannel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 缓存配置
+ *
+ * @author lynn
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * 默认使用进程内通道，多节点部署时提供其他实现即可替换
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheInvalidationChannel cacheInvalidationChannel() {
+        return new InProcessCacheInvalidationChannel();
+    }
+}
@@ -0,0 +1,40 @@
+package com.lynn.papertrail.config;
+
+import com.lynn.papertrail.util.UserContextHolder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 用户上下文跨线程传递配置
+ * <p>
+ * Spring Boot 自动配置的任务执行器（@Async 等）会使用这里的 {@link TaskDecorator}；
+ * Reactor 调度器的任务通过 onScheduleHook 包装，publishOn/subscribeOn 切换线程后仍能读取提交时的用户上下文。
+ * 自行创建的线程池需要通过 {@link UserContextHolder#wrapExecutor} 包装。
+ * </p>
+ *
+ * @author lynn
+ */
+@Configuration
+public class ContextPropagationConfig {
+
+    private static final String SCHEDULE_HOOK_KEY = "user-context";
+
+    @Bean
+    public TaskDecorator userContextTaskDecorator() {
+        return UserContextHolder::wrap;
+    }
+
+    @PostConstruct
+    public void registerReactorHook() {
+        Schedulers.onScheduleHook(SCHEDULE_HOOK_KEY, UserContextHolder::wrap);
+    }
+
+    @PreDestroy
+    public void removeReactorHook() {
+        Schedulers.resetOnScheduleHook(SCHEDULE_HOOK_KEY);
+    }
+}
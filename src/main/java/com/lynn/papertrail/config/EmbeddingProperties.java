@@ -0,0 +1,41 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 向量计算配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "ai.embedding")
+public class EmbeddingProperties {
+
+    /**
+     * 单次调用模型的最大文本数
+     */
+    private int batchSize = 64;
+
+    /**
+     * 凑批等待时间（毫秒），超过后即使未满也立即发送
+     */
+    private long lingerMillis = 10;
+
+    /**
+     * 同时进行中的批次数
+     */
+    private int maxConcurrentBatches = 4;
+
+    /**
+     * 向量存储文件路径
+     */
+    private String storePath = "data/paper-vectors.bin";
+
+    /**
+     * 向量存储初始槽位数
+     */
+    private int initialCapacity = 4096;
+}
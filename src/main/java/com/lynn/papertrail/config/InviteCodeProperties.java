@@ -0,0 +1,31 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 邀请码批量生成配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "invite.code")
+public class InviteCodeProperties {
+
+    /**
+     * 默认邀请码长度
+     */
+    private int length = 8;
+
+    /**
+     * 单次最多生成的邀请码数量
+     */
+    private int maxBatchSize = 1_000_000;
+
+    /**
+     * 每条 INSERT 语句写入的行数
+     */
+    private int insertChunkSize = 1_000;
+}
@@ -0,0 +1,31 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 论文摘要批处理配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "paper.summary")
+public class PaperSummaryProperties {
+
+    /**
+     * 并行调用大模型的工作线程数
+     */
+    private int workerThreads = 4;
+
+    /**
+     * 每秒最多发起的大模型调用次数，小于等于0表示不限流
+     */
+    private double requestsPerSecond = 2.0;
+
+    /**
+     * 单个任务允许提交的最大论文数
+     */
+    private int maxPapersPerJob = 500;
+}
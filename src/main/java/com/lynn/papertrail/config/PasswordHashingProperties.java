@@ -0,0 +1,38 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 密码哈希配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "user.password")
+public class PasswordHashingProperties {
+
+    /**
+     * BCrypt 强度（4-31），每加 1 计算量翻倍；调高后旧密码在登录时自动重新哈希
+     */
+    private int bcryptStrength = 10;
+
+    /**
+     * 哈希线程数，默认为 CPU 核数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 等待队列长度，队列满时立即拒绝
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * 单次哈希的最长等待时间（含排队）
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+}
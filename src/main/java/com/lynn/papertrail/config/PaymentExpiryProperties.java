@@ -0,0 +1,43 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 支付订单过期关闭配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.expiry")
+public class PaymentExpiryProperties {
+
+    /**
+     * 过期后再等待的时长，给支付宝在过期时刻附近完成的支付留出通知时间
+     */
+    private Duration grace = Duration.ofMinutes(1);
+
+    /**
+     * 过期时间在该时长以内的订单放入内存延迟队列，到期即关闭，更晚的订单只由定时扫描处理
+     */
+    private Duration horizon = Duration.ofMinutes(30);
+
+    /**
+     * 内存延迟队列最多跟踪的订单数，超出的订单由定时扫描处理
+     */
+    private int maxTracked = 100_000;
+
+    /**
+     * 每条关闭语句包含的订单数
+     */
+    private int closeBatchSize = 200;
+
+    /**
+     * 定时扫描每页读取的订单数
+     */
+    private int sweepPageSize = 1_000;
+}
@@ -0,0 +1,48 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 支付通知异步处理配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.notify")
+public class PaymentNotifyProperties {
+
+    /**
+     * 处理通知的工作线程数，同一订单的事件总是由同一个线程按顺序处理
+     */
+    private int workerThreads = 4;
+
+    /**
+     * 每个工作线程的待处理队列长度，队列满时事件留在表中由补偿任务处理
+     */
+    private int queueCapacity = 2_000;
+
+    /**
+     * 事件最后更新超过该时长仍未处理时由补偿任务重新提交
+     */
+    private Duration recoveryDelay = Duration.ofSeconds(30);
+
+    /**
+     * 补偿任务每批读取的事件数
+     */
+    private int recoveryBatchSize = 500;
+
+    /**
+     * 最大处理次数，超过后标记为 FAILED 等待人工处理
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * 更换支付宝公钥后旧公钥仍然有效的时长
+     */
+    private Duration keyRotationGrace = Duration.ofMinutes(30);
+}
@@ -0,0 +1,48 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 支付订单状态缓存配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.order-cache")
+public class PaymentOrderCacheProperties {
+
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多缓存的订单数
+     */
+    private int maxEntries = 100_000;
+
+    /**
+     * 等待付款的订单和不存在的订单号的缓存时间，多节点部署时其他节点上的状态变化最多延迟这么久可见
+     */
+    private Duration pendingTtl = Duration.ofSeconds(5);
+
+    /**
+     * 已支付或已关闭订单的缓存时间
+     */
+    private Duration finalTtl = Duration.ofMinutes(10);
+
+    /**
+     * 长轮询的默认和最大等待时间
+     */
+    private Duration longPollTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 同时等待状态变化的最大请求数，超出时立即返回当前状态
+     */
+    private int maxWaiters = 10_000;
+}
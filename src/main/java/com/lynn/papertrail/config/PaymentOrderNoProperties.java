@@ -0,0 +1,26 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 商户订单号生成配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.order-no")
+public class PaymentOrderNoProperties {
+
+    /**
+     * 节点号，范围 [0, 32)，同时运行的节点必须各不相同。未配置时单节点部署使用 0，多节点部署启动失败
+     */
+    private Integer nodeId;
+
+    /**
+     * 是否多节点部署；替换了进程内的缓存失效通道时同样视为多节点
+     */
+    private boolean multiNode = false;
+}
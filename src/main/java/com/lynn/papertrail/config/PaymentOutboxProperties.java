@@ -0,0 +1,48 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 支付事件发件箱配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.outbox")
+public class PaymentOutboxProperties {
+
+    /**
+     * 是否在本节点运行转发线程。多个节点开启时通过数据库咨询锁选出一个节点转发，保证同一订单的事件按顺序投递
+     */
+    private boolean relayEnabled = true;
+
+    /**
+     * 每批投递的事件数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 没有新事件通知时的轮询间隔，也是投递失败后的重试间隔
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * 单个事件的最大投递次数，超过后标记为 FAILED 等待人工处理
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * 已投递事件的保留时长
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * 清理已投递事件时每条语句删除的行数
+     */
+    private int cleanupBatchSize = 1_000;
+}
@@ -0,0 +1,43 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 支付订单对账配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.reconciliation")
+public class PaymentReconciliationProperties {
+
+    /**
+     * 是否定时对账
+     */
+    private boolean enabled = true;
+
+    /**
+     * 并发查询支付宝的线程数
+     */
+    private int workerThreads = 4;
+
+    /**
+     * 每秒最多发起的查询次数，小于等于0表示不限流
+     */
+    private double requestsPerSecond = 10.0;
+
+    /**
+     * 每页核对的订单数，同一页的更新一次批量提交
+     */
+    private int pageSize = 200;
+
+    /**
+     * 已关闭订单的回查范围：过期时间在该时长以内的已关闭订单也会核对，发现迟到的支付
+     */
+    private Duration closedLookback = Duration.ofDays(1);
+}
@@ -0,0 +1,43 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 支付统计配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.stats")
+public class PaymentStatsProperties {
+
+    /**
+     * 按分钟汇总的保留时长
+     */
+    private Duration minuteRetention = Duration.ofDays(7);
+
+    /**
+     * 按小时汇总的保留时长，按天汇总一直保留
+     */
+    private Duration hourRetention = Duration.ofDays(180);
+
+    /**
+     * 已计入统计的事件记录保留时长，需要超过 payment.outbox.retention，否则重复投递的事件可能被重复计入
+     */
+    private Duration appliedRetention = Duration.ofDays(14);
+
+    /**
+     * 一次查询最多返回的时间段数
+     */
+    private int maxBuckets = 1_500;
+
+    /**
+     * 清理时每条语句删除的行数
+     */
+    private int cleanupBatchSize = 1_000;
+}
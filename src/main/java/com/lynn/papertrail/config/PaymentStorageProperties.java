@@ -0,0 +1,47 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 支付订单存储配置：分表、按月分区和归档
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "payment.storage")
+public class PaymentStorageProperties {
+
+    /**
+     * 订单分表数，1 表示不分表。0 号分表沿用 payment_order，其余为 payment_order_01 起的同构表，
+     * 分表数只能增加，增加前需要先按 docs/payment_order_partition_schema.sql 建好新表
+     */
+    private int shardCount = 1;
+
+    /**
+     * 是否开启分区维护，开启前需要先把订单表转换为按 create_time 月分区的表
+     */
+    private boolean partitionMaintenanceEnabled = false;
+
+    /**
+     * 分区维护时提前创建的月份数
+     */
+    private int partitionMonthsAhead = 3;
+
+    /**
+     * 是否开启已关闭订单归档
+     */
+    private boolean archiveEnabled = false;
+
+    /**
+     * 已关闭超过该月数的订单移入归档表
+     */
+    private int archiveAfterMonths = 6;
+
+    /**
+     * 每个归档事务移动的订单数
+     */
+    private int archiveBatchSize = 500;
+}
@@ -0,0 +1,63 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 登录会话配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "user.session")
+public class SessionProperties {
+
+    /**
+     * 会话空闲过期时间，每次访问后重新计算
+     */
+    private Duration ttl = Duration.ofHours(2);
+
+    /**
+     * 续期间隔，距上次续期不足该时间的访问不再写入过期时间
+     */
+    private Duration touchInterval = Duration.ofMinutes(1);
+
+    /**
+     * 每个用户的最大会话数，超出时移除最早的会话，0 表示不限制
+     */
+    private int maxSessionsPerUser = 10;
+
+    /**
+     * 分段数（2 的幂），分段之间互不阻塞
+     */
+    private int segments = 64;
+
+    /**
+     * 每个分段的初始容量
+     */
+    private int initialSegmentCapacity = 1024;
+
+    /**
+     * 时间轮每格时长
+     */
+    private Duration wheelTick = Duration.ofSeconds(1);
+
+    /**
+     * 时间轮格数（2 的幂）
+     */
+    private int wheelSize = 1024;
+
+    /**
+     * 快照文件路径，为空时不持久化
+     */
+    private String snapshotPath;
+
+    /**
+     * 定期写快照的间隔，为 0 时只在停机时写入
+     */
+    private Duration snapshotInterval = Duration.ZERO;
+}
@@ -0,0 +1,43 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * AI token 配额配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "ai.quota")
+public class TokenQuotaProperties {
+
+    /**
+     * 是否启用配额限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个用户的免费 token 额度
+     */
+    private long freeTokens = 100_000;
+
+    /**
+     * 每支付 1 元增加的 token 额度
+     */
+    private long tokensPerYuan = 10_000;
+
+    /**
+     * 内存计数写入数据库的间隔（毫秒）
+     */
+    private long flushIntervalMillis = 5_000;
+
+    /**
+     * 配额快照的空闲过期时间，超过该时间未被读取的快照在刷新时移出，下次访问重新加载
+     */
+    private Duration snapshotIdleTimeout = Duration.ofMinutes(30);
+}
@@ -0,0 +1,38 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 用户缓存配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "user.cache")
+public class UserCacheProperties {
+
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多缓存的用户数
+     */
+    private int maxEntries = 100_000;
+
+    /**
+     * 用户资料缓存时间
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * 不存在的用户名/邮箱的缓存时间
+     */
+    private Duration negativeTtl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,36 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 用户名/邮箱存在性过滤器配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "user.existence-filter")
+public class UserExistenceFilterProperties {
+
+    /**
+     * 是否启用，关闭时注册前总是查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预计用户数，超出后误判率上升，需重启重建
+     */
+    private long expectedInsertions = 1_000_000;
+
+    /**
+     * 期望误判率
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * 启动预热时每页读取的用户数
+     */
+    private int warmupPageSize = 5_000;
+}
@@ -0,0 +1,26 @@
+package com.lynn.papertrail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 批量导入用户配置
+ *
+ * @author lynn
+ */
+@Configuration
+@Data
+@ConfigurationProperties(prefix = "user.import")
+public class UserImportProperties {
+
+    /**
+     * 每批写入的行数
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * 响应中最多返回的错误行数
+     */
+    private int maxReportedErrors = 1_000;
+}
@@ -4,6 +4,7 @@ import com.lynn.papertrail.dto.AiChatRequest;
 import com.lynn.papertrail.dto.AiChatResponse;
 import com.lynn.papertrail.dto.AiStreamChatResponse;
 import com.lynn.papertrail.service.AiChatService;
+import com.lynn.papertrail.service.quota.QuotaExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,7 @@ import reactor.core.publisher.Flux;
 
 import jakarta.validation.Valid;
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -50,6 +52,13 @@ public class AiChatController {
             AiChatResponse response = aiChatService.chat(request);
             logger.info("AI response generated successfully");
             return ResponseEntity.ok(response);
+        } catch (QuotaExceededException e) {
+            logger.info("AI quota exceeded for user {}", e.getUserId());
+            return ResponseEntity.status(429).body(new AiChatResponse(
+                    e.getMessage(),
+                    request.getSessionId(),
+                    request.getModel()
+            ));
         } catch (Exception e) {
             logger.error("Error processing AI chat request", e);
             return ResponseEntity.status(500).body(new AiChatResponse(
@@ -72,12 +81,35 @@ public class AiChatController {
 
         try {
             return aiChatService.streamChat(request);
+        } catch (QuotaExceededException e) {
+            logger.info("AI quota exceeded for user {}", e.getUserId());
+            return Flux.just(new AiStreamChatResponse(e.getMessage(), true, request.getSessionId(), request.getModel()));
         } catch (Exception e) {
             logger.error("Error processing AI reactive stream chat request", e);
             return Flux.error(e);
         }
     }
 
+    /**
+     * 获取提示词前缀缓存统计
+     *
+     * @return 各场景的请求数、输入 token 数与命中缓存的 token 数
+     */
+    @GetMapping("/prompt-cache/stats")
+    public ResponseEntity<Map<String, Map<String, Long>>> promptCacheStats() {
+        return ResponseEntity.ok(aiChatService.getPromptCacheStatistics());
+    }
+
+    /**
+     * 获取模型路由统计
+     *
+     * @return 各端点的请求数、错误率、延迟分位数以及对冲次数
+     */
+    @GetMapping("/routing/stats")
+    public ResponseEntity<Map<String, Object>> routingStats() {
+        return ResponseEntity.ok(aiChatService.getRoutingStatistics());
+    }
+
     /**
      * 健康检查端点
      *
@@ -0,0 +1,84 @@
+package com.lynn.papertrail.controller;
+
+import com.lynn.papertrail.dto.PaperSummaryJobRequest;
+import com.lynn.papertrail.dto.PaperSummaryJobResponse;
+import com.lynn.papertrail.entity.PaperSummary;
+import com.lynn.papertrail.service.summary.PaperSummaryJobService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 论文摘要控制器
+ *
+ * @author lynn
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/papers/summaries")
+@RequiredArgsConstructor
+public class PaperSummaryController {
+
+    private final PaperSummaryJobService paperSummaryJobService;
+
+    /**
+     * 提交批量摘要任务
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<PaperSummaryJobResponse> submitJob(@Valid @RequestBody PaperSummaryJobRequest request) {
+        log.info("提交论文摘要任务，论文数: {}", request.getPaperIds().size());
+
+        try {
+            return ResponseEntity.ok(paperSummaryJobService.submit(request.getPaperIds()));
+        } catch (IllegalArgumentException e) {
+            log.warn("论文摘要任务参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 查询任务进度
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<PaperSummaryJobResponse> getJob(@PathVariable String jobId) {
+        PaperSummaryJobResponse job = paperSummaryJobService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 重新执行任务中尚未完成的部分
+     */
+    @PostMapping("/jobs/{jobId}/resume")
+    public ResponseEntity<PaperSummaryJobResponse> resumeJob(@PathVariable String jobId) {
+        log.info("恢复论文摘要任务: {}", jobId);
+
+        try {
+            return ResponseEntity.ok(paperSummaryJobService.resume(jobId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 批量获取已生成的摘要（论文ID -> 摘要）
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, String>> getSummaries(@RequestParam List<String> ids) {
+        return ResponseEntity.ok(paperSummaryJobService.getSummaries(ids));
+    }
+
+    /**
+     * 获取单篇论文的摘要
+     */
+    @GetMapping("/{paperId}")
+    public ResponseEntity<PaperSummary> getSummary(@PathVariable String paperId) {
+        return paperSummaryJobService.getSummary(paperId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -2,16 +2,32 @@ package com.lynn.papertrail.controller;
 
 import com.lynn.papertrail.dto.PaymentRequest;
 import com.lynn.papertrail.dto.PaymentResponse;
+import com.lynn.papertrail.dto.PaymentStatsResponse;
 import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.entity.PaymentReconciliation;
+import com.lynn.papertrail.config.PaymentOrderCacheProperties;
 import com.lynn.papertrail.service.PaymentService;
+import com.lynn.papertrail.service.payment.AlipayNotifyVerifier;
+import com.lynn.papertrail.service.payment.PaymentOrderCache;
+import com.lynn.papertrail.service.payment.PaymentReconciliationService;
+import com.lynn.papertrail.service.stats.PaymentStatsGranularity;
+import com.lynn.papertrail.service.stats.PaymentStatsService;
+import com.lynn.papertrail.util.UserContextHolder;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 支付控制器
@@ -25,6 +41,11 @@ import java.util.Optional;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final PaymentOrderCache paymentOrderCache;
+    private final PaymentOrderCacheProperties paymentOrderCacheProperties;
+    private final AlipayNotifyVerifier alipayNotifyVerifier;
+    private final PaymentStatsService paymentStatsService;
 
     /**
      * 创建支付订单
@@ -37,21 +58,70 @@ public class PaymentController {
     }
 
     /**
-     * 查询订单状态
+     * 查询订单状态，仅下单用户和管理员可用
      */
     @GetMapping("/query/{outTradeNo}")
     public ResponseEntity<Optional<PaymentOrder>> queryOrder(@PathVariable String outTradeNo) {
         log.info("查询订单状态: 订单号={}", outTradeNo);
         Optional<PaymentOrder> order = paymentService.queryOrder(outTradeNo);
+        HttpStatus denied = order.map(PaymentController::denyViewing).orElse(null);
+        if (denied != null) {
+            return ResponseEntity.status(denied).build();
+        }
         return ResponseEntity.ok(order);
     }
 
     /**
-     * 主动刷新订单状态
+     * 长轮询等待订单支付结果
+     * <p>
+     * 订单变为已支付或已关闭时立即返回；等待超时后返回当前状态（仍为 WAIT_BUYER_PAY），客户端再次发起请求即可。
+     * 订单不存在时返回 404，不是下单用户或管理员时在开始等待前拒绝。
+     * </p>
+     *
+     * @param timeoutSeconds 等待时间，不超过配置的最大值
+     */
+    @GetMapping("/wait/{outTradeNo}")
+    public DeferredResult<ResponseEntity<PaymentOrder>> waitForOrder(@PathVariable String outTradeNo,
+                                                                     @RequestParam(required = false) Long timeoutSeconds) {
+        long maxTimeout = paymentOrderCacheProperties.getLongPollTimeout().toMillis();
+        long timeout = timeoutSeconds != null && timeoutSeconds > 0
+                ? Math.min(timeoutSeconds * 1000, maxTimeout) : maxTimeout;
+        DeferredResult<ResponseEntity<PaymentOrder>> result = new DeferredResult<>(timeout);
+
+        // 回调在其他线程执行，拿不到用户上下文，只在这里检查一次；订单的下单用户不会改变
+        PaymentOrder current = paymentOrderCache.get(outTradeNo);
+        HttpStatus denied = current != null ? denyViewing(current) : null;
+        if (current == null || denied != null) {
+            result.setResult(current == null ? ResponseEntity.notFound().build() : ResponseEntity.status(denied).build());
+            return result;
+        }
+
+        CompletableFuture<PaymentOrder> future = paymentOrderCache.awaitCompletion(outTradeNo);
+        if (future == null) {
+            // 等待数已满，直接返回当前状态
+            result.setResult(orderResponse(paymentOrderCache.get(outTradeNo)));
+            return result;
+        }
+        future.thenAccept(order -> result.setResult(orderResponse(order)));
+        result.onTimeout(() -> {
+            future.cancel(false);
+            result.setResult(orderResponse(paymentOrderCache.get(outTradeNo)));
+        });
+        result.onCompletion(() -> future.cancel(false));
+        return result;
+    }
+
+    /**
+     * 主动刷新订单状态，仅下单用户和管理员可用
      */
     @PutMapping("/refresh/{outTradeNo}")
     public ResponseEntity<PaymentOrder> refreshOrder(@PathVariable String outTradeNo) {
         log.info("主动刷新订单状态: 订单号={}", outTradeNo);
+        PaymentOrder existing = paymentOrderCache.get(outTradeNo);
+        HttpStatus denied = existing != null ? denyViewing(existing) : null;
+        if (denied != null) {
+            return ResponseEntity.status(denied).build();
+        }
         try {
             PaymentOrder order = paymentService.refreshOrderStatus(outTradeNo);
             return ResponseEntity.ok(order);
@@ -61,16 +131,81 @@ public class PaymentController {
         }
     }
 
+    /**
+     * 立即执行一次订单对账，仅管理员可用
+     */
+    @PostMapping("/reconcile")
+    public ResponseEntity<PaymentReconciliation> reconcile() {
+        if (!"ADMIN".equals(UserContextHolder.getUserRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(paymentReconciliationService.reconcile());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * 按分钟、小时或天汇总的下单、支付和转化统计，只读取汇总表，仅管理员可用
+     *
+     * @param from 开始时间，默认为结束时间之前一个默认范围
+     * @param to   结束时间（不含），默认为当前时间
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<PaymentStatsResponse> getStats(
+            @RequestParam(defaultValue = "HOUR") PaymentStatsGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!"ADMIN".equals(UserContextHolder.getUserRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(granularity.defaultRange());
+        try {
+            return ResponseEntity.ok(paymentStatsService.query(granularity, start, end));
+        } catch (IllegalArgumentException e) {
+            log.warn("支付统计查询参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 支付回调通知接口
      */
     @PostMapping("/notify")
-    public ResponseEntity<String> handleNotify(@RequestBody String params) {
+    public ResponseEntity<String> handleNotify(HttpServletRequest request) throws IOException {
         log.info("接收到支付回调通知");
-        String result = paymentService.handleNotify(params);
+        // 直接读取原始请求体；表单 POST 经 @RequestBody 绑定时会先解析为参数再重新编码
+        String result = paymentService.handleNotify(request.getInputStream().readAllBytes());
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 更换支付宝公钥，旧公钥在过渡期内仍可验签，仅管理员可用
+     */
+    @PutMapping("/notify/public-key")
+    public ResponseEntity<Void> rotateNotifyPublicKey(@RequestBody String publicKey) {
+        if (!"ADMIN".equals(UserContextHolder.getUserRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            alipayNotifyVerifier.rotate(publicKey);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("更换支付宝公钥失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 支付通知验签次数和耗时统计
+     */
+    @GetMapping("/notify/stats")
+    public ResponseEntity<Map<String, Object>> getNotifyVerifyStats() {
+        return ResponseEntity.ok(alipayNotifyVerifier.getStatistics());
+    }
+
     /**
      * 支付同步返回接口
      */
@@ -80,4 +215,24 @@ public class PaymentController {
         // 这里可以处理同步返回的逻辑
         return ResponseEntity.ok("支付结果处理完成");
     }
-}
\ No newline at end of file
+
+    /**
+     * 订单号可以推测，不能作为访问凭证，只有下单用户和管理员可以查看订单
+     *
+     * @return 无权查看时的响应状态，可以查看时返回 null
+     */
+    private static HttpStatus denyViewing(PaymentOrder order) {
+        if ("ADMIN".equals(UserContextHolder.getUserRole())) {
+            return null;
+        }
+        Long userId = UserContextHolder.getUserId();
+        if (userId == null) {
+            return HttpStatus.UNAUTHORIZED;
+        }
+        return userId.equals(order.getUserId()) ? null : HttpStatus.FORBIDDEN;
+    }
+
+    private static ResponseEntity<PaymentOrder> orderResponse(PaymentOrder order) {
+        return order != null ? ResponseEntity.ok(order) : ResponseEntity.notFound().build();
+    }
+}
@@ -1,38 +1,72 @@
 package com.lynn.papertrail.controller;
 
+import com.lynn.papertrail.dto.UserImportResponse;
 import com.lynn.papertrail.dto.UserLoginRequest;
 import com.lynn.papertrail.dto.UserLoginResponse;
 import com.lynn.papertrail.dto.UserRegisterRequest;
 import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.filter.TokenAuthenticationFilter;
 import com.lynn.papertrail.service.UserService;
+import com.lynn.papertrail.service.password.PasswordHashingBusyException;
+import com.lynn.papertrail.service.provisioning.UserImportReader;
+import com.lynn.papertrail.service.provisioning.UserImportService;
+import com.lynn.papertrail.util.UserContextHolder;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * 用户控制器
  *
  * @author lynn
  * @since 2025-10-02
  */
+@Slf4j
 @RestController
 @RequestMapping("/api/user")
 @RequiredArgsConstructor
 public class UserController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
 
     /**
      * 用户注册
      */
     @PostMapping("/register")
     public ResponseEntity<User> register(@RequestBody UserRegisterRequest request) {
-        User user = userService.register(request);
-        // 不返回密码字段
-        user.setPassword(null);
-        return ResponseEntity.ok(user);
+        try {
+            User user = userService.register(request);
+            // 不返回密码字段
+            user.setPassword(null);
+            return ResponseEntity.ok(user);
+        } catch (PasswordHashingBusyException e) {
+            return serviceBusy();
+        }
+    }
+
+    /**
+     * 检查用户名或邮箱是否可用
+     */
+    @GetMapping("/available")
+    public ResponseEntity<Map<String, Boolean>> checkAvailability(@RequestParam(required = false) String username,
+                                                                  @RequestParam(required = false) String email) {
+        if (username == null && email == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.checkAvailability(username, email));
     }
 
     /**
@@ -41,28 +75,29 @@ public class UserController {
     @PostMapping("/login")
     public ResponseEntity<UserLoginResponse> login(@RequestBody UserLoginRequest request, HttpServletRequest httpRequest) {
         String clientIp = getClientIpAddress(httpRequest);
-        UserLoginResponse response = userService.login(request);
-        // 不返回用户密码
-        response.getUser().setPassword(null);
-        return ResponseEntity.ok(response);
+        try {
+            UserLoginResponse response = userService.login(request);
+            // 不返回用户密码
+            response.getUser().setPassword(null);
+            return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            log.warn("密码哈希线程池繁忙，拒绝登录请求: ip={}", clientIp);
+            return serviceBusy();
+        }
     }
 
     /**
      * 获取当前用户信息
      */
     @GetMapping("/profile")
-    public ResponseEntity<User> getProfile(@RequestParam String token) {
-        // 在实际应用中，这里应该验证token的有效性并从中获取用户ID
-        // 为了简单起见，这里我们直接返回一个示例用户（实际中应从数据库中获取）
-        // 这里应该通过token从缓存或数据库中查询用户信息
-        // 现在我们返回一个假的用户对象用于演示
-        User user = new User();
-        user.setId(1L);
-        user.setUsername("testuser");
-        user.setNickname("测试用户");
-        user.setEmail("test@example.com");
-        user.setCreateTime(java.time.LocalDateTime.now());
-        user.setPassword(null); // 不返回密码
+    public ResponseEntity<User> getProfile() {
+        Long userId = UserContextHolder.getUserId();
+        User user = userId != null ? userService.findById(userId) : null;
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // 不返回密码
+        user.setPassword(null);
         return ResponseEntity.ok(user);
     }
 
@@ -70,11 +105,53 @@ public class UserController {
      * 用户登出
      */
     @PostMapping("/logout")
-    public ResponseEntity<String> logout(@RequestParam String token) {
-        // 在实际应用中，这里应该将token加入黑名单
+    public ResponseEntity<String> logout(HttpServletRequest httpRequest) {
+        userService.logout(TokenAuthenticationFilter.resolveToken(httpRequest));
         return ResponseEntity.ok("登出成功");
     }
 
+    /**
+     * 注销当前用户在所有设备上的登录
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<String> logoutAll() {
+        Long userId = UserContextHolder.getUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        userService.logoutAll(userId);
+        return ResponseEntity.ok("已注销全部登录");
+    }
+
+    /**
+     * 批量导入用户，仅管理员可用
+     * <p>
+     * 请求体为 CSV（首行为表头）或每行一个 JSON 对象（Content-Type 含 json），按流读取，不整体载入内存。
+     * </p>
+     */
+    @PostMapping("/import")
+    public ResponseEntity<UserImportResponse> importUsers(HttpServletRequest httpRequest) {
+        if (!"ADMIN".equals(UserContextHolder.getUserRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        String contentType = httpRequest.getContentType();
+        UserImportReader.Format format = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")
+                ? UserImportReader.Format.NDJSON : UserImportReader.Format.CSV;
+        try (Reader reader = new InputStreamReader(httpRequest.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(userImportService.importUsers(reader, format));
+        } catch (IOException e) {
+            log.warn("批量导入用户失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 密码哈希线程池繁忙时返回 503，提示客户端稍后重试
+     */
+    private static <T> ResponseEntity<T> serviceBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
     /**
      * 获取客户端IP地址
      */
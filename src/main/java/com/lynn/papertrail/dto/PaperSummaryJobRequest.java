@@ -0,0 +1,21 @@
+package com.lynn.papertrail.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 论文摘要批处理任务请求DTO
+ *
+ * @author lynn
+ */
+@Data
+public class PaperSummaryJobRequest {
+
+    /**
+     * 需要生成摘要的论文ID列表
+     */
+    @NotEmpty(message = "论文ID列表不能为空")
+    private List<String> paperIds;
+}
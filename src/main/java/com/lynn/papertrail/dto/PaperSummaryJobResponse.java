@@ -0,0 +1,63 @@
+package com.lynn.papertrail.dto;
+
+import com.lynn.papertrail.entity.PaperSummaryJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 论文摘要批处理任务进度DTO
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaperSummaryJobResponse {
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 任务状态
+     */
+    private String status;
+
+    /**
+     * 论文总数
+     */
+    private int total;
+
+    /**
+     * 已完成数（包括已有摘要直接复用的论文）
+     */
+    private int completed;
+
+    /**
+     * 失败数
+     */
+    private int failed;
+
+    /**
+     * 完成百分比
+     */
+    private double progress;
+
+    public static PaperSummaryJobResponse from(PaperSummaryJob job) {
+        int total = job.getTotal() != null ? job.getTotal() : 0;
+        int completed = job.getCompleted() != null ? job.getCompleted() : 0;
+        int failed = job.getFailed() != null ? job.getFailed() : 0;
+        return PaperSummaryJobResponse.builder()
+                .jobId(job.getJobId())
+                .status(job.getStatus())
+                .total(total)
+                .completed(completed)
+                .failed(failed)
+                .progress(total == 0 ? 100.0 : (completed + failed) * 100.0 / total)
+                .build();
+    }
+}
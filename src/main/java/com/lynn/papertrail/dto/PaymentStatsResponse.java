@@ -0,0 +1,100 @@
+package com.lynn.papertrail.dto;
+
+import com.lynn.papertrail.entity.PaymentStatsRollup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 支付统计DTO
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatsResponse {
+
+    /**
+     * 统计粒度
+     */
+    private String granularity;
+
+    /**
+     * 开始时间（含），已对齐到时间段
+     */
+    private LocalDateTime from;
+
+    /**
+     * 结束时间（不含）
+     */
+    private LocalDateTime to;
+
+    /**
+     * 整个范围的合计
+     */
+    private Bucket total;
+
+    /**
+     * 有数据的时间段，按时间排序
+     */
+    private List<Bucket> buckets;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+
+        /**
+         * 时间段开始时间
+         */
+        private LocalDateTime bucketStart;
+
+        private long createdCount;
+
+        private BigDecimal createdAmount;
+
+        private long paidCount;
+
+        private BigDecimal paidAmount;
+
+        /**
+         * 该时间段创建的订单中已支付的数量
+         */
+        private long convertedCount;
+
+        private long closedCount;
+
+        /**
+         * 转化率：convertedCount / createdCount
+         */
+        private double conversionRate;
+
+        public static Bucket from(PaymentStatsRollup rollup) {
+            return of(rollup.getBucketStart(), rollup.getCreatedCount(), rollup.getCreatedAmount(),
+                    rollup.getPaidCount(), rollup.getPaidAmount(), rollup.getConvertedCount(),
+                    rollup.getClosedCount());
+        }
+
+        public static Bucket of(LocalDateTime bucketStart, long createdCount, BigDecimal createdAmount,
+                                long paidCount, BigDecimal paidAmount, long convertedCount, long closedCount) {
+            return Bucket.builder()
+                    .bucketStart(bucketStart)
+                    .createdCount(createdCount)
+                    .createdAmount(createdAmount)
+                    .paidCount(paidCount)
+                    .paidAmount(paidAmount)
+                    .convertedCount(convertedCount)
+                    .closedCount(closedCount)
+                    .conversionRate(createdCount == 0 ? 0.0 : (double) convertedCount / createdCount)
+                    .build();
+        }
+    }
+}
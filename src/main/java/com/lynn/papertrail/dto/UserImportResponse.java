@@ -0,0 +1,55 @@
+package com.lynn.papertrail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入用户结果DTO
+ *
+ * @author lynn
+ */
+@Data
+@NoArgsConstructor
+public class UserImportResponse {
+
+    /**
+     * 读取的数据行数
+     */
+    private int total;
+
+    /**
+     * 成功创建的用户数
+     */
+    private int succeeded;
+
+    /**
+     * 失败行数
+     */
+    private int failed;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 失败行明细，超过上限时只保留前面的部分
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 失败行
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int line;
+        private String username;
+        private String message;
+    }
+}
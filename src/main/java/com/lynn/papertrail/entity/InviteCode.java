@@ -0,0 +1,70 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 邀请码实体类
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("invite_code")
+public class InviteCode implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID
+     */
+    @Id(keyType = KeyType.Auto)
+    private Long id;
+
+    /**
+     * 邀请码
+     */
+    private String code;
+
+    /**
+     * 分配器中的序号
+     */
+    private Long seqIndex;
+
+    /**
+     * 生成人用户ID
+     */
+    private Long createdBy;
+
+    /**
+     * 使用人用户ID，未使用时为空
+     */
+    private Long usedBy;
+
+    /**
+     * 状态：0-未使用，1-已使用
+     */
+    private Integer status;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 使用时间
+     */
+    private LocalDateTime useTime;
+}
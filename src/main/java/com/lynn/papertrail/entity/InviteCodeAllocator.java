@@ -0,0 +1,50 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 邀请码序号分配器，每种长度一行
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("invite_code_allocator")
+public class InviteCodeAllocator implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 邀请码长度
+     */
+    @Id(keyType = KeyType.None)
+    private Integer codeLength;
+
+    /**
+     * 序号置换密钥
+     */
+    private Long permutationKey;
+
+    /**
+     * 下一个可分配的序号
+     */
+    private Long nextIndex;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
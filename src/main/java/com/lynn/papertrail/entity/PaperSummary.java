@@ -0,0 +1,72 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import java.io.Serial;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 论文摘要表 实体类。
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("paper_summary")
+public class PaperSummary implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID
+     */
+    @Id(keyType = KeyType.Auto)
+    private Long id;
+
+    /**
+     * 论文ID（数据源_原始ID）
+     */
+    private String paperId;
+
+    /**
+     * 论文标题
+     */
+    private String title;
+
+    /**
+     * AI 生成的摘要
+     */
+    private String summary;
+
+    /**
+     * 输入 token 数
+     */
+    private Integer promptTokens;
+
+    /**
+     * 输出 token 数
+     */
+    private Integer completionTokens;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+}
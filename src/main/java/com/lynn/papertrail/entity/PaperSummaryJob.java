@@ -0,0 +1,81 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import java.io.Serial;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 论文摘要批处理任务表 实体类。
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("paper_summary_job")
+public class PaperSummaryJob implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_COMPLETED_WITH_ERRORS = "COMPLETED_WITH_ERRORS";
+
+    /**
+     * 主键ID
+     */
+    @Id(keyType = KeyType.Auto)
+    private Long id;
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 任务状态
+     */
+    private String status;
+
+    /**
+     * 论文ID列表，逗号分隔
+     */
+    private String paperIds;
+
+    /**
+     * 论文总数
+     */
+    private Integer total;
+
+    /**
+     * 已完成数
+     */
+    private Integer completed;
+
+    /**
+     * 失败数
+     */
+    private Integer failed;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+}
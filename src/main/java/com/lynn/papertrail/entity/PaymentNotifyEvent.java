@@ -0,0 +1,94 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 支付宝异步通知事件，(trade_no, notify_id) 唯一，重复通知不会重复入库
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("payment_notify_event")
+public class PaymentNotifyEvent implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_APPLIED = "APPLIED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 主键ID
+     */
+    @Id(keyType = KeyType.Auto)
+    private Long id;
+
+    /**
+     * 支付宝通知ID
+     */
+    private String notifyId;
+
+    /**
+     * 支付宝交易号
+     */
+    private String tradeNo;
+
+    /**
+     * 商户订单号
+     */
+    private String outTradeNo;
+
+    /**
+     * 交易状态
+     */
+    private String tradeStatus;
+
+    /**
+     * 买家ID
+     */
+    private String buyerId;
+
+    /**
+     * 买家登录ID
+     */
+    private String buyerLogonId;
+
+    /**
+     * 处理状态：PENDING、APPLIED、FAILED
+     */
+    private String status;
+
+    /**
+     * 已尝试处理次数
+     */
+    private Integer attempts;
+
+    /**
+     * 最近一次处理失败的原因
+     */
+    private String lastError;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
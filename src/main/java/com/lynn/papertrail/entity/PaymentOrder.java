@@ -1,5 +1,6 @@
 package com.lynn.papertrail.entity;
 
+import com.mybatisflex.annotation.Column;
 import com.mybatisflex.annotation.Id;
 import com.mybatisflex.annotation.KeyType;
 import com.mybatisflex.annotation.Table;
@@ -36,6 +37,11 @@ public class PaymentOrder implements Serializable {
     @Id(keyType = KeyType.Auto)
     private Long id;
 
+    /**
+     * 下单用户ID
+     */
+    private Long userId;
+
     /**
      * 订单描述
      */
@@ -96,4 +102,10 @@ public class PaymentOrder implements Serializable {
      */
     private LocalDateTime updateTime;
 
+    /**
+     * 乐观锁版本号，每次状态变更加一
+     */
+    @Column(version = true)
+    private Long version;
+
 }
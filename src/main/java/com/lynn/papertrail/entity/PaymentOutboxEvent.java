@@ -0,0 +1,95 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 支付事件发件箱记录，(out_trade_no, order_version) 唯一
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("payment_outbox")
+public class PaymentOutboxEvent implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_PUBLISHED = "PUBLISHED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 主键ID，即投递顺序
+     */
+    @Id(keyType = KeyType.Auto)
+    private Long id;
+
+    /**
+     * 商户订单号
+     */
+    private String outTradeNo;
+
+    /**
+     * 事件对应的订单版本号
+     */
+    private Long orderVersion;
+
+    /**
+     * 事件类型：ORDER_CREATED、ORDER_PAID、ORDER_CLOSED
+     */
+    private String eventType;
+
+    /**
+     * 下单用户ID
+     */
+    private Long userId;
+
+    /**
+     * 订单总金额
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 订单创建时间
+     */
+    private LocalDateTime orderCreateTime;
+
+    /**
+     * 投递状态：PENDING、PUBLISHED、FAILED
+     */
+    private String status;
+
+    /**
+     * 投递失败次数
+     */
+    private Integer attempts;
+
+    /**
+     * 最近一次投递失败的原因
+     */
+    private String lastError;
+
+    /**
+     * 事件发生时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 投递完成时间
+     */
+    private LocalDateTime publishTime;
+}
@@ -0,0 +1,89 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 支付订单对账报告，每次对账一条记录
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("payment_reconciliation")
+public class PaymentReconciliation implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 主键ID
+     */
+    @Id(keyType = KeyType.Auto)
+    private Long id;
+
+    /**
+     * 对账状态：RUNNING、COMPLETED、FAILED
+     */
+    private String status;
+
+    /**
+     * 核对的订单数
+     */
+    private Integer scanned;
+
+    /**
+     * 与支付宝状态一致、无需更新的订单数
+     */
+    private Integer matched;
+
+    /**
+     * 按支付宝状态更新为已支付的订单数
+     */
+    private Integer paid;
+
+    /**
+     * 按支付宝状态更新为已关闭的订单数
+     */
+    private Integer closed;
+
+    /**
+     * 支付宝侧不存在交易（用户未扫码）的订单数
+     */
+    private Integer notExist;
+
+    /**
+     * 查询或更新失败的订单数
+     */
+    private Integer failed;
+
+    /**
+     * 对账失败的原因
+     */
+    private String lastError;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishTime;
+}
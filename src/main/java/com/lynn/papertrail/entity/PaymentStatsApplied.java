@@ -0,0 +1,46 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 已计入支付统计的事件，(out_trade_no, order_version) 唯一
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("payment_stats_applied")
+public class PaymentStatsApplied implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 商户订单号
+     */
+    @Id(keyType = KeyType.None)
+    private String outTradeNo;
+
+    /**
+     * 事件对应的订单版本号
+     */
+    @Id(keyType = KeyType.None)
+    private Long orderVersion;
+
+    /**
+     * 计入时间
+     */
+    private LocalDateTime applyTime;
+}
@@ -0,0 +1,77 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 支付统计汇总，(granularity, bucket_start) 唯一
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("payment_stats_rollup")
+public class PaymentStatsRollup implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 统计粒度：MINUTE、HOUR、DAY
+     */
+    @Id(keyType = KeyType.None)
+    private String granularity;
+
+    /**
+     * 时间段开始时间
+     */
+    @Id(keyType = KeyType.None)
+    private LocalDateTime bucketStart;
+
+    /**
+     * 下单数
+     */
+    private Long createdCount;
+
+    /**
+     * 下单金额
+     */
+    private BigDecimal createdAmount;
+
+    /**
+     * 支付数
+     */
+    private Long paidCount;
+
+    /**
+     * 支付金额
+     */
+    private BigDecimal paidAmount;
+
+    /**
+     * 该时间段创建的订单中已支付的数量
+     */
+    private Long convertedCount;
+
+    /**
+     * 关闭数
+     */
+    private Long closedCount;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,57 @@
+package com.lynn.papertrail.entity;
+
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import java.io.Serial;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户 AI token 用量表 实体类。
+ *
+ * @author lynn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("user_token_usage")
+public class UserTokenUsage implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    @Id(keyType = KeyType.None)
+    private Long userId;
+
+    /**
+     * 累计输入 token 数
+     */
+    private Long promptTokens;
+
+    /**
+     * 累计输出 token 数
+     */
+    private Long completionTokens;
+
+    /**
+     * 累计 token 数
+     */
+    private Long totalTokens;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+}
@@ -0,0 +1,68 @@
+package com.lynn.papertrail.filter;
+
+import com.lynn.papertrail.service.token.AccessToken;
+import com.lynn.papertrail.service.token.AccessTokenService;
+import com.lynn.papertrail.util.UserContext;
+import com.lynn.papertrail.util.UserContextHolder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 访问令牌认证过滤器
+ * <p>
+ * 从 Authorization: Bearer 请求头或 token 参数中读取令牌，验证通过后将用户ID和角色写入
+ * {@link UserContextHolder}，请求结束时清除。未携带或无效的令牌不拦截请求，由各接口自行判断是否需要登录。
+ * </p>
+ *
+ * @author lynn
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * 支付宝异步通知不带令牌，读取 token 参数会提前消费表单请求体，通知接口需要读取原始请求体
+     */
+    private static final String PAYMENT_NOTIFY_PATH = "/api/payments/notify";
+
+    private final AccessTokenService accessTokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            AccessToken accessToken = accessTokenService.verify(resolveToken(request));
+            if (accessToken != null) {
+                UserContextHolder.set(UserContext.of(accessToken.userId(), null, accessToken.role(), null));
+            }
+            filterChain.doFilter(request, response);
+        } finally {
+            UserContextHolder.clear();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PAYMENT_NOTIFY_PATH.equals(request.getServletPath());
+    }
+
+    /**
+     * 从请求中读取令牌
+     */
+    public static String resolveToken(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length()).trim();
+        }
+        return request.getParameter("token");
+    }
+}
@@ -0,0 +1,37 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.InviteCode;
+import com.lynn.papertrail.entity.InviteCodeAllocator;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 邀请码映射器
+ *
+ * @author lynn
+ */
+@Mapper
+public interface InviteCodeMapper extends BaseMapper<InviteCode> {
+
+    /**
+     * 多行插入邀请码
+     */
+    int insertCodes(@Param("codes") List<InviteCode> codes);
+
+    InviteCodeAllocator selectAllocator(@Param("codeLength") int codeLength);
+
+    /**
+     * 首次使用某长度时创建分配器，并发创建时只有一个生效
+     */
+    int insertAllocatorIgnore(@Param("codeLength") int codeLength, @Param("permutationKey") long permutationKey);
+
+    /**
+     * 序号未被其他节点改动时推进到 nextIndex
+     */
+    int advanceAllocator(@Param("codeLength") int codeLength,
+                         @Param("expectedIndex") long expectedIndex,
+                         @Param("nextIndex") long nextIndex);
+}
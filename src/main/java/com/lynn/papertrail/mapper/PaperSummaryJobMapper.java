@@ -0,0 +1,29 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaperSummaryJob;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 论文摘要批处理任务表 映射层。
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaperSummaryJobMapper extends BaseMapper<PaperSummaryJob> {
+
+    PaperSummaryJob selectByJobId(@Param("jobId") String jobId);
+
+    List<PaperSummaryJob> selectByStatus(@Param("status") String status);
+
+    int incrementCompleted(@Param("jobId") String jobId);
+
+    int incrementFailed(@Param("jobId") String jobId);
+
+    int resetProgress(@Param("jobId") String jobId, @Param("completed") int completed);
+
+    int updateStatus(@Param("jobId") String jobId, @Param("status") String status);
+}
@@ -0,0 +1,24 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaperSummary;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 论文摘要表 映射层。
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaperSummaryMapper extends BaseMapper<PaperSummary> {
+
+    PaperSummary selectByPaperId(@Param("paperId") String paperId);
+
+    List<PaperSummary> selectByPaperIds(@Param("paperIds") Collection<String> paperIds);
+
+    int upsert(PaperSummary summary);
+}
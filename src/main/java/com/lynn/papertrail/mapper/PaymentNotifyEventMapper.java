@@ -0,0 +1,39 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaymentNotifyEvent;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 支付通知事件映射器
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaymentNotifyEventMapper extends BaseMapper<PaymentNotifyEvent> {
+
+    /**
+     * 写入事件，(trade_no, notify_id) 已存在时忽略
+     *
+     * @return 1 表示新事件，0 表示重复通知
+     */
+    int insertIgnore(PaymentNotifyEvent event);
+
+    /**
+     * 按主键顺序读取 before 之前最后更新、仍待处理的事件
+     */
+    List<PaymentNotifyEvent> selectPending(@Param("before") LocalDateTime before,
+                                           @Param("afterId") long afterId,
+                                           @Param("limit") int limit);
+
+    int markApplied(@Param("id") Long id);
+
+    /**
+     * 记录一次失败，尝试次数达到 maxAttempts 后不再重试
+     */
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+}
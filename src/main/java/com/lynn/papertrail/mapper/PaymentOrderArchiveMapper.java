@@ -0,0 +1,38 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaymentOrder;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+
+/**
+ * 支付订单归档表映射器
+ * <p>
+ * 归档表与订单表列相同，查询结果直接映射为 {@link PaymentOrder}。
+ * 读取订单表的语句由分表拦截器路由，调用方需要指定分表。
+ * </p>
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaymentOrderArchiveMapper {
+
+    /**
+     * 把仍处于 status 的订单复制到归档表，已归档的订单忽略
+     *
+     * @return 复制的订单数
+     */
+    int insertFromOrders(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    /**
+     * 删除仍处于 status 的订单，需要与 {@link #insertFromOrders} 在同一事务中执行
+     *
+     * @return 删除的订单数
+     */
+    int deleteOrders(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    PaymentOrder selectByOutTradeNo(@Param("outTradeNo") String outTradeNo);
+
+    PaymentOrder selectByTradeNo(@Param("tradeNo") String tradeNo);
+}
@@ -2,7 +2,13 @@ package com.lynn.papertrail.mapper;
 
 import com.mybatisflex.core.BaseMapper;
 import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.service.quota.UserPaidAmount;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 支付订单表 映射层。
@@ -16,4 +22,84 @@ public interface PaymentOrderMapper extends BaseMapper<PaymentOrder> {
     PaymentOrder selectByOutTradeNo(String outTradeNo);
 
     PaymentOrder selectByTradeNo(String tradeNo);
+
+    /**
+     * 只查询订单状态
+     */
+    String selectStatusByOutTradeNo(@Param("outTradeNo") String outTradeNo);
+
+    /**
+     * 条件状态转换：仅当订单当前状态在 fromStatuses 中时更新为 toStatus，并递增版本号。
+     * 交易号、买家信息和支付时间只在原值为空时写入。
+     *
+     * @return 1 表示转换成功，0 表示订单不存在或当前状态不允许转换
+     */
+    int transitionStatus(@Param("outTradeNo") String outTradeNo,
+                         @Param("toStatus") String toStatus,
+                         @Param("fromStatuses") Collection<String> fromStatuses,
+                         @Param("tradeNo") String tradeNo,
+                         @Param("buyerId") String buyerId,
+                         @Param("buyerLogonId") String buyerLogonId,
+                         @Param("paymentTime") LocalDateTime paymentTime);
+
+    /**
+     * 按 (status, expire_time, id) 键集分页查询过期时间早于 before 的订单，只返回 id、out_trade_no 和 expire_time。
+     * 第一页 afterExpireTime 传 null，之后传上一页最后一行的过期时间和ID。
+     */
+    List<PaymentOrder> selectByStatusExpiringBefore(@Param("status") String status,
+                                                    @Param("before") LocalDateTime before,
+                                                    @Param("afterExpireTime") LocalDateTime afterExpireTime,
+                                                    @Param("afterId") Long afterId,
+                                                    @Param("limit") int limit);
+
+    /**
+     * 按 (status, expire_time, id) 键集分页查询过期时间不早于 from 的订单（from 为 null 时不限），
+     * 只返回 id、out_trade_no、status 和 expire_time
+     */
+    List<PaymentOrder> selectByStatusExpiringAfter(@Param("status") String status,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("afterExpireTime") LocalDateTime afterExpireTime,
+                                                   @Param("afterId") Long afterId,
+                                                   @Param("limit") int limit);
+
+    /**
+     * 批量关闭订单：仅关闭仍处于 fromStatus 且过期时间早于 before 的订单，并递增版本号
+     *
+     * @return 实际关闭的订单数
+     */
+    int closeExpired(@Param("ids") Collection<Long> ids,
+                     @Param("fromStatus") String fromStatus,
+                     @Param("toStatus") String toStatus,
+                     @Param("before") LocalDateTime before);
+
+    /**
+     * 查询指定主键中处于 status 的订单号，批量关闭后用于刷新缓存
+     */
+    List<String> selectOutTradeNosByIds(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    /**
+     * 当前分表中最大的紧凑编码订单号（首字符为 0-7），ORDER 开头的旧订单号不参与比较，没有时返回 null
+     */
+    String selectMaxCompactOutTradeNo();
+
+    /**
+     * 按用户汇总已支付订单金额
+     */
+    List<UserPaidAmount> selectPaidAmountByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 查询订单表当前的分区名
+     */
+    List<String> selectPartitionNames(@Param("table") String table);
+
+    /**
+     * 从最后的 pmax 分区中拆出一个新的月分区。DDL 不支持绑定参数，三个参数都由调用方生成，不能来自外部输入。
+     *
+     * @param table    分表名
+     * @param name     分区名，如 p202611
+     * @param lessThan 分区上界，如 2026-12-01
+     */
+    void addMonthlyPartition(@Param("table") String table,
+                             @Param("name") String name,
+                             @Param("lessThan") String lessThan);
 }
@@ -0,0 +1,69 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaymentOutboxEvent;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 支付事件发件箱映射器
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaymentOutboxMapper extends BaseMapper<PaymentOutboxEvent> {
+
+    /**
+     * 按订单当前数据写入事件，订单不处于 orderStatus 时不写入，同一订单版本的事件已存在时忽略。
+     * 需要与订单更新在同一事务中执行。
+     *
+     * @return 写入的事件数
+     */
+    int insertFromOrder(@Param("eventType") String eventType,
+                        @Param("outTradeNo") String outTradeNo,
+                        @Param("orderStatus") String orderStatus);
+
+    /**
+     * 按主键批量写入事件，规则同 {@link #insertFromOrder}
+     */
+    int insertFromOrders(@Param("eventType") String eventType,
+                         @Param("ids") Collection<Long> ids,
+                         @Param("orderStatus") String orderStatus);
+
+    /**
+     * 按主键顺序读取待投递的事件
+     */
+    List<PaymentOutboxEvent> selectPending(@Param("limit") int limit);
+
+    int markPublished(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 记录一次投递失败，失败次数达到 maxAttempts 后标记为 FAILED，不再投递
+     */
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * 尝试获取数据库咨询锁，不等待；锁属于当前连接，需要在独占连接的会话中调用
+     *
+     * @return 1 表示获得
+     */
+    Integer tryLock(@Param("name") String name);
+
+    /**
+     * 当前连接是否持有咨询锁
+     *
+     * @return 1 表示持有
+     */
+    Integer holdsLock(@Param("name") String name);
+
+    Integer releaseLock(@Param("name") String name);
+
+    /**
+     * 删除 before 之前投递完成的事件，每次最多 limit 条
+     */
+    int deletePublishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,14 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaymentReconciliation;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 支付订单对账报告映射器
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaymentReconciliationMapper extends BaseMapper<PaymentReconciliation> {
+}
@@ -0,0 +1,53 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.PaymentStatsApplied;
+import com.lynn.papertrail.entity.PaymentStatsRollup;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 支付统计汇总映射器
+ *
+ * @author lynn
+ */
+@Mapper
+public interface PaymentStatsMapper extends BaseMapper<PaymentStatsRollup> {
+
+    /**
+     * 批量累加汇总，记录不存在时插入
+     */
+    int accumulateBatch(@Param("rollups") List<PaymentStatsRollup> rollups);
+
+    /**
+     * 读取 [from, to) 内的汇总，按时间段排序
+     */
+    List<PaymentStatsRollup> selectRange(@Param("granularity") String granularity,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to);
+
+    /**
+     * keys 中已计入统计的事件
+     */
+    List<PaymentStatsApplied> selectApplied(@Param("keys") List<PaymentStatsApplied> keys);
+
+    /**
+     * 记录已计入统计的事件，已存在时因主键冲突失败
+     */
+    int insertApplied(@Param("keys") List<PaymentStatsApplied> keys);
+
+    /**
+     * 删除 before 之前的汇总，每次最多 limit 条
+     */
+    int deleteRollupsBefore(@Param("granularity") String granularity,
+                            @Param("before") LocalDateTime before,
+                            @Param("limit") int limit);
+
+    /**
+     * 删除 before 之前计入的事件记录，每次最多 limit 条
+     */
+    int deleteAppliedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
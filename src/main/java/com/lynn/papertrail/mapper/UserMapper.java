@@ -5,6 +5,8 @@ import com.mybatisflex.core.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+
 /**
  * 用户映射器
  *
@@ -19,4 +21,38 @@ public interface UserMapper extends BaseMapper<User> {
     User selectByEmail(@Param("email") String email);
     
     User selectById(@Param("id") Long id);
+
+    /**
+     * 查询不含密码的用户资料
+     */
+    User selectProfileById(@Param("id") Long id);
+
+    User selectProfileByUsername(@Param("username") String username);
+
+    User selectProfileByEmail(@Param("email") String email);
+
+    /**
+     * 只查询密码哈希
+     */
+    String selectPasswordById(@Param("id") Long id);
+
+    /**
+     * 更新密码哈希
+     */
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    /**
+     * 按主键分页读取ID、用户名和邮箱
+     */
+    List<User> selectIdentityPage(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 查询用户名或邮箱已被占用的用户，两个列表至少一个非空
+     */
+    List<User> selectExistingIdentities(@Param("usernames") List<String> usernames, @Param("emails") List<String> emails);
+
+    /**
+     * 批量导入时插入用户，配合 BATCH 执行器使用
+     */
+    int insertImported(User user);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.lynn.papertrail.mapper;
+
+import com.lynn.papertrail.entity.UserTokenUsage;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户 AI token 用量表 映射层。
+ *
+ * @author lynn
+ */
+@Mapper
+public interface UserTokenUsageMapper extends BaseMapper<UserTokenUsage> {
+
+    /**
+     * 批量累加用量，记录不存在时插入
+     */
+    int accumulateBatch(@Param("usages") List<UserTokenUsage> usages);
+
+    List<UserTokenUsage> selectByUserIds(@Param("userIds") Collection<Long> userIds);
+}
@@ -3,17 +3,21 @@ package com.lynn.papertrail.service;
 import com.lynn.papertrail.dto.AiChatRequest;
 import com.lynn.papertrail.dto.AiChatResponse;
 import com.lynn.papertrail.dto.AiStreamChatResponse;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.model.ChatModel;
+import com.lynn.papertrail.service.prompt.PromptScene;
+import com.lynn.papertrail.service.prompt.PromptTemplateRegistry;
+import com.lynn.papertrail.service.quota.TokenQuotaService;
+import com.lynn.papertrail.service.quota.TokenUsageMeter;
+import com.lynn.papertrail.service.routing.ChatModelRouter;
+import com.lynn.papertrail.service.routing.RoutingContext;
+import com.lynn.papertrail.util.UserContextHolder;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
+import java.util.Map;
+
 /**
  * AI 聊天服务类
  *
@@ -22,13 +26,18 @@ import reactor.core.publisher.Flux;
 @Service
 public class AiChatService {
 
-    private final ChatClient chatClient;
-    private final OpenAiChatModel openAiChatModel;
+    private final ChatModelRouter chatModelRouter;
+    private final PromptTemplateRegistry promptTemplateRegistry;
+    private final TokenQuotaService tokenQuotaService;
+    private final TokenUsageMeter tokenUsageMeter;
 
     @Autowired
-    public AiChatService(ChatClient.Builder chatClientBuilder, OpenAiChatModel openAiChatModel) {
-        this.chatClient = chatClientBuilder.build();
-        this.openAiChatModel = openAiChatModel;
+    public AiChatService(ChatModelRouter chatModelRouter, PromptTemplateRegistry promptTemplateRegistry,
+                         TokenQuotaService tokenQuotaService, TokenUsageMeter tokenUsageMeter) {
+        this.chatModelRouter = chatModelRouter;
+        this.promptTemplateRegistry = promptTemplateRegistry;
+        this.tokenQuotaService = tokenQuotaService;
+        this.tokenUsageMeter = tokenUsageMeter;
     }
 
     /**
@@ -38,25 +47,23 @@ public class AiChatService {
      * @return 聊天响应
      */
     public AiChatResponse chat(AiChatRequest request) {
-        // 构建系统提示，提供上下文
-        String systemPrompt = """
-                你是一个有帮助的AI助手，专门用于Paper Trail文档管理系统。
-                你可以帮助用户解答关于文档管理、处理、分析等方面的问题。
-                请尽可能提供准确和有用的信息。
-                如果问题与文档管理无关，请礼貌地告知用户。
-                """;
-
-        String userMessage = request.getMessage();
-
-        // 使用 Spring AI ChatClient 构建并发送请求
-        String response = chatClient
-                .prompt()
-                .system(systemPrompt)
-                .user(userMessage)
-                .call()
-                .content();
-
-        return new AiChatResponse(response, request.getSessionId(), request.getModel());
+        // 调用模型前检查配额，只读内存快照
+        Long userId = UserContextHolder.getUserId();
+        tokenQuotaService.checkQuota(userId);
+
+        // 使用预编译的系统提示，固定前缀在前、用户消息在后
+        Prompt prompt = promptTemplateRegistry.buildPrompt(PromptScene.CHAT, request.getMessage());
+
+        // 由路由器按请求大小、用户等级和端点状态选择模型
+        ChatResponse chatResponse = chatModelRouter.call(prompt, routingContext(request));
+        promptTemplateRegistry.recordUsage(PromptScene.CHAT, chatResponse);
+        tokenUsageMeter.record(userId, chatResponse);
+
+        String response = chatResponse != null && chatResponse.getResult() != null
+                ? chatResponse.getResult().getOutput().getText()
+                : null;
+
+        return new AiChatResponse(response, request.getSessionId(), resolveModel(chatResponse, request));
     }
 
     /**
@@ -66,33 +73,57 @@ public class AiChatService {
      * @return 流式响应
      */
     public Flux<AiStreamChatResponse> streamChat(AiChatRequest request) {
-        // 构建系统提示，提供上下文
-        String systemPrompt = """
-                你是一个有帮助的AI助手，专门用于Paper Trail文档管理系统。
-                你可以帮助用户解答关于文档管理、处理、分析等方面的问题。
-                请尽可能提供准确和有用的信息。
-                如果问题与文档管理无关，请礼貌地告知用户。
-                """;
-
-        String userMessage = request.getMessage();
-
-        // 创建包含系统消息和用户消息的提示
-        Prompt prompt = new Prompt(
-                java.util.List.of(
-                        new org.springframework.ai.chat.messages.SystemMessage(systemPrompt),
-                        new UserMessage(userMessage)
-                )
-        );
-
-        // 创建流式请求 - 使用 OpenAI 模型进行流式调用
-        Flux<ChatResponse> chatResponseStream = openAiChatModel.stream(prompt);
-
-        // 将响应转换为自定义格式 (正确的属性访问方法)
-        return chatResponseStream.map(response -> {
-            String content = response.getResult().getOutput().getText();
-            // 对于流式响应，我们在这里不能准确判断是否完成，所以默认为 false
-            // 实际完成状态将在调用方处理
-            return new AiStreamChatResponse(content, false, request.getSessionId(), request.getModel());
-        }).concatWith(Flux.just(new AiStreamChatResponse("", true, request.getSessionId(), request.getModel())));
+        tokenQuotaService.checkQuota(UserContextHolder.getUserId());
+
+        Prompt prompt = promptTemplateRegistry.buildStreamPrompt(PromptScene.CHAT, request.getMessage());
+
+        // 创建流式请求 - 首个 token 迟迟未到时路由器会向备用端点发起对冲请求
+        Flux<ChatResponse> chatResponseStream = chatModelRouter.stream(prompt, routingContext(request))
+                // 流式回调运行在网络线程上，包装后恢复请求线程的用户上下文
+                .doOnNext(UserContextHolder.wrapConsumer(response -> {
+                    promptTemplateRegistry.recordUsage(PromptScene.CHAT, response);
+                    tokenUsageMeter.record(UserContextHolder.getUserId(), response);
+                }));
+
+        // 将响应转换为自定义格式，最后一个只携带用量信息的分片没有生成结果，直接跳过
+        return chatResponseStream
+                .filter(response -> response.getResult() != null)
+                .map(response -> {
+                    String content = response.getResult().getOutput().getText();
+                    // 对于流式响应，我们在这里不能准确判断是否完成，所以默认为 false
+                    // 实际完成状态将在调用方处理
+                    return new AiStreamChatResponse(content, false, request.getSessionId(), request.getModel());
+                })
+                .concatWith(Flux.just(new AiStreamChatResponse("", true, request.getSessionId(), request.getModel())));
+    }
+
+    /**
+     * 获取模型路由统计
+     */
+    public Map<String, Object> getRoutingStatistics() {
+        return chatModelRouter.getStatistics();
+    }
+
+    private RoutingContext routingContext(AiChatRequest request) {
+        return new RoutingContext(request.getMessage().length(), UserContextHolder.getUserRole(), request.getModel());
+    }
+
+    /**
+     * 返回实际响应的模型名称，取不到时沿用请求中的模型
+     */
+    private String resolveModel(ChatResponse chatResponse, AiChatRequest request) {
+        if (chatResponse != null && chatResponse.getMetadata() != null
+                && chatResponse.getMetadata().getModel() != null
+                && !chatResponse.getMetadata().getModel().isEmpty()) {
+            return chatResponse.getMetadata().getModel();
+        }
+        return request.getModel();
+    }
+
+    /**
+     * 获取提示词前缀缓存统计
+     */
+    public Map<String, Map<String, Long>> getPromptCacheStatistics() {
+        return promptTemplateRegistry.getCacheStatistics();
     }
-}
\ No newline at end of file
+}
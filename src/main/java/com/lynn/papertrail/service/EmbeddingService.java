@@ -0,0 +1,257 @@
+package com.lynn.papertrail.service;
+
+import com.lynn.papertrail.config.EmbeddingProperties;
+import com.lynn.papertrail.service.embedding.MappedVectorStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 向量计算服务
+ * <p>
+ * 并发的向量请求先按内容哈希查询持久化存储，未命中的文本进入队列，
+ * 由调度线程在凑满 batchSize 或等待 lingerMillis 后合并成一次模型调用。
+ * 相同文本的并发请求共享同一个结果，计算结果按论文ID写入内存映射文件，重启后仍可复用。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+public class EmbeddingService {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    });
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingProperties properties;
+    private final MappedVectorStore vectorStore;
+
+    private final BlockingQueue<PendingText> queue = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<float[]>> inflight = new ConcurrentHashMap<>();
+    private final ExecutorService batchExecutor;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder inflightHits = new LongAdder();
+    private final LongAdder providerCalls = new LongAdder();
+    private final LongAdder textsEmbedded = new LongAdder();
+
+    @Autowired
+    public EmbeddingService(EmbeddingModel embeddingModel, EmbeddingProperties properties) {
+        this(embeddingModel, properties, new MappedVectorStore(Path.of(properties.getStorePath()), properties.getInitialCapacity()));
+    }
+
+    EmbeddingService(EmbeddingModel embeddingModel, EmbeddingProperties properties, MappedVectorStore vectorStore) {
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+        this.vectorStore = vectorStore;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getMaxConcurrentBatches()), runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "embedding-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * 计算论文文本的向量，结果按论文ID持久化
+     *
+     * @param paperId 论文ID
+     * @param text    标题或摘要文本
+     * @return 向量
+     */
+    public CompletableFuture<float[]> embedPaper(String paperId, String text) {
+        requests.increment();
+        long contentHash = contentHash(text);
+
+        float[] stored = vectorStore.get(paperId, contentHash);
+        if (stored != null) {
+            storeHits.increment();
+            return CompletableFuture.completedFuture(stored);
+        }
+        stored = vectorStore.getByContentHash(contentHash);
+        if (stored != null) {
+            storeHits.increment();
+            vectorStore.put(paperId, contentHash, stored);
+            return CompletableFuture.completedFuture(stored);
+        }
+
+        return submit(text).thenApply(vector -> {
+            vectorStore.put(paperId, contentHash, vector);
+            return vector;
+        });
+    }
+
+    /**
+     * 计算任意文本的向量，不按键持久化，但会复用已存储的相同内容
+     */
+    public CompletableFuture<float[]> embed(String text) {
+        requests.increment();
+        float[] stored = vectorStore.getByContentHash(contentHash(text));
+        if (stored != null) {
+            storeHits.increment();
+            return CompletableFuture.completedFuture(stored);
+        }
+        return submit(text);
+    }
+
+    /**
+     * 批量计算论文向量（论文ID -> 文本）
+     */
+    public Map<String, float[]> embedPapers(Map<String, String> texts) {
+        Map<String, CompletableFuture<float[]>> futures = new LinkedHashMap<>();
+        texts.forEach((paperId, text) -> futures.put(paperId, embedPaper(paperId, text)));
+
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        futures.forEach((paperId, future) -> vectors.put(paperId, future.join()));
+        return vectors;
+    }
+
+    /**
+     * 获取吞吐和命中率统计
+     */
+    public Map<String, Object> getStatistics() {
+        long total = requests.sum();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("requests", total);
+        statistics.put("storeHits", storeHits.sum());
+        statistics.put("inflightHits", inflightHits.sum());
+        statistics.put("providerCalls", providerCalls.sum());
+        statistics.put("textsEmbedded", textsEmbedded.sum());
+        statistics.put("hitRate", total == 0 ? 0.0 : (storeHits.sum() + inflightHits.sum()) * 1.0 / total);
+        statistics.put("storedVectors", vectorStore.size());
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        batchExecutor.shutdown();
+        try {
+            batchExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        vectorStore.close();
+    }
+
+    private CompletableFuture<float[]> submit(String text) {
+        CompletableFuture<float[]> created = new CompletableFuture<>();
+        CompletableFuture<float[]> existing = inflight.putIfAbsent(text, created);
+        if (existing != null) {
+            inflightHits.increment();
+            return existing;
+        }
+        created.whenComplete((vector, error) -> inflight.remove(text, created));
+        queue.add(new PendingText(text, created));
+        if (!running) {
+            // 关闭后调度线程不再取队列，由提交方自行结束，避免调用方永远等待
+            failPending();
+        }
+        return created;
+    }
+
+    private void dispatchLoop() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLingerMillis());
+
+        while (running) {
+            List<PendingText> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        break;
+                    }
+                    PendingText next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                batchExecutor.execute(() -> embedBatch(batch));
+            } catch (InterruptedException | RejectedExecutionException e) {
+                // 已取出但未交给计算线程的请求同样结束，不留下永远不完成的 future
+                log.warn("向量服务已关闭，丢弃待处理请求");
+                batch.forEach(pending -> pending.future.completeExceptionally(new IllegalStateException("向量服务已关闭")));
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            }
+        }
+        failPending();
+    }
+
+    private void failPending() {
+        List<PendingText> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.future.completeExceptionally(new IllegalStateException("向量服务已关闭")));
+    }
+
+    private void embedBatch(List<PendingText> batch) {
+        List<String> texts = new ArrayList<>(batch.size());
+        for (PendingText pending : batch) {
+            texts.add(pending.text);
+        }
+
+        try {
+            providerCalls.increment();
+            List<float[]> vectors = embeddingModel.embed(texts);
+            textsEmbedded.add(texts.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(vectors.get(i));
+            }
+        } catch (Exception e) {
+            log.error("批量计算向量失败，文本数: {}", texts.size(), e);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 文本内容哈希，取 SHA-256 的前 8 个字节
+     */
+    static long contentHash(String text) {
+        byte[] digest = SHA_256.get().digest(text.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private record PendingText(String text, CompletableFuture<float[]> future) {
+    }
+}
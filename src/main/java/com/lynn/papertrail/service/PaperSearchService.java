@@ -4,6 +4,7 @@ import com.lynn.papertrail.dto.PaperSearchRequest;
 import com.lynn.papertrail.dto.PaperSearchResponse;
 import com.lynn.papertrail.entity.Paper;
 import com.lynn.papertrail.service.datasource.PaperDataSource;
+import com.lynn.papertrail.util.UserContextHolder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -81,14 +82,15 @@ public class PaperSearchService {
                 .filter(source -> dataSourceMap.containsKey(source))
                 .map(source -> dataSourceMap.get(source))
                 .filter(PaperDataSource::isAvailable)
-                .map(dataSource -> CompletableFuture.supplyAsync(() -> {
+                // 数据源在公共线程池中执行，包装后保留当前请求的用户上下文
+                .map(dataSource -> CompletableFuture.supplyAsync(UserContextHolder.wrapSupplier(() -> {
                     try {
                         return dataSource.searchPapers(request);
                     } catch (Exception e) {
                         log.error("从 {} 搜索时发生错误", dataSource.getSourceName(), e);
                         return createEmptyResponse(request);
                     }
-                }))
+                })))
                 .collect(Collectors.toList());
 
         try {
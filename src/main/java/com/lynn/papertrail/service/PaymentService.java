@@ -18,9 +18,11 @@ public interface PaymentService {
     PaymentResponse createPaymentOrder(PaymentRequest request);
 
     /**
-     * 处理支付回调通知
+     * 处理支付回调通知，验签并记录通知后立即返回，订单状态由后台线程异步更新
+     *
+     * @param body 原始的 application/x-www-form-urlencoded 请求体
      */
-    String handleNotify(String params);
+    String handleNotify(byte[] body);
 
     /**
      * 查询订单状态
@@ -5,6 +5,8 @@ import com.lynn.papertrail.dto.UserLoginResponse;
 import com.lynn.papertrail.dto.UserRegisterRequest;
 import com.lynn.papertrail.entity.User;
 
+import java.util.Map;
+
 /**
  * 用户服务接口
  *
@@ -17,18 +19,23 @@ public interface UserService {
      */
     User register(UserRegisterRequest request);
 
+    /**
+     * 检查用户名和邮箱是否可用，只返回传入的字段
+     */
+    Map<String, Boolean> checkAvailability(String username, String email);
+
     /**
      * 用户登录
      */
     UserLoginResponse login(UserLoginRequest request);
 
     /**
-     * 根据用户名查找用户
+     * 根据用户名查找用户（不含密码）
      */
     User findByUsername(String username);
 
     /**
-     * 根据ID查找用户
+     * 根据ID查找用户（不含密码）
      */
     User findById(Long id);
 
@@ -36,4 +43,14 @@ public interface UserService {
      * 根据用户名和密码查找用户
      */
     User findByUsernameAndPassword(String username, String password);
+
+    /**
+     * 注销登录令牌
+     */
+    boolean logout(String token);
+
+    /**
+     * 注销用户的全部登录令牌，返回注销的令牌数，无法统计时返回 -1
+     */
+    int logoutAll(Long userId);
 }
\ No newline at end of file
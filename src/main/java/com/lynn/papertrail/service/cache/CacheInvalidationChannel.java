@@ -0,0 +1,24 @@
+package com.lynn.papertrail.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效广播通道
+ * <p>
+ * 多节点部署时由消息中间件（如 Redis Pub/Sub）实现，将本节点的失效消息广播给其他节点。
+ * </p>
+ *
+ * @author lynn
+ */
+public interface CacheInvalidationChannel {
+
+    /**
+     * 广播失效消息
+     */
+    void publish(UserCacheInvalidation invalidation);
+
+    /**
+     * 订阅失效消息
+     */
+    void subscribe(Consumer<UserCacheInvalidation> listener);
+}
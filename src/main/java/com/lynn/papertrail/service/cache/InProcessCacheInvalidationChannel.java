@@ -0,0 +1,34 @@
+package com.lynn.papertrail.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的缓存失效通道，同步投递给同一 JVM 中的订阅者，用于单节点部署和测试
+ *
+ * @author lynn
+ */
+@Slf4j
+public class InProcessCacheInvalidationChannel implements CacheInvalidationChannel {
+
+    private final List<Consumer<UserCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(UserCacheInvalidation invalidation) {
+        for (Consumer<UserCacheInvalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (Exception e) {
+                log.warn("处理缓存失效消息失败: {}", invalidation, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<UserCacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
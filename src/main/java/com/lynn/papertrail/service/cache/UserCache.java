@@ -0,0 +1,309 @@
+package com.lynn.papertrail.service.cache;
+
+import com.lynn.papertrail.config.UserCacheProperties;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 用户资料读穿缓存
+ * <p>
+ * 按用户ID缓存不含密码的用户资料，用户名和邮箱为二级索引，指向用户ID。
+ * 查询不到的用户名/邮箱在短时间内直接返回 null，避免重复查询数据库。
+ * 用户信息变更时调用 {@link #invalidate} 清除本节点缓存，并通过 {@link CacheInvalidationChannel} 通知其他节点。
+ * 加载期间发生失效时不写入加载结果，避免把失效前读到的旧数据放回缓存。
+ * 返回的是缓存对象的副本，调用方可以修改。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String EMAIL_PREFIX = "e:";
+
+    private final UserMapper userMapper;
+    private final UserCacheProperties properties;
+    private final CacheInvalidationChannel channel;
+    private final LongSupplier clock;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, CachedUser> byId = new ConcurrentHashMap<>();
+    private final Map<String, Long> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, Long> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, Long> missing = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public UserCache(UserMapper userMapper, UserCacheProperties properties, CacheInvalidationChannel channel) {
+        this(userMapper, properties, channel, System::currentTimeMillis);
+    }
+
+    UserCache(UserMapper userMapper, UserCacheProperties properties, CacheInvalidationChannel channel, LongSupplier clock) {
+        this.userMapper = userMapper;
+        this.properties = properties;
+        this.channel = channel;
+        this.clock = clock;
+        channel.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * 按ID获取用户资料
+     */
+    public User getById(Long id) {
+        if (id == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return userMapper.selectProfileById(id);
+        }
+        CachedUser cached = byId.get(id);
+        if (cached != null && cached.expireAt > clock.getAsLong()) {
+            hits.increment();
+            return copyOf(cached.user);
+        }
+        return load(() -> userMapper.selectProfileById(id), null);
+    }
+
+    /**
+     * 按用户名获取用户资料
+     */
+    public User getByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return userMapper.selectProfileByUsername(username);
+        }
+        String key = normalize(username);
+        User cached = lookupIndex(byUsername, key, User::getUsername);
+        if (cached != null) {
+            return cached;
+        }
+        if (isMissing(USERNAME_PREFIX + key)) {
+            return null;
+        }
+        return load(() -> userMapper.selectProfileByUsername(username), USERNAME_PREFIX + key);
+    }
+
+    /**
+     * 按邮箱获取用户资料
+     */
+    public User getByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return userMapper.selectProfileByEmail(email);
+        }
+        String key = normalize(email);
+        User cached = lookupIndex(byEmail, key, User::getEmail);
+        if (cached != null) {
+            return cached;
+        }
+        if (isMissing(EMAIL_PREFIX + key)) {
+            return null;
+        }
+        return load(() -> userMapper.selectProfileByEmail(email), EMAIL_PREFIX + key);
+    }
+
+    /**
+     * 用户新增或修改后调用，清除本节点缓存并通知其他节点
+     */
+    public void invalidate(User user) {
+        if (user != null) {
+            invalidate(user.getId(), user.getUsername(), user.getEmail());
+        }
+    }
+
+    public void invalidate(Long userId, String username, String email) {
+        UserCacheInvalidation invalidation = new UserCacheInvalidation(nodeId, userId, username, email);
+        evict(invalidation);
+        try {
+            channel.publish(invalidation);
+        } catch (Exception e) {
+            log.warn("广播用户缓存失效消息失败: userId={}", userId, e);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", byId.size());
+        statistics.put("missingEntries", missing.size());
+        statistics.put("hits", hits.sum());
+        statistics.put("negativeHits", negativeHits.sum());
+        statistics.put("misses", misses.sum());
+        return statistics;
+    }
+
+    private void onInvalidation(UserCacheInvalidation invalidation) {
+        if (!nodeId.equals(invalidation.sourceNode())) {
+            evict(invalidation);
+        }
+    }
+
+    private void evict(UserCacheInvalidation invalidation) {
+        generation.incrementAndGet();
+        if (invalidation.userId() != null) {
+            CachedUser removed = byId.remove(invalidation.userId());
+            if (removed != null) {
+                removeIndexes(removed.user);
+            }
+        }
+        if (invalidation.username() != null) {
+            String key = normalize(invalidation.username());
+            byUsername.remove(key);
+            missing.remove(USERNAME_PREFIX + key);
+        }
+        if (invalidation.email() != null) {
+            String key = normalize(invalidation.email());
+            byEmail.remove(key);
+            missing.remove(EMAIL_PREFIX + key);
+        }
+    }
+
+    private User lookupIndex(Map<String, Long> index, String key, Function<User, String> field) {
+        Long id = index.get(key);
+        if (id == null) {
+            return null;
+        }
+        CachedUser cached = byId.get(id);
+        if (cached == null || cached.expireAt <= clock.getAsLong() || !key.equals(normalize(field.apply(cached.user)))) {
+            index.remove(key, id);
+            return null;
+        }
+        hits.increment();
+        return copyOf(cached.user);
+    }
+
+    private boolean isMissing(String key) {
+        Long expireAt = missing.get(key);
+        if (expireAt == null) {
+            return false;
+        }
+        if (expireAt <= clock.getAsLong()) {
+            missing.remove(key, expireAt);
+            return false;
+        }
+        negativeHits.increment();
+        return true;
+    }
+
+    /**
+     * 从数据库加载，未找到时记录到 missingKey 的负缓存
+     */
+    private User load(Supplier<User> loader, String missingKey) {
+        misses.increment();
+        long loadGeneration = generation.get();
+        User user = loader.get();
+        if (user != null) {
+            // 资料查询不含密码，防御性地再清一次
+            user.setPassword(null);
+        }
+        if (generation.get() != loadGeneration) {
+            return user;
+        }
+
+        long now = clock.getAsLong();
+        if (user == null) {
+            if (missingKey != null) {
+                if (missing.size() >= properties.getMaxEntries()) {
+                    missing.values().removeIf(expireAt -> expireAt <= now);
+                }
+                if (missing.size() < properties.getMaxEntries()) {
+                    missing.put(missingKey, now + properties.getNegativeTtl().toMillis());
+                }
+            }
+            return null;
+        }
+
+        if (byId.size() >= properties.getMaxEntries()) {
+            shrink(now);
+        }
+        User cached = copyOf(user);
+        byId.put(cached.getId(), new CachedUser(cached, now + properties.getTtl().toMillis()));
+        if (cached.getUsername() != null) {
+            byUsername.put(normalize(cached.getUsername()), cached.getId());
+        }
+        if (cached.getEmail() != null) {
+            byEmail.put(normalize(cached.getEmail()), cached.getId());
+        }
+        return user;
+    }
+
+    /**
+     * 缓存已满时先移除过期条目，仍不足时移除约八分之一的条目
+     */
+    private void shrink(long now) {
+        int target = properties.getMaxEntries() - Math.max(1, properties.getMaxEntries() / 8);
+        Iterator<CachedUser> iterator = byId.values().iterator();
+        while (iterator.hasNext()) {
+            CachedUser cached = iterator.next();
+            if (cached.expireAt <= now) {
+                iterator.remove();
+                removeIndexes(cached.user);
+            }
+        }
+        iterator = byId.values().iterator();
+        while (byId.size() > target && iterator.hasNext()) {
+            CachedUser cached = iterator.next();
+            iterator.remove();
+            removeIndexes(cached.user);
+        }
+    }
+
+    private void removeIndexes(User user) {
+        if (user.getUsername() != null) {
+            byUsername.remove(normalize(user.getUsername()), user.getId());
+        }
+        if (user.getEmail() != null) {
+            byEmail.remove(normalize(user.getEmail()), user.getId());
+        }
+    }
+
+    /**
+     * 用户名和邮箱的唯一索引不区分大小写，缓存键统一转为小写
+     */
+    private static String normalize(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .phone(user.getPhone())
+                .nickname(user.getNickname())
+                .avatar(user.getAvatar())
+                .gender(user.getGender())
+                .status(user.getStatus())
+                .role(user.getRole())
+                .createTime(user.getCreateTime())
+                .updateTime(user.getUpdateTime())
+                .build();
+    }
+
+    private record CachedUser(User user, long expireAt) {
+    }
+}
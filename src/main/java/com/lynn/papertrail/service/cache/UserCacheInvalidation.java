@@ -0,0 +1,13 @@
+package com.lynn.papertrail.service.cache;
+
+/**
+ * 用户缓存失效消息
+ *
+ * @param sourceNode 发出消息的节点，节点忽略自己发出的消息
+ * @param userId     用户ID，可为 null
+ * @param username   用户名，可为 null
+ * @param email      邮箱，可为 null
+ * @author lynn
+ */
+public record UserCacheInvalidation(String sourceNode, Long userId, String username, String email) {
+}
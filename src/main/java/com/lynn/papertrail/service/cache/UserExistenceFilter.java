@@ -0,0 +1,130 @@
+package com.lynn.papertrail.service.cache;
+
+import com.lynn.papertrail.config.UserExistenceFilterProperties;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import com.lynn.papertrail.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 已占用用户名和邮箱的布隆过滤器
+ * <p>
+ * 启动后按主键分页（WHERE id &gt; ? ORDER BY id LIMIT ?）从 user 表加载全部用户名和邮箱，新用户注册时追加。
+ * 同时订阅 {@link CacheInvalidationChannel}：其他节点注册或修改用户时会发布失效消息，
+ * 消息中的用户名和邮箱同样追加进过滤器，否则本节点会把其他节点已占用的值判定为一定可用。
+ * 预热期间收到的消息也会写入，预热与订阅之间不会漏掉新用户。
+ * 过滤器判定不存在时即可确定可用，无需查询数据库；判定可能存在时由调用方再精确查询。
+ * 预热完成前所有判定都视为可能存在。键不区分大小写，与表的排序规则一致。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class UserExistenceFilter {
+
+    private final UserMapper userMapper;
+    private final UserExistenceFilterProperties properties;
+
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+    private volatile boolean ready;
+
+    public UserExistenceFilter(UserMapper userMapper, UserExistenceFilterProperties properties,
+                               CacheInvalidationChannel channel) {
+        this.userMapper = userMapper;
+        this.properties = properties;
+        this.usernames = BloomFilter.create(properties.getExpectedInsertions(), properties.getFalsePositiveRate());
+        this.emails = BloomFilter.create(properties.getExpectedInsertions(), properties.getFalsePositiveRate());
+        // 在预热开始前订阅，预热期间其他节点注册的用户也能收到
+        channel.subscribe(this::onInvalidation);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpInBackground() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "user-existence-filter-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 分页加载全部用户名和邮箱
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        long loaded = 0;
+        try {
+            while (true) {
+                List<User> page = userMapper.selectIdentityPage(lastId, properties.getWarmupPageSize());
+                for (User user : page) {
+                    record(user.getUsername(), user.getEmail());
+                }
+                loaded += page.size();
+                if (page.size() < properties.getWarmupPageSize()) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+            ready = true;
+            log.info("用户名/邮箱过滤器预热完成: 用户数={}, 耗时={}ms, 位数={}, 哈希数={}",
+                    loaded, System.currentTimeMillis() - start, usernames.bitCount(), usernames.hashCount());
+        } catch (Exception e) {
+            log.error("用户名/邮箱过滤器预热失败，注册将继续查询数据库", e);
+        }
+    }
+
+    /**
+     * 用户名可能已被占用，返回 false 时一定未被占用
+     */
+    public boolean mightContainUsername(String username) {
+        return !isActive() || usernames.mightContain(normalize(username));
+    }
+
+    /**
+     * 邮箱可能已被注册，返回 false 时一定未被注册
+     */
+    public boolean mightContainEmail(String email) {
+        return !isActive() || emails.mightContain(normalize(email));
+    }
+
+    /**
+     * 记录新注册的用户名和邮箱
+     */
+    public void record(String username, String email) {
+        if (username != null) {
+            usernames.put(normalize(username));
+        }
+        if (email != null) {
+            emails.put(normalize(email));
+        }
+    }
+
+    /**
+     * 失效消息携带的是变更后的用户名和邮箱，多记录只会增加误判，不影响正确性
+     */
+    private void onInvalidation(UserCacheInvalidation invalidation) {
+        record(invalidation.username(), invalidation.email());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private boolean isActive() {
+        return properties.isEnabled() && ready;
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,217 @@
+package com.lynn.papertrail.service.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于内存映射文件的向量存储
+ * <p>
+ * 文件由固定长度的头部和等长的槽位组成，每个槽位保存一个键（论文ID）、内容哈希和向量。
+ * 启动时顺序扫描槽位重建内存索引，读取直接访问映射内存，不经过系统调用；
+ * 写入由单个锁串行化，容量不足时按倍数扩展文件并重新映射。
+ * 同一内容哈希的向量在不同键之间复用，保证相同文本只计算一次。
+ * </p>
+ * <p>
+ * 槽位只追加、不原地覆盖：写入先填满一个新槽位，再更新索引发布，读取不加锁也不会读到写了一半的向量。
+ * 覆盖已有的键时旧槽位保留，仍可按旧内容哈希命中；重新打开时按槽位顺序扫描，同一个键以最后写入的槽位为准。
+ * 论文文本很少变化，覆盖产生的旧槽位占用的空间可以忽略。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+public class MappedVectorStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x50545643;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAX_KEY_BYTES = 126;
+    private static final int KEY_AREA = 2 + MAX_KEY_BYTES;
+    private static final int SLOT_META = KEY_AREA + Long.BYTES;
+
+    private final Path path;
+    private final int initialCapacity;
+    private final Map<String, Integer> keyIndex = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> contentIndex = new ConcurrentHashMap<>();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int dimensions;
+    private int slotSize;
+    private int capacity;
+    private int count;
+
+    public MappedVectorStore(Path path, int initialCapacity) {
+        this.path = path;
+        this.initialCapacity = Math.max(16, initialCapacity);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            if (Files.exists(path) && Files.size(path) >= HEADER_SIZE) {
+                open();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开向量存储文件失败: " + path, e);
+        }
+    }
+
+    /**
+     * 按键获取向量，内容哈希不一致（文本已变化）时视为未命中
+     */
+    public float[] get(String key, long contentHash) {
+        Integer slot = keyIndex.get(key);
+        if (slot == null) {
+            return null;
+        }
+        MappedByteBuffer current = buffer;
+        long offset = slotOffset(slot);
+        if (current.getLong((int) (offset + KEY_AREA)) != contentHash) {
+            return null;
+        }
+        return readVector(current, offset);
+    }
+
+    /**
+     * 按内容哈希获取向量
+     */
+    public float[] getByContentHash(long contentHash) {
+        Integer slot = contentIndex.get(contentHash);
+        return slot != null ? readVector(buffer, slotOffset(slot)) : null;
+    }
+
+    /**
+     * 写入向量，键已存在时写入新槽位并指向它
+     */
+    public synchronized void put(String key, long contentHash, float[] vector) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("键长度超过 " + MAX_KEY_BYTES + " 字节: " + key);
+        }
+        try {
+            if (channel == null) {
+                create(vector.length);
+            }
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("向量维度不一致，期望 " + dimensions + "，实际 " + vector.length);
+            }
+            if (count == capacity) {
+                grow();
+            }
+
+            int slot = count;
+            MappedByteBuffer current = buffer;
+            int offset = (int) slotOffset(slot);
+            current.putShort(offset, (short) keyBytes.length);
+            current.put(offset + 2, keyBytes);
+            current.putLong(offset + KEY_AREA, contentHash);
+            int vectorOffset = offset + SLOT_META;
+            for (int i = 0; i < vector.length; i++) {
+                current.putFloat(vectorOffset + i * Float.BYTES, vector[i]);
+            }
+            count++;
+            current.putInt(12, count);
+
+            // 槽位写完后才放入索引，读取线程通过索引拿到槽位时内容已完整
+            keyIndex.put(key, slot);
+            contentIndex.put(contentHash, slot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入向量存储失败: " + path, e);
+        }
+    }
+
+    public boolean contains(String key) {
+        return keyIndex.containsKey(key);
+    }
+
+    public int size() {
+        return keyIndex.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("关闭向量存储文件失败: {}", path, e);
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("向量存储文件格式不正确: " + path);
+        }
+        dimensions = header.getInt(8);
+        count = header.getInt(12);
+        slotSize = SLOT_META + dimensions * Float.BYTES;
+        capacity = (int) ((channel.size() - HEADER_SIZE) / slotSize);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+
+        byte[] keyBytes = new byte[MAX_KEY_BYTES];
+        for (int slot = 0; slot < count; slot++) {
+            int offset = (int) slotOffset(slot);
+            int keyLength = buffer.getShort(offset);
+            buffer.get(offset + 2, keyBytes, 0, keyLength);
+            keyIndex.put(new String(keyBytes, 0, keyLength, StandardCharsets.UTF_8), slot);
+            contentIndex.put(buffer.getLong(offset + KEY_AREA), slot);
+        }
+        log.info("加载向量存储: 文件={}, 维度={}, 向量数={}", path, dimensions, count);
+    }
+
+    private void create(int vectorDimensions) throws IOException {
+        dimensions = vectorDimensions;
+        slotSize = SLOT_META + dimensions * Float.BYTES;
+        capacity = initialCapacity;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, dimensions);
+        buffer.putInt(12, 0);
+        log.info("创建向量存储: 文件={}, 维度={}", path, dimensions);
+    }
+
+    private void grow() throws IOException {
+        int newCapacity = capacity * 2;
+        if (fileSize(newCapacity) > Integer.MAX_VALUE) {
+            throw new IllegalStateException("向量存储已达到单个映射文件的容量上限: " + capacity);
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+        capacity = newCapacity;
+    }
+
+    private long fileSize(int slots) {
+        return HEADER_SIZE + (long) slots * slotSize;
+    }
+
+    private long slotOffset(int slot) {
+        return HEADER_SIZE + (long) slot * slotSize;
+    }
+
+    private float[] readVector(MappedByteBuffer current, long slotOffset) {
+        float[] vector = new float[dimensions];
+        int vectorOffset = (int) slotOffset + SLOT_META;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = current.getFloat(vectorOffset + i * Float.BYTES);
+        }
+        return vector;
+    }
+}
@@ -1,7 +1,6 @@
 package com.lynn.papertrail.service.impl;
 
 import com.alipay.api.AlipayClient;
-import com.alipay.api.internal.util.AlipaySignature;
 import com.alipay.api.request.AlipayTradePagePayRequest;
 import com.alipay.api.request.AlipayTradeQueryRequest;
 import com.alipay.api.response.AlipayTradePagePayResponse;
@@ -9,18 +8,31 @@ import com.alipay.api.response.AlipayTradeQueryResponse;
 import com.lynn.papertrail.config.AlipayConfig;
 import com.lynn.papertrail.dto.PaymentRequest;
 import com.lynn.papertrail.dto.PaymentResponse;
+import com.lynn.papertrail.entity.PaymentNotifyEvent;
 import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentNotifyEventMapper;
+import com.lynn.papertrail.mapper.PaymentOrderArchiveMapper;
 import com.lynn.papertrail.mapper.PaymentOrderMapper;
 import com.lynn.papertrail.service.PaymentService;
-import com.lynn.papertrail.util.PaymentUtils;
+import com.lynn.papertrail.service.payment.AlipayBizContent;
+import com.lynn.papertrail.service.payment.AlipayNotifyVerifier;
+import com.lynn.papertrail.service.payment.OutTradeNoGenerator;
+import com.lynn.papertrail.service.payment.PaymentNotifyProcessor;
+import com.lynn.papertrail.service.payment.PaymentOrderCache;
+import com.lynn.papertrail.service.payment.PaymentOrderExpiryService;
+import com.lynn.papertrail.service.payment.PaymentOrderShards;
+import com.lynn.papertrail.service.payment.PaymentOrderStatus;
+import com.lynn.papertrail.service.payment.PaymentOrderUpdater;
+import com.lynn.papertrail.util.FormBodyParser;
+import com.lynn.papertrail.util.UserContextHolder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * 支付服务实现类
@@ -35,28 +47,42 @@ public class PaymentServiceImpl implements PaymentService {
     private final AlipayClient alipayClient;
     private final AlipayConfig alipayConfig;
     private final PaymentOrderMapper paymentOrderMapper;
+    private final PaymentNotifyEventMapper paymentNotifyEventMapper;
+    private final PaymentNotifyProcessor paymentNotifyProcessor;
+    private final PaymentOrderUpdater paymentOrderUpdater;
+    private final PaymentOrderExpiryService paymentOrderExpiryService;
+    private final PaymentOrderCache paymentOrderCache;
+    private final PaymentOrderShards paymentOrderShards;
+    private final OutTradeNoGenerator outTradeNoGenerator;
+    private final PaymentOrderArchiveMapper paymentOrderArchiveMapper;
+    private final AlipayNotifyVerifier alipayNotifyVerifier;
 
     @Override
     public PaymentResponse createPaymentOrder(PaymentRequest request) {
         try {
-            // 生成商户订单号
-            String outTradeNo = "ORDER_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+            // 生成商户订单号，分表号写在订单号中
+            Long userId = UserContextHolder.getUserId();
+            String outTradeNo = outTradeNoGenerator.generate(paymentOrderShards.shardFor(userId));
+            LocalDateTime now = LocalDateTime.now();
 
             // 创建支付订单实体
             PaymentOrder order = PaymentOrder.builder()
                     .outTradeNo(outTradeNo)
+                    .userId(userId)
                     .subject(request.getSubject())
                     .totalAmount(request.getTotalAmount())
-                    .status("WAIT_BUYER_PAY")
+                    .status(PaymentOrderStatus.WAIT_BUYER_PAY.name())
                     .body(request.getBody())
-                    .createTime(LocalDateTime.now())
-                    .updateTime(LocalDateTime.now())
-                    .expireTime(LocalDateTime.now().plusMinutes(request.getExpireTime()))
+                    .createTime(now)
+                    .updateTime(now)
+                    .expireTime(now.plusMinutes(request.getExpireTime()))
+                    .version(0L)
                     .build();
 
-            // 保存订单
-            paymentOrderMapper.insert(order);
-            order = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
+            // 保存订单并写入创建事件，自增主键由 insert 回填，不需要重新查询
+            paymentOrderUpdater.create(order);
+            paymentOrderExpiryService.track(order.getId(), order.getExpireTime());
+            paymentOrderCache.put(order);
 
             // 构建支付宝支付请求
             AlipayTradePagePayRequest payRequest = new AlipayTradePagePayRequest();
@@ -64,15 +90,8 @@ public class PaymentServiceImpl implements PaymentService {
             payRequest.setNotifyUrl(alipayConfig.getNotifyUrl());
 
             // 构建业务参数
-            Map<String, Object> bizContent = Map.of(
-                    "out_trade_no", outTradeNo,
-                    "total_amount", request.getTotalAmount().toString(),
-                    "subject", request.getSubject(),
-                    "body", request.getBody(),
-                    "product_code", "FAST_INSTANT_TRADE_PAY",
-                    "time_expire", request.getExpireTime() + "m"
-            );
-            payRequest.setBizContent(mapToJson(bizContent));
+            payRequest.setBizContent(AlipayBizContent.toJson(AlipayBizContent.PagePay.of(outTradeNo,
+                    request.getTotalAmount(), request.getSubject(), request.getBody(), order.getExpireTime())));
 
             // 执行请求
             AlipayTradePagePayResponse response = alipayClient.pageExecute(payRequest);
@@ -81,7 +100,7 @@ public class PaymentServiceImpl implements PaymentService {
                 log.info("支付订单创建成功: 订单号={}, 订单金额={}", outTradeNo, request.getTotalAmount());
                 return PaymentResponse.builder()
                         .outTradeNo(outTradeNo)
-                        .status("WAIT_BUYER_PAY")
+                        .status(PaymentOrderStatus.WAIT_BUYER_PAY.name())
                         .form(response.getBody())
                         .success(true)
                         .build();
@@ -105,72 +124,42 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    public String handleNotify(String params) {
+    public String handleNotify(byte[] body) {
         try {
-            // 验签
-            Map<String, String> paramsMap = PaymentUtils.parseQueryString(params);
-            boolean signVerified = AlipaySignature.rsaCheckV1(
-                    paramsMap,
-                    alipayConfig.getPublicKey(),
-                    "UTF-8"
-            );
+            // 单遍解析并 URL 解码原始请求体后验签，映射由当前线程复用，只在本方法内使用
+            Map<String, String> paramsMap = FormBodyParser.parse(body);
+            boolean signVerified = alipayNotifyVerifier.verify(paramsMap);
 
             if (!signVerified) {
                 log.error("支付回调验签失败");
                 return "failure";
             }
 
-            // 获取参数
             String outTradeNo = paramsMap.get("out_trade_no");
-            String tradeNo = paramsMap.get("trade_no");
-            String tradeStatus = paramsMap.get("trade_status");
-            String buyerId = paramsMap.get("buyer_id");
-            String buyerLogonId = paramsMap.get("buyer_logon_id");
-
-            // 更新订单状态
-            PaymentOrder order = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
-            if (order != null) {
-
-                // 根据支付宝状态更新订单状态
-                switch (tradeStatus) {
-                    case "TRADE_SUCCESS":
-                    case "TRADE_FINISHED":
-                        order.setStatus("TRADE_SUCCESS");
-                        order.setTradeNo(tradeNo);
-                        order.setBuyerId(buyerId);
-                        order.setBuyerLogonId(buyerLogonId);
-                        order.setPaymentTime(LocalDateTime.now());
-                        break;
-                    case "TRADE_CLOSED":
-                        order.setStatus("TRADE_CLOSED");
-                        break;
-                    default:
-                        log.warn("接收到未处理的交易状态: {}", tradeStatus);
-                        break;
-                }
-
-                // First get the original order to get the ID
-                PaymentOrder originalOrder = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
-                if (originalOrder != null) {
-                    // Update the original order with new values
-                    originalOrder.setStatus(order.getStatus());
-                    originalOrder.setTradeNo(order.getTradeNo());
-                    originalOrder.setBuyerId(order.getBuyerId());
-                    originalOrder.setBuyerLogonId(order.getBuyerLogonId());
-                    originalOrder.setPaymentTime(order.getPaymentTime());
-
-                    // Update by ID since we have the original order with ID
-                    int updated = paymentOrderMapper.update(originalOrder);
-                    log.info("支付回调处理成功: 订单号={}, 交易状态={}, 更新记录数={}", outTradeNo, tradeStatus, updated);
-                } else {
-                    log.error("未找到对应的订单: 商户订单号={}", outTradeNo);
-                    return "failure";
-                }
-            } else {
-                log.error("未找到对应的订单: 商户订单号={}", outTradeNo);
+            String notifyId = paramsMap.get("notify_id");
+            if (outTradeNo == null || notifyId == null) {
+                log.error("支付回调缺少必要参数: 商户订单号={}, 通知ID={}", outTradeNo, notifyId);
                 return "failure";
             }
 
+            // 写入事件表后即可应答，订单状态由后台线程应用；(trade_no, notify_id) 重复的通知直接应答成功
+            LocalDateTime now = LocalDateTime.now();
+            PaymentNotifyEvent event = PaymentNotifyEvent.builder()
+                    .notifyId(notifyId)
+                    .tradeNo(Objects.requireNonNullElse(paramsMap.get("trade_no"), ""))
+                    .outTradeNo(outTradeNo)
+                    .tradeStatus(paramsMap.get("trade_status"))
+                    .buyerId(paramsMap.get("buyer_id"))
+                    .buyerLogonId(paramsMap.get("buyer_logon_id"))
+                    .status(PaymentNotifyEvent.STATUS_PENDING)
+                    .createTime(now)
+                    .updateTime(now)
+                    .build();
+            if (paymentNotifyEventMapper.insertIgnore(event) == 0) {
+                log.info("收到重复的支付回调: 商户订单号={}, 通知ID={}", outTradeNo, notifyId);
+                return "success";
+            }
+            paymentNotifyProcessor.submit(event);
             return "success";
         } catch (Exception e) {
             log.error("处理支付回调时发生异常", e);
@@ -180,7 +169,7 @@ public class PaymentServiceImpl implements PaymentService {
 
     @Override
     public Optional<PaymentOrder> queryOrder(String outTradeNo) {
-        PaymentOrder order = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
+        PaymentOrder order = paymentOrderCache.get(outTradeNo);
         return Optional.ofNullable(order);
     }
 
@@ -191,69 +180,36 @@ public class PaymentServiceImpl implements PaymentService {
             if (order == null) {
                 throw new RuntimeException("订单不存在: " + outTradeNo);
             }
+            // 已支付是终态，不需要再查询支付宝
+            if (PaymentOrderStatus.TRADE_SUCCESS.name().equals(order.getStatus())) {
+                return order;
+            }
 
             // 构建查询请求
             AlipayTradeQueryRequest queryRequest = new AlipayTradeQueryRequest();
-            Map<String, Object> bizContent = Map.of(
-                    "out_trade_no", outTradeNo
-            );
-            queryRequest.setBizContent(mapToJson(bizContent));
+            queryRequest.setBizContent(AlipayBizContent.toJson(new AlipayBizContent.TradeQuery(outTradeNo)));
 
             // 执行查询
             AlipayTradeQueryResponse response = alipayClient.certificateExecute(queryRequest);
 
-            if (response.isSuccess()) {
-                String tradeStatus = response.getTradeStatus();
-
-                // 更新订单状态
-                switch (tradeStatus) {
-                    case "TRADE_SUCCESS":
-                    case "TRADE_FINISHED":
-                        order.setStatus("TRADE_SUCCESS");
-                        if (order.getTradeNo() == null) {
-                            order.setTradeNo(response.getTradeNo());
-                        }
-                        if (order.getBuyerId() == null) {
-                            order.setBuyerId(response.getBuyerUserId());
-                        }
-                        if (order.getBuyerLogonId() == null) {
-                            order.setBuyerLogonId(response.getBuyerLogonId());
-                        }
-                        if (order.getPaymentTime() == null) {
-                            order.setPaymentTime(LocalDateTime.now());
-                        }
-                        break;
-                    case "TRADE_CLOSED":
-                        order.setStatus("TRADE_CLOSED");
-                        break;
-                    case "WAIT_BUYER_PAY":
-                        order.setStatus("WAIT_BUYER_PAY");
-                        break;
-                    default:
-                        log.warn("接收到未处理的交易状态: {}", tradeStatus);
-                        break;
-                }
-
-                // First get the original order to get the ID
-                PaymentOrder originalOrder = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
-                if (originalOrder != null) {
-                    // Update the original order with new values
-                    originalOrder.setStatus(order.getStatus());
-                    originalOrder.setTradeNo(order.getTradeNo());
-                    originalOrder.setBuyerId(order.getBuyerId());
-                    originalOrder.setBuyerLogonId(order.getBuyerLogonId());
-                    originalOrder.setPaymentTime(order.getPaymentTime());
-
-                    // Update by ID since we have the original order with ID
-                    int updated = paymentOrderMapper.update(originalOrder);
-                    log.info("订单状态刷新成功: 订单号={}, 当前状态={}, 更新记录数={}", outTradeNo, order.getStatus(), updated);
-                }
-            } else {
+            if (!response.isSuccess()) {
                 log.error("查询订单状态失败: 订单号={}, 错误码={}, 错误信息={}",
                         outTradeNo, response.getCode(), response.getMsg());
+                return order;
             }
 
-            return order;
+            PaymentOrderStatus target = PaymentOrderStatus.fromTradeStatus(response.getTradeStatus());
+            if (target == null) {
+                log.warn("接收到未处理的交易状态: {}", response.getTradeStatus());
+                return order;
+            }
+            PaymentOrderUpdater.TransitionResult result = paymentOrderUpdater.transition(outTradeNo, target,
+                    response.getTradeNo(), response.getBuyerUserId(), response.getBuyerLogonId());
+            log.info("订单状态刷新完成: 订单号={}, 支付宝状态={}, 结果={}", outTradeNo, response.getTradeStatus(), result);
+
+            // 只有状态实际变化时才重新读取
+            return result == PaymentOrderUpdater.TransitionResult.APPLIED
+                    ? paymentOrderMapper.selectByOutTradeNo(outTradeNo) : order;
         } catch (Exception e) {
             log.error("刷新订单状态时发生异常: 订单号={}", outTradeNo, e);
             throw new RuntimeException("刷新订单状态失败: " + e.getMessage(), e);
@@ -263,34 +219,21 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     public Optional<PaymentOrder> findByOutTradeNo(String outTradeNo) {
         PaymentOrder order = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
+        if (order == null) {
+            order = paymentOrderArchiveMapper.selectByOutTradeNo(outTradeNo);
+        }
         return Optional.ofNullable(order);
     }
 
     @Override
     public Optional<PaymentOrder> findByTradeNo(String tradeNo) {
-        PaymentOrder order = paymentOrderMapper.selectByTradeNo(tradeNo);
-        return Optional.ofNullable(order);
-    }
-
-    /**
-     * 将Map转换为JSON字符串
-     */
-    private String mapToJson(Map<String, Object> map) {
-        StringBuilder json = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (!first) {
-                json.append(",");
-            }
-            json.append("\"").append(entry.getKey()).append("\":");
-            if (entry.getValue() instanceof String) {
-                json.append("\"").append(entry.getValue()).append("\"");
-            } else {
-                json.append(entry.getValue());
+        // 支付宝交易号中没有分表号，逐个分表查找
+        for (int shard = 0; shard < paymentOrderShards.count(); shard++) {
+            PaymentOrder order = PaymentOrderShards.callOn(shard, () -> paymentOrderMapper.selectByTradeNo(tradeNo));
+            if (order != null) {
+                return Optional.of(order);
             }
-            first = false;
         }
-        json.append("}");
-        return json.toString();
+        return Optional.ofNullable(paymentOrderArchiveMapper.selectByTradeNo(tradeNo));
     }
-}
\ No newline at end of file
+}
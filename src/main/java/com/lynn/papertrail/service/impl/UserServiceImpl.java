@@ -6,13 +6,19 @@ import com.lynn.papertrail.dto.UserRegisterRequest;
 import com.lynn.papertrail.entity.User;
 import com.lynn.papertrail.mapper.UserMapper;
 import com.lynn.papertrail.service.UserService;
+import com.lynn.papertrail.service.cache.UserCache;
+import com.lynn.papertrail.service.cache.UserExistenceFilter;
+import com.lynn.papertrail.service.password.PasswordHashingService;
+import com.lynn.papertrail.service.token.AccessTokenService;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 
@@ -22,27 +28,28 @@ import java.util.UUID;
  * @author lynn
  * @since 2025-10-02
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final String DUPLICATE_KEY_MARKER = "for key '";
+    private static final String EMAIL_UNIQUE_KEY = "uk_email";
+
     private final UserMapper userMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final AccessTokenService accessTokenService;
+    private final UserCache userCache;
+    private final UserExistenceFilter userExistenceFilter;
 
     @Override
     public User register(UserRegisterRequest request) {
-        // 检查用户名是否已存在
-        User existingUser = userMapper.selectByUsername(request.getUsername());
-        if (existingUser != null) {
+        // 过滤器判定不存在时跳过预查询，最终由唯一索引保证不重复
+        if (!isUsernameAvailable(request.getUsername())) {
             throw new RuntimeException("用户名已存在");
         }
-
-        // 检查邮箱是否已存在
-        if (request.getEmail() != null) {
-            existingUser = userMapper.selectByEmail(request.getEmail());
-            if (existingUser != null) {
-                throw new RuntimeException("邮箱已被注册");
-            }
+        if (request.getEmail() != null && !isEmailAvailable(request.getEmail())) {
+            throw new RuntimeException("邮箱已被注册");
         }
 
         // 创建新用户
@@ -58,15 +65,37 @@ public class UserServiceImpl implements UserService {
                 .updateTime(LocalDateTime.now())
                 .build();
 
-        userMapper.insert(user);
+        try {
+            userMapper.insert(user);
+        } catch (DuplicateKeyException e) {
+            // 并发注册或过滤器判定后被占用，由唯一索引兜底
+            throw new RuntimeException(isEmailConflict(e) ? "邮箱已被注册" : "用户名已存在");
+        }
+        userExistenceFilter.record(user.getUsername(), user.getEmail());
+        // 清除该用户名和邮箱的负缓存
+        userCache.invalidate(user);
         return user;
     }
 
+    @Override
+    public Map<String, Boolean> checkAvailability(String username, String email) {
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        if (username != null) {
+            availability.put("username", isUsernameAvailable(username));
+        }
+        if (email != null) {
+            availability.put("email", isEmailAvailable(email));
+        }
+        return availability;
+    }
+
     @Override
     public UserLoginResponse login(UserLoginRequest request) {
-        User user = userMapper.selectByUsername(request.getUsername());
+        // 用户资料来自缓存，密码哈希不进缓存，按主键单独查询
+        User user = userCache.getByUsername(request.getUsername());
+        String encodedPassword = user != null ? userMapper.selectPasswordById(user.getId()) : null;
 
-        if (user == null || !verifyPassword(request.getPassword(), user.getPassword())) {
+        if (user == null || !verifyPassword(request.getPassword(), encodedPassword)) {
             throw new RuntimeException("用户名或密码错误");
         }
 
@@ -74,45 +103,97 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("账户已被禁用");
         }
 
-        // 生成UUID作为token
-        String token = UUID.randomUUID().toString();
+        // BCrypt 强度调整后，旧哈希在登录成功时按新强度重新计算，被拒绝的登录不产生重新哈希的开销
+        if (passwordHashingService.needsRehash(encodedPassword)) {
+            Long userId = user.getId();
+            passwordHashingService.rehashInBackground(request.getPassword(), rehashed -> {
+                userMapper.updatePassword(userId, rehashed);
+                log.info("用户密码已按新强度重新哈希: userId={}", userId);
+            });
+        }
+
+        // 签发携带用户ID和角色的访问令牌
+        String token = accessTokenService.issue(user.getId(), user.getRole());
 
         return new UserLoginResponse(token, user);
     }
 
     @Override
     public User findByUsername(String username) {
-        return userMapper.selectByUsername(username);
+        return userCache.getByUsername(username);
     }
 
     @Override
     public User findById(Long id) {
-        return userMapper.selectById(id);
+        return userCache.getById(id);
     }
 
     @Override
     public User findByUsernameAndPassword(String username, String password) {
-        User user = userMapper.selectByUsername(username);
+        User user = userCache.getByUsername(username);
         
-        if (user != null && verifyPassword(password, user.getPassword())) {
+        if (user != null && verifyPassword(password, userMapper.selectPasswordById(user.getId()))) {
             return user;
         }
         
         return null;
     }
 
+    @Override
+    public boolean logout(String token) {
+        return accessTokenService.revoke(token);
+    }
+
+    @Override
+    public int logoutAll(Long userId) {
+        return userId != null ? accessTokenService.revokeAll(userId) : 0;
+    }
+
+    /**
+     * 过滤器判定不存在时直接返回可用，可能存在时再经缓存精确查询
+     */
+    private boolean isUsernameAvailable(String username) {
+        return !userExistenceFilter.mightContainUsername(username) || userCache.getByUsername(username) == null;
+    }
+
+    private boolean isEmailAvailable(String email) {
+        return !userExistenceFilter.mightContainEmail(email) || userCache.getByEmail(email) == null;
+    }
+
+    /**
+     * 根据唯一索引名判断冲突字段，索引定义见 user_table_schema.sql
+     * <p>
+     * MySQL 的错误信息形如 Duplicate entry 'xxx' for key 'user.uk_email'（5.7 及以前没有表名前缀），
+     * 冲突的值本身可能包含任意字符，因此只取最后一个 for key 之后的索引名比较。
+     * </p>
+     */
+    static boolean isEmailConflict(DuplicateKeyException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        if (message == null) {
+            return false;
+        }
+        int start = message.lastIndexOf(DUPLICATE_KEY_MARKER);
+        if (start < 0) {
+            return false;
+        }
+        start += DUPLICATE_KEY_MARKER.length();
+        int end = message.indexOf('\'', start);
+        String key = end < 0 ? message.substring(start) : message.substring(start, end);
+        return EMAIL_UNIQUE_KEY.equals(key.substring(key.lastIndexOf('.') + 1));
+    }
+
     /**
      * 加密密码
      */
     private String encryptPassword(String password) {
-        // 使用Spring Security的BCrypt加密
-        return passwordEncoder.encode(password);
+        // 使用Spring Security的BCrypt加密，在专用线程池中执行
+        return passwordHashingService.encode(password);
     }
 
     /**
      * 验证密码
      */
     private boolean verifyPassword(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return passwordHashingService.matches(rawPassword, encodedPassword);
     }
 }
\ No newline at end of file
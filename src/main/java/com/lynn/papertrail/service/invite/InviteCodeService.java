@@ -0,0 +1,123 @@
+package com.lynn.papertrail.service.invite;
+
+import com.lynn.papertrail.config.InviteCodeProperties;
+import com.lynn.papertrail.entity.InviteCode;
+import com.lynn.papertrail.entity.InviteCodeAllocator;
+import com.lynn.papertrail.mapper.InviteCodeMapper;
+import com.lynn.papertrail.util.InviteCodeGenerator.InviteCodeGenerationException;
+import com.lynn.papertrail.util.InviteCodeSequence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 邀请码批量发放服务
+ * <p>
+ * 每种长度在数据库中有一个分配器，记录置换密钥和下一个序号。一次批量发放先用条件更新预留一段连续序号，
+ * 再由 {@link InviteCodeSequence} 把序号置换为邀请码：同一分配器的序号不会重复分配，
+ * 置换是一一映射，因此多节点并发发放也不会产生重复邀请码，不需要逐个查重。
+ * 邀请码按 insertChunkSize 分段多行插入。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InviteCodeService {
+
+    private static final int MAX_RESERVE_ATTEMPTS = 20;
+
+    private final InviteCodeMapper inviteCodeMapper;
+    private final InviteCodeProperties properties;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<Integer, InviteCodeSequence> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * 按默认长度批量发放邀请码
+     */
+    public List<String> issue(Long createdBy, int count) {
+        return issue(createdBy, count, properties.getLength());
+    }
+
+    /**
+     * 批量发放邀请码并持久化
+     *
+     * @param createdBy 生成人用户ID
+     * @param count     数量，不超过 maxBatchSize
+     * @param length    邀请码长度，范围 [{@value InviteCodeSequence#MIN_LENGTH}, {@value InviteCodeSequence#MAX_LENGTH}]
+     * @return 按序号顺序排列的邀请码
+     */
+    public List<String> issue(Long createdBy, int count, int length) {
+        if (count <= 0 || count > properties.getMaxBatchSize()) {
+            throw new IllegalArgumentException("生成数量必须在 1 到 " + properties.getMaxBatchSize() + " 之间");
+        }
+        InviteCodeSequence sequence = sequenceFor(length);
+        long firstIndex = reserve(sequence, count);
+
+        long start = System.currentTimeMillis();
+        int chunkSize = Math.max(1, properties.getInsertChunkSize());
+        LocalDateTime now = LocalDateTime.now();
+        List<String> codes = new ArrayList<>(count);
+        List<InviteCode> chunk = new ArrayList<>(Math.min(count, chunkSize));
+        for (int i = 0; i < count; i++) {
+            long index = firstIndex + i;
+            String code = sequence.encode(index);
+            codes.add(code);
+            chunk.add(InviteCode.builder()
+                    .code(code)
+                    .seqIndex(index)
+                    .createdBy(createdBy)
+                    .status(0)
+                    .createTime(now)
+                    .build());
+            if (chunk.size() == chunkSize || i == count - 1) {
+                inviteCodeMapper.insertCodes(chunk);
+                chunk.clear();
+            }
+        }
+        log.info("批量发放邀请码: 数量={}, 长度={}, 起始序号={}, 耗时={}ms",
+                count, length, firstIndex, System.currentTimeMillis() - start);
+        return codes;
+    }
+
+    /**
+     * 预留 count 个连续序号，返回第一个序号
+     */
+    private long reserve(InviteCodeSequence sequence, int count) {
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            InviteCodeAllocator allocator = inviteCodeMapper.selectAllocator(sequence.length());
+            long next = allocator.getNextIndex();
+            if (sequence.capacity() - next < count) {
+                throw new InviteCodeGenerationException("长度为 " + sequence.length() + " 的邀请码余量不足");
+            }
+            if (inviteCodeMapper.advanceAllocator(sequence.length(), next, next + count) == 1) {
+                return next;
+            }
+        }
+        throw new InviteCodeGenerationException("预留邀请码序号冲突次数过多，请稍后重试");
+    }
+
+    private InviteCodeSequence sequenceFor(int length) {
+        if (length < InviteCodeSequence.MIN_LENGTH || length > InviteCodeSequence.MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format("邀请码长度必须在 %d 到 %d 之间",
+                    InviteCodeSequence.MIN_LENGTH, InviteCodeSequence.MAX_LENGTH));
+        }
+        return sequences.computeIfAbsent(length, key -> {
+            InviteCodeAllocator allocator = inviteCodeMapper.selectAllocator(key);
+            if (allocator == null) {
+                inviteCodeMapper.insertAllocatorIgnore(key, random.nextLong());
+                allocator = inviteCodeMapper.selectAllocator(key);
+                log.info("创建邀请码分配器: 长度={}", key);
+            }
+            return new InviteCodeSequence(allocator.getPermutationKey(), key);
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.lynn.papertrail.service.password;
+
+import java.io.Serial;
+
+/**
+ * 密码哈希线程池已满或等待超时
+ *
+ * @author lynn
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
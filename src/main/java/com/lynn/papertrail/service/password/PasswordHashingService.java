@@ -0,0 +1,221 @@
+package com.lynn.papertrail.service.password;
+
+import com.lynn.papertrail.config.PasswordHashingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 密码哈希服务
+ * <p>
+ * BCrypt 计算在专用的有界线程池中执行，线程数和等待队列都有上限：
+ * 登录高峰时超出部分立即以 {@link PasswordHashingBusyException} 拒绝，而不是占满所有请求线程，
+ * 其他接口（如论文搜索）不受影响。
+ * 批量导入也使用同一个线程池，但在途任务不超过线程数的一半（至少1个），其余线程和等待队列留给登录请求。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    /**
+     * 批量哈希时线程池被登录请求占满后的重试间隔
+     */
+    private static final long BUSY_BACKOFF_MILLIS = 10;
+
+    private final PasswordEncoder passwordEncoder;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, PasswordHashingProperties properties) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = properties.getTimeout().toMillis();
+
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 计算密码哈希
+     */
+    public String encode(String rawPassword) {
+        return await(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * 批量计算密码哈希，供批量导入使用
+     * <p>
+     * 同时在途的任务不超过线程数的一半（至少1个），导入期间的登录高峰仍有空闲线程和完整的等待队列可用；
+     * 线程池已满时等待最早的任务完成后重试，而不是拒绝。哈希强度与注册一致，
+     * 强度 10 时单线程每秒约 10-20 次，导入速度约为该值乘以可用的线程数。
+     * </p>
+     *
+     * @return 与入参顺序一致的哈希
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        int window = Math.max(1, executor.getMaximumPoolSize() / 2);
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        Deque<Future<String>> inFlight = new ArrayDeque<>(window);
+        for (String rawPassword : rawPasswords) {
+            Future<String> future = null;
+            while (future == null) {
+                if (executor.isShutdown()) {
+                    throw new PasswordHashingBusyException("密码哈希线程池已关闭");
+                }
+                if (inFlight.size() >= window) {
+                    awaitDone(inFlight.poll());
+                    continue;
+                }
+                try {
+                    future = executor.submit(() -> passwordEncoder.encode(rawPassword));
+                } catch (RejectedExecutionException e) {
+                    // 登录请求占满了队列，让出后重试
+                    if (inFlight.isEmpty()) {
+                        sleepQuietly();
+                    } else {
+                        awaitDone(inFlight.poll());
+                    }
+                }
+            }
+            futures.add(future);
+            inFlight.add(future);
+        }
+
+        List<String> encoded = new ArrayList<>(futures.size());
+        for (Future<String> future : futures) {
+            encoded.add(result(future));
+        }
+        return encoded;
+    }
+
+    /**
+     * 校验密码
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return await(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 哈希强度低于当前配置时需要重新哈希
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * 在后台按当前强度重新哈希，线程池繁忙时放弃，等待下次登录
+     */
+    public void rehashInBackground(String rawPassword, Consumer<String> onEncoded) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onEncoded.accept(passwordEncoder.encode(rawPassword));
+                    rehashed.increment();
+                } catch (Exception e) {
+                    log.warn("密码重新哈希失败", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("activeThreads", executor.getActiveCount());
+        statistics.put("queued", executor.getQueue().size());
+        statistics.put("completed", executor.getCompletedTaskCount());
+        statistics.put("rejected", rejected.sum());
+        statistics.put("timedOut", timedOut.sum());
+        statistics.put("rehashed", rehashed.sum());
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T await(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("登录请求过多，请稍后重试");
+        }
+        return result(future);
+    }
+
+    private <T> T result(Future<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new PasswordHashingBusyException("登录请求处理超时，请稍后重试");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("登录请求被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("密码哈希失败", cause);
+        }
+    }
+
+    /**
+     * 等待任务结束，异常在取结果时统一处理
+     */
+    private void awaitDone(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("批量哈希被中断");
+        } catch (ExecutionException | CancellationException ignored) {
+            // 由 result 抛出
+        }
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(BUSY_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("批量哈希被中断");
+        }
+    }
+}
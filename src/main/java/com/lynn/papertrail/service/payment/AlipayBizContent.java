@@ -0,0 +1,92 @@
+package com.lynn.papertrail.service.payment;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 支付宝接口的 biz_content 参数
+ * <p>
+ * 每种请求是一个固定字段的记录，由预先按类型绑定的 {@link ObjectWriter} 序列化，
+ * 不再经过 Map 和手工拼接，字符串中的引号、换行等也会正确转义。ObjectWriter 不可变，可以多线程共享。
+ * </p>
+ *
+ * @author lynn
+ */
+public final class AlipayBizContent {
+
+    public static final String PRODUCT_CODE_PAGE_PAY = "FAST_INSTANT_TRADE_PAY";
+
+    /**
+     * 支付宝按北京时间解析 time_expire
+     */
+    static final ZoneId ALIPAY_ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final DateTimeFormatter TIME_EXPIRE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter PAGE_PAY_WRITER = MAPPER.writerFor(PagePay.class);
+    private static final ObjectWriter TRADE_QUERY_WRITER = MAPPER.writerFor(TradeQuery.class);
+
+    private AlipayBizContent() {
+    }
+
+    /**
+     * 电脑网站支付下单参数，body 为空时不输出
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record PagePay(@JsonProperty("out_trade_no") String outTradeNo,
+                          @JsonProperty("total_amount") String totalAmount,
+                          @JsonProperty("subject") String subject,
+                          @JsonProperty("body") String body,
+                          @JsonProperty("product_code") String productCode,
+                          @JsonProperty("time_expire") String timeExpire) {
+
+        /**
+         * @param totalAmount 订单金额，按原样输出为字符串
+         * @param expireTime  订单的过期时间（本机时区），作为绝对时间 time_expire 输出，与本地订单同时到期
+         */
+        public static PagePay of(String outTradeNo, BigDecimal totalAmount, String subject, String body,
+                                 LocalDateTime expireTime) {
+            return new PagePay(outTradeNo, totalAmount.toPlainString(), subject, body,
+                    PRODUCT_CODE_PAGE_PAY, formatTimeExpire(expireTime, ZoneId.systemDefault()));
+        }
+    }
+
+    /**
+     * 交易查询参数
+     */
+    public record TradeQuery(@JsonProperty("out_trade_no") String outTradeNo) {
+    }
+
+    /**
+     * 把 zone 时区的本地时间转换为北京时间，格式为 yyyy-MM-dd HH:mm:ss
+     */
+    static String formatTimeExpire(LocalDateTime expireTime, ZoneId zone) {
+        return expireTime.atZone(zone).withZoneSameInstant(ALIPAY_ZONE).format(TIME_EXPIRE_FORMAT);
+    }
+
+    public static String toJson(PagePay content) {
+        return write(PAGE_PAY_WRITER, content);
+    }
+
+    public static String toJson(TradeQuery content) {
+        return write(TRADE_QUERY_WRITER, content);
+    }
+
+    private static String write(ObjectWriter writer, Object content) {
+        try {
+            return writer.writeValueAsString(content);
+        } catch (JsonProcessingException e) {
+            // 字段都是字符串，只有编码器故障才会出错
+            throw new IllegalStateException("序列化 biz_content 失败", e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.AlipayConfig;
+import com.lynn.papertrail.config.PaymentNotifyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 支付宝异步通知验签
+ * <p>
+ * 支付宝公钥在启动时解析一次，之后每次验签只按参数生成待签名内容并用当前线程的 {@link Signature} 校验，
+ * 不再像 {@code AlipaySignature.rsaCheckV1} 那样每次解码公钥、创建 KeyFactory 和 Signature。
+ * 待签名内容与 rsaCheckV1 相同：除 sign 和 sign_type 外的参数按参数名排序后以 &amp; 连接；
+ * sign_type 为 RSA2 时使用 SHA256withRSA，为 RSA 或缺省时使用 SHA1withRSA。
+ * </p>
+ * <p>
+ * {@link #rotate} 在运行中更换公钥，旧公钥在 keyRotationGrace 内仍然有效，覆盖支付宝切换期间签出的通知。
+ * 多节点部署时需要在每个节点上更换。验签耗时按 2 的幂微秒分桶计数，{@link #getStatistics()} 给出估算的分位数。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class AlipayNotifyVerifier {
+
+    private static final String SIGN = "sign";
+    private static final String SIGN_TYPE = "sign_type";
+    private static final int LATENCY_BUCKETS = 24;
+
+    private enum Algorithm {
+        RSA("SHA1withRSA"),
+        RSA2("SHA256withRSA");
+
+        private final String jcaName;
+
+        Algorithm(String jcaName) {
+            this.jcaName = jcaName;
+        }
+
+        static Algorithm of(String signType) {
+            if (signType == null || signType.isEmpty() || "RSA".equals(signType)) {
+                return RSA;
+            }
+            return "RSA2".equals(signType) ? RSA2 : null;
+        }
+    }
+
+    /**
+     * 当前公钥，以及更换后在 previousUntil（System.nanoTime() 时间）之前仍然有效的旧公钥
+     */
+    private record VerificationKeys(PublicKey current, PublicKey previous, long previousUntil,
+                                    LocalDateTime rotatedAt) {
+    }
+
+    private final PaymentNotifyProperties properties;
+    private final ThreadLocal<Signature[]> signatures =
+            ThreadLocal.withInitial(() -> new Signature[Algorithm.values().length]);
+    private volatile VerificationKeys keys;
+
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+
+    public AlipayNotifyVerifier(AlipayConfig alipayConfig, PaymentNotifyProperties properties) {
+        this.properties = properties;
+        PublicKey publicKey = null;
+        String encoded = alipayConfig.getPublicKey();
+        if (encoded == null || encoded.isBlank()) {
+            log.warn("未配置支付宝公钥，支付通知验签将全部失败");
+        } else {
+            try {
+                publicKey = parsePublicKey(encoded);
+            } catch (IllegalArgumentException e) {
+                log.error("支付宝公钥格式错误，支付通知验签将全部失败", e);
+            }
+        }
+        this.keys = new VerificationKeys(publicKey, null, 0, null);
+    }
+
+    /**
+     * 校验通知参数的签名，不修改 params
+     */
+    public boolean verify(Map<String, String> params) {
+        long start = System.nanoTime();
+        boolean result = false;
+        try {
+            result = doVerify(params);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.warn("支付通知验签异常: {}", e.getMessage());
+        } finally {
+            record(System.nanoTime() - start, result);
+        }
+        return result;
+    }
+
+    /**
+     * 更换支付宝公钥，旧公钥在 keyRotationGrace 内仍然有效
+     *
+     * @param publicKey Base64 编码的 X.509 公钥，与 alipay.public-key 格式相同
+     * @throws IllegalArgumentException 公钥格式错误
+     */
+    public synchronized void rotate(String publicKey) {
+        PublicKey parsed = parsePublicKey(publicKey);
+        VerificationKeys current = keys;
+        keys = new VerificationKeys(parsed, current.current(),
+                System.nanoTime() + properties.getKeyRotationGrace().toNanos(), LocalDateTime.now());
+        log.info("支付宝公钥已更换，旧公钥在 {} 内仍然有效", properties.getKeyRotationGrace());
+    }
+
+    public Map<String, Object> getStatistics() {
+        long verifiedCount = verified.sum();
+        long rejectedCount = rejected.sum();
+        long total = verifiedCount + rejectedCount;
+        long[] buckets = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            buckets[i] = latencyBuckets.get(i);
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("verified", verifiedCount);
+        statistics.put("rejected", rejectedCount);
+        statistics.put("avgMicros", total > 0 ? totalNanos.sum() / total / 1_000 : 0);
+        statistics.put("p50Micros", percentileMicros(buckets, 0.50));
+        statistics.put("p99Micros", percentileMicros(buckets, 0.99));
+        statistics.put("maxMicros", maxNanos.get() / 1_000);
+        statistics.put("keyRotatedAt", keys.rotatedAt());
+        return statistics;
+    }
+
+    private boolean doVerify(Map<String, String> params) throws GeneralSecurityException {
+        String sign = params.get(SIGN);
+        Algorithm algorithm = Algorithm.of(params.get(SIGN_TYPE));
+        VerificationKeys current = keys;
+        if (sign == null || algorithm == null || current.current() == null) {
+            return false;
+        }
+        byte[] content = signContent(params).getBytes(StandardCharsets.UTF_8);
+        byte[] signature = Base64.getMimeDecoder().decode(sign);
+        if (verify(algorithm, current.current(), content, signature)) {
+            return true;
+        }
+        return current.previous() != null && System.nanoTime() - current.previousUntil() < 0
+                && verify(algorithm, current.previous(), content, signature);
+    }
+
+    private boolean verify(Algorithm algorithm, PublicKey publicKey, byte[] content, byte[] signature)
+            throws GeneralSecurityException {
+        Signature[] cached = signatures.get();
+        Signature verifier = cached[algorithm.ordinal()];
+        if (verifier == null) {
+            verifier = Signature.getInstance(algorithm.jcaName);
+            cached[algorithm.ordinal()] = verifier;
+        }
+        verifier.initVerify(publicKey);
+        verifier.update(content);
+        return verifier.verify(signature);
+    }
+
+    /**
+     * 除 sign 和 sign_type 外的参数按参数名排序，以 key=value 形式用 &amp; 连接
+     */
+    static String signContent(Map<String, String> params) {
+        List<String> keyNames = new ArrayList<>(params.size());
+        int length = 0;
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            String key = entry.getKey();
+            if (!SIGN.equals(key) && !SIGN_TYPE.equals(key)) {
+                keyNames.add(key);
+                length += key.length() + entry.getValue().length() + 2;
+            }
+        }
+        Collections.sort(keyNames);
+        StringBuilder content = new StringBuilder(length);
+        for (String key : keyNames) {
+            if (!content.isEmpty()) {
+                content.append('&');
+            }
+            content.append(key).append('=').append(params.get(key));
+        }
+        return content.toString();
+    }
+
+    private void record(long nanos, boolean result) {
+        (result ? verified : rejected).increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        long micros = Math.max(1, nanos / 1_000);
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * 按分桶估算分位数，返回所在桶的上界
+     */
+    private static long percentileMicros(long[] buckets, double quantile) {
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= target) {
+                return 1L << (i + 1);
+            }
+        }
+        return 1L << buckets.length;
+    }
+
+    private static PublicKey parsePublicKey(String encoded) {
+        try {
+            byte[] der = Base64.getMimeDecoder().decode(encoded.trim());
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(der));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("无效的 RSA 公钥", e);
+        }
+    }
+}
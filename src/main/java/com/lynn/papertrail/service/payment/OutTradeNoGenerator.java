@@ -0,0 +1,192 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentOrderNoProperties;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.service.cache.CacheInvalidationChannel;
+import com.lynn.papertrail.service.cache.InProcessCacheInvalidationChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 商户订单号生成
+ * <p>
+ * 订单号是一个 63 位整数，从高到低依次为 41 位毫秒时间（从 2025-01-01 起，可用约 69 年）、10 位序号、
+ * 7 位分表号和 5 位节点号，编码为 13 位 Crockford Base32 字符串（数字和不含 I、L、O、U 的大写字母）。
+ * 定长编码且字母表按 ASCII 升序，字符串顺序与数值顺序一致，新订单号总是追加在索引末尾附近。
+ * </p>
+ * <p>
+ * 时间和序号合在一个 {@link AtomicLong} 中用 CAS 推进，不加锁：时钟前进时序号归零，
+ * 同一毫秒内序号加一，序号用完或时钟回拨时向后借用时间，节点内订单号严格递增，不会等待。
+ * 旧订单号以 ORDER 开头，第一个字符不会与新订单号混淆。
+ * </p>
+ * <p>
+ * 节点号区分同一时刻各节点生成的订单号：未配置节点号时只允许单节点部署，配置了多节点
+ * 或替换了进程内的缓存失效通道时启动失败，避免多个节点都使用 0 号节点生成重复订单号。
+ * 借用的时间只保存在内存中，启动时从各分表已保存的最大订单号推进状态，
+ * 重启前借用的时间或重启期间的时钟回拨不会让本节点再次生成已经写入的订单号。
+ * 读取失败时只记录错误，此时仍依赖时钟已越过重启前借用的时间。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class OutTradeNoGenerator {
+
+    /**
+     * 时间起点 2025-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1_735_689_600_000L;
+
+    public static final int ENCODED_LENGTH = 13;
+
+    static final int SEQUENCE_BITS = 10;
+    static final int NODE_BITS = 5;
+    static final int SHARD_BITS = 7;
+
+    private static final int SHARD_SHIFT = NODE_BITS;
+    private static final int SEQUENCE_SHIFT = SHARD_SHIFT + SHARD_BITS;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final int nodeId;
+    private final LongSupplier clock;
+
+    /**
+     * 高位为相对 EPOCH 的毫秒数，低 SEQUENCE_BITS 位为该毫秒内的序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public OutTradeNoGenerator(PaymentOrderNoProperties properties,
+                               CacheInvalidationChannel cacheInvalidationChannel,
+                               PaymentOrderMapper paymentOrderMapper,
+                               PaymentOrderShards shards) {
+        this(resolveNodeId(properties.getNodeId(), properties.isMultiNode()
+                        || !(cacheInvalidationChannel instanceof InProcessCacheInvalidationChannel)),
+                System::currentTimeMillis);
+        seedFromStoredOrders(paymentOrderMapper, shards);
+    }
+
+    OutTradeNoGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("订单号节点号必须在 0 到 " + ((1 << NODE_BITS) - 1) + " 之间");
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * 未配置节点号时单节点部署使用 0，多节点部署必须显式配置
+     */
+    static int resolveNodeId(Integer configured, boolean multiNode) {
+        if (configured != null) {
+            return configured;
+        }
+        if (multiNode) {
+            throw new IllegalStateException("多节点部署必须为每个节点配置不同的 payment.order-no.node-id");
+        }
+        return 0;
+    }
+
+    /**
+     * 把状态推进到已保存的订单号之后，之后生成的订单号都大于 storedId
+     *
+     * @param storedId 已解码的订单号，小于 0 时忽略
+     */
+    void seed(long storedId) {
+        if (storedId >= 0) {
+            state.accumulateAndGet(storedId >>> SEQUENCE_SHIFT, Math::max);
+        }
+    }
+
+    /**
+     * 生成写入指定分表的订单号
+     *
+     * @param shard 分表号，范围 [0, {@value PaymentOrderShards#MAX_SHARDS})
+     */
+    public String generate(int shard) {
+        return encode(nextId(shard));
+    }
+
+    long nextId(int shard) {
+        if (shard < 0 || shard >= PaymentOrderShards.MAX_SHARDS) {
+            throw new IllegalArgumentException("分表号超出范围: " + shard);
+        }
+        long now = clock.getAsLong() - EPOCH;
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = (current >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : current + 1;
+        } while (!state.compareAndSet(current, next));
+        // 时间和序号整体放在高位，同一节点生成的订单号不论分表都严格递增
+        return next << SEQUENCE_SHIFT | (long) shard << SHARD_SHIFT | nodeId;
+    }
+
+    private void seedFromStoredOrders(PaymentOrderMapper paymentOrderMapper, PaymentOrderShards shards) {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            try {
+                seed(decode(PaymentOrderShards.callOn(shard, paymentOrderMapper::selectMaxCompactOutTradeNo)));
+            } catch (Exception e) {
+                log.error("读取已保存的最大订单号失败: 表={}", PaymentOrderShards.tableName(shard), e);
+            }
+        }
+    }
+
+    /**
+     * 订单号中的分表号
+     */
+    static int shardOf(long id) {
+        return (int) (id >>> SHARD_SHIFT) & ((1 << SHARD_BITS) - 1);
+    }
+
+    /**
+     * 订单号中的毫秒时间戳
+     */
+    static long timestampOf(long id) {
+        return (id >>> (SEQUENCE_SHIFT + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 解码订单号，不是本生成器的格式时返回 -1
+     */
+    static long decode(String outTradeNo) {
+        if (outTradeNo == null || outTradeNo.length() != ENCODED_LENGTH) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            char c = outTradeNo.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            // 13 个字符共 65 位，最高字符只能用低 3 位，否则超出 63 位正数范围
+            if (value < 0 || (i == 0 && value > 7)) {
+                return -1;
+            }
+            id = id << 5 | value;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,48 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.entity.PaymentOutboxEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 投递给 {@link PaymentEventListener} 的支付事件
+ *
+ * @param id              事件ID，全局递增，同一订单的事件按ID顺序投递
+ * @param orderVersion    事件对应的订单版本号，(outTradeNo, orderVersion) 唯一标识一个事件，可用于去重
+ * @param orderCreateTime 订单创建时间
+ * @param occurredAt      事件发生时间
+ * @author lynn
+ */
+public record PaymentEvent(long id,
+                           Type type,
+                           String outTradeNo,
+                           long orderVersion,
+                           Long userId,
+                           BigDecimal totalAmount,
+                           LocalDateTime orderCreateTime,
+                           LocalDateTime occurredAt) {
+
+    public enum Type {
+        ORDER_CREATED,
+        ORDER_PAID,
+        ORDER_CLOSED;
+
+        /**
+         * 订单转换为 status 时产生的事件类型
+         */
+        public static Type forStatus(PaymentOrderStatus status) {
+            return switch (status) {
+                case WAIT_BUYER_PAY -> ORDER_CREATED;
+                case TRADE_SUCCESS -> ORDER_PAID;
+                case TRADE_CLOSED -> ORDER_CLOSED;
+            };
+        }
+    }
+
+    static PaymentEvent from(PaymentOutboxEvent row) {
+        return new PaymentEvent(row.getId(), Type.valueOf(row.getEventType()), row.getOutTradeNo(),
+                row.getOrderVersion(), row.getUserId(), row.getTotalAmount(),
+                row.getOrderCreateTime(), row.getCreateTime());
+    }
+}
@@ -0,0 +1,21 @@
+package com.lynn.papertrail.service.payment;
+
+import java.util.List;
+
+/**
+ * 支付事件订阅者，注册为 Spring Bean 即可接收 {@link PaymentOutboxRelay} 投递的事件
+ * <p>
+ * 投递至少一次：任一订阅者抛出异常时整批事件稍后重新投递给所有订阅者，因此处理必须幂等，
+ * 可以用 (outTradeNo, orderVersion) 去重。同一订单的事件按发生顺序投递。
+ * 投递在转发线程上同步执行，耗时的处理应自行转交其他线程。
+ * </p>
+ *
+ * @author lynn
+ */
+public interface PaymentEventListener {
+
+    /**
+     * 处理一批按事件ID排序的事件
+     */
+    void onPaymentEvents(List<PaymentEvent> events);
+}
@@ -0,0 +1,132 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentNotifyProperties;
+import com.lynn.papertrail.entity.PaymentNotifyEvent;
+import com.lynn.papertrail.mapper.PaymentNotifyEventMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * 支付通知事件处理器
+ * <p>
+ * 回调线程只负责把事件写入 payment_notify_event 并提交到这里，订单状态由后台工作线程应用。
+ * 每个工作线程有独立的有界队列，事件按商户订单号分配到固定线程，同一订单的事件按到达顺序处理。
+ * 队列满或节点重启时事件仍在表中，由补偿任务定期按主键分页重新提交，因此每个事件至少处理一次；
+ * 状态应用本身是幂等的，重复处理不影响结果。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class PaymentNotifyProcessor {
+
+    private final PaymentNotifyEventMapper notifyEventMapper;
+    private final PaymentOrderUpdater paymentOrderUpdater;
+    private final PaymentNotifyProperties properties;
+    private final ThreadPoolExecutor[] lanes;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PaymentNotifyProcessor(PaymentNotifyEventMapper notifyEventMapper,
+                                  PaymentOrderUpdater paymentOrderUpdater,
+                                  PaymentNotifyProperties properties) {
+        this.notifyEventMapper = notifyEventMapper;
+        this.paymentOrderUpdater = paymentOrderUpdater;
+        this.properties = properties;
+
+        this.lanes = new ThreadPoolExecutor[Math.max(1, properties.getWorkerThreads())];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "payment-notify-" + (i + 1);
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * 提交已入库的事件，队列已满时直接返回，事件稍后由补偿任务处理
+     *
+     * @return 队列已满时返回 false
+     */
+    public boolean submit(PaymentNotifyEvent event) {
+        if (!inFlight.add(event.getId())) {
+            return true;
+        }
+        try {
+            lanes[Math.floorMod(event.getOutTradeNo().hashCode(), lanes.length)].execute(() -> process(event));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(event.getId());
+            log.warn("支付通知处理队列已满，等待补偿任务处理: 事件ID={}", event.getId());
+            return false;
+        }
+    }
+
+    /**
+     * 补偿任务：重新提交长时间未处理的事件
+     */
+    @Scheduled(fixedDelay = 10_000)
+    public void recoverPending() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRecoveryDelay());
+        int batchSize = Math.max(1, properties.getRecoveryBatchSize());
+        long afterId = 0;
+        int resubmitted = 0;
+        boolean saturated = false;
+        while (!saturated) {
+            List<PaymentNotifyEvent> events = notifyEventMapper.selectPending(before, afterId, batchSize);
+            for (PaymentNotifyEvent event : events) {
+                if (!submit(event)) {
+                    // 队列已满，剩余事件留到下一轮
+                    saturated = true;
+                    break;
+                }
+                afterId = event.getId();
+                resubmitted++;
+            }
+            if (events.size() < batchSize) {
+                break;
+            }
+        }
+        if (resubmitted > 0) {
+            log.info("补偿提交未处理的支付通知: {} 条", resubmitted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void process(PaymentNotifyEvent event) {
+        try {
+            if (paymentOrderUpdater.applyNotify(event)) {
+                notifyEventMapper.markApplied(event.getId());
+            } else {
+                notifyEventMapper.markFailed(event.getId(), "订单不存在", properties.getMaxAttempts());
+            }
+        } catch (Exception e) {
+            log.error("处理支付通知失败: 事件ID={}, 订单号={}", event.getId(), event.getOutTradeNo(), e);
+            try {
+                notifyEventMapper.markFailed(event.getId(), String.valueOf(e.getMessage()), properties.getMaxAttempts());
+            } catch (Exception markError) {
+                log.error("记录支付通知失败状态时出错: 事件ID={}", event.getId(), markError);
+            }
+        } finally {
+            inFlight.remove(event.getId());
+        }
+    }
+}
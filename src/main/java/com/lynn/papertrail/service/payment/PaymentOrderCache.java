@@ -0,0 +1,218 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentOrderCacheProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 支付订单旁路缓存
+ * <p>
+ * 按商户订单号缓存订单，前端在支付页轮询时直接从缓存返回。等待付款的订单和不存在的订单号只缓存 pendingTtl，
+ * 已支付或已关闭的订单缓存 finalTtl。订单创建后直接放入缓存，状态转换由 {@link PaymentOrderUpdater}
+ * 调用 {@link #refresh} 重新读取并唤醒等待中的长轮询。写入时比较订单版本号，并发加载读到的旧版本不会覆盖新版本。
+ * 多节点部署时其他节点上发生的转换在 pendingTtl 之后可见。返回的是缓存对象的副本，调用方可以修改。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class PaymentOrderCache {
+
+    private final PaymentOrderMapper paymentOrderMapper;
+    private final PaymentOrderCacheProperties properties;
+    private final LongSupplier clock;
+
+    private final Map<String, CachedOrder> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<CompletableFuture<PaymentOrder>>> waiters = new ConcurrentHashMap<>();
+    private final AtomicInteger waiterCount = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public PaymentOrderCache(PaymentOrderMapper paymentOrderMapper, PaymentOrderCacheProperties properties) {
+        this(paymentOrderMapper, properties, System::currentTimeMillis);
+    }
+
+    PaymentOrderCache(PaymentOrderMapper paymentOrderMapper, PaymentOrderCacheProperties properties, LongSupplier clock) {
+        this.paymentOrderMapper = paymentOrderMapper;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * 按商户订单号获取订单，不存在时返回 null
+     */
+    public PaymentOrder get(String outTradeNo) {
+        if (outTradeNo == null) {
+            return null;
+        }
+        if (!properties.isEnabled()) {
+            return paymentOrderMapper.selectByOutTradeNo(outTradeNo);
+        }
+        CachedOrder cached = entries.get(outTradeNo);
+        if (cached != null && cached.expireAt > clock.getAsLong()) {
+            hits.increment();
+            return cached.order != null ? copyOf(cached.order) : null;
+        }
+        misses.increment();
+        PaymentOrder order = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
+        store(outTradeNo, order != null ? copyOf(order) : null);
+        return order;
+    }
+
+    /**
+     * 放入新建或刚从数据库读取的订单
+     */
+    public void put(PaymentOrder order) {
+        if (order != null && order.getOutTradeNo() != null && properties.isEnabled()) {
+            store(order.getOutTradeNo(), copyOf(order));
+        }
+    }
+
+    /**
+     * 订单状态变化后调用：从数据库重新读取，更新缓存并唤醒等待该订单的长轮询
+     */
+    public void refresh(String outTradeNo) {
+        PaymentOrder order = paymentOrderMapper.selectByOutTradeNo(outTradeNo);
+        if (properties.isEnabled()) {
+            store(outTradeNo, order);
+        }
+        if (order != null && !PaymentOrderStatus.WAIT_BUYER_PAY.name().equals(order.getStatus())) {
+            completeWaiters(outTradeNo, order);
+        }
+    }
+
+    /**
+     * 只在本节点缓存了该订单或有长轮询在等待时刷新，批量关闭过期订单时使用，
+     * 大部分过期订单早已无人查看，不必逐个回表
+     */
+    public void refreshIfTracked(String outTradeNo) {
+        if (entries.containsKey(outTradeNo) || waiters.containsKey(outTradeNo)) {
+            refresh(outTradeNo);
+        }
+    }
+
+    /**
+     * 等待订单离开等待付款状态
+     * <p>
+     * 返回的 future 在订单变为已支付或已关闭时完成；订单已经不是等待付款状态时立即完成。
+     * 调用方超时放弃时应取消 future，以便释放等待名额。等待数已达上限时返回 null。
+     * </p>
+     */
+    public CompletableFuture<PaymentOrder> awaitCompletion(String outTradeNo) {
+        if (waiterCount.incrementAndGet() > properties.getMaxWaiters()) {
+            waiterCount.decrementAndGet();
+            return null;
+        }
+        CompletableFuture<PaymentOrder> future = new CompletableFuture<>();
+        waiters.computeIfAbsent(outTradeNo, key -> ConcurrentHashMap.newKeySet()).add(future);
+        future.whenComplete((order, error) -> removeWaiter(outTradeNo, future));
+
+        // 注册之后再检查一次，避免错过注册前刚发生的转换
+        PaymentOrder current = get(outTradeNo);
+        if (current == null || !PaymentOrderStatus.WAIT_BUYER_PAY.name().equals(current.getStatus())) {
+            future.complete(current);
+        }
+        return future;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", entries.size());
+        statistics.put("waiters", waiterCount.get());
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        return statistics;
+    }
+
+    private void store(String outTradeNo, PaymentOrder order) {
+        long now = clock.getAsLong();
+        if (entries.size() >= properties.getMaxEntries()) {
+            shrink(now);
+        }
+        boolean pending = order == null || PaymentOrderStatus.WAIT_BUYER_PAY.name().equals(order.getStatus());
+        long ttl = (pending ? properties.getPendingTtl() : properties.getFinalTtl()).toMillis();
+        CachedOrder entry = new CachedOrder(order, now + ttl);
+        // 只用同版本或更新版本覆盖，加载期间被刷新过的条目不会被旧数据替换
+        entries.merge(outTradeNo, entry, (existing, replacement) ->
+                version(replacement.order) >= version(existing.order) ? replacement : existing);
+    }
+
+    private void completeWaiters(String outTradeNo, PaymentOrder order) {
+        Set<CompletableFuture<PaymentOrder>> futures = waiters.remove(outTradeNo);
+        if (futures != null) {
+            for (CompletableFuture<PaymentOrder> future : futures) {
+                future.complete(copyOf(order));
+            }
+        }
+    }
+
+    private void removeWaiter(String outTradeNo, CompletableFuture<PaymentOrder> future) {
+        waiterCount.decrementAndGet();
+        waiters.computeIfPresent(outTradeNo, (key, futures) -> {
+            futures.remove(future);
+            return futures.isEmpty() ? null : futures;
+        });
+    }
+
+    /**
+     * 缓存已满时先移除过期条目，仍不足时移除约八分之一的条目
+     */
+    private void shrink(long now) {
+        entries.values().removeIf(cached -> cached.expireAt <= now);
+        int target = properties.getMaxEntries() - Math.max(1, properties.getMaxEntries() / 8);
+        Iterator<CachedOrder> iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 不存在的订单视为最旧版本，订单一旦写入就不会被“不存在”覆盖
+     */
+    private static long version(PaymentOrder order) {
+        if (order == null) {
+            return -1;
+        }
+        return order.getVersion() != null ? order.getVersion() : 0;
+    }
+
+    private static PaymentOrder copyOf(PaymentOrder order) {
+        return PaymentOrder.builder()
+                .id(order.getId())
+                .userId(order.getUserId())
+                .body(order.getBody())
+                .buyerId(order.getBuyerId())
+                .buyerLogonId(order.getBuyerLogonId())
+                .createTime(order.getCreateTime())
+                .expireTime(order.getExpireTime())
+                .outTradeNo(order.getOutTradeNo())
+                .paymentTime(order.getPaymentTime())
+                .status(order.getStatus())
+                .subject(order.getSubject())
+                .totalAmount(order.getTotalAmount())
+                .tradeNo(order.getTradeNo())
+                .updateTime(order.getUpdateTime())
+                .version(order.getVersion())
+                .build();
+    }
+
+    private record CachedOrder(PaymentOrder order, long expireAt) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentExpiryProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付订单过期关闭
+ * <p>
+ * 新建订单的过期时间在 horizon 以内时放入内存延迟队列，由后台线程在过期（加 grace）后按批关闭；
+ * 启动时按同样的条件从数据库加载即将过期的订单。队列已满、过期较晚或节点重启期间错过的订单，
+ * 由定时任务沿 idx_status_expire (status, expire_time, id) 索引逐个分表键集分页扫描后关闭，不做全表扫描。
+ * 关闭语句仍带状态和过期时间条件，已支付的订单或多个节点重复关闭都不会出错。
+ * 下单时把订单的过期时间作为绝对时间 time_expire 传给支付宝（见 {@link AlipayBizContent}），支付宝侧的交易
+ * 与本地订单同时到期并由支付宝自行关闭，这里只关闭本地订单；grace 用于接收到期前刚完成支付的延迟通知。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class PaymentOrderExpiryService {
+
+    private final PaymentOrderMapper paymentOrderMapper;
+    private final PaymentOrderUpdater paymentOrderUpdater;
+    private final PaymentExpiryProperties properties;
+    private final PaymentOrderShards shards;
+    private final DelayQueue<Expiry> queue = new DelayQueue<>();
+    private volatile Thread closer;
+
+    public PaymentOrderExpiryService(PaymentOrderMapper paymentOrderMapper,
+                                     PaymentOrderUpdater paymentOrderUpdater,
+                                     PaymentExpiryProperties properties,
+                                     PaymentOrderShards shards) {
+        this.paymentOrderMapper = paymentOrderMapper;
+        this.paymentOrderUpdater = paymentOrderUpdater;
+        this.properties = properties;
+        this.shards = shards;
+    }
+
+    /**
+     * 跟踪新建的订单，过期较晚或队列已满时不跟踪，留给定时扫描
+     *
+     * @return 是否放入了延迟队列
+     */
+    public boolean track(Long orderId, LocalDateTime expireTime) {
+        if (orderId == null || expireTime == null || queue.size() >= properties.getMaxTracked()) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Duration delay = Duration.between(now, expireTime.plus(properties.getGrace()));
+        if (delay.compareTo(properties.getHorizon()) > 0) {
+            return false;
+        }
+        queue.offer(new Expiry(orderId, System.nanoTime() + Math.max(0, delay.toNanos())));
+        return true;
+    }
+
+    /**
+     * 当前延迟队列中的订单数
+     */
+    public int trackedCount() {
+        return queue.size();
+    }
+
+    /**
+     * 应用启动后加载即将过期的订单并启动关闭线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(() -> {
+            loadUpcoming();
+            closeLoop();
+        }, "payment-order-expiry");
+        thread.setDaemon(true);
+        closer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = closer;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 定时扫描已过期仍在等待付款的订单并关闭
+     *
+     * @return 本次关闭的订单数
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public int sweep() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getGrace());
+        int closed = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            closed += PaymentOrderShards.callOn(shard, () -> sweepShard(before));
+        }
+        return closed;
+    }
+
+    private int sweepShard(LocalDateTime before) {
+        int pageSize = Math.max(1, properties.getSweepPageSize());
+        LocalDateTime afterExpireTime = null;
+        long afterId = 0;
+        int scanned = 0;
+        int closed = 0;
+        while (true) {
+            List<PaymentOrder> page = paymentOrderMapper.selectByStatusExpiringBefore(
+                    PaymentOrderStatus.WAIT_BUYER_PAY.name(), before, afterExpireTime, afterId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            closed += closeInBatches(page.stream().map(PaymentOrder::getId).toList(), before);
+            scanned += page.size();
+            PaymentOrder last = page.get(page.size() - 1);
+            afterExpireTime = last.getExpireTime();
+            afterId = last.getId();
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        if (scanned > 0) {
+            log.info("扫描关闭过期订单: 扫描={}, 关闭={}", scanned, closed);
+        }
+        return closed;
+    }
+
+    private void loadUpcoming() {
+        LocalDateTime before = LocalDateTime.now().plus(properties.getHorizon()).minus(properties.getGrace());
+        int loaded = 0;
+        try {
+            for (int shard = 0; shard < shards.count(); shard++) {
+                loaded += PaymentOrderShards.callOn(shard, () -> loadUpcomingShard(before));
+            }
+        } catch (Exception e) {
+            log.error("加载即将过期的订单失败，由定时扫描处理", e);
+        }
+        log.info("加载即将过期的订单: {} 个", loaded);
+    }
+
+    private int loadUpcomingShard(LocalDateTime before) {
+        int pageSize = Math.max(1, properties.getSweepPageSize());
+        LocalDateTime afterExpireTime = null;
+        long afterId = 0;
+        int loaded = 0;
+        while (queue.size() < properties.getMaxTracked()) {
+            List<PaymentOrder> page = paymentOrderMapper.selectByStatusExpiringBefore(
+                    PaymentOrderStatus.WAIT_BUYER_PAY.name(), before, afterExpireTime, afterId, pageSize);
+            for (PaymentOrder order : page) {
+                if (track(order.getId(), order.getExpireTime())) {
+                    loaded++;
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            PaymentOrder last = page.get(page.size() - 1);
+            afterExpireTime = last.getExpireTime();
+            afterId = last.getId();
+        }
+        return loaded;
+    }
+
+    private void closeLoop() {
+        int batchSize = Math.max(1, properties.getCloseBatchSize());
+        List<Expiry> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                List<Long> ids = batch.stream().map(Expiry::orderId).toList();
+                int closed = paymentOrderUpdater.closeExpired(ids, LocalDateTime.now().minus(properties.getGrace()));
+                log.debug("关闭到期订单: 到期={}, 关闭={}", ids.size(), closed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // 这一批留给定时扫描处理
+                log.error("关闭到期订单失败: 数量={}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private int closeInBatches(List<Long> ids, LocalDateTime before) {
+        int batchSize = Math.max(1, properties.getCloseBatchSize());
+        int closed = 0;
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            closed += paymentOrderUpdater.closeExpired(ids.subList(from, Math.min(ids.size(), from + batchSize)), before);
+        }
+        return closed;
+    }
+
+    /**
+     * 延迟队列中的订单，deadline 为 System.nanoTime() 时间
+     */
+    private record Expiry(long orderId, long deadline) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadline, ((Expiry) other).deadline);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.entity.PaymentOrder;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 支付订单分表拦截器
+ * <p>
+ * 在语句预编译前把 SQL 中的 payment_order 表名替换为目标分表，payment_order_archive 等其他表不受影响。
+ * 目标分表优先取 {@link PaymentOrderShards#runOn} 指定的分表，其次取参数中的商户订单号：
+ * 单个字符串参数、名为 outTradeNo 的参数，或者参数中的 {@link PaymentOrder} 实体。都没有时访问 0 号分表。
+ * </p>
+ * <p>
+ * 批量执行器在预编译之前按原始 SQL 判断能否复用语句，不同分表的同一条语句之间需要先 flushStatements。
+ * </p>
+ *
+ * @author lynn
+ */
+@Component
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class PaymentOrderShardInterceptor implements Interceptor {
+
+    private static final Pattern TABLE = Pattern.compile("\\b" + PaymentOrderShards.BASE_TABLE + "\\b");
+    private static final String OUT_TRADE_NO = "outTradeNo";
+
+    private final PaymentOrderShards shards;
+
+    public PaymentOrderShardInterceptor(PaymentOrderShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (shards.count() > 1) {
+            BoundSql boundSql = ((StatementHandler) invocation.getTarget()).getBoundSql();
+            String sql = boundSql.getSql();
+            if (sql.contains(PaymentOrderShards.BASE_TABLE)) {
+                int shard = resolveShard(boundSql.getParameterObject());
+                if (shard != 0) {
+                    SystemMetaObject.forObject(boundSql).setValue("sql", rewrite(sql, shard));
+                }
+            }
+        }
+        return invocation.proceed();
+    }
+
+    private int resolveShard(Object parameter) {
+        Integer routed = PaymentOrderShards.routed();
+        if (routed != null) {
+            return routed;
+        }
+        if (parameter instanceof String outTradeNo) {
+            return shards.shardOf(outTradeNo);
+        }
+        if (parameter instanceof PaymentOrder order) {
+            return shards.shardOf(order.getOutTradeNo());
+        }
+        if (parameter instanceof Map<?, ?> params) {
+            // MyBatis 的参数映射在键不存在时抛出异常，先检查
+            if (params.containsKey(OUT_TRADE_NO) && params.get(OUT_TRADE_NO) instanceof String outTradeNo) {
+                return shards.shardOf(outTradeNo);
+            }
+            for (Object value : params.values()) {
+                if (value instanceof PaymentOrder order) {
+                    return shards.shardOf(order.getOutTradeNo());
+                }
+            }
+        }
+        return 0;
+    }
+
+    static String rewrite(String sql, int shard) {
+        return TABLE.matcher(sql).replaceAll(Matcher.quoteReplacement(PaymentOrderShards.tableName(shard)));
+    }
+}
@@ -0,0 +1,143 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 支付订单分表路由
+ * <p>
+ * 分表号写在商户订单号中（见 {@link OutTradeNoGenerator}），按订单号的读写只访问一张表；
+ * {@code ORDER_} 开头、不含分表号的旧订单号属于 0 号分表，即原来的 payment_order。
+ * 各分表的自增主键从 {@code 分表号 * ID_SPAN} 开始，主键全局唯一，也能直接算出所在分表。
+ * </p>
+ * <p>
+ * 实际改写表名的是 {@link PaymentOrderShardInterceptor}：语句参数中有商户订单号时自动路由，
+ * 按状态扫描、按主键批量更新等没有订单号的语句需要用 {@link #runOn}/{@link #callOn} 指定分表，逐个分表执行。
+ * </p>
+ *
+ * @author lynn
+ */
+@Component
+public class PaymentOrderShards {
+
+    /**
+     * 每个分表的主键区间大小
+     */
+    public static final long ID_SPAN = 1_000_000_000_000_000L;
+
+    /**
+     * 最多支持的分表数，分表号固定占两位
+     */
+    public static final int MAX_SHARDS = 100;
+
+    static final String BASE_TABLE = "payment_order";
+
+    private static final ThreadLocal<Integer> ROUTED = new ThreadLocal<>();
+
+    private final int count;
+
+    public PaymentOrderShards(PaymentStorageProperties properties) {
+        int shardCount = properties.getShardCount();
+        if (shardCount < 1 || shardCount > MAX_SHARDS) {
+            throw new IllegalArgumentException("订单分表数必须在 1 到 " + MAX_SHARDS + " 之间");
+        }
+        this.count = shardCount;
+    }
+
+    /**
+     * 分表数，为 1 时不分表
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * 新订单写入的分表：同一用户的订单落在同一分表，未登录用户随机分配
+     */
+    public int shardFor(Long userId) {
+        if (count == 1) {
+            return 0;
+        }
+        return userId != null
+                ? (int) Math.floorMod(userId, (long) count)
+                : ThreadLocalRandom.current().nextInt(count);
+    }
+
+    /**
+     * 商户订单号所在的分表，不含分表号或分表号超出范围时为 0
+     */
+    public int shardOf(String outTradeNo) {
+        int shard = parseShard(outTradeNo);
+        return shard < count ? shard : 0;
+    }
+
+    /**
+     * 主键所在的分表
+     */
+    public int shardOfId(long id) {
+        long shard = id / ID_SPAN;
+        return shard > 0 && shard < count ? (int) shard : 0;
+    }
+
+    /**
+     * 分表的表名
+     */
+    public static String tableName(int shard) {
+        if (shard == 0) {
+            return BASE_TABLE;
+        }
+        return shard < 10 ? BASE_TABLE + "_0" + shard : BASE_TABLE + "_" + shard;
+    }
+
+    /**
+     * 商户订单号中的分表号，不含分表号时为 0
+     */
+    static int parseShard(String outTradeNo) {
+        long id = OutTradeNoGenerator.decode(outTradeNo);
+        return id >= 0 ? OutTradeNoGenerator.shardOf(id) : 0;
+    }
+
+    /**
+     * 当前线程指定的分表，未指定时为 null
+     */
+    static Integer routed() {
+        return ROUTED.get();
+    }
+
+    /**
+     * 在指定分表上执行，期间当前线程的订单表语句都路由到该分表
+     */
+    public static void runOn(int shard, Runnable task) {
+        Integer previous = ROUTED.get();
+        ROUTED.set(shard);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 在指定分表上执行并返回结果
+     */
+    public static <T> T callOn(int shard, Supplier<T> task) {
+        Integer previous = ROUTED.get();
+        ROUTED.set(shard);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(Integer previous) {
+        if (previous == null) {
+            ROUTED.remove();
+        } else {
+            ROUTED.set(previous);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.lynn.papertrail.service.payment;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 支付订单状态及允许的状态转换
+ * <p>
+ * 支付宝是支付结果的权威来源：已因超时关闭的订单如果实际已支付，仍允许转为 TRADE_SUCCESS；
+ * 已支付的订单不会再被关闭或回退为待支付。
+ * </p>
+ *
+ * @author lynn
+ */
+public enum PaymentOrderStatus {
+
+    WAIT_BUYER_PAY,
+    TRADE_SUCCESS,
+    TRADE_CLOSED;
+
+    private static final Map<PaymentOrderStatus, List<String>> SOURCE_NAMES = new EnumMap<>(PaymentOrderStatus.class);
+
+    static {
+        for (PaymentOrderStatus status : values()) {
+            SOURCE_NAMES.put(status, status.allowedSources().stream().map(Enum::name).toList());
+        }
+    }
+
+    /**
+     * 允许转换为当前状态的原状态
+     */
+    public Set<PaymentOrderStatus> allowedSources() {
+        return switch (this) {
+            case WAIT_BUYER_PAY -> EnumSet.noneOf(PaymentOrderStatus.class);
+            case TRADE_SUCCESS -> EnumSet.of(WAIT_BUYER_PAY, TRADE_CLOSED);
+            case TRADE_CLOSED -> EnumSet.of(WAIT_BUYER_PAY);
+        };
+    }
+
+    /**
+     * 允许转换为当前状态的原状态名称，用于条件更新语句
+     */
+    public List<String> allowedSourceNames() {
+        return SOURCE_NAMES.get(this);
+    }
+
+    public boolean canTransitionFrom(PaymentOrderStatus source) {
+        return allowedSources().contains(source);
+    }
+
+    /**
+     * 支付宝交易状态对应的订单状态，TRADE_FINISHED 视为已支付，无法识别时返回 null
+     */
+    public static PaymentOrderStatus fromTradeStatus(String tradeStatus) {
+        if (tradeStatus == null) {
+            return null;
+        }
+        return switch (tradeStatus) {
+            case "TRADE_SUCCESS", "TRADE_FINISHED" -> TRADE_SUCCESS;
+            case "TRADE_CLOSED" -> TRADE_CLOSED;
+            case "WAIT_BUYER_PAY" -> WAIT_BUYER_PAY;
+            default -> null;
+        };
+    }
+}
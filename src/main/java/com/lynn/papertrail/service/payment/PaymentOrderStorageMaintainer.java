@@ -0,0 +1,146 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderArchiveMapper;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 支付订单存储维护：按月分区和已关闭订单归档
+ * <p>
+ * 订单表按 create_time 做 RANGE COLUMNS 月分区，最后一个分区 pmax 的上界为 MAXVALUE。
+ * 分区维护每天检查一次各分表，从 pmax 中拆出当前月和之后 partitionMonthsAhead 个月的分区，
+ * pmax 中通常没有数据，拆分只修改表定义。
+ * </p>
+ * <p>
+ * 归档沿 idx_status_expire 索引逐个分表读取过期时间早于 archiveAfterMonths 个月之前的已关闭订单，
+ * 每批在一个事务中复制到压缩的 payment_order_archive 表并从订单表删除。两条语句都带状态条件，
+ * 删除数与复制数不一致说明期间有订单状态变化，回滚这一批留到下次处理。
+ * 已支付的订单参与配额计算，不归档。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentOrderStorageMaintainer {
+
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final PaymentOrderMapper paymentOrderMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final PaymentOrderShards shards;
+    private final PaymentStorageProperties properties;
+
+    /**
+     * 为各分表创建接下来几个月的分区
+     *
+     * @return 新建的分区数
+     */
+    @Scheduled(fixedDelay = 86_400_000, initialDelay = 60_000)
+    public int maintainPartitions() {
+        if (!properties.isPartitionMaintenanceEnabled()) {
+            return 0;
+        }
+        YearMonth current = YearMonth.now();
+        int added = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            String table = PaymentOrderShards.tableName(shard);
+            try {
+                Set<String> existing = new HashSet<>(paymentOrderMapper.selectPartitionNames(table));
+                if (!existing.contains(MAX_PARTITION)) {
+                    log.warn("订单表 {} 没有 {} 分区，跳过分区维护", table, MAX_PARTITION);
+                    continue;
+                }
+                for (int i = 0; i <= properties.getPartitionMonthsAhead(); i++) {
+                    YearMonth month = current.plusMonths(i);
+                    String name = "p" + month.format(PARTITION_MONTH);
+                    if (!existing.contains(name)) {
+                        paymentOrderMapper.addMonthlyPartition(table, name, month.plusMonths(1).atDay(1).toString());
+                        log.info("新建订单表分区: 表={}, 分区={}", table, name);
+                        added++;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("维护订单表分区失败: 表={}", table, e);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 把过期较久的已关闭订单移入归档表
+     *
+     * @return 归档的订单数
+     */
+    @Scheduled(fixedDelay = 86_400_000, initialDelay = 300_000)
+    public int archiveClosed() {
+        if (!properties.isArchiveEnabled()) {
+            return 0;
+        }
+        LocalDateTime before = LocalDateTime.now().minusMonths(properties.getArchiveAfterMonths());
+        int archived = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            int current = shard;
+            try {
+                archived += PaymentOrderShards.callOn(shard, () -> archiveShard(before));
+            } catch (Exception e) {
+                log.error("归档已关闭订单失败: 表={}", PaymentOrderShards.tableName(current), e);
+            }
+        }
+        if (archived > 0) {
+            log.info("归档已关闭订单: {} 个, 截止过期时间={}", archived, before);
+        }
+        return archived;
+    }
+
+    private int archiveShard(LocalDateTime before) {
+        int batchSize = Math.max(1, properties.getArchiveBatchSize());
+        String closed = PaymentOrderStatus.TRADE_CLOSED.name();
+        LocalDateTime afterExpireTime = null;
+        long afterId = 0;
+        int archived = 0;
+        while (true) {
+            List<PaymentOrder> page = paymentOrderMapper.selectByStatusExpiringBefore(
+                    closed, before, afterExpireTime, afterId, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Long> ids = page.stream().map(PaymentOrder::getId).toList();
+            try (SqlSession session = sqlSessionFactory.openSession(false)) {
+                PaymentOrderArchiveMapper archiveMapper = session.getMapper(PaymentOrderArchiveMapper.class);
+                int copied = archiveMapper.insertFromOrders(ids, closed);
+                int deleted = archiveMapper.deleteOrders(ids, closed);
+                if (deleted == copied) {
+                    session.commit();
+                    archived += deleted;
+                } else {
+                    session.rollback();
+                    log.warn("归档期间订单状态变化，本批稍后重试: 复制={}, 删除={}", copied, deleted);
+                }
+            }
+            PaymentOrder last = page.get(page.size() - 1);
+            afterExpireTime = last.getExpireTime();
+            afterId = last.getId();
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,270 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.entity.PaymentNotifyEvent;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.mapper.PaymentOutboxMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 支付订单的创建和状态转换
+ * <p>
+ * 每次转换是一条带状态条件的 UPDATE，允许的原状态由 {@link PaymentOrderStatus} 定义，
+ * 不需要先查询订单，也不会与并发的通知或主动查询互相覆盖；重复应用同一状态时条件不满足，结果不变。
+ * 只有更新未命中时才查询一次状态，用来区分订单不存在和状态不允许转换。
+ * </p>
+ * <p>
+ * 订单写入和对应的 payment_outbox 事件在同一个手动提交的 {@link SqlSession} 中完成，一次短事务只包含这两条语句。
+ * 事件按订单当前版本写入并忽略重复，重复执行或批量关闭中已被其他节点关闭的订单不会产生重复事件。
+ * 提交后刷新 {@link PaymentOrderCache} 唤醒长轮询（批量关闭只刷新本节点缓存或等待中的订单），
+ * 并通知 {@link PaymentOutboxRelay} 投递事件。
+ * </p>
+ * <p>
+ * 按商户订单号的语句由分表拦截器自动路由；批量转换和按主键关闭先按分表分组，各分表在同一个事务中依次执行。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentOrderUpdater {
+
+    /**
+     * 状态转换结果
+     */
+    public enum TransitionResult {
+        /**
+         * 已转换
+         */
+        APPLIED,
+        /**
+         * 订单已处于目标状态或当前状态不允许转换
+         */
+        UNCHANGED,
+        /**
+         * 订单不存在
+         */
+        NOT_FOUND
+    }
+
+    /**
+     * 一次待应用的状态转换
+     *
+     * @param tradeNo      支付宝交易号，可为空
+     * @param buyerId      买家ID，可为空
+     * @param buyerLogonId 买家登录ID，可为空
+     */
+    public record Transition(String outTradeNo, PaymentOrderStatus target,
+                             String tradeNo, String buyerId, String buyerLogonId) {
+    }
+
+    private final PaymentOrderMapper paymentOrderMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final PaymentOrderCache paymentOrderCache;
+    private final PaymentOutboxRelay paymentOutboxRelay;
+    private final PaymentOrderShards shards;
+
+    /**
+     * 写入新订单及其创建事件，自增主键回填到 order
+     */
+    public void create(PaymentOrder order) {
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            session.getMapper(PaymentOrderMapper.class).insert(order);
+            session.getMapper(PaymentOutboxMapper.class).insertFromOrder(PaymentEvent.Type.ORDER_CREATED.name(),
+                    order.getOutTradeNo(), PaymentOrderStatus.WAIT_BUYER_PAY.name());
+            session.commit();
+        }
+        paymentOutboxRelay.signal();
+    }
+
+    /**
+     * 应用异步通知事件
+     *
+     * @return 订单不存在时返回 false
+     */
+    public boolean applyNotify(PaymentNotifyEvent event) {
+        PaymentOrderStatus target = PaymentOrderStatus.fromTradeStatus(event.getTradeStatus());
+        if (target == null || target.allowedSources().isEmpty()) {
+            log.warn("接收到未处理的交易状态: {}", event.getTradeStatus());
+            return true;
+        }
+        TransitionResult result = transition(event.getOutTradeNo(), target,
+                event.getTradeNo(), event.getBuyerId(), event.getBuyerLogonId());
+        if (result == TransitionResult.NOT_FOUND) {
+            log.error("未找到对应的订单: 商户订单号={}", event.getOutTradeNo());
+            return false;
+        }
+        log.info("支付通知处理完成: 订单号={}, 交易状态={}, 结果={}", event.getOutTradeNo(), event.getTradeStatus(), result);
+        return true;
+    }
+
+    /**
+     * 把订单转换为目标状态
+     *
+     * @param tradeNo      支付宝交易号，可为空
+     * @param buyerId      买家ID，可为空
+     * @param buyerLogonId 买家登录ID，可为空
+     */
+    public TransitionResult transition(String outTradeNo, PaymentOrderStatus target,
+                                       String tradeNo, String buyerId, String buyerLogonId) {
+        if (target.allowedSources().isEmpty()) {
+            return TransitionResult.UNCHANGED;
+        }
+        LocalDateTime paymentTime = target == PaymentOrderStatus.TRADE_SUCCESS ? LocalDateTime.now() : null;
+        int updated;
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            updated = session.getMapper(PaymentOrderMapper.class).transitionStatus(outTradeNo, target.name(),
+                    target.allowedSourceNames(), emptyToNull(tradeNo), buyerId, buyerLogonId, paymentTime);
+            if (updated > 0) {
+                session.getMapper(PaymentOutboxMapper.class).insertFromOrder(
+                        PaymentEvent.Type.forStatus(target).name(), outTradeNo, target.name());
+            }
+            session.commit();
+        }
+        if (updated > 0) {
+            log.info("订单状态变更: 订单号={}, 新状态={}", outTradeNo, target);
+            paymentOrderCache.refresh(outTradeNo);
+            paymentOutboxRelay.signal();
+            return TransitionResult.APPLIED;
+        }
+        return paymentOrderMapper.selectStatusByOutTradeNo(outTradeNo) == null
+                ? TransitionResult.NOT_FOUND : TransitionResult.UNCHANGED;
+    }
+
+    /**
+     * 在一次批量执行中应用多个状态转换，每个转换仍是带状态条件的 UPDATE
+     *
+     * @return 与 transitions 一一对应，true 表示已转换；不区分订单不存在和状态不允许转换
+     */
+    public boolean[] transitionAll(List<Transition> transitions) {
+        boolean[] applied = new boolean[transitions.size()];
+        if (transitions.isEmpty()) {
+            return applied;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            // 批量执行器按原始 SQL 复用语句，不同分表的转换分组执行，每组之后 flush
+            for (List<Integer> group : groupByShard(transitions)) {
+                applyBatch(session, transitions, group, now, applied);
+            }
+            session.commit();
+        }
+        boolean anyApplied = false;
+        for (int i = 0; i < applied.length; i++) {
+            if (applied[i]) {
+                paymentOrderCache.refresh(transitions.get(i).outTradeNo());
+                anyApplied = true;
+            }
+        }
+        if (anyApplied) {
+            paymentOutboxRelay.signal();
+        }
+        log.info("批量应用订单状态: 数量={}", transitions.size());
+        return applied;
+    }
+
+    /**
+     * 批量关闭过期订单，只关闭仍在等待付款且过期时间早于 before 的订单
+     *
+     * @return 实际关闭的订单数
+     */
+    public int closeExpired(List<Long> orderIds, LocalDateTime before) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+        for (Long orderId : orderIds) {
+            idsByShard.computeIfAbsent(shards.shardOfId(orderId), key -> new ArrayList<>()).add(orderId);
+        }
+        int closed = 0;
+        List<String> closedOutTradeNos = new ArrayList<>();
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            for (Map.Entry<Integer, List<Long>> entry : idsByShard.entrySet()) {
+                List<Long> ids = entry.getValue();
+                closed += PaymentOrderShards.callOn(entry.getKey(), () -> {
+                    PaymentOrderMapper mapper = session.getMapper(PaymentOrderMapper.class);
+                    String closedStatus = PaymentOrderStatus.TRADE_CLOSED.name();
+                    int count = mapper.closeExpired(ids, PaymentOrderStatus.WAIT_BUYER_PAY.name(), closedStatus, before);
+                    if (count > 0) {
+                        session.getMapper(PaymentOutboxMapper.class).insertFromOrders(
+                                PaymentEvent.Type.ORDER_CLOSED.name(), ids, closedStatus);
+                        // 可能包含此前已被其他节点关闭的订单，刷新只是重新读取，多刷新不影响正确性
+                        closedOutTradeNos.addAll(mapper.selectOutTradeNosByIds(ids, closedStatus));
+                    }
+                    return count;
+                });
+            }
+            session.commit();
+        }
+        if (closed > 0) {
+            for (String outTradeNo : closedOutTradeNos) {
+                paymentOrderCache.refreshIfTracked(outTradeNo);
+            }
+            paymentOutboxRelay.signal();
+        }
+        return closed;
+    }
+
+    /**
+     * 在当前分表上执行一组转换并 flush，转换结果写入 applied 中对应的位置
+     */
+    private static void applyBatch(SqlSession session, List<Transition> transitions, List<Integer> group,
+                                   LocalDateTime now, boolean[] applied) {
+        PaymentOrderMapper batchMapper = session.getMapper(PaymentOrderMapper.class);
+        for (int i : group) {
+            Transition transition = transitions.get(i);
+            PaymentOrderStatus target = transition.target();
+            batchMapper.transitionStatus(transition.outTradeNo(), target.name(), target.allowedSourceNames(),
+                    emptyToNull(transition.tradeNo()), transition.buyerId(), transition.buyerLogonId(),
+                    target == PaymentOrderStatus.TRADE_SUCCESS ? now : null);
+        }
+        // 事件写入放在所有更新之后，连续的相同语句才能合并成一批；
+        // 未转换的订单不处于目标状态时不写入，已处于目标状态时该版本的事件已存在而被忽略
+        PaymentOutboxMapper batchOutboxMapper = session.getMapper(PaymentOutboxMapper.class);
+        for (int i : group) {
+            Transition transition = transitions.get(i);
+            batchOutboxMapper.insertFromOrder(PaymentEvent.Type.forStatus(transition.target()).name(),
+                    transition.outTradeNo(), transition.target().name());
+        }
+        // 批量执行器只合并连续的相同语句，各批结果按执行顺序排列，依次展开后前 group.size() 个即与 group 对应
+        int index = 0;
+        for (BatchResult result : session.flushStatements()) {
+            for (int count : result.getUpdateCounts()) {
+                if (index < group.size()) {
+                    applied[group.get(index)] = count > 0 || count == Statement.SUCCESS_NO_INFO;
+                }
+                index++;
+            }
+        }
+    }
+
+    /**
+     * 按商户订单号所在分表分组，返回各组在 transitions 中的下标
+     */
+    private Collection<List<Integer>> groupByShard(List<Transition> transitions) {
+        Map<Integer, List<Integer>> groups = new TreeMap<>();
+        for (int i = 0; i < transitions.size(); i++) {
+            groups.computeIfAbsent(shards.shardOf(transitions.get(i).outTradeNo()), key -> new ArrayList<>()).add(i);
+        }
+        return groups.values();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
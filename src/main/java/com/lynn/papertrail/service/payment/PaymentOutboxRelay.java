@@ -0,0 +1,257 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentOutboxProperties;
+import com.lynn.papertrail.entity.PaymentOutboxEvent;
+import com.lynn.papertrail.mapper.PaymentOutboxMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付事件发件箱转发
+ * <p>
+ * 订单状态变更时 {@link PaymentOrderUpdater} 在同一事务中写入 payment_outbox，提交后调用 {@link #signal()}。
+ * 转发线程按主键顺序每次读取一批待投递事件，依次交给所有 {@link PaymentEventListener}，全部成功后标记为已投递，
+ * 因此事件至少投递一次。整批投递失败时改为逐条投递：失败的事件记一次失败次数，同一订单在本批中的后续事件留待下次，
+ * 其他订单不受影响；失败次数达到 maxAttempts 的事件标记为 FAILED 不再投递，等待人工处理。
+ * 同一订单的状态变更受行锁串行化，事件主键随订单版本递增，单线程按主键投递即保证同一订单的顺序。
+ * 多个节点开启转发时，只有持有数据库咨询锁 {@value #LOCK_NAME} 的节点投递；锁属于独占的连接，
+ * 该节点退出或连接断开后由其他节点接管。
+ * 没有通知时每隔 pollInterval 轮询一次，兜底其他节点写入的事件。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class PaymentOutboxRelay {
+
+    /**
+     * 转发节点持有的数据库咨询锁名称
+     */
+    static final String LOCK_NAME = "papertrail.payment_outbox_relay";
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final PaymentOutboxMapper outboxMapper;
+    private final List<PaymentEventListener> listeners;
+    private final PaymentOutboxProperties properties;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile Thread relay;
+
+    /**
+     * 持有咨询锁的会话，只由转发线程访问
+     */
+    private SqlSession lockSession;
+
+    public PaymentOutboxRelay(SqlSessionFactory sqlSessionFactory,
+                              PaymentOutboxMapper outboxMapper,
+                              List<PaymentEventListener> listeners,
+                              PaymentOutboxProperties properties) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.outboxMapper = outboxMapper;
+        this.listeners = listeners;
+        this.properties = properties;
+    }
+
+    /**
+     * 通知转发线程有新事件
+     */
+    public void signal() {
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isRelayEnabled()) {
+            log.info("本节点未开启支付事件转发");
+            return;
+        }
+        Thread thread = new Thread(this::relayLoop, "payment-outbox-relay");
+        thread.setDaemon(true);
+        relay = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = relay;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 投递一批待投递事件
+     *
+     * @return 投递的事件数
+     */
+    public int relayOnce() {
+        List<PaymentOutboxEvent> rows = outboxMapper.selectPending(Math.max(1, properties.getBatchSize()));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        try {
+            publish(rows.stream().map(PaymentEvent::from).toList());
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                recordFailure(rows.get(0), e);
+                return 0;
+            }
+            log.warn("批量投递支付事件失败，逐条重试: {} 条", rows.size(), e);
+            return relayOneByOne(rows);
+        }
+        outboxMapper.markPublished(rows.stream().map(PaymentOutboxEvent::getId).toList());
+        log.debug("投递支付事件: {} 条, 最后ID={}", rows.size(), rows.get(rows.size() - 1).getId());
+        return rows.size();
+    }
+
+    /**
+     * 逐条投递，某个订单的事件失败后跳过该订单在本批中的后续事件，保持同一订单的顺序
+     */
+    private int relayOneByOne(List<PaymentOutboxEvent> rows) {
+        Set<String> blockedOrders = new HashSet<>();
+        List<Long> published = new ArrayList<>(rows.size());
+        for (PaymentOutboxEvent row : rows) {
+            if (blockedOrders.contains(row.getOutTradeNo())) {
+                continue;
+            }
+            try {
+                publish(List.of(PaymentEvent.from(row)));
+                published.add(row.getId());
+            } catch (RuntimeException e) {
+                blockedOrders.add(row.getOutTradeNo());
+                recordFailure(row, e);
+            }
+        }
+        if (!published.isEmpty()) {
+            outboxMapper.markPublished(published);
+        }
+        return published.size();
+    }
+
+    private void publish(List<PaymentEvent> events) {
+        for (PaymentEventListener listener : listeners) {
+            listener.onPaymentEvents(events);
+        }
+    }
+
+    private void recordFailure(PaymentOutboxEvent row, RuntimeException e) {
+        int attempts = (row.getAttempts() != null ? row.getAttempts() : 0) + 1;
+        outboxMapper.markFailed(row.getId(), String.valueOf(e.getMessage()), properties.getMaxAttempts());
+        if (attempts >= properties.getMaxAttempts()) {
+            log.error("支付事件投递失败次数达到上限，已停止投递: id={}, outTradeNo={}, type={}",
+                    row.getId(), row.getOutTradeNo(), row.getEventType(), e);
+        } else {
+            log.warn("支付事件投递失败，稍后重试: id={}, outTradeNo={}, 第{}次",
+                    row.getId(), row.getOutTradeNo(), attempts, e);
+        }
+    }
+
+    /**
+     * 定时清理保留期之前已投递的事件
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purgePublished() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRetention());
+        int batchSize = Math.max(1, properties.getCleanupBatchSize());
+        int deleted = 0;
+        int removed;
+        do {
+            removed = outboxMapper.deletePublishedBefore(before, batchSize);
+            deleted += removed;
+        } while (removed == batchSize);
+        if (deleted > 0) {
+            log.info("清理已投递的支付事件: {} 条", deleted);
+        }
+    }
+
+    private void relayLoop() {
+        long pollNanos = properties.getPollInterval().toNanos();
+        try {
+            relay(pollNanos);
+        } finally {
+            releaseLock();
+        }
+    }
+
+    private void relay(long pollNanos) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (!holdsLock()) {
+                    // 其他节点正在转发，稍后再尝试接管
+                    TimeUnit.NANOSECONDS.sleep(pollNanos);
+                } else if (relayOnce() < Math.max(1, properties.getBatchSize())) {
+                    wakeUp.tryAcquire(pollNanos, TimeUnit.NANOSECONDS);
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // 读写发件箱失败时整批稍后重试，订阅者需要幂等
+                log.error("投递支付事件失败，稍后重试", e);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(pollNanos);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 确认本节点持有转发锁，未持有时尝试获取；连接异常时关闭会话，下次重新获取
+     */
+    private boolean holdsLock() {
+        try {
+            if (lockSession == null) {
+                lockSession = sqlSessionFactory.openSession(true);
+            }
+            PaymentOutboxMapper lockMapper = lockSession.getMapper(PaymentOutboxMapper.class);
+            if (Integer.valueOf(1).equals(lockMapper.holdsLock(LOCK_NAME))) {
+                return true;
+            }
+            if (Integer.valueOf(1).equals(lockMapper.tryLock(LOCK_NAME))) {
+                log.info("本节点获得支付事件转发锁，开始转发");
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("检查支付事件转发锁失败", e);
+            releaseLock();
+            return false;
+        }
+    }
+
+    /**
+     * 关闭会话即归还连接，MySQL 在连接会话结束时释放咨询锁；连接池中的连接不会结束会话，因此先显式释放
+     */
+    private void releaseLock() {
+        SqlSession session = lockSession;
+        lockSession = null;
+        if (session == null) {
+            return;
+        }
+        try {
+            session.getMapper(PaymentOutboxMapper.class).releaseLock(LOCK_NAME);
+        } catch (Exception e) {
+            log.debug("释放支付事件转发锁失败", e);
+        } finally {
+            session.close();
+        }
+    }
+}
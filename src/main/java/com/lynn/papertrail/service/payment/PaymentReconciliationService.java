@@ -0,0 +1,262 @@
+package com.lynn.papertrail.service.payment;
+
+import com.alipay.api.AlipayClient;
+import com.alipay.api.request.AlipayTradeQueryRequest;
+import com.alipay.api.response.AlipayTradeQueryResponse;
+import com.lynn.papertrail.config.PaymentReconciliationProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.entity.PaymentReconciliation;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.mapper.PaymentReconciliationMapper;
+import com.lynn.papertrail.util.SimpleRateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 支付订单对账
+ * <p>
+ * 逐个分表按 (status, expire_time, id) 键集分页读取等待付款的订单，以及 closedLookback 内过期关闭的订单（发现迟到的支付），
+ * 每页在有界线程池中并发调用支付宝交易查询接口，调用速率由 {@link SimpleRateLimiter} 控制；
+ * 与本地状态不一致的订单通过 {@link PaymentOrderUpdater#transitionAll} 一次批量更新。
+ * 每次对账在 payment_reconciliation 表中记录一条报告。同一节点同一时间只执行一次对账。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+public class PaymentReconciliationService {
+
+    /**
+     * 交易不存在，通常是用户没有扫码
+     */
+    private static final String TRADE_NOT_EXIST = "ACQ.TRADE_NOT_EXIST";
+
+    private final AlipayClient alipayClient;
+    private final PaymentOrderMapper paymentOrderMapper;
+    private final PaymentOrderUpdater paymentOrderUpdater;
+    private final PaymentReconciliationMapper reconciliationMapper;
+    private final PaymentReconciliationProperties properties;
+    private final PaymentOrderShards shards;
+    private final SimpleRateLimiter rateLimiter;
+    private final ExecutorService queryExecutor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PaymentReconciliationService(AlipayClient alipayClient,
+                                        PaymentOrderMapper paymentOrderMapper,
+                                        PaymentOrderUpdater paymentOrderUpdater,
+                                        PaymentReconciliationMapper reconciliationMapper,
+                                        PaymentReconciliationProperties properties,
+                                        PaymentOrderShards shards) {
+        this.alipayClient = alipayClient;
+        this.paymentOrderMapper = paymentOrderMapper;
+        this.paymentOrderUpdater = paymentOrderUpdater;
+        this.reconciliationMapper = reconciliationMapper;
+        this.properties = properties;
+        this.shards = shards;
+        this.rateLimiter = new SimpleRateLimiter(properties.getRequestsPerSecond());
+
+        int threads = Math.max(1, properties.getWorkerThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 每页提交的任务数不超过 pageSize，队列按页大小分配，不会拒绝
+        this.queryExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, properties.getPageSize())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payment-reconcile-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelay = 600_000, initialDelay = 60_000)
+    public void scheduledReconcile() {
+        if (!properties.isEnabled() || running.get()) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (IllegalStateException e) {
+            log.debug("跳过定时对账: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行一次对账
+     *
+     * @return 对账报告
+     * @throws IllegalStateException 已有对账正在执行
+     */
+    public PaymentReconciliation reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("对账任务正在执行");
+        }
+        LocalDateTime start = LocalDateTime.now();
+        PaymentReconciliation report = PaymentReconciliation.builder()
+                .status(PaymentReconciliation.STATUS_RUNNING)
+                .scanned(0).matched(0).paid(0).closed(0).notExist(0).failed(0)
+                .startTime(start)
+                .build();
+        try {
+            reconciliationMapper.insert(report);
+            reconcileStatus(PaymentOrderStatus.WAIT_BUYER_PAY, null, report);
+            reconcileStatus(PaymentOrderStatus.TRADE_CLOSED, start.minus(properties.getClosedLookback()), report);
+            report.setStatus(PaymentReconciliation.STATUS_COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.setStatus(PaymentReconciliation.STATUS_FAILED);
+            report.setLastError("对账被中断");
+        } catch (Exception e) {
+            log.error("支付订单对账失败", e);
+            report.setStatus(PaymentReconciliation.STATUS_FAILED);
+            report.setLastError(truncate(String.valueOf(e.getMessage())));
+        } finally {
+            report.setFinishTime(LocalDateTime.now());
+            try {
+                if (report.getId() != null) {
+                    reconciliationMapper.update(report);
+                }
+            } finally {
+                running.set(false);
+            }
+        }
+        log.info("支付订单对账结束: 状态={}, 核对={}, 一致={}, 补记支付={}, 关闭={}, 交易不存在={}, 失败={}",
+                report.getStatus(), report.getScanned(), report.getMatched(), report.getPaid(),
+                report.getClosed(), report.getNotExist(), report.getFailed());
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+
+    private void reconcileStatus(PaymentOrderStatus status, LocalDateTime from, PaymentReconciliation report)
+            throws InterruptedException {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            reconcileShard(shard, status, from, report);
+        }
+    }
+
+    private void reconcileShard(int shard, PaymentOrderStatus status, LocalDateTime from,
+                                PaymentReconciliation report) throws InterruptedException {
+        int pageSize = Math.max(1, properties.getPageSize());
+        LocalDateTime afterExpireTime = null;
+        long afterId = 0;
+        while (true) {
+            LocalDateTime pageAfterExpireTime = afterExpireTime;
+            long pageAfterId = afterId;
+            List<PaymentOrder> page = PaymentOrderShards.callOn(shard, () ->
+                    paymentOrderMapper.selectByStatusExpiringAfter(
+                            status.name(), from, pageAfterExpireTime, pageAfterId, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            reconcilePage(page, report);
+            PaymentOrder last = page.get(page.size() - 1);
+            afterExpireTime = last.getExpireTime();
+            afterId = last.getId();
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+    }
+
+    private void reconcilePage(List<PaymentOrder> page, PaymentReconciliation report) throws InterruptedException {
+        List<Future<QueryOutcome>> futures = new ArrayList<>(page.size());
+        for (PaymentOrder order : page) {
+            futures.add(queryExecutor.submit(() -> query(order)));
+        }
+
+        List<PaymentOrderUpdater.Transition> transitions = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            QueryOutcome outcome;
+            try {
+                outcome = futures.get(i).get();
+            } catch (ExecutionException e) {
+                log.warn("查询支付宝交易失败: 订单号={}", page.get(i).getOutTradeNo(), e.getCause());
+                outcome = QueryOutcome.FAILED;
+            }
+            switch (outcome.kind()) {
+                case MATCHED -> report.setMatched(report.getMatched() + 1);
+                case NOT_EXIST -> report.setNotExist(report.getNotExist() + 1);
+                case FAILED -> report.setFailed(report.getFailed() + 1);
+                case CHANGED -> transitions.add(outcome.transition());
+            }
+        }
+
+        if (!transitions.isEmpty()) {
+            boolean[] applied;
+            try {
+                applied = paymentOrderUpdater.transitionAll(transitions);
+            } catch (Exception e) {
+                log.error("批量更新对账结果失败: 数量={}", transitions.size(), e);
+                applied = null;
+            }
+            for (int i = 0; i < transitions.size(); i++) {
+                if (applied == null) {
+                    report.setFailed(report.getFailed() + 1);
+                } else if (!applied[i]) {
+                    // 查询之后订单已被通知或过期任务更新
+                    report.setMatched(report.getMatched() + 1);
+                } else if (transitions.get(i).target() == PaymentOrderStatus.TRADE_SUCCESS) {
+                    report.setPaid(report.getPaid() + 1);
+                } else {
+                    report.setClosed(report.getClosed() + 1);
+                }
+            }
+        }
+        report.setScanned(report.getScanned() + page.size());
+    }
+
+    private QueryOutcome query(PaymentOrder order) throws Exception {
+        rateLimiter.acquire();
+        AlipayTradeQueryRequest request = new AlipayTradeQueryRequest();
+        request.setBizContent(AlipayBizContent.toJson(new AlipayBizContent.TradeQuery(order.getOutTradeNo())));
+        AlipayTradeQueryResponse response = alipayClient.certificateExecute(request);
+        if (!response.isSuccess()) {
+            if (TRADE_NOT_EXIST.equals(response.getSubCode())) {
+                return QueryOutcome.NOT_EXIST;
+            }
+            log.warn("查询支付宝交易失败: 订单号={}, 错误码={}, 错误信息={}",
+                    order.getOutTradeNo(), response.getSubCode(), response.getSubMsg());
+            return QueryOutcome.FAILED;
+        }
+        PaymentOrderStatus target = PaymentOrderStatus.fromTradeStatus(response.getTradeStatus());
+        PaymentOrderStatus current = PaymentOrderStatus.valueOf(order.getStatus());
+        if (target == null || target == current || !target.canTransitionFrom(current)) {
+            return QueryOutcome.MATCHED;
+        }
+        return new QueryOutcome(QueryOutcome.Kind.CHANGED, new PaymentOrderUpdater.Transition(order.getOutTradeNo(),
+                target, response.getTradeNo(), response.getBuyerUserId(), response.getBuyerLogonId()));
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+
+    /**
+     * 单个订单的查询结果，只有 CHANGED 带有待应用的状态转换
+     */
+    private record QueryOutcome(Kind kind, PaymentOrderUpdater.Transition transition) {
+
+        static final QueryOutcome MATCHED = new QueryOutcome(Kind.MATCHED, null);
+        static final QueryOutcome NOT_EXIST = new QueryOutcome(Kind.NOT_EXIST, null);
+        static final QueryOutcome FAILED = new QueryOutcome(Kind.FAILED, null);
+
+        enum Kind {
+            MATCHED, CHANGED, NOT_EXIST, FAILED
+        }
+    }
+}
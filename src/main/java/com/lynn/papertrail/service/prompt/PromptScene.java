@@ -0,0 +1,43 @@
+package com.lynn.papertrail.service.prompt;
+
+import lombok.Getter;
+
+/**
+ * 提示词使用场景
+ *
+ * @author lynn
+ */
+@Getter
+public enum PromptScene {
+
+    /**
+     * 通用对话
+     */
+    CHAT("""
+            如果问题与文档管理无关，请礼貌地告知用户。
+            """),
+
+    /**
+     * 论文摘要（TL;DR）
+     */
+    PAPER_SUMMARY("""
+            当前任务：论文速览。
+            用户会提供一篇论文的标题、作者和摘要，请用中文输出不超过三句话的 TL;DR，
+            依次说明研究问题、核心方法和主要结论，不要编造摘要中没有的信息。
+            """),
+
+    /**
+     * 论文对比
+     */
+    PAPER_COMPARISON("""
+            当前任务：论文对比。
+            用户会提供两篇或多篇论文的标题和摘要，请从研究问题、方法、实验设置和结论四个方面
+            逐条对比它们的异同，最后给出一句话的总体评价。
+            """);
+
+    private final String instruction;
+
+    PromptScene(String instruction) {
+        this.instruction = instruction;
+    }
+}
@@ -0,0 +1,124 @@
+package com.lynn.papertrail.service.prompt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编译提示词模板注册表
+ * <p>
+ * 每个场景的系统提示在启动时构建一次并复用同一个 {@link SystemMessage} 实例，
+ * 所有场景共享同一段固定前缀，且系统消息始终排在用户消息之前，
+ * 使服务端的前缀缓存（prompt caching）能够命中，从而减少计费的输入 token。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+public class PromptTemplateRegistry {
+
+    /**
+     * 所有场景共享的固定前缀，修改会使服务端已有的前缀缓存失效
+     */
+    static final String SHARED_PREFIX = """
+            你是一个有帮助的AI助手，专门用于Paper Trail文档管理系统。
+            你可以帮助用户解答关于文档管理、处理、分析等方面的问题。
+            请尽可能提供准确和有用的信息。
+            """;
+
+    /**
+     * 流式调用时要求服务端在最后一个分片中返回用量信息
+     */
+    private static final ChatOptions STREAM_OPTIONS = OpenAiChatOptions.builder()
+            .streamUsage(true)
+            .build();
+
+    private final Map<PromptScene, SystemMessage> systemMessages = new EnumMap<>(PromptScene.class);
+    private final Map<PromptScene, SceneUsage> usages = new EnumMap<>(PromptScene.class);
+
+    public PromptTemplateRegistry() {
+        for (PromptScene scene : PromptScene.values()) {
+            systemMessages.put(scene, new SystemMessage(SHARED_PREFIX + scene.getInstruction()));
+            usages.put(scene, new SceneUsage());
+        }
+        log.info("初始化提示词模板注册表，场景数: {}", systemMessages.size());
+    }
+
+    /**
+     * 获取场景对应的预编译系统消息
+     */
+    public SystemMessage getSystemMessage(PromptScene scene) {
+        return systemMessages.get(scene);
+    }
+
+    /**
+     * 构建同步调用的提示
+     */
+    public Prompt buildPrompt(PromptScene scene, String userContent) {
+        return new Prompt(List.of(systemMessages.get(scene), new UserMessage(userContent)));
+    }
+
+    /**
+     * 构建流式调用的提示（要求返回用量信息）
+     */
+    public Prompt buildStreamPrompt(PromptScene scene, String userContent) {
+        return new Prompt(List.of(systemMessages.get(scene), new UserMessage(userContent)), STREAM_OPTIONS);
+    }
+
+    /**
+     * 记录一次模型响应的 token 用量，包括命中前缀缓存的 token 数
+     */
+    public void recordUsage(PromptScene scene, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getPromptTokens() == null || usage.getPromptTokens() == 0) {
+            return;
+        }
+
+        SceneUsage sceneUsage = usages.get(scene);
+        sceneUsage.requests.increment();
+        sceneUsage.promptTokens.add(usage.getPromptTokens());
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage
+                && nativeUsage.promptTokensDetails() != null
+                && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+            sceneUsage.cachedTokens.add(nativeUsage.promptTokensDetails().cachedTokens());
+        }
+    }
+
+    /**
+     * 获取各场景的前缀缓存统计
+     */
+    public Map<String, Map<String, Long>> getCacheStatistics() {
+        Map<String, Map<String, Long>> statistics = new LinkedHashMap<>();
+        usages.forEach((scene, usage) -> {
+            Map<String, Long> item = new LinkedHashMap<>();
+            item.put("requests", usage.requests.sum());
+            item.put("promptTokens", usage.promptTokens.sum());
+            item.put("cachedTokens", usage.cachedTokens.sum());
+            statistics.put(scene.name(), item);
+        });
+        return statistics;
+    }
+
+    private static final class SceneUsage {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder cachedTokens = new LongAdder();
+    }
+}
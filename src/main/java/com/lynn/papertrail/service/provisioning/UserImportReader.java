@@ -0,0 +1,177 @@
+package com.lynn.papertrail.service.provisioning;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 逐行读取 CSV 或 NDJSON 格式的用户导入文件，不把整个文件读入内存
+ * <p>
+ * CSV 第一行为表头，列名不区分大小写：username, password, password_hash, email, phone, nickname；
+ * 字段可用双引号包裹，引号内的双引号写作两个双引号，不支持字段内换行。
+ * NDJSON 每行一个 JSON 对象，字段名为 username, password, passwordHash, email, phone, nickname。
+ * 单行格式错误时返回带 parseError 的行，不中断读取。
+ * </p>
+ *
+ * @author lynn
+ */
+public class UserImportReader implements Closeable {
+
+    /**
+     * 导入文件格式
+     */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private Map<String, Integer> columns;
+    private int line;
+
+    public UserImportReader(Reader reader, Format format, ObjectMapper objectMapper) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取下一行，文件结束时返回 null
+     */
+    public UserImportRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.isBlank());
+
+        if (format == Format.NDJSON) {
+            return parseJson(text);
+        }
+        if (columns == null) {
+            readHeader(text);
+            if (!columns.containsKey("username")) {
+                throw new IOException("CSV 表头缺少 username 列");
+            }
+            return next();
+        }
+        return parseCsv(text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader(String text) throws IOException {
+        List<String> names = splitCsv(text);
+        if (names == null) {
+            throw new IOException("CSV 表头引号不匹配");
+        }
+        columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    private UserImportRow parseCsv(String text) {
+        List<String> fields = splitCsv(text);
+        if (fields == null) {
+            return UserImportRow.invalid(line, "引号不匹配");
+        }
+        return new UserImportRow(line,
+                csvField(fields, "username"),
+                csvField(fields, "password"),
+                csvField(fields, "password_hash"),
+                csvField(fields, "email"),
+                csvField(fields, "phone"),
+                csvField(fields, "nickname"),
+                null);
+    }
+
+    private String csvField(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private UserImportRow parseJson(String text) {
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            if (!node.isObject()) {
+                return UserImportRow.invalid(line, "不是 JSON 对象");
+            }
+            return new UserImportRow(line,
+                    jsonField(node, "username"),
+                    jsonField(node, "password"),
+                    jsonField(node, "passwordHash"),
+                    jsonField(node, "email"),
+                    jsonField(node, "phone"),
+                    jsonField(node, "nickname"),
+                    null);
+        } catch (IOException e) {
+            return UserImportRow.invalid(line, "JSON 格式错误");
+        }
+    }
+
+    private static String jsonField(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * 拆分一行 CSV，引号不匹配时返回 null
+     */
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
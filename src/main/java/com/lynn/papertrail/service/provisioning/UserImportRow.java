@@ -0,0 +1,22 @@
+package com.lynn.papertrail.service.provisioning;
+
+/**
+ * 导入文件中的一行
+ *
+ * @param line         行号（从 1 开始，CSV 包含表头行）
+ * @param username     用户名
+ * @param password     明文密码，与 passwordHash 二选一
+ * @param passwordHash 已有的 BCrypt 哈希，从其他系统迁移时使用
+ * @param email        邮箱
+ * @param phone        手机号
+ * @param nickname     昵称
+ * @param parseError   解析错误，非空时其余字段无效
+ * @author lynn
+ */
+public record UserImportRow(int line, String username, String password, String passwordHash,
+                            String email, String phone, String nickname, String parseError) {
+
+    static UserImportRow invalid(int line, String parseError) {
+        return new UserImportRow(line, null, null, null, null, null, null, parseError);
+    }
+}
@@ -0,0 +1,341 @@
+package com.lynn.papertrail.service.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lynn.papertrail.config.UserImportProperties;
+import com.lynn.papertrail.dto.UserImportResponse;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import com.lynn.papertrail.service.cache.UserCache;
+import com.lynn.papertrail.service.cache.UserExistenceFilter;
+import com.lynn.papertrail.service.password.PasswordHashingService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 批量导入用户服务
+ * <p>
+ * 流式读取导入文件，按 batchSize 分批处理，每批：
+ * <ol>
+ *     <li>校验字段并检查文件内的重复用户名/邮箱；</li>
+ *     <li>过滤器判定可能已存在的用户名/邮箱用一次 IN 查询确认；</li>
+ *     <li>通过 {@link PasswordHashingService} 的有界线程池并行计算密码哈希，最多占用一半线程，不挤占登录请求；</li>
+ *     <li>通过 BATCH 执行器一次性提交 INSERT，个别行因并发注册冲突失败时回滚该批并逐行重试，不影响同批其他行。</li>
+ * </ol>
+ * 明文密码按注册使用的 user.password.bcrypt-strength 哈希；也可以直接导入已有的 BCrypt 哈希，
+ * 但强度低于该配置的哈希会被拒绝，避免导入后长期保留弱哈希。
+ * 导入速度主要受 BCrypt 限制：强度 10 时单线程每秒约 10-20 次，明文密码的导入速度约为导入可用线程数乘以该值；
+ * 需要每秒数千行时应直接导入已有哈希，此时只受数据库批量写入速度限制。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_]{3,20}$");
+    private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[A-Za-z])(?=.*\\d)[A-Za-z\\d@$!%*#?&]{6,20}$");
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final UserMapper userMapper;
+    private final UserCache userCache;
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserImportProperties properties;
+    private final ObjectMapper objectMapper;
+    private final PasswordHashingService passwordHashingService;
+
+    public UserImportService(SqlSessionFactory sqlSessionFactory,
+                             UserMapper userMapper,
+                             UserCache userCache,
+                             UserExistenceFilter userExistenceFilter,
+                             UserImportProperties properties,
+                             ObjectMapper objectMapper,
+                             PasswordHashingService passwordHashingService) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.userMapper = userMapper;
+        this.userCache = userCache;
+        this.userExistenceFilter = userExistenceFilter;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.passwordHashingService = passwordHashingService;
+    }
+
+    /**
+     * 导入用户
+     *
+     * @param reader 导入文件内容
+     * @param format 文件格式
+     * @return 导入结果，包含失败行明细
+     * @throws IOException 读取失败或 CSV 表头不正确
+     */
+    public UserImportResponse importUsers(Reader reader, UserImportReader.Format format) throws IOException {
+        long start = System.currentTimeMillis();
+        UserImportResponse report = new UserImportResponse();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<UserImportRow> chunk = new ArrayList<>(batchSize);
+
+        try (UserImportReader rows = new UserImportReader(reader, format, objectMapper)) {
+            UserImportRow row;
+            while ((row = rows.next()) != null) {
+                report.setTotal(report.getTotal() + 1);
+                chunk.add(row);
+                if (chunk.size() >= batchSize) {
+                    processChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, report);
+            }
+        }
+
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("批量导入用户完成: 总行数={}, 成功={}, 失败={}, 耗时={}ms",
+                report.getTotal(), report.getSucceeded(), report.getFailed(), report.getElapsedMillis());
+        return report;
+    }
+
+    private void processChunk(List<UserImportRow> rows, UserImportResponse report) {
+        // 字段校验和文件内去重
+        List<UserImportRow> candidates = new ArrayList<>(rows.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (UserImportRow row : rows) {
+            String error = validate(row);
+            if (error == null && !usernames.add(normalize(row.username()))) {
+                error = "文件中用户名重复";
+            }
+            if (error == null && row.email() != null && !emails.add(normalize(row.email()))) {
+                error = "文件中邮箱重复";
+            }
+            if (error != null) {
+                fail(report, row, error);
+            } else {
+                candidates.add(row);
+            }
+        }
+
+        List<UserImportRow> accepted = excludeExisting(candidates, report);
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<String> rawPasswords = new ArrayList<>();
+        for (UserImportRow row : accepted) {
+            if (row.passwordHash() == null) {
+                rawPasswords.add(row.password());
+            }
+        }
+        List<String> encodedPasswords;
+        try {
+            encodedPasswords = passwordHashingService.encodeAll(rawPasswords);
+        } catch (RuntimeException e) {
+            log.error("批量导入计算密码哈希失败，本批 {} 行全部失败", accepted.size(), e);
+            for (UserImportRow row : accepted) {
+                fail(report, row, "密码哈希失败: " + e.getClass().getSimpleName());
+            }
+            return;
+        }
+
+        Iterator<String> encoded = encodedPasswords.iterator();
+        List<User> users = new ArrayList<>(accepted.size());
+        for (UserImportRow row : accepted) {
+            users.add(toUser(row, row.passwordHash() != null ? row.passwordHash() : encoded.next()));
+        }
+
+        insertBatch(accepted, users, report);
+    }
+
+    /**
+     * 排除已被占用的用户名/邮箱，只对过滤器判定可能存在的值查询数据库
+     */
+    private List<UserImportRow> excludeExisting(List<UserImportRow> candidates, UserImportResponse report) {
+        List<String> checkUsernames = new ArrayList<>();
+        List<String> checkEmails = new ArrayList<>();
+        for (UserImportRow row : candidates) {
+            if (userExistenceFilter.mightContainUsername(row.username())) {
+                checkUsernames.add(row.username());
+            }
+            if (row.email() != null && userExistenceFilter.mightContainEmail(row.email())) {
+                checkEmails.add(row.email());
+            }
+        }
+        if (checkUsernames.isEmpty() && checkEmails.isEmpty()) {
+            return candidates;
+        }
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (User existing : userMapper.selectExistingIdentities(checkUsernames, checkEmails)) {
+            takenUsernames.add(normalize(existing.getUsername()));
+            if (existing.getEmail() != null) {
+                takenEmails.add(normalize(existing.getEmail()));
+            }
+        }
+
+        List<UserImportRow> accepted = new ArrayList<>(candidates.size());
+        for (UserImportRow row : candidates) {
+            if (takenUsernames.contains(normalize(row.username()))) {
+                fail(report, row, "用户名已存在");
+            } else if (row.email() != null && takenEmails.contains(normalize(row.email()))) {
+                fail(report, row, "邮箱已被注册");
+            } else {
+                accepted.add(row);
+            }
+        }
+        return accepted;
+    }
+
+    private void insertBatch(List<UserImportRow> rows, List<User> users, UserImportResponse report) {
+        String[] errors;
+        try {
+            errors = insertAll(users);
+        } catch (RuntimeException e) {
+            log.error("批量导入写入失败，本批 {} 行全部失败", rows.size(), e);
+            for (UserImportRow row : rows) {
+                fail(report, row, "写入失败: " + e.getClass().getSimpleName());
+            }
+            return;
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] != null) {
+                fail(report, rows.get(i), errors[i]);
+            } else {
+                User user = users.get(i);
+                userExistenceFilter.record(user.getUsername(), user.getEmail());
+                userCache.invalidate(null, user.getUsername(), user.getEmail());
+                report.setSucceeded(report.getSucceeded() + 1);
+            }
+        }
+    }
+
+    /**
+     * 通过 BATCH 执行器写入整批，有行冲突时回滚并逐行重试
+     * <p>
+     * 驱动开启 rewriteBatchedStatements 时整批会被改写为多行 INSERT，一行冲突整条语句失败，
+     * 更新计数无法定位到行，因此不依赖更新计数，只在冲突的批次上退回逐行写入。
+     * </p>
+     *
+     * @return 每行的失败原因，成功为 null
+     */
+    private String[] insertAll(List<User> users) {
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            UserMapper batchMapper = session.getMapper(UserMapper.class);
+            for (User user : users) {
+                batchMapper.insertImported(user);
+            }
+            try {
+                session.flushStatements();
+                session.commit();
+                return new String[users.size()];
+            } catch (PersistenceException e) {
+                BatchExecutorException batchException = findCause(e, BatchExecutorException.class);
+                if (batchException == null) {
+                    throw e;
+                }
+                session.rollback();
+                log.warn("批量导入写入冲突，本批 {} 行逐行重试: {}",
+                        users.size(), batchException.getBatchUpdateException().getMessage());
+            }
+        }
+        return insertOneByOne(users);
+    }
+
+    private String[] insertOneByOne(List<User> users) {
+        String[] errors = new String[users.size()];
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            UserMapper mapper = session.getMapper(UserMapper.class);
+            for (int i = 0; i < users.size(); i++) {
+                try {
+                    mapper.insertImported(users.get(i));
+                } catch (PersistenceException e) {
+                    // 单行违反唯一约束不影响事务中已写入的行
+                    errors[i] = findCause(e, SQLIntegrityConstraintViolationException.class) != null
+                            ? "写入失败，用户名或邮箱可能已被并发注册"
+                            : "写入失败: " + e.getClass().getSimpleName();
+                }
+            }
+            session.commit();
+        }
+        return errors;
+    }
+
+    private static User toUser(UserImportRow row, String encodedPassword) {
+        LocalDateTime now = LocalDateTime.now();
+        return User.builder()
+                .username(row.username())
+                .password(encodedPassword)
+                .email(row.email())
+                .phone(row.phone())
+                .nickname(row.nickname() != null ? row.nickname() : row.username())
+                .status(1)
+                .role("USER")
+                .createTime(now)
+                .updateTime(now)
+                .build();
+    }
+
+    private String validate(UserImportRow row) {
+        if (row.parseError() != null) {
+            return row.parseError();
+        }
+        if (row.username() == null || !USERNAME_PATTERN.matcher(row.username()).matches()) {
+            return "用户名只能包含字母、数字和下划线，长度3-20位";
+        }
+        if (row.passwordHash() != null) {
+            if (!BCRYPT_PATTERN.matcher(row.passwordHash()).matches()) {
+                return "密码哈希不是有效的 BCrypt 格式";
+            }
+            if (passwordHashingService.needsRehash(row.passwordHash())) {
+                return "密码哈希强度低于当前配置";
+            }
+        } else if (row.password() == null || !PASSWORD_PATTERN.matcher(row.password()).matches()) {
+            return "密码至少包含一个字母和一个数字，长度6-20位";
+        }
+        if (row.email() != null && (row.email().length() > 100 || !EMAIL_PATTERN.matcher(row.email()).matches())) {
+            return "邮箱格式不正确";
+        }
+        if (row.phone() != null && row.phone().length() > 20) {
+            return "手机号过长";
+        }
+        if (row.nickname() != null && row.nickname().length() > 50) {
+            return "昵称过长";
+        }
+        return null;
+    }
+
+    private void fail(UserImportResponse report, UserImportRow row, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < properties.getMaxReportedErrors()) {
+            report.getErrors().add(new UserImportResponse.RowError(row.line(), row.username(), message));
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static <T extends Throwable> T findCause(Throwable throwable, Class<T> type) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.lynn.papertrail.service.quota;
+
+import com.lynn.papertrail.service.payment.PaymentEvent;
+import com.lynn.papertrail.service.payment.PaymentEventListener;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 订单支付成功后使下单用户的配额快照在下个刷新周期重新加载，重复投递只会多刷新一次
+ *
+ * @author lynn
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentQuotaListener implements PaymentEventListener {
+
+    private final TokenQuotaService tokenQuotaService;
+
+    @Override
+    public void onPaymentEvents(List<PaymentEvent> events) {
+        for (PaymentEvent event : events) {
+            if (event.type() == PaymentEvent.Type.ORDER_PAID) {
+                tokenQuotaService.invalidate(event.userId());
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.lynn.papertrail.service.quota;
+
+import java.io.Serial;
+
+/**
+ * 用户 token 配额用尽
+ *
+ * @author lynn
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+
+    public QuotaExceededException(Long userId) {
+        super("AI 使用额度已用尽，请购买套餐后继续使用");
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
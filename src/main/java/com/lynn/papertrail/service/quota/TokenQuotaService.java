@@ -0,0 +1,185 @@
+package com.lynn.papertrail.service.quota;
+
+import com.lynn.papertrail.config.TokenQuotaProperties;
+import com.lynn.papertrail.entity.UserTokenUsage;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.mapper.UserTokenUsageMapper;
+import com.lynn.papertrail.service.payment.PaymentOrderShards;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户 token 配额服务
+ * <p>
+ * 配额检查只读取内存中的配额快照和 {@link TokenUsageMeter} 中未落库的增量，不访问数据库。
+ * 定时任务批量写入用量增量，并为本周期内活跃的用户批量刷新快照：
+ * 额度 = 免费额度 + 已支付订单金额 × 每元 token 数，已用量来自 user_token_usage 表。
+ * 首次出现的用户在快照加载前按免费额度放行，最多宽限一个刷新周期。
+ * 超过 snapshotIdleTimeout 未被读取的快照在刷新时移出，内存只保留近期活跃用户。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+public class TokenQuotaService {
+
+    private final TokenUsageMeter tokenUsageMeter;
+    private final UserTokenUsageMapper userTokenUsageMapper;
+    private final PaymentOrderMapper paymentOrderMapper;
+    private final PaymentOrderShards paymentOrderShards;
+    private final TokenQuotaProperties properties;
+
+    private final Map<Long, QuotaEntry> snapshots = new ConcurrentHashMap<>();
+    private final Set<Long> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+    public TokenQuotaService(TokenUsageMeter tokenUsageMeter,
+                             UserTokenUsageMapper userTokenUsageMapper,
+                             PaymentOrderMapper paymentOrderMapper,
+                             PaymentOrderShards paymentOrderShards,
+                             TokenQuotaProperties properties) {
+        this.tokenUsageMeter = tokenUsageMeter;
+        this.userTokenUsageMapper = userTokenUsageMapper;
+        this.paymentOrderMapper = paymentOrderMapper;
+        this.paymentOrderShards = paymentOrderShards;
+        this.properties = properties;
+    }
+
+    /**
+     * 调用模型前检查配额，用尽时抛出 {@link QuotaExceededException}
+     *
+     * @param userId 用户ID，未登录用户不做限制
+     */
+    public void checkQuota(Long userId) {
+        if (!properties.isEnabled() || userId == null) {
+            return;
+        }
+        if (getRemainingTokens(userId) <= 0) {
+            throw new QuotaExceededException(userId);
+        }
+    }
+
+    /**
+     * 获取用户剩余 token 额度
+     */
+    public long getRemainingTokens(Long userId) {
+        QuotaEntry entry = snapshots.computeIfAbsent(userId, id -> {
+            pendingRefresh.add(id);
+            return new QuotaEntry(new QuotaSnapshot(properties.getFreeTokens(), 0));
+        });
+        entry.lastAccessMillis = System.currentTimeMillis();
+        QuotaSnapshot snapshot = entry.snapshot;
+        return snapshot.limit() - snapshot.usedTokens() - tokenUsageMeter.pendingTokens(userId);
+    }
+
+    /**
+     * 使指定用户的快照在下个周期重新加载，例如订单支付成功后
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            pendingRefresh.add(userId);
+        }
+    }
+
+    /**
+     * 定时将内存用量批量写入数据库，并刷新相关用户的配额快照
+     */
+    @Scheduled(fixedDelayString = "${ai.quota.flush-interval-millis:5000}")
+    public void flush() {
+        List<UserTokenUsage> usages = tokenUsageMeter.drain();
+        Set<Long> refreshUserIds = new HashSet<>(pendingRefresh);
+        pendingRefresh.removeAll(refreshUserIds);
+
+        if (!usages.isEmpty()) {
+            try {
+                userTokenUsageMapper.accumulateBatch(usages);
+            } catch (Exception e) {
+                log.error("写入 token 用量失败，{} 个用户的增量将在下次重试", usages.size(), e);
+                tokenUsageMeter.restore(usages);
+                pendingRefresh.addAll(refreshUserIds);
+                return;
+            }
+            for (UserTokenUsage usage : usages) {
+                // 先把已落库的增量计入快照，避免刷新前出现短暂的少计
+                QuotaEntry entry = snapshots.get(usage.getUserId());
+                if (entry != null) {
+                    QuotaSnapshot snapshot = entry.snapshot;
+                    entry.snapshot = new QuotaSnapshot(snapshot.limit(), snapshot.usedTokens() + usage.getTotalTokens());
+                }
+                refreshUserIds.add(usage.getUserId());
+            }
+        }
+
+        if (!refreshUserIds.isEmpty()) {
+            refreshSnapshots(refreshUserIds);
+        }
+        evictIdleSnapshots();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void refreshSnapshots(Collection<Long> userIds) {
+        try {
+            Map<Long, Long> usedTokens = new HashMap<>();
+            for (UserTokenUsage usage : userTokenUsageMapper.selectByUserIds(userIds)) {
+                usedTokens.put(usage.getUserId(), usage.getTotalTokens());
+            }
+            // 旧订单都在 0 号分表，新订单按用户分表，需要汇总所有分表
+            Map<Long, BigDecimal> paidAmounts = new HashMap<>();
+            for (int shard = 0; shard < paymentOrderShards.count(); shard++) {
+                List<UserPaidAmount> paidList = PaymentOrderShards.callOn(shard,
+                        () -> paymentOrderMapper.selectPaidAmountByUserIds(userIds));
+                for (UserPaidAmount paid : paidList) {
+                    paidAmounts.merge(paid.getUserId(), paid.getPaidAmount(), BigDecimal::add);
+                }
+            }
+
+            for (Long userId : userIds) {
+                BigDecimal paid = paidAmounts.getOrDefault(userId, BigDecimal.ZERO);
+                long limit = properties.getFreeTokens()
+                        + paid.multiply(BigDecimal.valueOf(properties.getTokensPerYuan())).longValue();
+                QuotaSnapshot snapshot = new QuotaSnapshot(limit, usedTokens.getOrDefault(userId, 0L));
+                snapshots.computeIfAbsent(userId, id -> new QuotaEntry(snapshot)).snapshot = snapshot;
+            }
+        } catch (Exception e) {
+            log.error("刷新 token 配额快照失败，用户数: {}", userIds.size(), e);
+            pendingRefresh.addAll(userIds);
+        }
+    }
+
+    /**
+     * 移出长时间未被读取且没有未落库用量的快照
+     */
+    private void evictIdleSnapshots() {
+        long cutoff = System.currentTimeMillis() - properties.getSnapshotIdleTimeout().toMillis();
+        snapshots.entrySet().removeIf(entry -> entry.getValue().lastAccessMillis < cutoff
+                && tokenUsageMeter.pendingTokens(entry.getKey()) == 0);
+    }
+
+    /**
+     * 配额快照，整体替换以保证额度和已用量的一致性
+     */
+    private record QuotaSnapshot(long limit, long usedTokens) {
+    }
+
+    /**
+     * 快照及其最近一次读取时间
+     */
+    private static final class QuotaEntry {
+        private volatile QuotaSnapshot snapshot;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private QuotaEntry(QuotaSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.lynn.papertrail.service.quota;
+
+import com.lynn.papertrail.entity.UserTokenUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户 token 用量计数器
+ * <p>
+ * 请求路径上只做内存累加：每个用户一组 {@link LongAdder}，高并发下按线程分段计数，
+ * 不产生数据库访问。{@link #drain()} 由定时任务调用，取出并清零自上次以来的增量。
+ * 累加不持有映射项的锁；移出空闲计数器时先标记为已退役，有正在进行的累加时放弃移出，
+ * 累加遇到已退役的计数器则重新查找，不会落到已移出的计数器上。
+ * </p>
+ *
+ * @author lynn
+ */
+@Component
+public class TokenUsageMeter {
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 从模型响应中读取用量并累加
+     */
+    public void record(Long userId, ChatResponse response) {
+        if (userId == null || response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        long promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        long completionTokens = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        record(userId, promptTokens, completionTokens);
+    }
+
+    public void record(Long userId, long promptTokens, long completionTokens) {
+        if (userId == null || (promptTokens == 0 && completionTokens == 0)) {
+            return;
+        }
+        // 计数器已退役时重新查找，移出后会创建新的计数器
+        while (!counters.computeIfAbsent(userId, id -> new Counter()).tryAdd(promptTokens, completionTokens)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 获取用户尚未写入数据库的用量
+     */
+    public long pendingTokens(Long userId) {
+        Counter counter = counters.get(userId);
+        return counter != null ? counter.promptTokens.sum() + counter.completionTokens.sum() : 0;
+    }
+
+    /**
+     * 取出所有用户自上次以来的用量增量并清零
+     */
+    public List<UserTokenUsage> drain() {
+        List<UserTokenUsage> usages = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        counters.forEach((userId, counter) -> {
+            // 减去读到的值而不是 sumThenReset，读取和清零之间并发的累加不会丢失
+            long promptTokens = take(counter.promptTokens);
+            long completionTokens = take(counter.completionTokens);
+            if (promptTokens == 0 && completionTokens == 0) {
+                // 一个周期内没有新用量的用户移出，避免计数器无限增长
+                counters.computeIfPresent(userId,
+                        (id, current) -> current == counter && current.retire() ? null : current);
+                return;
+            }
+            usages.add(UserTokenUsage.builder()
+                    .userId(userId)
+                    .promptTokens(promptTokens)
+                    .completionTokens(completionTokens)
+                    .totalTokens(promptTokens + completionTokens)
+                    .updateTime(now)
+                    .build());
+        });
+        return usages;
+    }
+
+    /**
+     * 写库失败时将增量放回计数器，等待下次写入
+     */
+    public void restore(List<UserTokenUsage> usages) {
+        for (UserTokenUsage usage : usages) {
+            record(usage.getUserId(), usage.getPromptTokens(), usage.getCompletionTokens());
+        }
+    }
+
+    private static long take(LongAdder adder) {
+        long value = adder.sum();
+        adder.add(-value);
+        return value;
+    }
+
+    private static final class Counter {
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder writers = new LongAdder();
+        private volatile boolean retired;
+
+        /**
+         * 先登记为写入者再检查退役标记，与 {@link #retire()} 的顺序相反，两者不会同时成功
+         */
+        private boolean tryAdd(long prompt, long completion) {
+            writers.increment();
+            try {
+                if (retired) {
+                    return false;
+                }
+                promptTokens.add(prompt);
+                completionTokens.add(completion);
+                return true;
+            } finally {
+                writers.decrement();
+            }
+        }
+
+        /**
+         * 先标记退役再确认没有进行中的累加且计数为空；否则取消标记，计数器保留到下个周期
+         */
+        private boolean retire() {
+            retired = true;
+            if (writers.sum() == 0 && promptTokens.sum() == 0 && completionTokens.sum() == 0) {
+                return true;
+            }
+            retired = false;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.lynn.papertrail.service.quota;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户累计已支付金额
+ *
+ * @author lynn
+ */
+@Data
+public class UserPaidAmount {
+
+    private Long userId;
+
+    private BigDecimal paidAmount;
+}
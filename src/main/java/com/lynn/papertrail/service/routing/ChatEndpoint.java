@@ -0,0 +1,64 @@
+package com.lynn.papertrail.service.routing;
+
+import lombok.Getter;
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.Set;
+
+/**
+ * 可路由的模型端点
+ *
+ * @author lynn
+ */
+@Getter
+public class ChatEndpoint {
+
+    /**
+     * 端点名称
+     */
+    private final String name;
+
+    /**
+     * 模型名称
+     */
+    private final String model;
+
+    private final ChatModel chatModel;
+
+    /**
+     * 允许的最大输入字符数，0 表示不限制
+     */
+    private final int maxInputChars;
+
+    /**
+     * 允许使用的用户等级，为空表示不限制
+     */
+    private final Set<String> tiers;
+
+    private final EndpointStats stats = new EndpointStats();
+
+    public ChatEndpoint(String name, String model, ChatModel chatModel, int maxInputChars, Set<String> tiers) {
+        this.name = name;
+        this.model = model;
+        this.chatModel = chatModel;
+        this.maxInputChars = maxInputChars;
+        this.tiers = tiers != null ? Set.copyOf(tiers) : Set.of();
+    }
+
+    /**
+     * 判断该端点能否处理指定请求
+     */
+    boolean accepts(RoutingContext context) {
+        if (maxInputChars > 0 && context.inputChars() > maxInputChars) {
+            return false;
+        }
+        return tiers.isEmpty() || (context.tier() != null && tiers.contains(context.tier()));
+    }
+
+    /**
+     * 判断请求是否指定了该端点
+     */
+    boolean matches(String preferredModel) {
+        return preferredModel != null && (preferredModel.equals(name) || preferredModel.equals(model));
+    }
+}
@@ -0,0 +1,303 @@
+package com.lynn.papertrail.service.routing;
+
+import com.lynn.papertrail.config.AiRoutingProperties;
+import com.lynn.papertrail.util.UserContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多模型路由器
+ * <p>
+ * 根据请求大小、用户等级以及各端点观测到的延迟和错误率选择模型端点。
+ * 启用对冲后，如果首选端点在其 p95 延迟内仍未返回（流式调用为首个 token），
+ * 会向次优端点再发一次相同请求，采用先返回的结果，以此削减尾延迟。
+ * 样本不足 {@value #MIN_SAMPLES} 个时 p95 不可靠，改用固定的 warmupHedgeDelay 作为等待时间，预热期间同样对冲。
+ * 首选端点在返回结果（流式调用为首个 token）之前失败时，不等待对冲时间，立即切换到次优端点；未启用对冲时同样切换。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+public class ChatModelRouter implements AutoCloseable {
+
+    /**
+     * 计算 p95 所需的最少样本数，不足时使用预热等待时间
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * 错误率对评分的放大系数
+     */
+    private static final double ERROR_PENALTY = 10.0;
+
+    private final List<ChatEndpoint> endpoints;
+    private final AiRoutingProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Executor contextExecutor = UserContextHolder.wrapExecutor(executor);
+    private final LongAdder hedgedRequests = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public ChatModelRouter(List<ChatEndpoint> endpoints, AiRoutingProperties properties) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("至少需要配置一个模型端点");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.properties = properties;
+        log.info("初始化模型路由，端点: {}", endpoints.stream().map(ChatEndpoint::getName).toList());
+    }
+
+    /**
+     * 同步调用
+     *
+     * @param prompt  提示
+     * @param context 路由信息
+     * @return 模型响应
+     */
+    public ChatResponse call(Prompt prompt, RoutingContext context) {
+        List<ChatEndpoint> ranked = rank(context);
+        ChatEndpoint primary = ranked.get(0);
+        if (ranked.size() == 1) {
+            return invoke(primary, prompt);
+        }
+        if (!properties.isHedgeEnabled()) {
+            try {
+                return invoke(primary, prompt);
+            } catch (RuntimeException e) {
+                log.warn("模型端点 {} 调用失败，切换到 {}", primary.getName(), ranked.get(1).getName(), e);
+                return invoke(ranked.get(1), prompt);
+            }
+        }
+
+        CompletableFuture<ChatResponse> primaryFuture =
+                CompletableFuture.supplyAsync(() -> invoke(primary, prompt), contextExecutor);
+        try {
+            return primaryFuture.get(hedgeDelay(primary.getStats().getCallLatency()).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 首选端点超过 p95 仍未返回，发起对冲请求
+        } catch (ExecutionException e) {
+            log.warn("模型端点 {} 调用失败，切换到 {}", primary.getName(), ranked.get(1).getName(), e.getCause());
+            return invoke(ranked.get(1), prompt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型响应时被中断", e);
+        }
+
+        ChatEndpoint secondary = ranked.get(1);
+        hedgedRequests.increment();
+        log.debug("模型端点 {} 响应缓慢，向 {} 发起对冲请求", primary.getName(), secondary.getName());
+        CompletableFuture<ChatResponse> hedgeFuture =
+                CompletableFuture.supplyAsync(() -> invoke(secondary, prompt), contextExecutor);
+
+        try {
+            ChatResponse response = firstSuccessful(primaryFuture, hedgeFuture).get();
+            if (hedgeFuture.isDone() && !hedgeFuture.isCompletedExceptionally() && hedgeFuture.getNow(null) == response) {
+                hedgeWins.increment();
+            }
+            return response;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("所有模型端点调用失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型响应时被中断", e);
+        } finally {
+            primaryFuture.cancel(true);
+            hedgeFuture.cancel(true);
+        }
+    }
+
+    /**
+     * 流式调用
+     *
+     * @param prompt  提示
+     * @param context 路由信息
+     * @return 流式响应
+     */
+    public Flux<ChatResponse> stream(Prompt prompt, RoutingContext context) {
+        List<ChatEndpoint> ranked = rank(context);
+        ChatEndpoint primary = ranked.get(0);
+        if (ranked.size() == 1) {
+            return instrumentedStream(primary, prompt);
+        }
+
+        ChatEndpoint secondary = ranked.get(1);
+        if (!properties.isHedgeEnabled()) {
+            return Flux.defer(() -> {
+                AtomicBoolean emitted = new AtomicBoolean();
+                return instrumentedStream(primary, prompt)
+                        .doOnNext(response -> emitted.set(true))
+                        .onErrorResume(e -> !emitted.get(), e -> {
+                            log.warn("模型端点 {} 流式调用失败，切换到 {}", primary.getName(), secondary.getName(), e);
+                            return instrumentedStream(secondary, prompt);
+                        });
+            });
+        }
+
+        return Flux.defer(() -> {
+            // 首选端点在产生数据前失败时立即启动备用端点，不必等到对冲时间
+            Sinks.Empty<Void> failedEarly = Sinks.empty();
+            AtomicBoolean emitted = new AtomicBoolean();
+            Flux<ChatResponse> primaryStream = instrumentedStream(primary, prompt)
+                    .doOnNext(response -> emitted.set(true))
+                    .doOnError(e -> {
+                        if (!emitted.get()) {
+                            log.warn("模型端点 {} 流式调用失败，切换到 {}", primary.getName(), secondary.getName(), e);
+                            failedEarly.tryEmitEmpty();
+                        }
+                    });
+
+            Duration delay = hedgeDelay(primary.getStats().getFirstTokenLatency());
+            Flux<ChatResponse> hedgeStream = Mono.firstWithSignal(Mono.delay(delay).then(), failedEarly.asMono())
+                    .thenMany(Flux.defer(() -> {
+                        hedgedRequests.increment();
+                        log.debug("模型端点 {} 首个 token 超时或失败，向 {} 发起请求", primary.getName(), secondary.getName());
+                        AtomicBoolean counted = new AtomicBoolean();
+                        return instrumentedStream(secondary, prompt)
+                                .doOnNext(response -> {
+                                    if (counted.compareAndSet(false, true)) {
+                                        hedgeWins.increment();
+                                    }
+                                });
+                    }));
+
+            // 先产生数据的一路胜出，另一路被取消；某一路失败时等待另一路
+            return Flux.firstWithValue(primaryStream, hedgeStream);
+        });
+    }
+
+    /**
+     * 按请求条件过滤并按评分排序端点
+     */
+    List<ChatEndpoint> rank(RoutingContext context) {
+        List<ChatEndpoint> candidates = new ArrayList<>(endpoints.size());
+        for (ChatEndpoint endpoint : endpoints) {
+            if (endpoint.accepts(context)) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("没有可处理该请求的模型端点");
+        }
+
+        candidates.sort(Comparator
+                .comparing((ChatEndpoint endpoint) -> !endpoint.matches(context.preferredModel()))
+                .thenComparingDouble(this::score));
+        return candidates;
+    }
+
+    /**
+     * 端点评分，越小越好；没有样本的端点延迟未知，按最差处理，排在已观测端点之后（彼此之间保持配置顺序），
+     * 通过对冲和故障切换逐步获得观测数据
+     */
+    private double score(ChatEndpoint endpoint) {
+        EndpointStats stats = endpoint.getStats();
+        if (stats.getCallLatency().size() == 0) {
+            return Double.MAX_VALUE;
+        }
+        return stats.getCallLatency().p50() * (1 + ERROR_PENALTY * stats.getErrorRate());
+    }
+
+    private Duration hedgeDelay(LatencyWindow window) {
+        if (window.size() < MIN_SAMPLES) {
+            return properties.getWarmupHedgeDelay();
+        }
+        long p95 = window.p95();
+        long min = properties.getMinHedgeDelay().toMillis();
+        long max = properties.getMaxHedgeDelay().toMillis();
+        return Duration.ofMillis(Math.max(min, Math.min(max, p95)));
+    }
+
+    private ChatResponse invoke(ChatEndpoint endpoint, Prompt prompt) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = endpoint.getChatModel().call(prompt);
+            endpoint.getStats().recordSuccess(elapsedMillis(start));
+            return response;
+        } catch (RuntimeException e) {
+            endpoint.getStats().recordFailure(failureLatency(start));
+            throw e;
+        }
+    }
+
+    private Flux<ChatResponse> instrumentedStream(ChatEndpoint endpoint, Prompt prompt) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean();
+            EndpointStats stats = endpoint.getStats();
+            return endpoint.getChatModel().stream(prompt)
+                    .doOnNext(response -> {
+                        if (firstToken.compareAndSet(false, true)) {
+                            stats.recordFirstToken(elapsedMillis(start));
+                        }
+                    })
+                    .doOnError(e -> stats.recordFailure(failureLatency(start)))
+                    .doOnComplete(() -> stats.recordSuccess(elapsedMillis(start)));
+        });
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> future : List.of(first, second)) {
+            future.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 失败按超时计入延迟样本：取实际耗时与最大对冲等待时间中的较大者，快速失败的端点不会因此显得更快
+     */
+    private long failureLatency(long startNanos) {
+        return Math.max(elapsedMillis(startNanos), properties.getMaxHedgeDelay().toMillis());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 获取路由统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("hedgedRequests", hedgedRequests.sum());
+        statistics.put("hedgeWins", hedgeWins.sum());
+
+        Map<String, Map<String, Object>> endpointStatistics = new LinkedHashMap<>();
+        for (ChatEndpoint endpoint : endpoints) {
+            EndpointStats stats = endpoint.getStats();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("model", endpoint.getModel());
+            item.put("requests", stats.getRequests());
+            item.put("failures", stats.getFailures());
+            item.put("errorRate", stats.getErrorRate());
+            item.put("p50Millis", stats.getCallLatency().p50());
+            item.put("p95Millis", stats.getCallLatency().p95());
+            item.put("firstTokenP95Millis", stats.getFirstTokenLatency().p95());
+            endpointStatistics.put(endpoint.getName(), item);
+        }
+        statistics.put("endpoints", endpointStatistics);
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,69 @@
+package com.lynn.papertrail.service.routing;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个模型端点的运行统计：完整调用延迟、首个 token 延迟与错误率
+ *
+ * @author lynn
+ */
+public class EndpointStats {
+
+    private static final int WINDOW_SIZE = 256;
+
+    /**
+     * 错误率指数移动平均的平滑系数
+     */
+    private static final double ERROR_ALPHA = 0.1;
+
+    private final LatencyWindow callLatency = new LatencyWindow(WINDOW_SIZE);
+    private final LatencyWindow firstTokenLatency = new LatencyWindow(WINDOW_SIZE);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile double errorRate;
+
+    void recordSuccess(long latencyMillis) {
+        requests.increment();
+        callLatency.record(latencyMillis);
+        updateErrorRate(0.0);
+    }
+
+    void recordFirstToken(long latencyMillis) {
+        firstTokenLatency.record(latencyMillis);
+    }
+
+    /**
+     * 记录一次失败，失败同样计入调用延迟样本，避免只失败的端点因为没有延迟数据而被当作最快
+     */
+    void recordFailure(long latencyMillis) {
+        requests.increment();
+        failures.increment();
+        callLatency.record(latencyMillis);
+        updateErrorRate(1.0);
+    }
+
+    private synchronized void updateErrorRate(double sample) {
+        errorRate = errorRate + ERROR_ALPHA * (sample - errorRate);
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    LatencyWindow getCallLatency() {
+        return callLatency;
+    }
+
+    LatencyWindow getFirstTokenLatency() {
+        return firstTokenLatency;
+    }
+}
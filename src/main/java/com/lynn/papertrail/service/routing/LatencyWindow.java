@@ -0,0 +1,63 @@
+package com.lynn.papertrail.service.routing;
+
+import java.util.Arrays;
+
+/**
+ * 固定大小的延迟滑动窗口，用于估算分位数
+ *
+ * @author lynn
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    /**
+     * 最近一次计算的分位数缓存，每写入一定数量样本后重新计算
+     */
+    private long cachedP50 = -1;
+    private long cachedP95 = -1;
+    private int samplesSinceCompute;
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        samplesSinceCompute++;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized long p50() {
+        recomputeIfStale();
+        return cachedP50;
+    }
+
+    synchronized long p95() {
+        recomputeIfStale();
+        return cachedP95;
+    }
+
+    private void recomputeIfStale() {
+        if (count == 0) {
+            return;
+        }
+        if (cachedP95 >= 0 && samplesSinceCompute < 16) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        cachedP50 = sorted[(int) Math.min(count - 1, Math.ceil(count * 0.50) - 1)];
+        cachedP95 = sorted[(int) Math.min(count - 1, Math.ceil(count * 0.95) - 1)];
+        samplesSinceCompute = 0;
+    }
+}
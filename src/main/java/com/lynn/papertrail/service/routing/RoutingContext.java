@@ -0,0 +1,12 @@
+package com.lynn.papertrail.service.routing;
+
+/**
+ * 路由决策所需的请求信息
+ *
+ * @param inputChars     输入字符数
+ * @param tier           用户等级（角色），未登录时为 null
+ * @param preferredModel 请求指定的模型或端点名称，可为 null
+ * @author lynn
+ */
+public record RoutingContext(int inputChars, String tier, String preferredModel) {
+}
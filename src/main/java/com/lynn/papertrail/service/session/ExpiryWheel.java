@@ -0,0 +1,97 @@
+package com.lynn.papertrail.service.session;
+
+import java.util.Arrays;
+
+/**
+ * 哈希时间轮，按过期时间将令牌分配到各格
+ * <p>
+ * 每格只保存令牌的两个 64 位部分，推进到某格时将其中的令牌交给回调检查：
+ * 会话已续期的由回调重新登记到新的过期时间，因此续期本身不需要操作时间轮。
+ * 过期时间超过一圈的令牌会在每圈被检查一次后重新登记。
+ * </p>
+ *
+ * @author lynn
+ */
+final class ExpiryWheel {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket[] buckets;
+    private volatile long currentTick;
+
+    ExpiryWheel(long tickMillis, int wheelSize, long now) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.mask = size - 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.currentTick = now / this.tickMillis;
+    }
+
+    /**
+     * 登记令牌的过期时间，已经推进过的时间点登记到下一格
+     */
+    void schedule(long high, long low, long expireAtMillis) {
+        long tick = Math.max((expireAtMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        buckets[(int) (tick & mask)].add(high, low);
+    }
+
+    /**
+     * 推进到指定时间，依次处理途经各格中的令牌
+     *
+     * @return 处理的令牌数
+     */
+    int advance(long now, TokenVisitor visitor) {
+        long target = now / tickMillis;
+        if (target - currentTick > buckets.length) {
+            // 停顿超过一圈时每格只需处理一次
+            currentTick = target - buckets.length;
+        }
+        int visited = 0;
+        while (currentTick < target) {
+            long tick = currentTick + 1;
+            currentTick = tick;
+            long[] tokens = buckets[(int) (tick & mask)].drain();
+            for (int i = 0; i < tokens.length; i += 2) {
+                visitor.visit(tokens[i], tokens[i + 1]);
+            }
+            visited += tokens.length / 2;
+        }
+        return visited;
+    }
+
+    @FunctionalInterface
+    interface TokenVisitor {
+        void visit(long high, long low);
+    }
+
+    private static final class Bucket {
+
+        private static final long[] EMPTY = new long[0];
+
+        private long[] tokens = new long[8];
+        private int length;
+
+        synchronized void add(long high, long low) {
+            if (length + 2 > tokens.length) {
+                tokens = Arrays.copyOf(tokens, tokens.length << 1);
+            }
+            tokens[length++] = high;
+            tokens[length++] = low;
+        }
+
+        synchronized long[] drain() {
+            if (length == 0) {
+                return EMPTY;
+            }
+            long[] drained = Arrays.copyOf(tokens, length);
+            length = 0;
+            if (tokens.length > 1024) {
+                tokens = new long[8];
+            }
+            return drained;
+        }
+    }
+}
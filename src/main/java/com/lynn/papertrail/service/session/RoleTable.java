@@ -0,0 +1,52 @@
+package com.lynn.papertrail.service.session;
+
+import java.util.Arrays;
+
+/**
+ * 角色名称表，会话中只保存一个字节的角色编号
+ *
+ * @author lynn
+ */
+final class RoleTable {
+
+    private volatile String[] names = {null};
+
+    /**
+     * 获取角色编号，首次出现的角色追加到表尾，编号 0 表示无角色
+     */
+    byte code(String role) {
+        if (role == null) {
+            return 0;
+        }
+        String[] current = names;
+        for (int i = 1; i < current.length; i++) {
+            if (current[i].equals(role)) {
+                return (byte) i;
+            }
+        }
+        synchronized (this) {
+            current = names;
+            for (int i = 1; i < current.length; i++) {
+                if (current[i].equals(role)) {
+                    return (byte) i;
+                }
+            }
+            if (current.length > Byte.MAX_VALUE) {
+                throw new IllegalStateException("角色数量超过上限: " + Byte.MAX_VALUE);
+            }
+            String[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = role;
+            names = updated;
+            return (byte) current.length;
+        }
+    }
+
+    String name(byte code) {
+        String[] current = names;
+        return code >= 0 && code < current.length ? current[code] : null;
+    }
+
+    String[] names() {
+        return names.clone();
+    }
+}
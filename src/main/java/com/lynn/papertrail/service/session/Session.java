@@ -0,0 +1,12 @@
+package com.lynn.papertrail.service.session;
+
+/**
+ * 登录会话
+ *
+ * @param userId         用户ID
+ * @param role           用户角色
+ * @param expireAtMillis 过期时间（毫秒时间戳）
+ * @author lynn
+ */
+public record Session(long userId, String role, long expireAtMillis) {
+}
@@ -0,0 +1,192 @@
+package com.lynn.papertrail.service.session;
+
+/**
+ * 会话表的一个分段
+ * <p>
+ * 开放寻址（线性探测）哈希表，各字段分别保存在基本类型数组中，每个会话约占 33 字节，
+ * 不为单个会话创建对象。令牌的两个 64 位部分均为 0 表示空槽，删除时回移后续元素，不留墓碑。
+ * 分段内的操作由分段自身的锁串行化。
+ * </p>
+ *
+ * @author lynn
+ */
+final class SessionSegment {
+
+    static final long NOT_FOUND = Long.MIN_VALUE;
+
+    private final RoleTable roles;
+
+    private long[] tokenHigh;
+    private long[] tokenLow;
+    private long[] userIds;
+    private long[] expireAt;
+    private byte[] roleCodes;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    SessionSegment(int initialCapacity, RoleTable roles) {
+        this.roles = roles;
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1));
+    }
+
+    synchronized void put(long high, long low, long userId, byte role, long expireAtMillis) {
+        if (size >= threshold) {
+            resize(tokenHigh.length << 1);
+        }
+        int index = indexOf(high, low);
+        if (index < 0) {
+            index = ~index;
+            tokenHigh[index] = high;
+            tokenLow[index] = low;
+            size++;
+        }
+        userIds[index] = userId;
+        roleCodes[index] = role;
+        expireAt[index] = expireAtMillis;
+    }
+
+    /**
+     * 获取未过期的会话，剩余时间低于 ttl - touchInterval 时顺带续期
+     */
+    synchronized Session get(long high, long low, long now, long ttlMillis, long touchIntervalMillis) {
+        int index = indexOf(high, low);
+        if (index < 0 || expireAt[index] <= now) {
+            return null;
+        }
+        if (expireAt[index] - now < ttlMillis - touchIntervalMillis) {
+            expireAt[index] = now + ttlMillis;
+        }
+        return new Session(userIds[index], roles.name(roleCodes[index]), expireAt[index]);
+    }
+
+    /**
+     * 获取过期时间，不存在时返回 {@link #NOT_FOUND}
+     */
+    synchronized long expireAt(long high, long low) {
+        int index = indexOf(high, low);
+        return index < 0 ? NOT_FOUND : expireAt[index];
+    }
+
+    /**
+     * 会话已过期时移除并返回用户ID，否则返回 {@link #NOT_FOUND}
+     */
+    synchronized long removeIfExpired(long high, long low, long now) {
+        int index = indexOf(high, low);
+        if (index < 0 || expireAt[index] > now) {
+            return NOT_FOUND;
+        }
+        long userId = userIds[index];
+        removeAt(index);
+        return userId;
+    }
+
+    /**
+     * 移除会话并返回用户ID，不存在时返回 {@link #NOT_FOUND}
+     */
+    synchronized long remove(long high, long low) {
+        int index = indexOf(high, low);
+        if (index < 0) {
+            return NOT_FOUND;
+        }
+        long userId = userIds[index];
+        removeAt(index);
+        return userId;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 遍历分段内的全部会话，遍历期间持有分段锁
+     */
+    synchronized void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < tokenHigh.length; i++) {
+            if (tokenHigh[i] != 0 || tokenLow[i] != 0) {
+                visitor.visit(tokenHigh[i], tokenLow[i], userIds[i], roleCodes[i], expireAt[i]);
+            }
+        }
+    }
+
+    static long hash(long high, long low) {
+        long h = high ^ Long.rotateLeft(low, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 查找令牌所在槽位，不存在时返回 ~(可插入的空槽位)
+     */
+    private int indexOf(long high, long low) {
+        int index = (int) hash(high, low) & mask;
+        while (tokenHigh[index] != 0 || tokenLow[index] != 0) {
+            if (tokenHigh[index] == high && tokenLow[index] == low) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return ~index;
+    }
+
+    private void removeAt(int index) {
+        int gap = index;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (tokenHigh[next] == 0 && tokenLow[next] == 0) {
+                break;
+            }
+            int home = (int) hash(tokenHigh[next], tokenLow[next]) & mask;
+            // home 不在 (gap, next] 区间内时，该元素可以回移到空出的槽位
+            boolean between = gap <= next ? (home > gap && home <= next) : (home > gap || home <= next);
+            if (!between) {
+                tokenHigh[gap] = tokenHigh[next];
+                tokenLow[gap] = tokenLow[next];
+                userIds[gap] = userIds[next];
+                roleCodes[gap] = roleCodes[next];
+                expireAt[gap] = expireAt[next];
+                gap = next;
+            }
+        }
+        tokenHigh[gap] = 0;
+        tokenLow[gap] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldHigh = tokenHigh;
+        long[] oldLow = tokenLow;
+        long[] oldUserIds = userIds;
+        long[] oldExpireAt = expireAt;
+        byte[] oldRoles = roleCodes;
+        allocate(capacity);
+        for (int i = 0; i < oldHigh.length; i++) {
+            if (oldHigh[i] != 0 || oldLow[i] != 0) {
+                int index = ~indexOf(oldHigh[i], oldLow[i]);
+                tokenHigh[index] = oldHigh[i];
+                tokenLow[index] = oldLow[i];
+                userIds[index] = oldUserIds[i];
+                expireAt[index] = oldExpireAt[i];
+                roleCodes[index] = oldRoles[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        tokenHigh = new long[capacity];
+        tokenLow = new long[capacity];
+        userIds = new long[capacity];
+        expireAt = new long[capacity];
+        roleCodes = new byte[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * 0.75f);
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long high, long low, long userId, byte role, long expireAtMillis);
+    }
+}
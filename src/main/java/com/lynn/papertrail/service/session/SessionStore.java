@@ -0,0 +1,438 @@
+package com.lynn.papertrail.service.session;
+
+import com.lynn.papertrail.config.SessionProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 登录会话存储
+ * <p>
+ * 令牌为 128 位随机数的十六进制形式，按两个 long 保存在分段的开放寻址表中，查询为 O(1) 且不访问数据库。
+ * 会话采用滑动过期：访问时若剩余时间不足 ttl - touchInterval 则续期。
+ * 过期清理由哈希时间轮驱动，每格只检查在该时间点到期的令牌，无需扫描全表。
+ * 每个用户的会话令牌另有索引，用于限制会话数和注销全部会话。
+ * 配置快照路径后，停机（以及可选的定期）时写入快照，启动时加载未过期的会话。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.token.type", havingValue = "session")
+public class SessionStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x50545353;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int TOKEN_LENGTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SessionProperties properties;
+    private final LongSupplier clock;
+    private final long ttlMillis;
+    private final long touchIntervalMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final RoleTable roles = new RoleTable();
+    private final SessionSegment[] segments;
+    private final int segmentShift;
+    private final ExpiryWheel wheel;
+    private final Map<Long, long[]> userSessions = new ConcurrentHashMap<>();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder revoked = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public SessionStore(SessionProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    SessionStore(SessionProperties properties, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.touchIntervalMillis = Math.min(properties.getTouchInterval().toMillis(), ttlMillis);
+
+        int segmentCount = Integer.highestOneBit(Math.max(2, properties.getSegments() - 1)) << 1;
+        this.segments = new SessionSegment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new SessionSegment(properties.getInitialSegmentCapacity(), roles);
+        }
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        this.wheel = new ExpiryWheel(properties.getWheelTick().toMillis(), properties.getWheelSize(), clock.getAsLong());
+    }
+
+    @PostConstruct
+    public void start() {
+        loadSnapshot();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = Math.max(1, properties.getWheelTick().toMillis());
+        scheduler.scheduleWithFixedDelay(this::sweepSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
+        long snapshotMillis = properties.getSnapshotInterval().toMillis();
+        if (hasSnapshotPath() && snapshotMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::writeSnapshotSafely, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        writeSnapshotSafely();
+    }
+
+    /**
+     * 创建会话并返回令牌
+     */
+    public String create(long userId, String role) {
+        long high;
+        long low;
+        do {
+            high = random.nextLong();
+            low = random.nextLong();
+        } while (high == 0 && low == 0);
+
+        long expireAt = clock.getAsLong() + ttlMillis;
+        segmentFor(high, low).put(high, low, userId, roles.code(role), expireAt);
+        wheel.schedule(high, low, expireAt);
+        created.increment();
+
+        long[] evicted = addUserSession(userId, high, low);
+        for (int i = 0; i < evicted.length; i += 2) {
+            segmentFor(evicted[i], evicted[i + 1]).remove(evicted[i], evicted[i + 1]);
+            revoked.increment();
+        }
+        return format(high, low);
+    }
+
+    /**
+     * 获取有效会话并滑动续期
+     *
+     * @return 会话，令牌无效或已过期时返回 null
+     */
+    public Session get(String token) {
+        if (!isWellFormed(token)) {
+            return null;
+        }
+        long high = parseHex(token, 0);
+        long low = parseHex(token, 16);
+        return segmentFor(high, low).get(high, low, clock.getAsLong(), ttlMillis, touchIntervalMillis);
+    }
+
+    /**
+     * 注销会话
+     *
+     * @return 会话存在时返回 true
+     */
+    public boolean revoke(String token) {
+        if (!isWellFormed(token)) {
+            return false;
+        }
+        long high = parseHex(token, 0);
+        long low = parseHex(token, 16);
+        long userId = segmentFor(high, low).remove(high, low);
+        if (userId == SessionSegment.NOT_FOUND) {
+            return false;
+        }
+        removeUserSession(userId, high, low);
+        revoked.increment();
+        return true;
+    }
+
+    /**
+     * 注销用户的全部会话
+     *
+     * @return 注销的会话数
+     */
+    public int revokeAll(long userId) {
+        long[] tokens = userSessions.remove(userId);
+        if (tokens == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < tokens.length; i += 2) {
+            if (segmentFor(tokens[i], tokens[i + 1]).remove(tokens[i], tokens[i + 1]) != SessionSegment.NOT_FOUND) {
+                count++;
+            }
+        }
+        revoked.add(count);
+        return count;
+    }
+
+    /**
+     * 获取用户当前的会话数
+     */
+    public int activeSessions(long userId) {
+        long[] tokens = userSessions.get(userId);
+        return tokens != null ? tokens.length / 2 : 0;
+    }
+
+    /**
+     * 获取会话总数
+     */
+    public int size() {
+        int size = 0;
+        for (SessionSegment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public Map<String, Long> getStatistics() {
+        return Map.of(
+                "sessions", (long) size(),
+                "users", (long) userSessions.size(),
+                "created", created.sum(),
+                "expired", expired.sum(),
+                "revoked", revoked.sum());
+    }
+
+    /**
+     * 推进时间轮并移除到期会话
+     *
+     * @return 移除的会话数
+     */
+    int sweep() {
+        long now = clock.getAsLong();
+        long before = expired.sum();
+        wheel.advance(now, (high, low) -> {
+            SessionSegment segment = segmentFor(high, low);
+            long expireAt = segment.expireAt(high, low);
+            if (expireAt == SessionSegment.NOT_FOUND) {
+                return;
+            }
+            if (expireAt > now) {
+                wheel.schedule(high, low, expireAt);
+                return;
+            }
+            long userId = segment.removeIfExpired(high, low, now);
+            if (userId != SessionSegment.NOT_FOUND) {
+                removeUserSession(userId, high, low);
+                expired.increment();
+            } else {
+                // 检查和移除之间会话被续期
+                long renewed = segment.expireAt(high, low);
+                if (renewed != SessionSegment.NOT_FOUND) {
+                    wheel.schedule(high, low, renewed);
+                }
+            }
+        });
+        return (int) (expired.sum() - before);
+    }
+
+    /**
+     * 将全部会话写入快照文件，先写临时文件再原子替换
+     */
+    void writeSnapshot() throws IOException {
+        Path target = Path.of(properties.getSnapshotPath());
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long[] written = {0};
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            String[] roleNames = roles.names();
+            out.writeByte(roleNames.length - 1);
+            for (int i = 1; i < roleNames.length; i++) {
+                out.writeUTF(roleNames[i]);
+            }
+            for (SessionSegment segment : segments) {
+                segment.forEach((high, low, userId, role, expireAt) -> {
+                    try {
+                        out.writeLong(high);
+                        out.writeLong(low);
+                        out.writeLong(userId);
+                        out.writeByte(role);
+                        out.writeLong(expireAt);
+                        written[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            // 两个 0 作为结束标记
+            out.writeLong(0);
+            out.writeLong(0);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("写入会话快照: 文件={}, 会话数={}", target, written[0]);
+    }
+
+    /**
+     * 从快照文件加载未过期的会话
+     */
+    void loadSnapshot() {
+        if (!hasSnapshotPath()) {
+            return;
+        }
+        Path source = Path.of(properties.getSnapshotPath());
+        if (!Files.exists(source)) {
+            return;
+        }
+
+        long now = clock.getAsLong();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("会话快照格式不正确，忽略: {}", source);
+                return;
+            }
+            int roleCount = in.readUnsignedByte();
+            byte[] roleMapping = new byte[roleCount + 1];
+            for (int i = 1; i <= roleCount; i++) {
+                roleMapping[i] = roles.code(in.readUTF());
+            }
+
+            while (true) {
+                long high = in.readLong();
+                long low = in.readLong();
+                if (high == 0 && low == 0) {
+                    break;
+                }
+                long userId = in.readLong();
+                int role = in.readByte();
+                long expireAt = in.readLong();
+                if (expireAt <= now) {
+                    continue;
+                }
+                byte roleCode = role > 0 && role <= roleCount ? roleMapping[role] : 0;
+                segmentFor(high, low).put(high, low, userId, roleCode, expireAt);
+                wheel.schedule(high, low, expireAt);
+                addUserSession(userId, high, low);
+                loaded++;
+            }
+            log.info("加载会话快照: 文件={}, 会话数={}", source, loaded);
+        } catch (IOException e) {
+            log.warn("读取会话快照失败，已加载 {} 个会话: {}", loaded, source, e);
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            int removed = sweep();
+            if (removed > 0) {
+                log.debug("清理过期会话: {}", removed);
+            }
+        } catch (Exception e) {
+            log.error("清理过期会话失败", e);
+        }
+    }
+
+    private void writeSnapshotSafely() {
+        if (!hasSnapshotPath()) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException e) {
+            log.error("写入会话快照失败: {}", properties.getSnapshotPath(), e);
+        }
+    }
+
+    private boolean hasSnapshotPath() {
+        return properties.getSnapshotPath() != null && !properties.getSnapshotPath().isBlank();
+    }
+
+    private SessionSegment segmentFor(long high, long low) {
+        return segments[(int) (SessionSegment.hash(high, low) >>> segmentShift)];
+    }
+
+    /**
+     * 将令牌加入用户索引，超出会话数上限时返回被挤出的最早令牌
+     */
+    private long[] addUserSession(long userId, long high, long low) {
+        long[][] evicted = {new long[0]};
+        int maxSessions = properties.getMaxSessionsPerUser();
+        userSessions.compute(userId, (id, tokens) -> {
+            if (tokens == null) {
+                return new long[]{high, low};
+            }
+            int drop = maxSessions > 0 ? Math.max(0, tokens.length / 2 - maxSessions + 1) * 2 : 0;
+            evicted[0] = Arrays.copyOf(tokens, drop);
+            long[] updated = new long[tokens.length - drop + 2];
+            System.arraycopy(tokens, drop, updated, 0, tokens.length - drop);
+            updated[updated.length - 2] = high;
+            updated[updated.length - 1] = low;
+            return updated;
+        });
+        return evicted[0];
+    }
+
+    private void removeUserSession(long userId, long high, long low) {
+        userSessions.computeIfPresent(userId, (id, tokens) -> {
+            for (int i = 0; i < tokens.length; i += 2) {
+                if (tokens[i] == high && tokens[i + 1] == low) {
+                    if (tokens.length == 2) {
+                        return null;
+                    }
+                    long[] updated = new long[tokens.length - 2];
+                    System.arraycopy(tokens, 0, updated, 0, i);
+                    System.arraycopy(tokens, i + 2, updated, i, tokens.length - i - 2);
+                    return updated;
+                }
+            }
+            return tokens;
+        });
+    }
+
+    private static String format(long high, long low) {
+        char[] chars = new char[TOKEN_LENGTH];
+        for (int i = 0; i < 16; i++) {
+            chars[i] = HEX[(int) (high >>> (60 - i * 4)) & 0xF];
+            chars[16 + i] = HEX[(int) (low >>> (60 - i * 4)) & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static boolean isWellFormed(String token) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            if (Character.digit(token.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String token, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            value = (value << 4) | Character.digit(token.charAt(i), 16);
+        }
+        return value;
+    }
+}
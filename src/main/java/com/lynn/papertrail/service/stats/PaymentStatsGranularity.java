@@ -0,0 +1,46 @@
+package com.lynn.papertrail.service.stats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 支付统计粒度
+ *
+ * @author lynn
+ */
+public enum PaymentStatsGranularity {
+
+    MINUTE(ChronoUnit.MINUTES, Duration.ofHours(1)),
+    HOUR(ChronoUnit.HOURS, Duration.ofDays(1)),
+    DAY(ChronoUnit.DAYS, Duration.ofDays(30));
+
+    private final ChronoUnit unit;
+    private final Duration defaultRange;
+
+    PaymentStatsGranularity(ChronoUnit unit, Duration defaultRange) {
+        this.unit = unit;
+        this.defaultRange = defaultRange;
+    }
+
+    /**
+     * time 所在时间段的开始时间
+     */
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * 时间段长度
+     */
+    public Duration step() {
+        return unit.getDuration();
+    }
+
+    /**
+     * 未指定开始时间时的查询范围
+     */
+    public Duration defaultRange() {
+        return defaultRange;
+    }
+}
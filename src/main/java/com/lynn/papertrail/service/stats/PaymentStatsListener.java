@@ -0,0 +1,132 @@
+package com.lynn.papertrail.service.stats;
+
+import com.lynn.papertrail.entity.PaymentStatsApplied;
+import com.lynn.papertrail.entity.PaymentStatsRollup;
+import com.lynn.papertrail.mapper.PaymentStatsMapper;
+import com.lynn.papertrail.service.payment.PaymentEvent;
+import com.lynn.papertrail.service.payment.PaymentEventListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 把支付事件增量累加到各粒度的统计汇总
+ * <p>
+ * 每批事件先在内存中按 (粒度, 时间段) 合并成增量，再在一个手动提交的事务中写入已计入的事件并累加汇总，
+ * 一批事件只需要三条语句。已计入的事件按 (outTradeNo, orderVersion) 跳过，重复投递不会重复计数；
+ * 写入已计入事件用普通 INSERT，即使有两个转发线程同时处理同一批，也只有一个能提交，另一个回滚后重试时会跳过。
+ * 汇总行按主键顺序累加，并发事务之间不会因加锁顺序不同而死锁。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentStatsListener implements PaymentEventListener {
+
+    private static final Comparator<PaymentStatsRollup> ROLLUP_ORDER =
+            Comparator.comparing(PaymentStatsRollup::getGranularity).thenComparing(PaymentStatsRollup::getBucketStart);
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    @Override
+    public void onPaymentEvents(List<PaymentEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentStatsApplied> keys = new ArrayList<>(events.size());
+        for (PaymentEvent event : events) {
+            keys.add(PaymentStatsApplied.builder()
+                    .outTradeNo(event.outTradeNo())
+                    .orderVersion(event.orderVersion())
+                    .applyTime(now)
+                    .build());
+        }
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            PaymentStatsMapper mapper = session.getMapper(PaymentStatsMapper.class);
+            Set<String> applied = new HashSet<>();
+            for (PaymentStatsApplied key : mapper.selectApplied(keys)) {
+                applied.add(key.getOutTradeNo() + ':' + key.getOrderVersion());
+            }
+            List<PaymentStatsApplied> fresh = new ArrayList<>(events.size());
+            Map<PaymentStatsRollup, PaymentStatsRollup> deltas = new TreeMap<>(ROLLUP_ORDER);
+            for (int i = 0; i < events.size(); i++) {
+                PaymentEvent event = events.get(i);
+                if (applied.contains(event.outTradeNo() + ':' + event.orderVersion())) {
+                    continue;
+                }
+                fresh.add(keys.get(i));
+                accumulate(deltas, event, now);
+            }
+            if (fresh.isEmpty()) {
+                return;
+            }
+            mapper.insertApplied(fresh);
+            mapper.accumulateBatch(new ArrayList<>(deltas.values()));
+            session.commit();
+            log.debug("计入支付统计: {} 条事件, 跳过重复 {} 条", fresh.size(), events.size() - fresh.size());
+        }
+    }
+
+    private static void accumulate(Map<PaymentStatsRollup, PaymentStatsRollup> deltas,
+                                   PaymentEvent event, LocalDateTime now) {
+        BigDecimal amount = event.totalAmount() != null ? event.totalAmount() : BigDecimal.ZERO;
+        LocalDateTime occurredAt = event.occurredAt() != null ? event.occurredAt() : now;
+        LocalDateTime orderCreateTime = event.orderCreateTime() != null ? event.orderCreateTime() : occurredAt;
+        for (PaymentStatsGranularity granularity : PaymentStatsGranularity.values()) {
+            switch (event.type()) {
+                case ORDER_CREATED -> {
+                    PaymentStatsRollup delta = delta(deltas, granularity, orderCreateTime, now);
+                    delta.setCreatedCount(delta.getCreatedCount() + 1);
+                    delta.setCreatedAmount(delta.getCreatedAmount().add(amount));
+                }
+                case ORDER_PAID -> {
+                    PaymentStatsRollup paid = delta(deltas, granularity, occurredAt, now);
+                    paid.setPaidCount(paid.getPaidCount() + 1);
+                    paid.setPaidAmount(paid.getPaidAmount().add(amount));
+                    // 转化计入下单所在的时间段
+                    PaymentStatsRollup converted = delta(deltas, granularity, orderCreateTime, now);
+                    converted.setConvertedCount(converted.getConvertedCount() + 1);
+                }
+                case ORDER_CLOSED -> {
+                    PaymentStatsRollup delta = delta(deltas, granularity, occurredAt, now);
+                    delta.setClosedCount(delta.getClosedCount() + 1);
+                }
+            }
+        }
+    }
+
+    private static PaymentStatsRollup delta(Map<PaymentStatsRollup, PaymentStatsRollup> deltas,
+                                            PaymentStatsGranularity granularity,
+                                            LocalDateTime time, LocalDateTime now) {
+        PaymentStatsRollup key = PaymentStatsRollup.builder()
+                .granularity(granularity.name())
+                .bucketStart(granularity.bucketOf(time))
+                .build();
+        return deltas.computeIfAbsent(key, k -> PaymentStatsRollup.builder()
+                .granularity(k.getGranularity())
+                .bucketStart(k.getBucketStart())
+                .createdCount(0L)
+                .createdAmount(BigDecimal.ZERO)
+                .paidCount(0L)
+                .paidAmount(BigDecimal.ZERO)
+                .convertedCount(0L)
+                .closedCount(0L)
+                .updateTime(now)
+                .build());
+    }
+}
@@ -0,0 +1,105 @@
+package com.lynn.papertrail.service.stats;
+
+import com.lynn.papertrail.config.PaymentStatsProperties;
+import com.lynn.papertrail.dto.PaymentStatsResponse;
+import com.lynn.papertrail.entity.PaymentStatsRollup;
+import com.lynn.papertrail.mapper.PaymentStatsMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 支付统计查询
+ * <p>
+ * 只读取 {@link PaymentStatsListener} 维护的汇总表，查询代价与返回的时间段数成正比，不访问订单表。
+ * 按分钟和按小时的汇总定时清理，按天的汇总一直保留。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentStatsService {
+
+    private final PaymentStatsMapper paymentStatsMapper;
+    private final PaymentStatsProperties properties;
+
+    /**
+     * 查询 [from, to) 内各时间段的统计，from 向前对齐到时间段开始
+     *
+     * @throws IllegalArgumentException 范围为空或时间段数超过 maxBuckets
+     */
+    public PaymentStatsResponse query(PaymentStatsGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = granularity.bucketOf(from);
+        if (!to.isAfter(start)) {
+            throw new IllegalArgumentException("结束时间必须晚于开始时间");
+        }
+        long bucketCount = Duration.between(start, to).dividedBy(granularity.step()) + 1;
+        if (bucketCount > properties.getMaxBuckets()) {
+            throw new IllegalArgumentException("查询范围超过 " + properties.getMaxBuckets() + " 个时间段");
+        }
+
+        List<PaymentStatsRollup> rollups = paymentStatsMapper.selectRange(granularity.name(), start, to);
+        List<PaymentStatsResponse.Bucket> buckets = new ArrayList<>(rollups.size());
+        long created = 0;
+        long paid = 0;
+        long converted = 0;
+        long closed = 0;
+        BigDecimal createdAmount = BigDecimal.ZERO;
+        BigDecimal paidAmount = BigDecimal.ZERO;
+        for (PaymentStatsRollup rollup : rollups) {
+            buckets.add(PaymentStatsResponse.Bucket.from(rollup));
+            created += rollup.getCreatedCount();
+            createdAmount = createdAmount.add(rollup.getCreatedAmount());
+            paid += rollup.getPaidCount();
+            paidAmount = paidAmount.add(rollup.getPaidAmount());
+            converted += rollup.getConvertedCount();
+            closed += rollup.getClosedCount();
+        }
+        return PaymentStatsResponse.builder()
+                .granularity(granularity.name())
+                .from(start)
+                .to(to)
+                .total(PaymentStatsResponse.Bucket.of(start, created, createdAmount, paid, paidAmount,
+                        converted, closed))
+                .buckets(buckets)
+                .build();
+    }
+
+    /**
+     * 定时清理超过保留时长的分钟、小时汇总和已计入事件记录
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = purge(limit -> paymentStatsMapper.deleteRollupsBefore(
+                PaymentStatsGranularity.MINUTE.name(), now.minus(properties.getMinuteRetention()), limit));
+        deleted += purge(limit -> paymentStatsMapper.deleteRollupsBefore(
+                PaymentStatsGranularity.HOUR.name(), now.minus(properties.getHourRetention()), limit));
+        deleted += purge(limit -> paymentStatsMapper.deleteAppliedBefore(
+                now.minus(properties.getAppliedRetention()), limit));
+        if (deleted > 0) {
+            log.info("清理过期的支付统计记录: {} 条", deleted);
+        }
+    }
+
+    private int purge(IntUnaryOperator deleteBatch) {
+        int batchSize = Math.max(1, properties.getCleanupBatchSize());
+        int deleted = 0;
+        int removed;
+        do {
+            removed = deleteBatch.applyAsInt(batchSize);
+            deleted += removed;
+        } while (removed == batchSize);
+        return deleted;
+    }
+}
@@ -0,0 +1,320 @@
+package com.lynn.papertrail.service.summary;
+
+import com.lynn.papertrail.config.PaperSummaryProperties;
+import com.lynn.papertrail.dto.PaperSummaryJobResponse;
+import com.lynn.papertrail.entity.Paper;
+import com.lynn.papertrail.entity.PaperSummary;
+import com.lynn.papertrail.entity.PaperSummaryJob;
+import com.lynn.papertrail.mapper.PaperSummaryJobMapper;
+import com.lynn.papertrail.mapper.PaperSummaryMapper;
+import com.lynn.papertrail.service.PaperSearchService;
+import com.lynn.papertrail.service.prompt.PromptScene;
+import com.lynn.papertrail.service.prompt.PromptTemplateRegistry;
+import com.lynn.papertrail.util.SimpleRateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 论文摘要批处理服务
+ * <p>
+ * 任务提交后先从存储中复用已有摘要，剩余论文分发到固定大小的工作线程池并行调用大模型，
+ * 调用速率由 {@link SimpleRateLimiter} 控制。每篇论文完成后立即落库，
+ * 因此任务中断后重新执行时只会处理尚未生成摘要的论文。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+public class PaperSummaryJobService {
+
+    private static final String ID_SEPARATOR = ",";
+
+    private final PaperSearchService paperSearchService;
+    private final ChatModel chatModel;
+    private final PromptTemplateRegistry promptTemplateRegistry;
+    private final PaperSummaryMapper paperSummaryMapper;
+    private final PaperSummaryJobMapper paperSummaryJobMapper;
+    private final PaperSummaryProperties properties;
+
+    private final ExecutorService workers;
+    private final SimpleRateLimiter rateLimiter;
+    private final Map<String, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    public PaperSummaryJobService(PaperSearchService paperSearchService,
+                                  ChatModel chatModel,
+                                  PromptTemplateRegistry promptTemplateRegistry,
+                                  PaperSummaryMapper paperSummaryMapper,
+                                  PaperSummaryJobMapper paperSummaryJobMapper,
+                                  PaperSummaryProperties properties) {
+        this.paperSearchService = paperSearchService;
+        this.chatModel = chatModel;
+        this.promptTemplateRegistry = promptTemplateRegistry;
+        this.paperSummaryMapper = paperSummaryMapper;
+        this.paperSummaryJobMapper = paperSummaryJobMapper;
+        this.properties = properties;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getWorkerThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "paper-summary-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rateLimiter = new SimpleRateLimiter(properties.getRequestsPerSecond());
+    }
+
+    /**
+     * 提交摘要任务
+     *
+     * @param paperIds 论文ID列表
+     * @return 任务进度
+     */
+    public PaperSummaryJobResponse submit(List<String> paperIds) {
+        List<String> ids = paperIds.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("论文ID列表不能为空");
+        }
+        if (ids.size() > properties.getMaxPapersPerJob()) {
+            throw new IllegalArgumentException("单个任务最多包含 " + properties.getMaxPapersPerJob() + " 篇论文");
+        }
+
+        PaperSummaryJob job = PaperSummaryJob.builder()
+                .jobId(UUID.randomUUID().toString().replace("-", ""))
+                .status(PaperSummaryJob.STATUS_RUNNING)
+                .paperIds(String.join(ID_SEPARATOR, ids))
+                .total(ids.size())
+                .completed(0)
+                .failed(0)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        paperSummaryJobMapper.insert(job);
+
+        log.info("提交论文摘要任务: 任务ID={}, 论文数={}", job.getJobId(), ids.size());
+        schedule(job.getJobId(), ids);
+        return getJob(job.getJobId());
+    }
+
+    /**
+     * 重新执行任务，只处理尚未生成摘要的论文
+     *
+     * @param jobId 任务ID
+     * @return 任务进度
+     */
+    public PaperSummaryJobResponse resume(String jobId) {
+        PaperSummaryJob job = paperSummaryJobMapper.selectByJobId(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("任务不存在: " + jobId);
+        }
+        schedule(jobId, splitIds(job.getPaperIds()));
+        return getJob(jobId);
+    }
+
+    /**
+     * 查询任务进度
+     */
+    public PaperSummaryJobResponse getJob(String jobId) {
+        PaperSummaryJob job = paperSummaryJobMapper.selectByJobId(jobId);
+        return job != null ? PaperSummaryJobResponse.from(job) : null;
+    }
+
+    /**
+     * 从存储中获取论文摘要
+     */
+    public Optional<PaperSummary> getSummary(String paperId) {
+        return Optional.ofNullable(paperSummaryMapper.selectByPaperId(paperId));
+    }
+
+    /**
+     * 批量从存储中获取论文摘要，只返回已生成的部分
+     */
+    public Map<String, String> getSummaries(Collection<String> paperIds) {
+        if (paperIds == null || paperIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return paperSummaryMapper.selectByPaperIds(paperIds).stream()
+                .collect(Collectors.toMap(PaperSummary::getPaperId, PaperSummary::getSummary,
+                        (existing, replacement) -> existing, LinkedHashMap::new));
+    }
+
+    /**
+     * 应用启动后继续执行上次未完成的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<PaperSummaryJob> jobs;
+        try {
+            jobs = paperSummaryJobMapper.selectByStatus(PaperSummaryJob.STATUS_RUNNING);
+        } catch (Exception e) {
+            log.error("查询未完成的论文摘要任务失败，可通过恢复接口手动继续", e);
+            return;
+        }
+        for (PaperSummaryJob job : jobs) {
+            log.info("恢复未完成的论文摘要任务: 任务ID={}", job.getJobId());
+            try {
+                schedule(job.getJobId(), splitIds(job.getPaperIds()));
+            } catch (Exception e) {
+                log.error("恢复论文摘要任务失败: 任务ID={}", job.getJobId(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 执行任务；同一任务已在执行时直接返回
+     */
+    private void schedule(String jobId, List<String> ids) {
+        // 先占位再查询和提交，并发恢复同一任务时只有一个调用会执行
+        RunningJob runningJob = new RunningJob();
+        if (runningJobs.putIfAbsent(jobId, runningJob) != null) {
+            return;
+        }
+
+        List<String> pending;
+        try {
+            // 已有摘要的论文直接计为完成
+            Map<String, PaperSummary> stored = paperSummaryMapper.selectByPaperIds(ids).stream()
+                    .collect(Collectors.toMap(PaperSummary::getPaperId, Function.identity(), (a, b) -> a));
+            pending = ids.stream()
+                    .filter(id -> !stored.containsKey(id))
+                    .collect(Collectors.toList());
+
+            paperSummaryJobMapper.resetProgress(jobId, ids.size() - pending.size());
+            if (pending.isEmpty()) {
+                paperSummaryJobMapper.updateStatus(jobId, PaperSummaryJob.STATUS_COMPLETED);
+                runningJobs.remove(jobId, runningJob);
+                return;
+            }
+        } catch (RuntimeException e) {
+            runningJobs.remove(jobId, runningJob);
+            throw e;
+        }
+
+        runningJob.remaining.set(pending.size());
+        for (String paperId : pending) {
+            workers.execute(() -> summarizeQuietly(jobId, paperId, runningJob));
+        }
+    }
+
+    private void summarizeQuietly(String jobId, String paperId, RunningJob runningJob) {
+        boolean success = false;
+        try {
+            rateLimiter.acquire();
+            success = summarize(paperId);
+        } catch (InterruptedException e) {
+            // 应用关闭，任务保持 RUNNING 状态，下次启动时恢复
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.error("生成论文摘要失败: 任务ID={}, 论文ID={}", jobId, paperId, e);
+        }
+
+        if (success) {
+            paperSummaryJobMapper.incrementCompleted(jobId);
+        } else {
+            runningJob.failed.incrementAndGet();
+            paperSummaryJobMapper.incrementFailed(jobId);
+        }
+
+        if (runningJob.remaining.decrementAndGet() == 0) {
+            runningJobs.remove(jobId);
+            String status = runningJob.failed.get() == 0
+                    ? PaperSummaryJob.STATUS_COMPLETED
+                    : PaperSummaryJob.STATUS_COMPLETED_WITH_ERRORS;
+            paperSummaryJobMapper.updateStatus(jobId, status);
+            log.info("论文摘要任务结束: 任务ID={}, 状态={}", jobId, status);
+        }
+    }
+
+    private boolean summarize(String paperId) {
+        Paper paper = paperSearchService.getPaperById(paperId);
+        if (paper == null) {
+            log.warn("未找到论文，跳过摘要生成: {}", paperId);
+            return false;
+        }
+
+        ChatResponse response = chatModel.call(
+                promptTemplateRegistry.buildPrompt(PromptScene.PAPER_SUMMARY, buildPaperContent(paper)));
+        promptTemplateRegistry.recordUsage(PromptScene.PAPER_SUMMARY, response);
+        if (response == null || response.getResult() == null) {
+            return false;
+        }
+
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        PaperSummary summary = PaperSummary.builder()
+                .paperId(paperId)
+                .title(paper.getTitle())
+                .summary(response.getResult().getOutput().getText())
+                .promptTokens(usage != null ? usage.getPromptTokens() : null)
+                .completionTokens(usage != null ? usage.getCompletionTokens() : null)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        paperSummaryMapper.upsert(summary);
+        return true;
+    }
+
+    private String buildPaperContent(Paper paper) {
+        StringBuilder content = new StringBuilder(256);
+        content.append("标题：").append(paper.getTitle()).append('\n');
+        if (paper.getAuthors() != null && !paper.getAuthors().isEmpty()) {
+            content.append("作者：").append(String.join(", ", paper.getAuthors())).append('\n');
+        }
+        if (paper.getSummary() != null) {
+            content.append("摘要：").append(paper.getSummary());
+        }
+        return content.toString();
+    }
+
+    private List<String> splitIds(String paperIds) {
+        if (paperIds == null || paperIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(paperIds.split(ID_SEPARATOR));
+    }
+
+    /**
+     * 等待任务执行完毕，主要用于测试
+     */
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!runningJobs.isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+
+    private static final class RunningJob {
+        private final AtomicInteger remaining = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+    }
+}
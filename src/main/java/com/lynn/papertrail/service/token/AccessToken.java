@@ -0,0 +1,12 @@
+package com.lynn.papertrail.service.token;
+
+/**
+ * 已验证的访问令牌
+ *
+ * @param userId         用户ID
+ * @param role           用户角色
+ * @param expireAtMillis 过期时间（毫秒时间戳）
+ * @author lynn
+ */
+public record AccessToken(long userId, String role, long expireAtMillis) {
+}
@@ -0,0 +1,38 @@
+package com.lynn.papertrail.service.token;
+
+/**
+ * 访问令牌服务
+ * <p>
+ * 由 user.token.type 选择实现：signed 为无状态签名令牌，session 为服务端会话。
+ * </p>
+ *
+ * @author lynn
+ */
+public interface AccessTokenService {
+
+    /**
+     * 签发令牌
+     */
+    String issue(long userId, String role);
+
+    /**
+     * 验证令牌
+     *
+     * @return 令牌信息，令牌无效、过期或已注销时返回 null
+     */
+    AccessToken verify(String token);
+
+    /**
+     * 注销令牌
+     *
+     * @return 令牌有效并已注销时返回 true
+     */
+    boolean revoke(String token);
+
+    /**
+     * 注销用户已签发的全部令牌
+     *
+     * @return 注销的令牌数，无法统计时返回 -1
+     */
+    int revokeAll(long userId);
+}
@@ -0,0 +1,41 @@
+package com.lynn.papertrail.service.token;
+
+import com.lynn.papertrail.service.session.Session;
+import com.lynn.papertrail.service.session.SessionStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * 基于服务端会话的访问令牌，适用于单节点部署
+ *
+ * @author lynn
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.token.type", havingValue = "session")
+public class SessionAccessTokenService implements AccessTokenService {
+
+    private final SessionStore sessionStore;
+
+    @Override
+    public String issue(long userId, String role) {
+        return sessionStore.create(userId, role);
+    }
+
+    @Override
+    public AccessToken verify(String token) {
+        Session session = sessionStore.get(token);
+        return session != null ? new AccessToken(session.userId(), session.role(), session.expireAtMillis()) : null;
+    }
+
+    @Override
+    public boolean revoke(String token) {
+        return sessionStore.revoke(token);
+    }
+
+    @Override
+    public int revokeAll(long userId) {
+        return sessionStore.revokeAll(userId);
+    }
+}
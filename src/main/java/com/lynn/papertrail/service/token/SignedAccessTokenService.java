@@ -0,0 +1,229 @@
+package com.lynn.papertrail.service.token;
+
+import com.lynn.papertrail.config.AccessTokenProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 无状态签名访问令牌
+ * <p>
+ * 令牌格式为 Base64URL(载荷).Base64URL(HMAC-SHA256)，载荷包含用户ID、角色、签发时间、过期时间和随机数，
+ * 任何持有相同密钥的节点都能独立验证，不访问数据库或共享存储。
+ * 每个线程复用一个 {@link Mac} 实例；验证结果按令牌哈希放入固定大小的直接映射缓存，
+ * 重复请求只需一次字符串比较。
+ * 注销通过本地撤销表实现：单个令牌按随机数撤销，注销全部会话则记录用户的失效时间点，
+ * 表项在令牌自然过期后清除。多节点部署时撤销表仅对本节点生效，令牌有效期即为最长的撤销延迟。
+ * </p>
+ *
+ * @author lynn
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "user.token.type", havingValue = "signed", matchIfMissing = true)
+public class SignedAccessTokenService implements AccessTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int FIXED_PAYLOAD_BYTES = 1 + Long.BYTES * 4 + 1;
+    private static final int MAX_ROLE_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Mac> macs;
+
+    private final AtomicReferenceArray<CachedToken> cache;
+    private final int cacheMask;
+
+    private final Map<Long, Long> revokedNonces = new ConcurrentHashMap<>();
+    private final Map<Long, Long> userNotBefore = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SignedAccessTokenService(AccessTokenProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    SignedAccessTokenService(AccessTokenProperties properties, LongSupplier clock) {
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.clock = clock;
+
+        byte[] secret;
+        if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+            log.warn("未配置 user.token.secret，使用随机密钥，重启后已签发的令牌将失效");
+            secret = new byte[32];
+            random.nextBytes(secret);
+        } else {
+            secret = Base64.getDecoder().decode(properties.getSecret());
+        }
+        SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化令牌签名失败", e);
+            }
+        });
+
+        int cacheSize = properties.getVerificationCacheSize() > 0
+                ? Integer.highestOneBit(Math.max(1, properties.getVerificationCacheSize() - 1)) << 1 : 0;
+        this.cache = new AtomicReferenceArray<>(cacheSize);
+        this.cacheMask = cacheSize - 1;
+    }
+
+    @Override
+    public String issue(long userId, String role) {
+        byte[] roleBytes = role != null ? role.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (roleBytes.length > MAX_ROLE_BYTES) {
+            throw new IllegalArgumentException("角色名称过长: " + role);
+        }
+        long now = clock.getAsLong();
+
+        ByteBuffer payload = ByteBuffer.allocate(FIXED_PAYLOAD_BYTES + roleBytes.length);
+        payload.put(VERSION);
+        payload.putLong(userId);
+        payload.putLong(now);
+        payload.putLong(now + ttlMillis);
+        payload.putLong(random.nextLong());
+        payload.put((byte) roleBytes.length);
+        payload.put(roleBytes);
+
+        byte[] payloadBytes = payload.array();
+        return ENCODER.encodeToString(payloadBytes) + '.' + ENCODER.encodeToString(macs.get().doFinal(payloadBytes));
+    }
+
+    @Override
+    public AccessToken verify(String token) {
+        ParsedToken parsed = parse(token);
+        return parsed != null ? parsed.accessToken() : null;
+    }
+
+    @Override
+    public boolean revoke(String token) {
+        ParsedToken parsed = parse(token);
+        if (parsed == null) {
+            return false;
+        }
+        revokedNonces.put(parsed.nonce(), parsed.accessToken().expireAtMillis());
+        return true;
+    }
+
+    @Override
+    public int revokeAll(long userId) {
+        // 签名令牌不记录签发列表，无法统计数量
+        userNotBefore.merge(userId, clock.getAsLong(), Math::max);
+        return -1;
+    }
+
+    /**
+     * 清除已自然过期的撤销记录
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeRevocations() {
+        long now = clock.getAsLong();
+        revokedNonces.values().removeIf(expireAt -> expireAt <= now);
+        userNotBefore.values().removeIf(notBefore -> notBefore + ttlMillis <= now);
+    }
+
+    private ParsedToken parse(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long now = clock.getAsLong();
+
+        int slot = cacheMask >= 0 ? spread(token.hashCode()) & cacheMask : -1;
+        CachedToken cached = slot >= 0 ? cache.get(slot) : null;
+        ParsedToken parsed;
+        if (cached != null && cached.token().equals(token)) {
+            parsed = cached.parsed();
+        } else {
+            parsed = decode(token);
+            if (parsed == null) {
+                return null;
+            }
+            if (slot >= 0) {
+                cache.set(slot, new CachedToken(token, parsed));
+            }
+        }
+
+        if (parsed.accessToken().expireAtMillis() <= now || isRevoked(parsed)) {
+            return null;
+        }
+        return parsed;
+    }
+
+    private boolean isRevoked(ParsedToken parsed) {
+        if (!revokedNonces.isEmpty() && revokedNonces.containsKey(parsed.nonce())) {
+            return true;
+        }
+        if (!userNotBefore.isEmpty()) {
+            Long notBefore = userNotBefore.get(parsed.accessToken().userId());
+            return notBefore != null && parsed.issuedAtMillis() <= notBefore;
+        }
+        return false;
+    }
+
+    /**
+     * 校验签名并解析载荷，令牌格式或签名不正确时返回 null
+     */
+    private ParsedToken decode(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0 || separator == token.length() - 1) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length < FIXED_PAYLOAD_BYTES || payload[0] != VERSION
+                || !MessageDigest.isEqual(signature, macs.get().doFinal(payload))) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+        long userId = buffer.getLong();
+        long issuedAt = buffer.getLong();
+        long expireAt = buffer.getLong();
+        long nonce = buffer.getLong();
+        int roleLength = buffer.get();
+        if (roleLength < 0 || roleLength != buffer.remaining()) {
+            return null;
+        }
+        String role = roleLength > 0 ? new String(payload, FIXED_PAYLOAD_BYTES, roleLength, StandardCharsets.UTF_8) : null;
+        return new ParsedToken(new AccessToken(userId, role, expireAt), issuedAt, nonce);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private record ParsedToken(AccessToken accessToken, long issuedAtMillis, long nonce) {
+    }
+
+    private record CachedToken(String token, ParsedToken parsed) {
+    }
+}
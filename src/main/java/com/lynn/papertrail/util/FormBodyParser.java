@@ -0,0 +1,162 @@
+package com.lynn.papertrail.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * application/x-www-form-urlencoded 请求体解析
+ * <p>
+ * 对原始字节只扫描一遍：按 &amp; 和 = 切分，遇到 % 和 + 时才解码到可复用的缓冲区，否则直接从原始字节构造字符串，
+ * 不生成 split 数组和未解码的中间字符串。键和值按 UTF-8 解码，同名参数后出现的覆盖先出现的，没有 = 或键为空的片段忽略。
+ * 支付宝通知每次的参数名基本相同，参数名字符串按字节内容缓存复用，只有值需要新建字符串。
+ * </p>
+ * <p>
+ * 每个线程复用一个解析器和结果映射，{@link #parse} 返回的映射在同一线程下一次解析前有效，调用方不能跨线程或长期持有。
+ * </p>
+ *
+ * @author lynn
+ */
+public final class FormBodyParser {
+
+    private static final ThreadLocal<FormBodyParser> PARSERS = ThreadLocal.withInitial(FormBodyParser::new);
+
+    private static final byte PLAIN = 0;
+    private static final byte AMPERSAND = 1;
+    private static final byte EQUALS = 2;
+    private static final byte ENCODED = 3;
+
+    /**
+     * 按字节值查表区分分隔符、等号和需要解码的字符，普通字符每个字节只判断一次
+     */
+    private static final byte[] KINDS = new byte[256];
+
+    static {
+        KINDS['&'] = AMPERSAND;
+        KINDS['='] = EQUALS;
+        KINDS['%'] = ENCODED;
+        KINDS['+'] = ENCODED;
+    }
+
+    private static final int KEY_CACHE_SIZE = 128;
+    private static final int MAX_CACHED_KEY_LENGTH = 64;
+
+    private final Map<String, String> params = new HashMap<>(64);
+    private final byte[][] cachedKeyBytes = new byte[KEY_CACHE_SIZE][];
+    private final String[] cachedKeys = new String[KEY_CACHE_SIZE];
+    private byte[] buffer = new byte[256];
+
+    FormBodyParser() {
+    }
+
+    /**
+     * 解析请求体，返回当前线程复用的映射
+     *
+     * @throws IllegalArgumentException 百分号编码不完整或不是十六进制
+     */
+    public static Map<String, String> parse(byte[] body) {
+        return PARSERS.get().parse(body, 0, body != null ? body.length : 0);
+    }
+
+    Map<String, String> parse(byte[] body, int offset, int length) {
+        params.clear();
+        int end = offset + length;
+        int start = offset;
+        while (start < end) {
+            // 一次扫描同时找出分隔符、等号以及键和值中是否有需要解码的字符
+            int separator = start;
+            int equals = -1;
+            boolean keyEncoded = false;
+            boolean valueEncoded = false;
+            while (separator < end) {
+                byte kind = KINDS[body[separator] & 0xFF];
+                if (kind != PLAIN) {
+                    if (kind == AMPERSAND) {
+                        break;
+                    }
+                    if (kind == EQUALS && equals < 0) {
+                        equals = separator;
+                    } else if (kind == ENCODED) {
+                        if (equals < 0) {
+                            keyEncoded = true;
+                        } else {
+                            valueEncoded = true;
+                        }
+                    }
+                }
+                separator++;
+            }
+            if (equals > start) {
+                String key = keyEncoded
+                        ? cachedKey(buffer, 0, decode(body, start, equals))
+                        : cachedKey(body, start, equals - start);
+                String value = valueEncoded
+                        ? new String(buffer, 0, decode(body, equals + 1, separator), StandardCharsets.UTF_8)
+                        : new String(body, equals + 1, separator - equals - 1, StandardCharsets.UTF_8);
+                params.put(key, value);
+            }
+            start = separator + 1;
+        }
+        return params;
+    }
+
+    private String cachedKey(byte[] bytes, int from, int length) {
+        if (length > MAX_CACHED_KEY_LENGTH) {
+            return new String(bytes, from, length, StandardCharsets.UTF_8);
+        }
+        int hash = 0;
+        for (int i = from; i < from + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+        byte[] cached = cachedKeyBytes[slot];
+        if (cached != null && Arrays.equals(cached, 0, cached.length, bytes, from, from + length)) {
+            return cachedKeys[slot];
+        }
+        String key = new String(bytes, from, length, StandardCharsets.UTF_8);
+        byte[] copy = new byte[length];
+        System.arraycopy(bytes, from, copy, 0, length);
+        cachedKeyBytes[slot] = copy;
+        cachedKeys[slot] = key;
+        return key;
+    }
+
+    /**
+     * 把 [from, to) 解码到 buffer，返回解码后的字节数
+     */
+    private int decode(byte[] body, int from, int to) {
+        if (buffer.length < to - from) {
+            buffer = new byte[Math.max(to - from, buffer.length * 2)];
+        }
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            byte b = body[i];
+            if (b == '+') {
+                buffer[length++] = ' ';
+            } else if (b == '%') {
+                if (i + 2 >= to) {
+                    throw new IllegalArgumentException("不完整的百分号编码");
+                }
+                buffer[length++] = (byte) (hexValue(body[i + 1]) << 4 | hexValue(body[i + 2]));
+                i += 2;
+            } else {
+                buffer[length++] = b;
+            }
+        }
+        return length;
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        throw new IllegalArgumentException("百分号编码中包含非十六进制字符: " + (char) b);
+    }
+}
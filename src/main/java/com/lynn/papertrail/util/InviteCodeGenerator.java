@@ -5,6 +5,8 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -25,7 +27,12 @@ import java.util.Objects;
  *
  * // 使用自定义填充字符
  * String code = InviteCodeGenerator.generateInviteCode("user123", 8, 'X');
+ *
+ * // 一次生成 10000 个互不重复的邀请码
+ * List<String> codes = InviteCodeGenerator.generateInviteCodes("user123", 10000, 8);
  * }</pre>
+ * 需要持久化且全局不重复的大批量邀请码请使用 {@link InviteCodeSequence}。
+ * </p>
  *
  * @author lynn
  * @version 1.0
@@ -69,6 +76,22 @@ public final class InviteCodeGenerator {
      */
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
+    /**
+     * 每个线程复用一个摘要实例，digest 调用后实例自动重置
+     */
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new InviteCodeGenerationException("哈希算法不可用: " + e.getMessage(), e);
+        }
+    });
+
+    /**
+     * 批量生成时单个邀请码的最大重试次数
+     */
+    private static final int MAX_BATCH_ATTEMPTS = 16;
+
     /**
      * 私有构造函数，防止实例化
      */
@@ -101,6 +124,48 @@ public final class InviteCodeGenerator {
         return generateInviteCode(userId, DEFAULT_LENGTH, DEFAULT_PADDING_CHAR);
     }
 
+    /**
+     * 批量生成互不重复的邀请码
+     * <p>
+     * 已生成的邀请码按字符集转换为 long 放入 {@link LongHashSet} 查重，百万级批量只占用十几 MB。
+     * 长度较短时可能的邀请码数量有限，批量过大会因重试次数耗尽而失败。
+     * </p>
+     *
+     * @param userId 用户ID，不能为null或空字符串
+     * @param count  生成数量
+     * @param length 邀请码长度，范围 [{@value MIN_LENGTH}, {@value InviteCodeSequence#MAX_LENGTH}]
+     * @return 互不重复的邀请码
+     * @throws IllegalArgumentException      当参数无效时
+     * @throws InviteCodeGenerationException 当重试多次仍无法生成不重复的邀请码时
+     */
+    public static List<String> generateInviteCodes(String userId, int count, int length) {
+        validateParameters(userId, length, DEFAULT_PADDING_CHAR);
+        if (count < 0) {
+            throw new IllegalArgumentException("生成数量不能为负数");
+        }
+        if (length > InviteCodeSequence.MAX_LENGTH) {
+            throw new IllegalArgumentException("批量生成的邀请码长度不能超过 " + InviteCodeSequence.MAX_LENGTH);
+        }
+
+        byte[] userIdBytes = userId.trim().getBytes(StandardCharsets.UTF_8);
+        LongHashSet issued = new LongHashSet(count);
+        List<String> codes = new ArrayList<>(count);
+        while (codes.size() < count) {
+            String code = null;
+            for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && code == null; attempt++) {
+                String candidate = convertToInviteCode(generateHash(userIdBytes), length, DEFAULT_PADDING_CHAR);
+                if (issued.add(InviteCodeSequence.pack(candidate))) {
+                    code = candidate;
+                }
+            }
+            if (code == null) {
+                throw new InviteCodeGenerationException("无法生成足够的不重复邀请码，已生成 " + codes.size() + " 个");
+            }
+            codes.add(code);
+        }
+        return codes;
+    }
+
     /**
      * 生成邀请码（完整参数版本）
      *
@@ -116,17 +181,14 @@ public final class InviteCodeGenerator {
         validateParameters(userId, length, paddingChar);
 
         try {
-            // 生成唯一输入
-            String uniqueInput = createUniqueInput(userId);
-
             // 生成哈希值
-            byte[] hash = generateHash(uniqueInput);
+            byte[] hash = generateHash(userId.trim().getBytes(StandardCharsets.UTF_8));
 
             // 转换为邀请码
             return convertToInviteCode(hash, length, paddingChar);
 
-        } catch (NoSuchAlgorithmException e) {
-            throw new InviteCodeGenerationException("哈希算法不可用: " + e.getMessage(), e);
+        } catch (InviteCodeGenerationException e) {
+            throw e;
         } catch (Exception e) {
             throw new InviteCodeGenerationException("生成邀请码时发生异常: " + e.getMessage(), e);
         }
@@ -153,34 +215,30 @@ public final class InviteCodeGenerator {
     }
 
     /**
-     * 创建唯一输入字符串
+     * 对用户ID、纳秒时间戳、随机数和线程ID计算SHA-256哈希值
+     * 直接写入摘要，不拼接中间字符串
      */
-    private static String createUniqueInput(String userId) {
-        long nanoTime = System.nanoTime();
-        int randomValue = SECURE_RANDOM.nextInt();
-        long threadId = Thread.currentThread().threadId();
-
-        return String.join("_",
-                userId.trim(),
-                String.valueOf(nanoTime),
-                String.valueOf(randomValue),
-                String.valueOf(threadId)
-        );
+    private static byte[] generateHash(byte[] userIdBytes) {
+        MessageDigest digest = DIGEST.get();
+        digest.update(userIdBytes);
+        updateLong(digest, System.nanoTime());
+        updateLong(digest, SECURE_RANDOM.nextInt());
+        updateLong(digest, Thread.currentThread().threadId());
+        return digest.digest();
     }
 
-    /**
-     * 生成SHA-256哈希值
-     */
-    private static byte[] generateHash(String input) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        return digest.digest(input.getBytes(StandardCharsets.UTF_8));
+    private static void updateLong(MessageDigest digest, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (value >>> shift));
+        }
     }
 
     /**
      * 将哈希值转换为邀请码
      */
     private static String convertToInviteCode(byte[] hash, int length, char paddingChar) {
-        long hashValue = Math.abs(bytesToLong(hash));
+        // 清除符号位，Math.abs(Long.MIN_VALUE) 仍为负数
+        long hashValue = bytesToLong(hash) & Long.MAX_VALUE;
 
         StringBuilder codeBuilder = new StringBuilder(length);
 
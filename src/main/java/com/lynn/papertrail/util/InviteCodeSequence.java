@@ -0,0 +1,162 @@
+package com.lynn.papertrail.util;
+
+import java.util.Arrays;
+
+/**
+ * 基于计数器的邀请码序列
+ * <p>
+ * 把序号 [0, 32^length) 通过带密钥的 Feistel 网络一一映射为同样范围内的值，再按 5 位一组编码为
+ * {@code 23456789ABCDEFGHJKLMNPQRSTUVWXYZ} 中的字符。同一密钥下不同序号得到的邀请码必然不同，
+ * 不需要查重；不知道密钥时相邻序号的邀请码看不出规律。
+ * 位数为奇数时 Feistel 网络的值域是目标范围的两倍，超出范围的结果继续置换直到落入范围（cycle walking），
+ * 平均不超过两次。实例不可变，可以多线程共享。
+ * </p>
+ *
+ * @author lynn
+ */
+public final class InviteCodeSequence {
+
+    public static final int MIN_LENGTH = 4;
+
+    /**
+     * 最大长度，12 个字符共 60 位，可以用一个 long 表示
+     */
+    public static final int MAX_LENGTH = 12;
+
+    private static final char[] ALPHABET = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ".toCharArray();
+    private static final byte[] CHAR_INDEX = new byte[128];
+    private static final int ROUNDS = 4;
+
+    static {
+        Arrays.fill(CHAR_INDEX, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            CHAR_INDEX[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final int length;
+    private final long capacity;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    /**
+     * @param key    置换密钥，泄露后可以由邀请码反推序号
+     * @param length 邀请码长度，范围 [{@value MIN_LENGTH}, {@value MAX_LENGTH}]
+     */
+    public InviteCodeSequence(long key, int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException(
+                    String.format("邀请码长度必须在 %d 到 %d 之间", MIN_LENGTH, MAX_LENGTH));
+        }
+        int bits = length * 5;
+        this.length = length;
+        this.capacity = 1L << bits;
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(state);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 可编码的序号个数
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * 编码第 index 个邀请码
+     */
+    public String encode(long index) {
+        if (index < 0 || index >= capacity) {
+            throw new IllegalArgumentException("序号超出范围: " + index);
+        }
+        long value = index;
+        do {
+            value = permute(value);
+        } while (value >= capacity);
+
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 由邀请码反推序号，格式或长度不符时返回 -1
+     */
+    public long decode(CharSequence code) {
+        if (code == null || code.length() != length) {
+            return -1;
+        }
+        long value = pack(code);
+        if (value < 0) {
+            return -1;
+        }
+        do {
+            value = unpermute(value);
+        } while (value >= capacity);
+        return value;
+    }
+
+    /**
+     * 把不超过 {@value MAX_LENGTH} 位的邀请码按字符集转换为 long，同长度的邀请码与结果一一对应；
+     * 含字符集以外的字符或过长时返回 -1
+     */
+    public static long pack(CharSequence code) {
+        if (code.length() > MAX_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            int digit = c < 128 ? CHAR_INDEX[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 5) | digit;
+        }
+        return value;
+    }
+
+    private long permute(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = left ^ (mix(right ^ roundKeys[round]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long unpermute(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            long previous = right ^ (mix(left ^ roundKeys[round]) & halfMask);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * SplitMix64 的混合函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
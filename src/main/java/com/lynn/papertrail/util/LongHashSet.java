@@ -0,0 +1,96 @@
+package com.lynn.papertrail.util;
+
+/**
+ * 基于开放寻址的 long 集合
+ * <p>
+ * 元素直接存放在 long 数组中，每个元素约占 8 / 负载因子 字节，不产生装箱对象，
+ * 适合百万级元素的临时查重。只支持添加和查询，非线程安全。
+ * </p>
+ *
+ * @author lynn
+ */
+public final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final double LOAD_FACTOR = 0.6;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsEmpty;
+
+    public LongHashSet(int expectedSize) {
+        long wanted = Math.max(4, (long) (expectedSize / LOAD_FACTOR) + 1);
+        allocate((int) Math.min(1 << 30, Long.highestOneBit(wanted - 1) << 1));
+    }
+
+    /**
+     * 添加元素，已存在时返回 false
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int index = indexOf(value);
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int index = indexOf(value);
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] old = slots;
+        allocate(old.length << 1);
+        for (long value : old) {
+            if (value != EMPTY) {
+                int index = indexOf(value);
+                while (slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int indexOf(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
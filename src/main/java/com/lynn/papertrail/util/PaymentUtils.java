@@ -1,5 +1,6 @@
 package com.lynn.papertrail.util;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -11,22 +12,12 @@ import java.util.Map;
 public class PaymentUtils {
 
     /**
-     * 解析查询字符串为Map
+     * 解析查询字符串为Map，键和值按 UTF-8 做 URL 解码
      */
     public static Map<String, String> parseQueryString(String queryString) {
-        // 简单解析查询字符串
-        Map<String, String> params = new HashMap<>();
-        if (queryString != null && !queryString.isEmpty()) {
-            String[] pairs = queryString.split("&");
-            for (String pair : pairs) {
-                int idx = pair.indexOf("=");
-                if (idx > 0) {
-                    String key = pair.substring(0, idx);
-                    String value = pair.substring(idx + 1);
-                    params.put(key, value);
-                }
-            }
+        if (queryString == null || queryString.isEmpty()) {
+            return new HashMap<>();
         }
-        return params;
+        return new HashMap<>(FormBodyParser.parse(queryString.getBytes(StandardCharsets.UTF_8)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.lynn.papertrail.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 简单的匀速限流器
+ * <p>
+ * 按固定间隔发放许可，调用方在 {@link #acquire()} 中阻塞等待自己的时间片，
+ * 适用于调用外部接口（大模型、支付宝等）时控制请求速率。速率小于等于0时不限流。
+ * </p>
+ *
+ * @author lynn
+ */
+public final class SimpleRateLimiter {
+
+    private final long intervalNanos;
+
+    private long nextFreeNanos;
+
+    /**
+     * @param permitsPerSecond 每秒许可数，小于等于0表示不限流
+     */
+    public SimpleRateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0L;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取一个许可，必要时阻塞等待
+     *
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextFreeNanos < now) {
+                nextFreeNanos = now;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += intervalNanos;
+        }
+
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.lynn.papertrail.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 不可变的用户上下文快照
+ * <p>
+ * 用户ID、用户名、角色和邮箱使用固定字段，自定义属性按键值交替存放在数组中，没有属性时不分配。
+ * 修改操作返回新实例，原实例可以被其他线程安全地继续持有，因此跨线程传递只需传递引用。
+ * 属性数量通常很少，按键线性查找。
+ * </p>
+ *
+ * @author lynn
+ */
+public final class UserContext {
+
+    private static final Object[] NO_ATTRIBUTES = new Object[0];
+
+    public static final UserContext EMPTY = new UserContext(null, null, null, null, null);
+
+    private final Long userId;
+    private final String username;
+    private final String userRole;
+    private final String userEmail;
+    private final Object[] attributes;
+
+    private UserContext(Long userId, String username, String userRole, String userEmail, Object[] attributes) {
+        this.userId = userId;
+        this.username = username;
+        this.userRole = userRole;
+        this.userEmail = userEmail;
+        this.attributes = attributes != null ? attributes : NO_ATTRIBUTES;
+    }
+
+    public static UserContext of(Long userId, String username, String userRole, String userEmail) {
+        return new UserContext(userId, username, userRole, userEmail, null);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getUserRole() {
+        return userRole;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public UserContext withUserId(Long userId) {
+        return new UserContext(userId, username, userRole, userEmail, attributes);
+    }
+
+    public UserContext withUsername(String username) {
+        return new UserContext(userId, username, userRole, userEmail, attributes);
+    }
+
+    public UserContext withUserRole(String userRole) {
+        return new UserContext(userId, username, userRole, userEmail, attributes);
+    }
+
+    public UserContext withUserEmail(String userEmail) {
+        return new UserContext(userId, username, userRole, userEmail, attributes);
+    }
+
+    /**
+     * 获取自定义属性，未找到时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String key) {
+        int index = indexOf(key);
+        return index >= 0 ? (T) attributes[index + 1] : null;
+    }
+
+    public boolean hasAttribute(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * 设置自定义属性，value 为 null 时等同于移除
+     */
+    public UserContext withAttribute(String key, Object value) {
+        Objects.requireNonNull(key, "属性键不能为null");
+        if (value == null) {
+            return withoutAttribute(key);
+        }
+        int index = indexOf(key);
+        Object[] copy;
+        if (index >= 0) {
+            copy = attributes.clone();
+            copy[index + 1] = value;
+        } else {
+            copy = Arrays.copyOf(attributes, attributes.length + 2);
+            copy[attributes.length] = key;
+            copy[attributes.length + 1] = value;
+        }
+        return new UserContext(userId, username, userRole, userEmail, copy);
+    }
+
+    public UserContext withoutAttribute(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return this;
+        }
+        Object[] copy = new Object[attributes.length - 2];
+        System.arraycopy(attributes, 0, copy, 0, index);
+        System.arraycopy(attributes, index + 2, copy, index, attributes.length - index - 2);
+        return new UserContext(userId, username, userRole, userEmail, copy);
+    }
+
+    /**
+     * 转换为只读映射，固定字段使用 {@link UserContextHolder} 中定义的键，值为 null 的字段不包含在内
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        putIfNotNull(map, UserContextHolder.USER_ID, userId);
+        putIfNotNull(map, UserContextHolder.USERNAME, username);
+        putIfNotNull(map, UserContextHolder.USER_ROLE, userRole);
+        putIfNotNull(map, UserContextHolder.USER_EMAIL, userEmail);
+        for (int i = 0; i < attributes.length; i += 2) {
+            map.put((String) attributes[i], attributes[i + 1]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public String toString() {
+        return "UserContext" + toMap();
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < attributes.length; i += 2) {
+            if (attributes[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+}
@@ -1,22 +1,26 @@
 package com.lynn.papertrail.util;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * 基于ThreadLocal的用户信息上下文管理器。
  * 该类提供便捷的方法来存储和检索用户特定的数据。
+ * <p>
+ * 每个线程只保存一个不可变的 {@link UserContext} 引用，未设置时为 {@link UserContext#EMPTY}，不为每个线程分配容器。
+ * 切换到其他线程执行时，用 {@link #wrap(Runnable)} 等 wrap 系列方法在提交任务的线程上捕获当前上下文，任务执行期间在工作线程上恢复，
+ * 执行结束后还原工作线程原来的上下文；{@link #runWith} 在一段代码内临时替换上下文。
+ * Spring 线程池和 Reactor 调度器已在 {@code ContextPropagationConfig} 中统一包装。
+ * </p>
  *
  * @author lynn
  */
 public class UserContextHolder {
 
-    private static final ThreadLocal<Map<String, Object>> USER_CONTEXT = new ThreadLocal<Map<String, Object>>() {
-        @Override
-        protected Map<String, Object> initialValue() {
-            return new ConcurrentHashMap<>();
-        }
-    };
+    private static final ThreadLocal<UserContext> USER_CONTEXT = new ThreadLocal<>();
 
     // 常用用户相关的键
     public static final String USER_ID = "userId";
@@ -24,13 +28,36 @@ public class UserContextHolder {
     public static final String USER_ROLE = "userRole";
     public static final String USER_EMAIL = "userEmail";
 
+    /**
+     * 获取当前线程的上下文快照
+     *
+     * @return 上下文，未设置时返回 {@link UserContext#EMPTY}
+     */
+    public static UserContext current() {
+        UserContext context = USER_CONTEXT.get();
+        return context != null ? context : UserContext.EMPTY;
+    }
+
+    /**
+     * 替换当前线程的上下文
+     *
+     * @param context 新的上下文，为 null 时清除
+     */
+    public static void set(UserContext context) {
+        if (context == null || context == UserContext.EMPTY) {
+            USER_CONTEXT.remove();
+        } else {
+            USER_CONTEXT.set(context);
+        }
+    }
+
     /**
      * 在当前线程的上下文中设置用户ID
      *
      * @param userId 要存储的用户ID
      */
     public static void setUserId(Long userId) {
-        USER_CONTEXT.get().put(USER_ID, userId);
+        set(current().withUserId(userId));
     }
 
     /**
@@ -39,7 +66,7 @@ public class UserContextHolder {
      * @return 用户ID，如果未找到则返回null
      */
     public static Long getUserId() {
-        return (Long) USER_CONTEXT.get().get(USER_ID);
+        return current().getUserId();
     }
 
     /**
@@ -48,7 +75,7 @@ public class UserContextHolder {
      * @param username 要存储的用户名
      */
     public static void setUsername(String username) {
-        USER_CONTEXT.get().put(USERNAME, username);
+        set(current().withUsername(username));
     }
 
     /**
@@ -57,7 +84,7 @@ public class UserContextHolder {
      * @return 用户名，如果未找到则返回null
      */
     public static String getUsername() {
-        return (String) USER_CONTEXT.get().get(USERNAME);
+        return current().getUsername();
     }
 
     /**
@@ -66,7 +93,7 @@ public class UserContextHolder {
      * @param userRole 要存储的用户角色
      */
     public static void setUserRole(String userRole) {
-        USER_CONTEXT.get().put(USER_ROLE, userRole);
+        set(current().withUserRole(userRole));
     }
 
     /**
@@ -75,7 +102,7 @@ public class UserContextHolder {
      * @return 用户角色，如果未找到则返回null
      */
     public static String getUserRole() {
-        return (String) USER_CONTEXT.get().get(USER_ROLE);
+        return current().getUserRole();
     }
 
     /**
@@ -84,7 +111,7 @@ public class UserContextHolder {
      * @param userEmail 要存储的用户邮箱
      */
     public static void setUserEmail(String userEmail) {
-        USER_CONTEXT.get().put(USER_EMAIL, userEmail);
+        set(current().withUserEmail(userEmail));
     }
 
     /**
@@ -93,7 +120,7 @@ public class UserContextHolder {
      * @return 用户邮箱，如果未找到则返回null
      */
     public static String getUserEmail() {
-        return (String) USER_CONTEXT.get().get(USER_EMAIL);
+        return current().getUserEmail();
     }
 
     /**
@@ -103,7 +130,7 @@ public class UserContextHolder {
      * @param value 要存储的值
      */
     public static void setAttribute(String key, Object value) {
-        USER_CONTEXT.get().put(key, value);
+        set(current().withAttribute(key, value));
     }
 
     /**
@@ -112,9 +139,8 @@ public class UserContextHolder {
      * @param key 属性的键
      * @return 使用给定键存储的值，如果未找到则返回null
      */
-    @SuppressWarnings("unchecked")
     public static <T> T getAttribute(String key) {
-        return (T) USER_CONTEXT.get().get(key);
+        return current().getAttribute(key);
     }
 
     /**
@@ -124,9 +150,8 @@ public class UserContextHolder {
      * @param defaultValue 如果未找到键则返回的默认值
      * @return 使用给定键存储的值，如果未找到则返回默认值
      */
-    @SuppressWarnings("unchecked")
     public static <T> T getAttribute(String key, T defaultValue) {
-        T value = (T) USER_CONTEXT.get().get(key);
+        T value = current().getAttribute(key);
         return value != null ? value : defaultValue;
     }
 
@@ -136,7 +161,7 @@ public class UserContextHolder {
      * @param key 要移除的属性的键
      */
     public static void removeAttribute(String key) {
-        USER_CONTEXT.get().remove(key);
+        set(current().withoutAttribute(key));
     }
 
     /**
@@ -149,10 +174,10 @@ public class UserContextHolder {
     /**
      * 获取当前线程的整个用户上下文映射
      *
-     * @return 用户上下文映射
+     * @return 用户上下文的只读映射
      */
     public static Map<String, Object> getContext() {
-        return USER_CONTEXT.get();
+        return current().toMap();
     }
 
     /**
@@ -162,6 +187,88 @@ public class UserContextHolder {
      * @return 如果上下文中存在该键则返回true，否则返回false
      */
     public static boolean containsKey(String key) {
-        return USER_CONTEXT.get().containsKey(key);
+        UserContext context = current();
+        return switch (key) {
+            case USER_ID -> context.getUserId() != null;
+            case USERNAME -> context.getUsername() != null;
+            case USER_ROLE -> context.getUserRole() != null;
+            case USER_EMAIL -> context.getUserEmail() != null;
+            default -> context.hasAttribute(key);
+        };
+    }
+
+    /**
+     * 在指定上下文中执行任务，结束后还原当前线程原来的上下文
+     */
+    public static void runWith(UserContext context, Runnable task) {
+        UserContext previous = USER_CONTEXT.get();
+        set(context);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 在指定上下文中执行任务并返回结果，结束后还原当前线程原来的上下文
+     */
+    public static <T> T callWith(UserContext context, Supplier<T> task) {
+        UserContext previous = USER_CONTEXT.get();
+        set(context);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 捕获当前上下文，返回在该上下文中执行的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        UserContext captured = current();
+        return () -> runWith(captured, task);
+    }
+
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> task) {
+        UserContext captured = current();
+        return () -> callWith(captured, task);
+    }
+
+    public static <T> Callable<T> wrapCallable(Callable<T> task) {
+        UserContext captured = current();
+        return () -> {
+            UserContext previous = USER_CONTEXT.get();
+            set(captured);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * 捕获当前上下文，返回在该上下文中执行的回调，用于 Reactor 等在其他线程上触发的回调
+     */
+    public static <T> Consumer<T> wrapConsumer(Consumer<T> consumer) {
+        UserContext captured = current();
+        return value -> runWith(captured, () -> consumer.accept(value));
+    }
+
+    /**
+     * 包装执行器，提交的任务在提交时的上下文中执行
+     */
+    public static Executor wrapExecutor(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    private static void restore(UserContext previous) {
+        if (previous == null) {
+            USER_CONTEXT.remove();
+        } else {
+            USER_CONTEXT.set(previous);
+        }
     }
-}
\ No newline at end of file
+}
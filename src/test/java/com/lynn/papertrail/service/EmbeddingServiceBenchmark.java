@@ -0,0 +1,130 @@
+package com.lynn.papertrail.service;
+
+import com.lynn.papertrail.config.EmbeddingProperties;
+import com.lynn.papertrail.service.embedding.MappedVectorStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EmbeddingService 吞吐基准测试
+ * <p>
+ * 使用固定延迟的桩模型模拟一次远程调用，多线程并发请求论文向量，
+ * 吞吐以每秒完成的文本数计，结束时输出存储命中率和平均批大小。
+ * 运行方式：执行 main 方法，或 mvn test-compile 后通过 JMH Runner 运行。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(32)
+public class EmbeddingServiceBenchmark {
+
+    private static final int DIMENSIONS = 256;
+
+    /**
+     * 论文数量，越小则重复请求越多、命中率越高
+     */
+    @Param({"1000", "100000"})
+    public int paperCount;
+
+    @Param({"1", "64"})
+    public int batchSize;
+
+    private Path storeFile;
+    private EmbeddingService embeddingService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storeFile = Files.createTempFile("paper-vectors", ".bin");
+        Files.delete(storeFile);
+
+        EmbeddingProperties properties = new EmbeddingProperties();
+        properties.setBatchSize(batchSize);
+        properties.setLingerMillis(5);
+        properties.setMaxConcurrentBatches(8);
+        embeddingService = new EmbeddingService(new StubEmbeddingModel(),
+                properties, new MappedVectorStore(storeFile, properties.getInitialCapacity()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Map<String, Object> statistics = embeddingService.getStatistics();
+        long providerCalls = (Long) statistics.get("providerCalls");
+        long textsEmbedded = (Long) statistics.get("textsEmbedded");
+        System.out.printf("%n统计: %s, 平均批大小: %.1f%n", statistics,
+                providerCalls == 0 ? 0.0 : textsEmbedded * 1.0 / providerCalls);
+        embeddingService.shutdown();
+        Files.deleteIfExists(storeFile);
+    }
+
+    @Benchmark
+    public float[] embedPaper() {
+        int paper = ThreadLocalRandom.current().nextInt(paperCount);
+        return embeddingService.embedPaper("paper-" + paper, "Abstract of paper " + paper).join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmbeddingServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 桩模型：每次调用固定 20ms 延迟，按文本哈希生成确定性的向量
+     */
+    private static final class StubEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            List<Embedding> embeddings = new ArrayList<>();
+            List<String> texts = request.getInstructions();
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(vector(texts.get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+
+        private static float[] vector(String text) {
+            float[] vector = new float[DIMENSIONS];
+            int seed = text.hashCode();
+            for (int i = 0; i < DIMENSIONS; i++) {
+                seed = seed * 31 + i;
+                vector[i] = (seed & 0xFFFF) / 65536f;
+            }
+            return vector;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.lynn.papertrail.service;
+
+import com.lynn.papertrail.config.EmbeddingProperties;
+import com.lynn.papertrail.service.embedding.MappedVectorStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * EmbeddingService 单元测试
+ */
+@DisplayName("向量计算服务测试")
+class EmbeddingServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddingModel embeddingModel;
+    private EmbeddingService embeddingService;
+
+    @BeforeEach
+    void setUp() {
+        embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            return texts.stream().map(text -> new float[]{text.length(), 1f}).toList();
+        });
+        EmbeddingProperties properties = new EmbeddingProperties();
+        properties.setLingerMillis(1);
+        embeddingService = new EmbeddingService(embeddingModel, properties,
+                new MappedVectorStore(tempDir.resolve("vectors.bin"), 16));
+    }
+
+    @AfterEach
+    void tearDown() {
+        embeddingService.shutdown();
+    }
+
+    @Test
+    @DisplayName("计算结果按论文ID持久化，相同内容不再调用模型")
+    void testEmbedPaperIsStored() throws Exception {
+        float[] vector = embeddingService.embedPaper("p1", "abc").get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new float[]{3f, 1f}, vector);
+
+        assertArrayEquals(vector, embeddingService.embedPaper("p1", "abc").get(5, TimeUnit.SECONDS));
+        assertArrayEquals(vector, embeddingService.embedPaper("p2", "abc").get(5, TimeUnit.SECONDS));
+        verify(embeddingModel, times(1)).embed(anyList());
+    }
+
+    @Test
+    @DisplayName("关闭后提交的请求立即失败，不会永远等待")
+    void testSubmitAfterShutdownFails() {
+        embeddingService.shutdown();
+
+        CompletableFuture<float[]> future = embeddingService.embed("after shutdown");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        verify(embeddingModel, never()).embed(anyList());
+    }
+}
@@ -0,0 +1,119 @@
+package com.lynn.papertrail.service.cache;
+
+import com.lynn.papertrail.config.UserCacheProperties;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserCache 单元测试
+ */
+@DisplayName("用户缓存测试")
+class UserCacheTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private UserMapper userMapper;
+    private UserCacheProperties properties;
+    private InProcessCacheInvalidationChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        properties = new UserCacheProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        properties.setNegativeTtl(Duration.ofSeconds(30));
+        channel = new InProcessCacheInvalidationChannel();
+    }
+
+    @Test
+    @DisplayName("按ID、用户名和邮箱查询共享同一个缓存条目，且不含密码")
+    void testReadThroughWithSecondaryIndexes() {
+        when(userMapper.selectProfileByUsername("Alice")).thenReturn(user(1L, "Alice", "alice@example.com", "hash"));
+        UserCache cache = new UserCache(userMapper, properties, channel, clock::get);
+
+        User byUsername = cache.getByUsername("Alice");
+        User byId = cache.getById(1L);
+        User byEmail = cache.getByEmail("ALICE@example.com");
+        User byLowerCase = cache.getByUsername("alice");
+
+        assertNull(byUsername.getPassword());
+        assertEquals("Alice", byId.getUsername());
+        assertEquals(1L, byEmail.getId());
+        assertEquals(1L, byLowerCase.getId());
+        verify(userMapper, times(1)).selectProfileByUsername(any());
+        verifyNoMoreInteractions(userMapper);
+    }
+
+    @Test
+    @DisplayName("返回副本，调用方修改不影响缓存")
+    void testReturnsCopies() {
+        when(userMapper.selectProfileById(1L)).thenReturn(user(1L, "alice", null, null));
+        UserCache cache = new UserCache(userMapper, properties, channel, clock::get);
+
+        cache.getById(1L).setNickname("changed");
+
+        assertEquals("alice", cache.getById(1L).getNickname());
+    }
+
+    @Test
+    @DisplayName("不存在的用户名在负缓存时间内不再查询数据库，注册后立即可见")
+    void testNegativeCache() {
+        UserCache cache = new UserCache(userMapper, properties, channel, clock::get);
+
+        assertNull(cache.getByUsername("bob"));
+        assertNull(cache.getByUsername("bob"));
+        verify(userMapper, times(1)).selectProfileByUsername("bob");
+
+        when(userMapper.selectProfileByUsername("bob")).thenReturn(user(2L, "bob", null, null));
+        cache.invalidate(2L, "bob", null);
+
+        assertEquals(2L, cache.getByUsername("bob").getId());
+    }
+
+    @Test
+    @DisplayName("负缓存过期后重新查询数据库")
+    void testNegativeCacheExpiry() {
+        UserCache cache = new UserCache(userMapper, properties, channel, clock::get);
+
+        cache.getByUsername("carol");
+        clock.addAndGet(Duration.ofSeconds(31).toMillis());
+        cache.getByUsername("carol");
+
+        verify(userMapper, times(2)).selectProfileByUsername("carol");
+    }
+
+    @Test
+    @DisplayName("一个节点的失效通过通道清除其他节点的缓存")
+    void testCrossNodeInvalidation() {
+        when(userMapper.selectProfileById(1L))
+                .thenReturn(user(1L, "alice", null, null))
+                .thenReturn(user(1L, "alice-renamed", null, null));
+        UserCache nodeA = new UserCache(userMapper, properties, channel, clock::get);
+        UserCache nodeB = new UserCache(userMapper, properties, channel, clock::get);
+
+        assertEquals("alice", nodeB.getById(1L).getUsername());
+        nodeA.invalidate(1L, "alice", null);
+
+        assertEquals("alice-renamed", nodeB.getById(1L).getUsername());
+    }
+
+    private static User user(Long id, String username, String email, String password) {
+        return User.builder()
+                .id(id)
+                .username(username)
+                .nickname(username)
+                .email(email)
+                .password(password)
+                .status(1)
+                .role("USER")
+                .build();
+    }
+}
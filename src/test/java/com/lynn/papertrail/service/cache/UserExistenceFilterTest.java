@@ -0,0 +1,97 @@
+package com.lynn.papertrail.service.cache;
+
+import com.lynn.papertrail.config.UserExistenceFilterProperties;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserExistenceFilter 单元测试
+ */
+@DisplayName("用户名/邮箱存在性过滤器测试")
+class UserExistenceFilterTest {
+
+    private UserMapper userMapper;
+    private UserExistenceFilterProperties properties;
+    private InProcessCacheInvalidationChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        properties = new UserExistenceFilterProperties();
+        properties.setExpectedInsertions(1_000);
+        properties.setWarmupPageSize(2);
+        channel = new InProcessCacheInvalidationChannel();
+    }
+
+    @Test
+    @DisplayName("预热完成前所有判定都视为可能存在")
+    void testNotReadyMightContainEverything() {
+        UserExistenceFilter filter = new UserExistenceFilter(userMapper, properties, channel);
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContainUsername("anyone"));
+        assertTrue(filter.mightContainEmail("anyone@example.com"));
+    }
+
+    @Test
+    @DisplayName("按主键分页预热，已有用户名和邮箱不区分大小写命中")
+    void testWarmUpPages() {
+        when(userMapper.selectIdentityPage(0L, 2)).thenReturn(List.of(
+                user(1L, "Alice", "alice@example.com"), user(2L, "bob", null)));
+        when(userMapper.selectIdentityPage(2L, 2)).thenReturn(List.of(user(5L, "carol", "Carol@Example.com")));
+        UserExistenceFilter filter = new UserExistenceFilter(userMapper, properties, channel);
+
+        filter.warmUp();
+
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightContainUsername("alice"));
+        assertTrue(filter.mightContainUsername("BOB"));
+        assertTrue(filter.mightContainEmail("carol@example.com"));
+        assertFalse(filter.mightContainUsername("dave"));
+        verify(userMapper, times(2)).selectIdentityPage(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("其他节点发布的失效消息写入过滤器，避免误判为一定可用")
+    void testRecordsRemoteRegistrations() {
+        when(userMapper.selectIdentityPage(anyLong(), anyInt())).thenReturn(List.of());
+        UserExistenceFilter filter = new UserExistenceFilter(userMapper, properties, channel);
+        filter.warmUp();
+        assertFalse(filter.mightContainUsername("remote"));
+
+        channel.publish(new UserCacheInvalidation("other-node", 9L, "Remote", "remote@example.com"));
+
+        assertTrue(filter.mightContainUsername("remote"));
+        assertTrue(filter.mightContainEmail("REMOTE@example.com"));
+    }
+
+    @Test
+    @DisplayName("预热失败或关闭时不做判定，由调用方查询数据库")
+    void testWarmUpFailureAndDisabled() {
+        when(userMapper.selectIdentityPage(anyLong(), anyInt())).thenThrow(new IllegalStateException("db down"));
+        UserExistenceFilter failed = new UserExistenceFilter(userMapper, properties, channel);
+        failed.warmUp();
+        assertFalse(failed.isReady());
+        assertTrue(failed.mightContainUsername("dave"));
+
+        reset(userMapper);
+        when(userMapper.selectIdentityPage(anyLong(), anyInt())).thenReturn(List.of());
+        properties.setEnabled(false);
+        UserExistenceFilter disabled = new UserExistenceFilter(userMapper, properties, channel);
+        disabled.warmUp();
+        assertTrue(disabled.mightContainUsername("dave"));
+    }
+
+    private static User user(Long id, String username, String email) {
+        return User.builder().id(id).username(username).email(email).build();
+    }
+}
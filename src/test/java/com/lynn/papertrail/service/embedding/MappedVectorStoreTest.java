@@ -0,0 +1,120 @@
+package com.lynn.papertrail.service.embedding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MappedVectorStore 单元测试
+ */
+@DisplayName("内存映射向量存储测试")
+class MappedVectorStoreTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("扩容后重新打开，所有向量和索引都能恢复")
+    void testGrowAndReopen() {
+        Path file = tempDir.resolve("vectors.bin");
+        try (MappedVectorStore store = new MappedVectorStore(file, 16)) {
+            for (int i = 0; i < 40; i++) {
+                store.put("paper-" + i, i, vector(i));
+            }
+            assertEquals(40, store.size());
+        }
+
+        try (MappedVectorStore reopened = new MappedVectorStore(file, 16)) {
+            assertEquals(40, reopened.size());
+            for (int i = 0; i < 40; i++) {
+                assertArrayEquals(vector(i), reopened.get("paper-" + i, i));
+                assertArrayEquals(vector(i), reopened.getByContentHash(i));
+            }
+            assertNull(reopened.get("paper-1", 99));
+            assertNull(reopened.get("missing", 1));
+            reopened.put("paper-40", 40, vector(40));
+            assertArrayEquals(vector(40), reopened.get("paper-40", 40));
+        }
+    }
+
+    @Test
+    @DisplayName("覆盖已有的键后按新内容命中，旧内容哈希仍可复用，重新打开后以最后写入为准")
+    void testOverwrite() {
+        Path file = tempDir.resolve("vectors.bin");
+        try (MappedVectorStore store = new MappedVectorStore(file, 16)) {
+            store.put("paper", 1, vector(1));
+            store.put("paper", 2, vector(2));
+
+            assertNull(store.get("paper", 1));
+            assertArrayEquals(vector(2), store.get("paper", 2));
+            assertArrayEquals(vector(1), store.getByContentHash(1));
+            assertEquals(1, store.size());
+            assertThrows(IllegalArgumentException.class, () -> store.put("other", 3, new float[DIMENSIONS + 1]));
+        }
+
+        try (MappedVectorStore reopened = new MappedVectorStore(file, 16)) {
+            assertEquals(1, reopened.size());
+            assertArrayEquals(vector(2), reopened.get("paper", 2));
+            assertNull(reopened.get("paper", 1));
+        }
+    }
+
+    @Test
+    @DisplayName("并发读取时不会读到写了一半的向量")
+    void testConcurrentReadsAreNotTorn() throws Exception {
+        try (MappedVectorStore store = new MappedVectorStore(tempDir.resolve("vectors.bin"), 16)) {
+            store.put("paper", 0, vector(0));
+            AtomicBoolean writing = new AtomicBoolean(true);
+            AtomicReference<float[]> torn = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                Thread reader = new Thread(() -> {
+                    while (writing.get() && torn.get() == null) {
+                        for (long hash = 0; hash < 2_000; hash++) {
+                            float[] read = store.getByContentHash(hash);
+                            if (read != null && !uniform(read)) {
+                                torn.set(read);
+                            }
+                        }
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+            for (int i = 1; i < 2_000; i++) {
+                store.put("paper", i, vector(i));
+            }
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertNull(torn.get());
+        }
+    }
+
+    private static float[] vector(int value) {
+        float[] vector = new float[DIMENSIONS];
+        Arrays.fill(vector, value);
+        return vector;
+    }
+
+    private static boolean uniform(float[] vector) {
+        for (float value : vector) {
+            if (value != vector[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,112 @@
+package com.lynn.papertrail.service.impl;
+
+import com.lynn.papertrail.dto.UserRegisterRequest;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import com.lynn.papertrail.service.cache.UserCache;
+import com.lynn.papertrail.service.cache.UserExistenceFilter;
+import com.lynn.papertrail.service.password.PasswordHashingService;
+import com.lynn.papertrail.service.token.AccessTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserServiceImpl 单元测试
+ */
+@DisplayName("用户服务测试")
+class UserServiceImplTest {
+
+    private UserMapper userMapper;
+    private UserCache userCache;
+    private UserExistenceFilter userExistenceFilter;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        userCache = mock(UserCache.class);
+        userExistenceFilter = mock(UserExistenceFilter.class);
+        PasswordHashingService passwordHashingService = mock(PasswordHashingService.class);
+        when(passwordHashingService.encode(anyString())).thenReturn("hash");
+        userService = new UserServiceImpl(userMapper, passwordHashingService, mock(AccessTokenService.class),
+                userCache, userExistenceFilter);
+    }
+
+    @Test
+    @DisplayName("唯一索引冲突按索引名区分用户名和邮箱，不受冲突值内容影响")
+    void testRegisterDuplicateKeyMapping() {
+        UserRegisterRequest request = request("myemail", "someone@example.com");
+
+        doThrow(duplicate("Duplicate entry 'myemail' for key 'user.uk_username'"))
+                .when(userMapper).insert(any(User.class));
+        RuntimeException usernameTaken = assertThrows(RuntimeException.class, () -> userService.register(request));
+        assertEquals("用户名已存在", usernameTaken.getMessage());
+
+        doThrow(duplicate("Duplicate entry 'someone@example.com' for key 'uk_email'"))
+                .when(userMapper).insert(any(User.class));
+        RuntimeException emailTaken = assertThrows(RuntimeException.class, () -> userService.register(request));
+        assertEquals("邮箱已被注册", emailTaken.getMessage());
+
+        verify(userExistenceFilter, never()).record(any(), any());
+        verify(userCache, never()).invalidate(any(User.class));
+    }
+
+    @Test
+    @DisplayName("索引名解析只认 uk_email")
+    void testIsEmailConflict() {
+        assertTrue(UserServiceImpl.isEmailConflict(duplicate("Duplicate entry 'a@b.c' for key 'user.uk_email'")));
+        assertTrue(UserServiceImpl.isEmailConflict(duplicate("Duplicate entry 'a@b.c' for key 'uk_email'")));
+        assertFalse(UserServiceImpl.isEmailConflict(duplicate("Duplicate entry 'email' for key 'user.uk_username'")));
+        assertFalse(UserServiceImpl.isEmailConflict(duplicate("Duplicate entry 'x' for key 'uk_email_backup'")));
+        assertFalse(UserServiceImpl.isEmailConflict(duplicate("email conflict")));
+    }
+
+    @Test
+    @DisplayName("注册成功后写入过滤器并清除负缓存")
+    void testRegisterRecordsNewUser() {
+        User user = userService.register(request("alice", "alice@example.com"));
+
+        assertEquals("hash", user.getPassword());
+        verify(userExistenceFilter).record("alice", "alice@example.com");
+        verify(userCache).invalidate(user);
+        // 过滤器判定一定不存在，跳过缓存预查询
+        verify(userCache, never()).getByUsername(any());
+    }
+
+    @Test
+    @DisplayName("过滤器判定不存在时直接可用，可能存在时经缓存精确查询")
+    void testCheckAvailability() {
+        when(userExistenceFilter.mightContainUsername("alice")).thenReturn(true);
+        when(userCache.getByUsername("alice")).thenReturn(User.builder().id(1L).username("alice").build());
+        when(userExistenceFilter.mightContainEmail("new@example.com")).thenReturn(true);
+        when(userCache.getByEmail("new@example.com")).thenReturn(null);
+
+        Map<String, Boolean> taken = userService.checkAvailability("alice", "new@example.com");
+        assertEquals(Map.of("username", false, "email", true), taken);
+
+        Map<String, Boolean> fresh = userService.checkAvailability("bob", null);
+        assertEquals(Map.of("username", true), fresh);
+        verify(userCache, never()).getByUsername("bob");
+    }
+
+    private static UserRegisterRequest request(String username, String email) {
+        UserRegisterRequest request = new UserRegisterRequest();
+        request.setUsername(username);
+        request.setPassword("secret");
+        request.setEmail(email);
+        return request;
+    }
+
+    private static DuplicateKeyException duplicate(String message) {
+        return new DuplicateKeyException("insert user failed", new SQLIntegrityConstraintViolationException(message));
+    }
+}
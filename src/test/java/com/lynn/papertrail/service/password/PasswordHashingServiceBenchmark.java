@@ -0,0 +1,64 @@
+package com.lynn.papertrail.service.password;
+
+import com.lynn.papertrail.config.PasswordHashingProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录密码校验基准测试
+ * <p>
+ * 以 32 个并发线程模拟登录高峰，在不同 BCrypt 强度下测量经过哈希线程池的校验吞吐和延迟分布；
+ * SampleTime 模式的输出包含 p0.99 等分位数。队列长度足够大，测量的是排队后的真实延迟而非拒绝。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(32)
+public class PasswordHashingServiceBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"8", "10", "12"})
+    public int strength;
+
+    private PasswordHashingService service;
+    private String encodedPassword;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setBcryptStrength(strength);
+        properties.setQueueCapacity(1024);
+        properties.setTimeout(Duration.ofMinutes(1));
+        service = new PasswordHashingService(new BCryptPasswordEncoder(strength), properties);
+        encodedPassword = service.encode(PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public boolean login() {
+        return service.matches(PASSWORD, encodedPassword);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PasswordHashingServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,140 @@
+package com.lynn.papertrail.service.password;
+
+import com.lynn.papertrail.config.PasswordHashingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PasswordHashingService 单元测试
+ */
+@DisplayName("密码哈希线程池测试")
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("线程和队列占满后立即拒绝新请求")
+    void testFastRejectionWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "encoded";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        service = new PasswordHashingService(blockingEncoder, properties);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> service.encode("a"));
+            callers.submit(() -> service.encode("b"));
+            // 等待两个请求分别占用线程和队列
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while ((int) service.getStatistics().get("queued") < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            long start = System.nanoTime();
+            assertThrows(PasswordHashingBusyException.class, () -> service.encode("c"));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100), "拒绝应立即返回");
+            assertEquals(1L, service.getStatistics().get("rejected"));
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("批量哈希最多占用一半线程，导入期间登录请求不被拒绝")
+    void testEncodeAllLeavesThreadsForLogin() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "encoded-" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(2);
+        properties.setQueueCapacity(1);
+        service = new PasswordHashingService(blockingEncoder, properties);
+
+        ExecutorService importer = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<String>> imported = importer.submit(() -> service.encodeAll(List.of("a", "b", "c")));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while ((int) service.getStatistics().get("activeThreads") < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+
+            assertEquals(1, service.getStatistics().get("activeThreads"));
+            assertEquals(0, service.getStatistics().get("queued"));
+            assertTrue(service.matches("secret", "hash"));
+
+            release.countDown();
+            assertEquals(List.of("encoded-a", "encoded-b", "encoded-c"), imported.get(2, TimeUnit.SECONDS));
+            assertEquals(0L, service.getStatistics().get("rejected"));
+        } finally {
+            release.countDown();
+            importer.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("强度低于当前配置的哈希需要重新计算")
+    void testNeedsRehash() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        service = new PasswordHashingService(new BCryptPasswordEncoder(6), properties);
+
+        String weak = new BCryptPasswordEncoder(4).encode("secret");
+        String current = service.encode("secret");
+
+        assertTrue(service.matches("secret", weak));
+        assertTrue(service.needsRehash(weak));
+        assertFalse(service.needsRehash(current));
+        assertFalse(service.matches("secret", null));
+    }
+}
@@ -0,0 +1,47 @@
+package com.lynn.papertrail.service.payment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AlipayBizContent 单元测试
+ */
+@DisplayName("支付宝业务参数测试")
+class AlipayBizContentTest {
+
+    @Test
+    @DisplayName("下单参数按字段顺序输出，金额不使用科学计数法，空描述不输出")
+    void testPagePay() {
+        String json = AlipayBizContent.toJson(AlipayBizContent.PagePay.of(
+                "ORDER_1", new BigDecimal("1E+1"), "会员", null, LocalDateTime.of(2026, 10, 19, 12, 30, 5)));
+        String timeExpire = AlipayBizContent.formatTimeExpire(LocalDateTime.of(2026, 10, 19, 12, 30, 5),
+                ZoneId.systemDefault());
+        assertEquals("{\"out_trade_no\":\"ORDER_1\",\"total_amount\":\"10\",\"subject\":\"会员\","
+                + "\"product_code\":\"FAST_INSTANT_TRADE_PAY\",\"time_expire\":\"" + timeExpire + "\"}", json);
+    }
+
+    @Test
+    @DisplayName("time_expire 为北京时间的绝对时间")
+    void testTimeExpire() {
+        LocalDateTime expireTime = LocalDateTime.of(2026, 10, 19, 23, 59, 30);
+        assertEquals("2026-10-19 23:59:30", AlipayBizContent.formatTimeExpire(expireTime, AlipayBizContent.ALIPAY_ZONE));
+        assertEquals("2026-10-20 07:59:30", AlipayBizContent.formatTimeExpire(expireTime, ZoneId.of("UTC")));
+    }
+
+    @Test
+    @DisplayName("标题中的引号和换行被转义")
+    void testEscaping() {
+        String json = AlipayBizContent.toJson(AlipayBizContent.PagePay.of(
+                "ORDER_1", new BigDecimal("9.90"), "a\"b\nc", "d", LocalDateTime.now()));
+        assertTrue(json.contains("\"subject\":\"a\\\"b\\nc\""));
+        assertTrue(json.contains("\"total_amount\":\"9.90\""));
+        assertEquals("{\"out_trade_no\":\"ORDER_2\"}",
+                AlipayBizContent.toJson(new AlipayBizContent.TradeQuery("ORDER_2")));
+    }
+}
@@ -0,0 +1,129 @@
+package com.lynn.papertrail.service.payment;
+
+import com.alipay.api.internal.util.AlipaySignature;
+import com.lynn.papertrail.config.AlipayConfig;
+import com.lynn.papertrail.config.PaymentNotifyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AlipayNotifyVerifier 单元测试
+ */
+@DisplayName("支付宝通知验签测试")
+class AlipayNotifyVerifierTest {
+
+    private KeyPair keyPair;
+    private PaymentNotifyProperties properties;
+    private AlipayNotifyVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = generateKeyPair();
+        AlipayConfig alipayConfig = new AlipayConfig();
+        alipayConfig.setPublicKey(encode(keyPair));
+        properties = new PaymentNotifyProperties();
+        verifier = new AlipayNotifyVerifier(alipayConfig, properties);
+    }
+
+    @Test
+    @DisplayName("RSA2 和 RSA 签名都能通过，结果与支付宝 SDK 一致")
+    void testVerifyMatchesSdk() throws Exception {
+        for (String signType : new String[]{"RSA2", "RSA"}) {
+            Map<String, String> params = notifyParams();
+            params.put("sign_type", signType);
+            params.put("sign", sign(keyPair, signType, params));
+
+            assertTrue(verifier.verify(params));
+            assertTrue(AlipaySignature.rsaCheckV1(new HashMap<>(params), encode(keyPair), "UTF-8", signType));
+            assertEquals(AlipaySignature.getSignCheckContentV1(new HashMap<>(params)),
+                    AlipayNotifyVerifier.signContent(params));
+        }
+    }
+
+    @Test
+    @DisplayName("参数被篡改、缺少签名或签名类型未知时验签失败")
+    void testRejectsInvalid() throws Exception {
+        Map<String, String> params = notifyParams();
+        params.put("sign_type", "RSA2");
+        params.put("sign", sign(keyPair, "RSA2", params));
+
+        params.put("total_amount", "0.01");
+        assertFalse(verifier.verify(params));
+
+        params.remove("sign");
+        assertFalse(verifier.verify(params));
+
+        params.put("sign", "not base64!");
+        params.put("sign_type", "SM2");
+        assertFalse(verifier.verify(params));
+
+        Map<String, Object> statistics = verifier.getStatistics();
+        assertEquals(0L, statistics.get("verified"));
+        assertEquals(3L, statistics.get("rejected"));
+    }
+
+    @Test
+    @DisplayName("更换公钥后旧公钥只在过渡期内有效")
+    void testRotate() throws Exception {
+        KeyPair next = generateKeyPair();
+        Map<String, String> oldSigned = notifyParams();
+        oldSigned.put("sign_type", "RSA2");
+        oldSigned.put("sign", sign(keyPair, "RSA2", oldSigned));
+        Map<String, String> newSigned = notifyParams();
+        newSigned.put("sign_type", "RSA2");
+        newSigned.put("sign", sign(next, "RSA2", newSigned));
+
+        assertFalse(verifier.verify(newSigned));
+        verifier.rotate(encode(next));
+        assertTrue(verifier.verify(newSigned));
+        assertTrue(verifier.verify(oldSigned));
+
+        properties.setKeyRotationGrace(Duration.ZERO);
+        verifier.rotate(encode(next));
+        assertFalse(verifier.verify(oldSigned));
+
+        assertThrows(IllegalArgumentException.class, () -> verifier.rotate("invalid"));
+        assertTrue(verifier.verify(newSigned));
+    }
+
+    private static Map<String, String> notifyParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("out_trade_no", "0D4N7K2M5QW81");
+        params.put("trade_no", "2025101922001400001234567890");
+        params.put("trade_status", "TRADE_SUCCESS");
+        params.put("total_amount", "99.00");
+        params.put("subject", "会员 月卡");
+        params.put("notify_id", "2025101900222103000012345678");
+        params.put("gmt_payment", "2025-10-19 10:00:00");
+        return params;
+    }
+
+    private static String sign(KeyPair keyPair, String signType, Map<String, String> params) throws Exception {
+        Signature signature = Signature.getInstance("RSA2".equals(signType) ? "SHA256withRSA" : "SHA1withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(AlipayNotifyVerifier.signContent(params).getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static String encode(KeyPair keyPair) {
+        return Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    }
+}
@@ -0,0 +1,111 @@
+package com.lynn.papertrail.service.payment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OutTradeNoGenerator 单元测试
+ */
+@DisplayName("商户订单号生成测试")
+class OutTradeNoGeneratorTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Test
+    @DisplayName("订单号为 13 位 Base32，可以解出时间和分表号")
+    void testFormat() {
+        OutTradeNoGenerator generator = new OutTradeNoGenerator(3, () -> NOW);
+        String outTradeNo = generator.generate(42);
+
+        assertEquals(OutTradeNoGenerator.ENCODED_LENGTH, outTradeNo.length());
+        assertTrue(outTradeNo.matches("[0-7][0-9A-HJKMNP-TV-Z]{12}"));
+        long id = OutTradeNoGenerator.decode(outTradeNo);
+        assertEquals(outTradeNo, OutTradeNoGenerator.encode(id));
+        assertEquals(NOW, OutTradeNoGenerator.timestampOf(id));
+        assertEquals(42, OutTradeNoGenerator.shardOf(id));
+        assertEquals(-1, OutTradeNoGenerator.decode("ORDER_1700000000000_0000abcd"));
+        assertEquals(-1, OutTradeNoGenerator.decode("8000000000000"));
+        assertEquals(-1, OutTradeNoGenerator.decode("0000000000O00"));
+    }
+
+    @Test
+    @DisplayName("同一毫秒、序号用完和时钟回拨时订单号仍严格递增")
+    void testMonotonic() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OutTradeNoGenerator generator = new OutTradeNoGenerator(0, clock::get);
+        String previous = generator.generate(0);
+        for (int i = 0; i < 5_000; i++) {
+            if (i == 3_000) {
+                clock.addAndGet(-10_000);
+            }
+            String next = generator.generate(i % 2);
+            assertTrue(next.compareTo(previous) > 0, next + " <= " + previous);
+            assertTrue(OutTradeNoGenerator.decode(next) > OutTradeNoGenerator.decode(previous));
+            previous = next;
+        }
+        // 5000 个订单号借用了约 5 毫秒，时钟前进后回到当前时间
+        clock.set(NOW + 1_000);
+        assertEquals(NOW + 1_000, OutTradeNoGenerator.timestampOf(OutTradeNoGenerator.decode(generator.generate(0))));
+    }
+
+    @Test
+    @DisplayName("多线程并发生成不重复")
+    void testConcurrentUnique() throws InterruptedException {
+        OutTradeNoGenerator generator = new OutTradeNoGenerator(1, System::currentTimeMillis);
+        Set<String> generated = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                Set<String> local = new HashSet<>();
+                for (int i = 0; i < 20_000; i++) {
+                    local.add(generator.generate(7));
+                }
+                generated.addAll(local);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(160_000, generated.size());
+    }
+
+    @Test
+    @DisplayName("从已保存的最大订单号推进状态，重启后时钟落后也不会重复")
+    void testSeedFromStoredId() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OutTradeNoGenerator before = new OutTradeNoGenerator(2, clock::get);
+        String stored = null;
+        for (int i = 0; i < 3_000; i++) {
+            stored = before.generate(0);
+        }
+        // 3000 个订单号借用了约 2 毫秒，重启后时钟还回拨了 1 秒
+        clock.set(NOW - 1_000);
+        OutTradeNoGenerator restarted = new OutTradeNoGenerator(2, clock::get);
+        restarted.seed(OutTradeNoGenerator.decode(stored));
+        restarted.seed(-1);
+
+        String next = restarted.generate(0);
+        assertTrue(next.compareTo(stored) > 0, next + " <= " + stored);
+        assertTrue(OutTradeNoGenerator.timestampOf(OutTradeNoGenerator.decode(next)) > NOW);
+    }
+
+    @Test
+    @DisplayName("未配置节点号时单节点部署使用 0，多节点部署启动失败")
+    void testResolveNodeId() {
+        assertEquals(0, OutTradeNoGenerator.resolveNodeId(null, false));
+        assertEquals(7, OutTradeNoGenerator.resolveNodeId(7, true));
+        assertThrows(IllegalStateException.class, () -> OutTradeNoGenerator.resolveNodeId(null, true));
+        assertThrows(IllegalArgumentException.class, () -> new OutTradeNoGenerator(32, () -> NOW));
+    }
+}
@@ -0,0 +1,86 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentNotifyProperties;
+import com.lynn.papertrail.entity.PaymentNotifyEvent;
+import com.lynn.papertrail.mapper.PaymentNotifyEventMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentNotifyProcessor 单元测试
+ */
+@DisplayName("支付通知处理器测试")
+class PaymentNotifyProcessorTest {
+
+    private PaymentNotifyEventMapper notifyEventMapper;
+    private PaymentOrderUpdater paymentOrderUpdater;
+    private PaymentNotifyProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        notifyEventMapper = mock(PaymentNotifyEventMapper.class);
+        paymentOrderUpdater = mock(PaymentOrderUpdater.class);
+        PaymentNotifyProperties properties = new PaymentNotifyProperties();
+        properties.setWorkerThreads(2);
+        properties.setRecoveryBatchSize(2);
+        processor = new PaymentNotifyProcessor(notifyEventMapper, paymentOrderUpdater, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    @DisplayName("应用成功后标记事件已处理，订单不存在或出错时记录失败")
+    void testProcessOutcomes() {
+        when(paymentOrderUpdater.applyNotify(argThat(e -> e != null && e.getId() == 1L))).thenReturn(true);
+        when(paymentOrderUpdater.applyNotify(argThat(e -> e != null && e.getId() == 2L))).thenReturn(false);
+        when(paymentOrderUpdater.applyNotify(argThat(e -> e != null && e.getId() == 3L))).thenThrow(new IllegalStateException("db down"));
+
+        processor.submit(event(1L, "ORDER_A"));
+        processor.submit(event(2L, "ORDER_B"));
+        processor.submit(event(3L, "ORDER_C"));
+
+        verify(notifyEventMapper, timeout(2000)).markApplied(1L);
+        verify(notifyEventMapper, timeout(2000)).markFailed(eq(2L), anyString(), eq(10));
+        verify(notifyEventMapper, timeout(2000)).markFailed(eq(3L), eq("db down"), eq(10));
+    }
+
+    @Test
+    @DisplayName("补偿任务按主键分页读取并重新提交待处理事件")
+    void testRecoveryPaginates() {
+        when(paymentOrderUpdater.applyNotify(any())).thenReturn(true);
+        when(notifyEventMapper.selectPending(any(), eq(0L), eq(2)))
+                .thenReturn(List.of(event(1L, "ORDER_A"), event(2L, "ORDER_B")));
+        when(notifyEventMapper.selectPending(any(), eq(2L), eq(2)))
+                .thenReturn(List.of(event(3L, "ORDER_C")));
+
+        processor.recoverPending();
+
+        verify(notifyEventMapper, timeout(2000)).markApplied(1L);
+        verify(notifyEventMapper, timeout(2000)).markApplied(2L);
+        verify(notifyEventMapper, timeout(2000)).markApplied(3L);
+        verify(notifyEventMapper, never()).selectPending(any(), eq(3L), anyInt());
+    }
+
+    private static PaymentNotifyEvent event(long id, String outTradeNo) {
+        return PaymentNotifyEvent.builder()
+                .id(id)
+                .notifyId("notify-" + id)
+                .tradeNo("trade-" + id)
+                .outTradeNo(outTradeNo)
+                .tradeStatus("TRADE_SUCCESS")
+                .status(PaymentNotifyEvent.STATUS_PENDING)
+                .createTime(LocalDateTime.now())
+                .build();
+    }
+}
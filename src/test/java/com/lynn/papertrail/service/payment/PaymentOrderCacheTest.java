@@ -0,0 +1,105 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentOrderCacheProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentOrderCache 单元测试
+ */
+@DisplayName("支付订单缓存测试")
+class PaymentOrderCacheTest {
+
+    private PaymentOrderMapper paymentOrderMapper;
+    private PaymentOrderCacheProperties properties;
+    private AtomicLong now;
+    private PaymentOrderCache cache;
+
+    @BeforeEach
+    void setUp() {
+        paymentOrderMapper = mock(PaymentOrderMapper.class);
+        properties = new PaymentOrderCacheProperties();
+        now = new AtomicLong(1_000_000);
+        cache = new PaymentOrderCache(paymentOrderMapper, properties, now::get);
+    }
+
+    @Test
+    @DisplayName("等待付款的订单在 pendingTtl 内只查询一次数据库")
+    void testPendingOrderCachedForShortTtl() {
+        when(paymentOrderMapper.selectByOutTradeNo("O1")).thenReturn(order("O1", "WAIT_BUYER_PAY", 0L));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("WAIT_BUYER_PAY", cache.get("O1").getStatus());
+        }
+        verify(paymentOrderMapper, times(1)).selectByOutTradeNo("O1");
+
+        now.addAndGet(properties.getPendingTtl().toMillis());
+        cache.get("O1");
+        verify(paymentOrderMapper, times(2)).selectByOutTradeNo("O1");
+    }
+
+    @Test
+    @DisplayName("返回副本，修改返回值不影响缓存")
+    void testReturnsCopies() {
+        cache.put(order("O1", "WAIT_BUYER_PAY", 0L));
+        cache.get("O1").setStatus("TRADE_SUCCESS");
+        assertEquals("WAIT_BUYER_PAY", cache.get("O1").getStatus());
+        verifyNoInteractions(paymentOrderMapper);
+    }
+
+    @Test
+    @DisplayName("刷新后的新版本不会被旧版本覆盖")
+    void testOlderVersionDoesNotOverwrite() {
+        when(paymentOrderMapper.selectByOutTradeNo("O1")).thenReturn(order("O1", "TRADE_SUCCESS", 1L));
+        cache.refresh("O1");
+
+        cache.put(order("O1", "WAIT_BUYER_PAY", 0L));
+        assertEquals("TRADE_SUCCESS", cache.get("O1").getStatus());
+    }
+
+    @Test
+    @DisplayName("状态转换后唤醒长轮询，取消后释放等待名额")
+    void testAwaitCompletion() {
+        cache.put(order("O1", "WAIT_BUYER_PAY", 0L));
+        CompletableFuture<PaymentOrder> waiting = cache.awaitCompletion("O1");
+        CompletableFuture<PaymentOrder> abandoned = cache.awaitCompletion("O1");
+        assertFalse(waiting.isDone());
+        abandoned.cancel(false);
+        assertEquals(1, cache.getStatistics().get("waiters"));
+
+        when(paymentOrderMapper.selectByOutTradeNo("O1")).thenReturn(order("O1", "TRADE_SUCCESS", 1L));
+        cache.refresh("O1");
+
+        assertTrue(waiting.isDone());
+        assertEquals("TRADE_SUCCESS", waiting.join().getStatus());
+        assertEquals(0, cache.getStatistics().get("waiters"));
+    }
+
+    @Test
+    @DisplayName("只刷新本节点缓存或等待中的订单，其他订单不回表")
+    void testRefreshIfTracked() {
+        cache.refreshIfTracked("O1");
+        verifyNoInteractions(paymentOrderMapper);
+
+        when(paymentOrderMapper.selectByOutTradeNo("O2")).thenReturn(order("O2", "WAIT_BUYER_PAY", 0L));
+        CompletableFuture<PaymentOrder> waiting = cache.awaitCompletion("O2");
+        when(paymentOrderMapper.selectByOutTradeNo("O2")).thenReturn(order("O2", "TRADE_CLOSED", 1L));
+        cache.refreshIfTracked("O2");
+
+        assertEquals("TRADE_CLOSED", waiting.join().getStatus());
+        assertEquals("TRADE_CLOSED", cache.get("O2").getStatus());
+    }
+
+    private static PaymentOrder order(String outTradeNo, String status, Long version) {
+        return PaymentOrder.builder().id(1L).outTradeNo(outTradeNo).status(status).version(version).build();
+    }
+}
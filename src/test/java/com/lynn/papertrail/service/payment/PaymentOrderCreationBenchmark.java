@@ -0,0 +1,95 @@
+package com.lynn.papertrail.service.payment;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建支付订单时订单号和 biz_content 的生成吞吐基准测试
+ * <p>
+ * legacy 为原来的 UUID 截取加 Map 手工拼接 JSON，current 为 {@link OutTradeNoGenerator} 加 {@link AlipayBizContent}。
+ * 去掉的插入后回查是一次数据库往返，不在本基准测试范围内。
+ * 运行方式：执行 main 方法，或 mvn test-compile 后通过 JMH Runner 运行。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(4)
+public class PaymentOrderCreationBenchmark {
+
+    private final BigDecimal amount = new BigDecimal("19.90");
+    private final String subject = "PaperTrail 会员月卡";
+    private final String body = "包含 100 万 token 额度";
+    private final LocalDateTime expireTime = LocalDateTime.now().plusMinutes(30);
+    private final OutTradeNoGenerator generator = new OutTradeNoGenerator(0, System::currentTimeMillis);
+
+    @Benchmark
+    public String legacy() {
+        String outTradeNo = "ORDER_" + System.currentTimeMillis() + "_"
+                + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        Map<String, Object> bizContent = Map.of(
+                "out_trade_no", outTradeNo,
+                "total_amount", amount.toString(),
+                "subject", subject,
+                "body", body,
+                "product_code", "FAST_INSTANT_TRADE_PAY",
+                "time_expire", 30 + "m"
+        );
+        return mapToJson(bizContent);
+    }
+
+    @Benchmark
+    public String current() {
+        String outTradeNo = generator.generate(0);
+        return AlipayBizContent.toJson(AlipayBizContent.PagePay.of(outTradeNo, amount, subject, body, expireTime));
+    }
+
+    @Benchmark
+    public String legacyOutTradeNo() {
+        return "ORDER_" + System.currentTimeMillis() + "_"
+                + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    }
+
+    @Benchmark
+    public String currentOutTradeNo() {
+        return generator.generate(0);
+    }
+
+    private static String mapToJson(Map<String, Object> map) {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (!first) {
+                json.append(",");
+            }
+            json.append("\"").append(entry.getKey()).append("\":");
+            if (entry.getValue() instanceof String) {
+                json.append("\"").append(entry.getValue()).append("\"");
+            } else {
+                json.append(entry.getValue());
+            }
+            first = false;
+        }
+        json.append("}");
+        return json.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PaymentOrderCreationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,71 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentExpiryProperties;
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentOrderExpiryService 单元测试
+ */
+@DisplayName("支付订单过期关闭测试")
+class PaymentOrderExpiryServiceTest {
+
+    private PaymentOrderMapper paymentOrderMapper;
+    private PaymentOrderUpdater paymentOrderUpdater;
+    private PaymentOrderExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        paymentOrderMapper = mock(PaymentOrderMapper.class);
+        paymentOrderUpdater = mock(PaymentOrderUpdater.class);
+        PaymentExpiryProperties properties = new PaymentExpiryProperties();
+        properties.setSweepPageSize(3);
+        properties.setCloseBatchSize(2);
+        properties.setMaxTracked(2);
+        expiryService = new PaymentOrderExpiryService(paymentOrderMapper, paymentOrderUpdater, properties,
+                new PaymentOrderShards(new PaymentStorageProperties()));
+    }
+
+    @Test
+    @DisplayName("扫描按上一页最后一行继续分页，并按批关闭")
+    void testSweepPagesByKeyset() {
+        LocalDateTime t1 = LocalDateTime.of(2025, 1, 1, 10, 0);
+        LocalDateTime t2 = t1.plusMinutes(1);
+        when(paymentOrderMapper.selectByStatusExpiringBefore(eq("WAIT_BUYER_PAY"), any(), isNull(), eq(0L), eq(3)))
+                .thenReturn(List.of(order(1L, t1), order(2L, t1), order(5L, t2)));
+        when(paymentOrderMapper.selectByStatusExpiringBefore(eq("WAIT_BUYER_PAY"), any(), eq(t2), eq(5L), eq(3)))
+                .thenReturn(List.of(order(3L, t2)));
+        when(paymentOrderUpdater.closeExpired(anyList(), any())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        assertEquals(4, expiryService.sweep());
+        verify(paymentOrderUpdater).closeExpired(eq(List.of(1L, 2L)), any());
+        verify(paymentOrderUpdater).closeExpired(eq(List.of(5L)), any());
+        verify(paymentOrderUpdater).closeExpired(eq(List.of(3L)), any());
+    }
+
+    @Test
+    @DisplayName("只跟踪 horizon 以内到期的订单，且不超过跟踪上限")
+    void testTrackLimits() {
+        LocalDateTime now = LocalDateTime.now();
+        assertFalse(expiryService.track(1L, now.plusHours(2)));
+        assertTrue(expiryService.track(2L, now.plusMinutes(5)));
+        assertTrue(expiryService.track(3L, now.minusMinutes(5)));
+        assertFalse(expiryService.track(4L, now.plusMinutes(5)));
+        assertEquals(2, expiryService.trackedCount());
+    }
+
+    private static PaymentOrder order(Long id, LocalDateTime expireTime) {
+        return PaymentOrder.builder().id(id).expireTime(expireTime).build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PaymentOrderShards 与 PaymentOrderShardInterceptor 单元测试
+ */
+@DisplayName("支付订单分表路由测试")
+class PaymentOrderShardsTest {
+
+    private PaymentOrderShards shards;
+
+    @BeforeEach
+    void setUp() {
+        PaymentStorageProperties properties = new PaymentStorageProperties();
+        properties.setShardCount(4);
+        shards = new PaymentOrderShards(properties);
+    }
+
+    @Test
+    @DisplayName("订单号中的分表号可以解析，旧订单号属于 0 号分表")
+    void testShardOfOutTradeNo() {
+        OutTradeNoGenerator generator = new OutTradeNoGenerator(5, System::currentTimeMillis);
+        for (long userId = 1; userId <= 8; userId++) {
+            assertEquals(userId % 4, shards.shardOf(generator.generate(shards.shardFor(userId))));
+        }
+        assertEquals(0, shards.shardOf("ORDER_1700000000000_0000abcd"));
+        assertEquals(0, shards.shardOf("ORDER03_1700000000000_0000abcd"));
+        assertEquals(0, shards.shardOf("2025101922001400001234567890"));
+        assertEquals(0, shards.shardOf(null));
+    }
+
+    @Test
+    @DisplayName("主键按区间对应分表")
+    void testShardOfId() {
+        assertEquals(0, shards.shardOfId(42));
+        assertEquals(1, shards.shardOfId(PaymentOrderShards.ID_SPAN + 42));
+        assertEquals(3, shards.shardOfId(3 * PaymentOrderShards.ID_SPAN));
+        assertEquals("payment_order", PaymentOrderShards.tableName(0));
+        assertEquals("payment_order_03", PaymentOrderShards.tableName(3));
+    }
+
+    @Test
+    @DisplayName("只改写订单表名，不影响归档表和发件箱表")
+    void testRewrite() {
+        String sql = "INSERT IGNORE INTO payment_order_archive (id) SELECT id FROM payment_order WHERE id IN (?)";
+        assertEquals("INSERT IGNORE INTO payment_order_archive (id) SELECT id FROM payment_order_02 WHERE id IN (?)",
+                PaymentOrderShardInterceptor.rewrite(sql, 2));
+        assertEquals("UPDATE `payment_order_01` SET status = ?",
+                PaymentOrderShardInterceptor.rewrite("UPDATE `payment_order` SET status = ?", 1));
+    }
+
+    @Test
+    @DisplayName("指定分表在执行结束后还原")
+    void testRunOnRestores() {
+        assertNull(PaymentOrderShards.routed());
+        int inner = PaymentOrderShards.callOn(1, () -> PaymentOrderShards.callOn(2, PaymentOrderShards::routed));
+        assertEquals(2, inner);
+        PaymentOrderShards.runOn(3, () -> assertEquals(3, PaymentOrderShards.routed()));
+        assertNull(PaymentOrderShards.routed());
+    }
+}
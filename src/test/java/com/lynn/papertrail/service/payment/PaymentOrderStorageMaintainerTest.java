@@ -0,0 +1,111 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.mapper.PaymentOrderArchiveMapper;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentOrderStorageMaintainer 单元测试
+ */
+@DisplayName("支付订单存储维护测试")
+class PaymentOrderStorageMaintainerTest {
+
+    private static final LocalDateTime EXPIRED = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private PaymentOrderMapper paymentOrderMapper;
+    private PaymentOrderArchiveMapper archiveMapper;
+    private SqlSession session;
+    private PaymentStorageProperties properties;
+    private PaymentOrderStorageMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        paymentOrderMapper = mock(PaymentOrderMapper.class);
+        archiveMapper = mock(PaymentOrderArchiveMapper.class);
+        session = mock(SqlSession.class);
+        SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+        when(sqlSessionFactory.openSession(false)).thenReturn(session);
+        when(session.getMapper(PaymentOrderArchiveMapper.class)).thenReturn(archiveMapper);
+        properties = new PaymentStorageProperties();
+        properties.setShardCount(2);
+        properties.setArchiveEnabled(true);
+        properties.setArchiveBatchSize(2);
+        maintainer = new PaymentOrderStorageMaintainer(paymentOrderMapper, sqlSessionFactory,
+                new PaymentOrderShards(properties), properties);
+    }
+
+    @Test
+    @DisplayName("按键集分页逐批归档，复制数与删除数不一致的批次回滚")
+    void testArchiveShardPagesAndRollsBack() {
+        List<Integer> routedShards = new ArrayList<>();
+        when(paymentOrderMapper.selectByStatusExpiringBefore(eq("TRADE_CLOSED"), any(), any(), anyLong(), eq(2)))
+                .thenAnswer(invocation -> {
+                    routedShards.add(PaymentOrderShards.routed());
+                    if (PaymentOrderShards.routed() != 0) {
+                        return List.of();
+                    }
+                    Long afterId = invocation.getArgument(3);
+                    return afterId == 0 ? List.of(order(1L), order(2L)) : List.of(order(3L));
+                });
+        when(archiveMapper.insertFromOrders(List.of(1L, 2L), "TRADE_CLOSED")).thenReturn(2);
+        when(archiveMapper.deleteOrders(List.of(1L, 2L), "TRADE_CLOSED")).thenReturn(2);
+        // 第二批复制后有订单被重新打开，删除数变少
+        when(archiveMapper.insertFromOrders(List.of(3L), "TRADE_CLOSED")).thenReturn(1);
+        when(archiveMapper.deleteOrders(List.of(3L), "TRADE_CLOSED")).thenReturn(0);
+
+        assertEquals(2, maintainer.archiveClosed());
+
+        // 每个分表的第一页都从头开始
+        verify(paymentOrderMapper, times(2)).selectByStatusExpiringBefore(eq("TRADE_CLOSED"), any(), isNull(), eq(0L), eq(2));
+        verify(paymentOrderMapper).selectByStatusExpiringBefore(eq("TRADE_CLOSED"), any(), eq(EXPIRED.plusMinutes(2)), eq(2L), eq(2));
+        verify(session, times(1)).commit();
+        verify(session, times(1)).rollback();
+        assertEquals(List.of(0, 0, 1), routedShards);
+        assertNull(PaymentOrderShards.routed());
+    }
+
+    @Test
+    @DisplayName("某个分表归档失败不影响其他分表")
+    void testShardFailureIsolated() {
+        when(paymentOrderMapper.selectByStatusExpiringBefore(any(), any(), any(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> {
+                    if (PaymentOrderShards.routed() == 0) {
+                        throw new IllegalStateException("db down");
+                    }
+                    return List.of(order(PaymentOrderShards.ID_SPAN + 1));
+                });
+        when(archiveMapper.insertFromOrders(anyCollection(), any())).thenReturn(1);
+        when(archiveMapper.deleteOrders(anyCollection(), any())).thenReturn(1);
+
+        assertEquals(1, maintainer.archiveClosed());
+        verify(archiveMapper).deleteOrders(List.of(PaymentOrderShards.ID_SPAN + 1), "TRADE_CLOSED");
+        verify(session).commit();
+    }
+
+    @Test
+    @DisplayName("未启用归档时不查询")
+    void testArchiveDisabled() {
+        properties.setArchiveEnabled(false);
+        assertEquals(0, maintainer.archiveClosed());
+        verifyNoInteractions(paymentOrderMapper, session);
+    }
+
+    private static PaymentOrder order(long id) {
+        return PaymentOrder.builder().id(id).status("TRADE_CLOSED")
+                .expireTime(EXPIRED.plusMinutes(id % PaymentOrderShards.ID_SPAN)).build();
+    }
+}
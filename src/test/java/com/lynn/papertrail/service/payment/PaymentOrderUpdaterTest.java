@@ -0,0 +1,182 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import com.lynn.papertrail.entity.PaymentNotifyEvent;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.mapper.PaymentOutboxMapper;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentOrderUpdater 单元测试
+ */
+@DisplayName("支付订单状态更新测试")
+class PaymentOrderUpdaterTest {
+
+    private PaymentOrderMapper paymentOrderMapper;
+    private PaymentOutboxMapper outboxMapper;
+    private SqlSession session;
+    private PaymentOutboxRelay relay;
+    private PaymentOrderCache cache;
+    private PaymentOrderUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        paymentOrderMapper = mock(PaymentOrderMapper.class);
+        outboxMapper = mock(PaymentOutboxMapper.class);
+        session = mock(SqlSession.class);
+        relay = mock(PaymentOutboxRelay.class);
+        cache = mock(PaymentOrderCache.class);
+        SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+        when(sqlSessionFactory.openSession(false)).thenReturn(session);
+        when(session.getMapper(PaymentOrderMapper.class)).thenReturn(paymentOrderMapper);
+        when(session.getMapper(PaymentOutboxMapper.class)).thenReturn(outboxMapper);
+        updater = new PaymentOrderUpdater(paymentOrderMapper, sqlSessionFactory, cache, relay,
+                new PaymentOrderShards(new PaymentStorageProperties()));
+    }
+
+    @Test
+    @DisplayName("条件更新命中时不查询订单")
+    void testAppliedWithoutSelect() {
+        when(paymentOrderMapper.transitionStatus(eq("ORDER_1"), eq("TRADE_SUCCESS"), any(),
+                eq("T1"), eq("B1"), eq("L1"), any())).thenReturn(1);
+
+        PaymentOrderUpdater.TransitionResult result =
+                updater.transition("ORDER_1", PaymentOrderStatus.TRADE_SUCCESS, "T1", "B1", "L1");
+
+        assertEquals(PaymentOrderUpdater.TransitionResult.APPLIED, result);
+        verify(paymentOrderMapper).transitionStatus(eq("ORDER_1"), eq("TRADE_SUCCESS"),
+                eq(List.of("WAIT_BUYER_PAY", "TRADE_CLOSED")), eq("T1"), eq("B1"), eq("L1"), notNull());
+        verify(paymentOrderMapper, never()).selectStatusByOutTradeNo(any());
+        verify(paymentOrderMapper, never()).selectByOutTradeNo(any());
+
+        // 事件与订单更新在同一事务中写入，提交后通知转发线程
+        InOrder inOrder = inOrder(paymentOrderMapper, outboxMapper, session, relay);
+        inOrder.verify(paymentOrderMapper).transitionStatus(any(), any(), any(), any(), any(), any(), any());
+        inOrder.verify(outboxMapper).insertFromOrder("ORDER_PAID", "ORDER_1", "TRADE_SUCCESS");
+        inOrder.verify(session).commit();
+        inOrder.verify(relay).signal();
+    }
+
+    @Test
+    @DisplayName("条件更新未命中时区分订单不存在和状态不变")
+    void testMissedUpdate() {
+        when(paymentOrderMapper.transitionStatus(any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(paymentOrderMapper.selectStatusByOutTradeNo("PAID")).thenReturn("TRADE_SUCCESS");
+
+        assertEquals(PaymentOrderUpdater.TransitionResult.UNCHANGED,
+                updater.transition("PAID", PaymentOrderStatus.TRADE_CLOSED, null, null, null));
+        assertEquals(PaymentOrderUpdater.TransitionResult.NOT_FOUND,
+                updater.transition("MISSING", PaymentOrderStatus.TRADE_SUCCESS, "T1", null, null));
+        verifyNoInteractions(outboxMapper, relay);
+    }
+
+    @Test
+    @DisplayName("通知中的交易状态按映射转换，未知状态不更新订单")
+    void testApplyNotify() {
+        when(paymentOrderMapper.transitionStatus(any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        PaymentNotifyEvent finished = PaymentNotifyEvent.builder()
+                .outTradeNo("ORDER_1").tradeNo("T1").tradeStatus("TRADE_FINISHED").build();
+        assertTrue(updater.applyNotify(finished));
+        verify(paymentOrderMapper).transitionStatus(eq("ORDER_1"), eq("TRADE_SUCCESS"), any(),
+                eq("T1"), any(), any(), notNull());
+
+        PaymentNotifyEvent unknown = PaymentNotifyEvent.builder()
+                .outTradeNo("ORDER_2").tradeStatus("SOMETHING_ELSE").build();
+        assertTrue(updater.applyNotify(unknown));
+        verify(paymentOrderMapper, times(1)).transitionStatus(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("批量关闭过期订单提交后刷新已关闭订单的缓存，唤醒长轮询")
+    void testCloseExpiredRefreshesCache() {
+        when(paymentOrderMapper.closeExpired(eq(List.of(1L, 2L)), eq("WAIT_BUYER_PAY"), eq("TRADE_CLOSED"), any()))
+                .thenReturn(1);
+        when(paymentOrderMapper.selectOutTradeNosByIds(List.of(1L, 2L), "TRADE_CLOSED")).thenReturn(List.of("ORDER_1"));
+
+        assertEquals(1, updater.closeExpired(List.of(1L, 2L), LocalDateTime.now()));
+
+        InOrder inOrder = inOrder(paymentOrderMapper, outboxMapper, session, cache, relay);
+        inOrder.verify(paymentOrderMapper).closeExpired(any(), any(), any(), any());
+        inOrder.verify(outboxMapper).insertFromOrders("ORDER_CLOSED", List.of(1L, 2L), "TRADE_CLOSED");
+        inOrder.verify(session).commit();
+        inOrder.verify(cache).refreshIfTracked("ORDER_1");
+        inOrder.verify(relay).signal();
+        verify(cache, never()).refreshIfTracked("ORDER_2");
+    }
+
+    @Test
+    @DisplayName("没有订单被关闭时不查询订单号也不刷新缓存")
+    void testCloseExpiredNothingClosed() {
+        when(paymentOrderMapper.closeExpired(any(), any(), any(), any())).thenReturn(0);
+
+        assertEquals(0, updater.closeExpired(List.of(1L), LocalDateTime.now()));
+
+        verify(paymentOrderMapper, never()).selectOutTradeNosByIds(any(), any());
+        verifyNoInteractions(cache, relay);
+    }
+
+    @Test
+    @DisplayName("批量转换按分表分组执行，每组 flush 一次，更新计数映射回原下标")
+    void testTransitionAllGroupsByShard() {
+        PaymentStorageProperties storageProperties = new PaymentStorageProperties();
+        storageProperties.setShardCount(2);
+        PaymentOrderShards shards = new PaymentOrderShards(storageProperties);
+        SqlSession batchSession = mock(SqlSession.class);
+        SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+        when(sqlSessionFactory.openSession(ExecutorType.BATCH, false)).thenReturn(batchSession);
+        when(batchSession.getMapper(PaymentOrderMapper.class)).thenReturn(paymentOrderMapper);
+        when(batchSession.getMapper(PaymentOutboxMapper.class)).thenReturn(outboxMapper);
+        // 0 号分表只有下标 1，1 号分表依次是下标 0 和 2
+        when(batchSession.flushStatements())
+                .thenReturn(List.of(batchResult(1), batchResult(1)))
+                .thenReturn(List.of(batchResult(0, 1), batchResult(0, 1)));
+        PaymentOrderUpdater shardedUpdater = new PaymentOrderUpdater(paymentOrderMapper, sqlSessionFactory, cache,
+                relay, shards);
+
+        OutTradeNoGenerator generator = new OutTradeNoGenerator(1, System::currentTimeMillis);
+        String first = generator.generate(1);
+        String second = generator.generate(0);
+        String third = generator.generate(1);
+        boolean[] applied = shardedUpdater.transitionAll(List.of(
+                new PaymentOrderUpdater.Transition(first, PaymentOrderStatus.TRADE_SUCCESS, "T1", null, null),
+                new PaymentOrderUpdater.Transition(second, PaymentOrderStatus.TRADE_SUCCESS, "T2", null, null),
+                new PaymentOrderUpdater.Transition(third, PaymentOrderStatus.TRADE_CLOSED, null, null, null)));
+
+        assertArrayEquals(new boolean[]{false, true, true}, applied);
+        InOrder inOrder = inOrder(paymentOrderMapper, outboxMapper, batchSession);
+        inOrder.verify(paymentOrderMapper).transitionStatus(eq(second), any(), any(), any(), any(), any(), any());
+        inOrder.verify(outboxMapper).insertFromOrder("ORDER_PAID", second, "TRADE_SUCCESS");
+        inOrder.verify(batchSession).flushStatements();
+        inOrder.verify(paymentOrderMapper).transitionStatus(eq(first), any(), any(), any(), any(), any(), any());
+        inOrder.verify(paymentOrderMapper).transitionStatus(eq(third), any(), any(), any(), any(), any(), any());
+        inOrder.verify(outboxMapper).insertFromOrder("ORDER_PAID", first, "TRADE_SUCCESS");
+        inOrder.verify(outboxMapper).insertFromOrder("ORDER_CLOSED", third, "TRADE_CLOSED");
+        inOrder.verify(batchSession).flushStatements();
+        inOrder.verify(batchSession).commit();
+        verify(cache).refresh(second);
+        verify(cache).refresh(third);
+        verify(cache, never()).refresh(first);
+        verify(relay).signal();
+    }
+
+    private static BatchResult batchResult(int... updateCounts) {
+        BatchResult result = new BatchResult(null, "UPDATE");
+        result.setUpdateCounts(updateCounts);
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package com.lynn.papertrail.service.payment;
+
+import com.lynn.papertrail.config.PaymentOutboxProperties;
+import com.lynn.papertrail.entity.PaymentOutboxEvent;
+import com.lynn.papertrail.mapper.PaymentOutboxMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentOutboxRelay 单元测试
+ */
+@DisplayName("支付事件转发测试")
+class PaymentOutboxRelayTest {
+
+    private PaymentOutboxMapper outboxMapper;
+    private List<PaymentEvent> received;
+    private boolean failing;
+    private String failingOrder;
+    private PaymentOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxMapper = mock(PaymentOutboxMapper.class);
+        received = new ArrayList<>();
+        PaymentEventListener listener = events -> {
+            if (failing || events.stream().anyMatch(event -> event.outTradeNo().equals(failingOrder))) {
+                throw new IllegalStateException("listener down");
+            }
+            received.addAll(events);
+        };
+        relay = new PaymentOutboxRelay(mock(SqlSessionFactory.class), outboxMapper, List.of(listener),
+                new PaymentOutboxProperties());
+    }
+
+    @Test
+    @DisplayName("订阅者全部成功后才标记为已投递，失败时整批保留")
+    void testAtLeastOnce() {
+        when(outboxMapper.selectPending(anyInt())).thenReturn(List.of(
+                row(1L, "O1", 0L, "ORDER_CREATED"), row(2L, "O1", 1L, "ORDER_PAID")));
+
+        failing = true;
+        assertEquals(0, relay.relayOnce());
+        verify(outboxMapper, never()).markPublished(any());
+        // 同一订单的后续事件不单独投递，也不计失败次数
+        verify(outboxMapper).markFailed(1L, "listener down", 10);
+        verify(outboxMapper, never()).markFailed(eq(2L), any(), anyInt());
+
+        failing = false;
+        assertEquals(2, relay.relayOnce());
+        verify(outboxMapper).markPublished(List.of(1L, 2L));
+        assertEquals(List.of(PaymentEvent.Type.ORDER_CREATED, PaymentEvent.Type.ORDER_PAID),
+                received.stream().map(PaymentEvent::type).toList());
+        assertEquals(1L, received.get(1).orderVersion());
+    }
+
+    @Test
+    @DisplayName("某个订单的事件投递失败时记录失败次数，其他订单的事件照常投递")
+    void testFailingEventIsolated() {
+        when(outboxMapper.selectPending(anyInt())).thenReturn(List.of(
+                row(1L, "O1", 0L, "ORDER_CREATED"), row(2L, "O2", 0L, "ORDER_CREATED"),
+                row(3L, "O1", 1L, "ORDER_PAID"), row(4L, "O2", 1L, "ORDER_PAID")));
+        failingOrder = "O1";
+
+        assertEquals(2, relay.relayOnce());
+
+        verify(outboxMapper).markPublished(List.of(2L, 4L));
+        verify(outboxMapper).markFailed(1L, "listener down", 10);
+        verify(outboxMapper, never()).markFailed(eq(3L), any(), anyInt());
+        assertEquals(List.of("O2", "O2"), received.stream().map(PaymentEvent::outTradeNo).toList());
+    }
+
+    @Test
+    @DisplayName("没有待投递事件时不调用订阅者")
+    void testEmpty() {
+        when(outboxMapper.selectPending(anyInt())).thenReturn(List.of());
+        assertEquals(0, relay.relayOnce());
+        assertTrue(received.isEmpty());
+        verify(outboxMapper, never()).markPublished(any());
+    }
+
+    private static PaymentOutboxEvent row(Long id, String outTradeNo, Long version, String type) {
+        return PaymentOutboxEvent.builder()
+                .id(id)
+                .outTradeNo(outTradeNo)
+                .orderVersion(version)
+                .eventType(type)
+                .userId(7L)
+                .totalAmount(new BigDecimal("9.90"))
+                .createTime(LocalDateTime.now())
+                .build();
+    }
+}
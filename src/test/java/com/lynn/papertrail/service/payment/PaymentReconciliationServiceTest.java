@@ -0,0 +1,108 @@
+package com.lynn.papertrail.service.payment;
+
+import com.alipay.api.AlipayClient;
+import com.alipay.api.request.AlipayTradeQueryRequest;
+import com.alipay.api.response.AlipayTradeQueryResponse;
+import com.lynn.papertrail.config.PaymentReconciliationProperties;
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import com.lynn.papertrail.entity.PaymentOrder;
+import com.lynn.papertrail.entity.PaymentReconciliation;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.mapper.PaymentReconciliationMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentReconciliationService 单元测试，支付宝网关由 Mockito 桩代替
+ */
+@DisplayName("支付订单对账测试")
+class PaymentReconciliationServiceTest {
+
+    private AlipayClient alipayClient;
+    private PaymentOrderMapper paymentOrderMapper;
+    private PaymentOrderUpdater paymentOrderUpdater;
+    private PaymentReconciliationMapper reconciliationMapper;
+    private PaymentReconciliationService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        alipayClient = mock(AlipayClient.class);
+        paymentOrderMapper = mock(PaymentOrderMapper.class);
+        paymentOrderUpdater = mock(PaymentOrderUpdater.class);
+        reconciliationMapper = mock(PaymentReconciliationMapper.class);
+        PaymentReconciliationProperties properties = new PaymentReconciliationProperties();
+        properties.setRequestsPerSecond(0);
+        properties.setPageSize(10);
+        service = new PaymentReconciliationService(alipayClient, paymentOrderMapper, paymentOrderUpdater,
+                reconciliationMapper, properties, new PaymentOrderShards(new PaymentStorageProperties()));
+
+        when(alipayClient.certificateExecute(any(AlipayTradeQueryRequest.class))).thenAnswer(invocation -> {
+            String bizContent = invocation.<AlipayTradeQueryRequest>getArgument(0).getBizContent();
+            AlipayTradeQueryResponse response = new AlipayTradeQueryResponse();
+            if (bizContent.contains("PAID")) {
+                response.setTradeStatus("TRADE_SUCCESS");
+                response.setTradeNo("T_PAID");
+            } else if (bizContent.contains("NOSCAN")) {
+                response.setSubCode("ACQ.TRADE_NOT_EXIST");
+            } else if (bizContent.contains("ERROR")) {
+                response.setSubCode("ACQ.SYSTEM_ERROR");
+            } else {
+                response.setTradeStatus("WAIT_BUYER_PAY");
+            }
+            return response;
+        });
+        doAnswer(invocation -> {
+            invocation.<PaymentReconciliation>getArgument(0).setId(1L);
+            return 1;
+        }).when(reconciliationMapper).insert(any(PaymentReconciliation.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("并发查询后只批量更新状态不一致的订单，并记录报告")
+    void testReconcile() {
+        LocalDateTime expire = LocalDateTime.now();
+        when(paymentOrderMapper.selectByStatusExpiringAfter(eq("WAIT_BUYER_PAY"), isNull(), isNull(), eq(0L), eq(10)))
+                .thenReturn(List.of(order(1L, "O_PAID", "WAIT_BUYER_PAY", expire),
+                        order(2L, "O_NOSCAN", "WAIT_BUYER_PAY", expire),
+                        order(3L, "O_WAIT", "WAIT_BUYER_PAY", expire),
+                        order(4L, "O_ERROR", "WAIT_BUYER_PAY", expire)));
+        when(paymentOrderMapper.selectByStatusExpiringAfter(eq("TRADE_CLOSED"), notNull(), isNull(), eq(0L), eq(10)))
+                .thenReturn(List.of(order(5L, "O_LATE_PAID", "TRADE_CLOSED", expire)));
+        when(paymentOrderUpdater.transitionAll(anyList())).thenReturn(new boolean[]{true});
+
+        PaymentReconciliation report = service.reconcile();
+
+        assertEquals(PaymentReconciliation.STATUS_COMPLETED, report.getStatus());
+        assertEquals(5, report.getScanned());
+        assertEquals(2, report.getPaid());
+        assertEquals(1, report.getNotExist());
+        assertEquals(1, report.getMatched());
+        assertEquals(1, report.getFailed());
+        assertNotNull(report.getFinishTime());
+        verify(paymentOrderUpdater).transitionAll(argThat(list -> list.size() == 1
+                && list.get(0).outTradeNo().equals("O_PAID")
+                && list.get(0).tradeNo().equals("T_PAID")));
+        verify(paymentOrderUpdater).transitionAll(argThat(list -> list.size() == 1
+                && list.get(0).outTradeNo().equals("O_LATE_PAID")
+                && list.get(0).target() == PaymentOrderStatus.TRADE_SUCCESS));
+        verify(reconciliationMapper).update(report);
+    }
+
+    private static PaymentOrder order(Long id, String outTradeNo, String status, LocalDateTime expireTime) {
+        return PaymentOrder.builder().id(id).outTradeNo(outTradeNo).status(status).expireTime(expireTime).build();
+    }
+}
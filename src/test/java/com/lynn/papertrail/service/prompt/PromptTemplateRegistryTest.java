@@ -0,0 +1,50 @@
+package com.lynn.papertrail.service.prompt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptTemplateRegistry 单元测试
+ */
+@DisplayName("提示词模板注册表测试")
+class PromptTemplateRegistryTest {
+
+    private final PromptTemplateRegistry registry = new PromptTemplateRegistry();
+
+    @Test
+    @DisplayName("通用对话的系统提示与原有提示一致")
+    void testChatPromptUnchanged() {
+        String original = """
+                你是一个有帮助的AI助手，专门用于Paper Trail文档管理系统。
+                你可以帮助用户解答关于文档管理、处理、分析等方面的问题。
+                请尽可能提供准确和有用的信息。
+                如果问题与文档管理无关，请礼貌地告知用户。
+                """;
+        assertEquals(original, registry.getSystemMessage(PromptScene.CHAT).getText());
+    }
+
+    @Test
+    @DisplayName("所有场景共享前缀，系统消息在用户消息之前且复用同一实例")
+    void testSharedPrefixAndOrder() {
+        for (PromptScene scene : PromptScene.values()) {
+            SystemMessage systemMessage = registry.getSystemMessage(scene);
+            assertTrue(systemMessage.getText().startsWith(PromptTemplateRegistry.SHARED_PREFIX));
+
+            Prompt prompt = registry.buildPrompt(scene, "你好");
+            List<Message> messages = prompt.getInstructions();
+            assertEquals(2, messages.size());
+            assertSame(systemMessage, messages.get(0));
+            assertInstanceOf(UserMessage.class, messages.get(1));
+            assertEquals("你好", messages.get(1).getText());
+            assertSame(systemMessage, registry.buildStreamPrompt(scene, "你好").getInstructions().get(0));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.lynn.papertrail.service.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserImportReader 单元测试
+ */
+@DisplayName("用户导入文件读取测试")
+class UserImportReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("CSV 按表头映射列，支持引号和转义引号，空字段为 null")
+    void testCsv() throws IOException {
+        String csv = "Email,username,password,nickname\n"
+                + "alice@example.com,alice,secret1,\"Alice, \"\"A\"\"\"\n"
+                + "\n"
+                + ",bob,secret2,\n";
+        try (UserImportReader reader = reader(csv, UserImportReader.Format.CSV)) {
+            UserImportRow alice = reader.next();
+            assertEquals(2, alice.line());
+            assertEquals("alice", alice.username());
+            assertEquals("alice@example.com", alice.email());
+            assertEquals("Alice, \"A\"", alice.nickname());
+            assertNull(alice.passwordHash());
+
+            UserImportRow bob = reader.next();
+            assertEquals(4, bob.line());
+            assertNull(bob.email());
+            assertNull(bob.nickname());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("单行格式错误只标记该行，不中断读取")
+    void testInvalidLines() throws IOException {
+        String ndjson = """
+                {"username":"alice","passwordHash":"$2a$10$abc"}
+                {broken
+                ["not","object"]
+                {"username":"bob","password":"secret2"}
+                """;
+        try (UserImportReader reader = reader(ndjson, UserImportReader.Format.NDJSON)) {
+            assertEquals("$2a$10$abc", reader.next().passwordHash());
+            assertNotNull(reader.next().parseError());
+            assertNotNull(reader.next().parseError());
+            assertEquals("bob", reader.next().username());
+        }
+
+        try (UserImportReader reader = reader("username\n\"alice\n", UserImportReader.Format.CSV)) {
+            assertNotNull(reader.next().parseError());
+        }
+    }
+
+    @Test
+    @DisplayName("CSV 缺少 username 列时拒绝整个文件")
+    void testMissingUsernameColumn() {
+        assertThrows(IOException.class, () -> reader("email,password\n", UserImportReader.Format.CSV).next());
+    }
+
+    @Test
+    @DisplayName("拆分 CSV 行")
+    void testSplitCsv() {
+        assertEquals(List.of("a", "", "b,c"), UserImportReader.splitCsv("a,,\"b,c\""));
+        assertNull(UserImportReader.splitCsv("a,\"b"));
+    }
+
+    private UserImportReader reader(String text, UserImportReader.Format format) {
+        return new UserImportReader(new StringReader(text), format, objectMapper);
+    }
+}
@@ -0,0 +1,228 @@
+package com.lynn.papertrail.service.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lynn.papertrail.config.PasswordHashingProperties;
+import com.lynn.papertrail.config.UserImportProperties;
+import com.lynn.papertrail.dto.UserImportResponse;
+import com.lynn.papertrail.entity.User;
+import com.lynn.papertrail.mapper.UserMapper;
+import com.lynn.papertrail.service.cache.UserCache;
+import com.lynn.papertrail.service.cache.UserExistenceFilter;
+import com.lynn.papertrail.service.password.PasswordHashingService;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.BatchUpdateException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserImportService 单元测试
+ */
+@DisplayName("批量导入用户服务测试")
+class UserImportServiceTest {
+
+    private static final String HEADER = "username,password,password_hash,email\n";
+
+    private UserMapper userMapper;
+    private UserMapper batchMapper;
+    private SqlSession session;
+    private UserMapper retryMapper;
+    private SqlSession retrySession;
+    private UserCache userCache;
+    private UserExistenceFilter userExistenceFilter;
+    private UserImportProperties properties;
+    private PasswordHashingService passwordHashingService;
+    private UserImportService service;
+    private final List<User> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        batchMapper = mock(UserMapper.class);
+        session = mock(SqlSession.class);
+        userCache = mock(UserCache.class);
+        userExistenceFilter = mock(UserExistenceFilter.class);
+        SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+        when(sqlSessionFactory.openSession(ExecutorType.BATCH, false)).thenReturn(session);
+        when(session.getMapper(UserMapper.class)).thenReturn(batchMapper);
+        when(batchMapper.insertImported(any())).thenAnswer(invocation -> {
+            inserted.add(invocation.getArgument(0));
+            return 1;
+        });
+        retryMapper = mock(UserMapper.class);
+        retrySession = mock(SqlSession.class);
+        when(sqlSessionFactory.openSession(false)).thenReturn(retrySession);
+        when(retrySession.getMapper(UserMapper.class)).thenReturn(retryMapper);
+        when(retryMapper.insertImported(argThat(user -> "bob".equals(user.getUsername()))))
+                .thenThrow(new PersistenceException("insert failed",
+                        new SQLIntegrityConstraintViolationException("Duplicate entry 'bob' for key 'uk_username'")));
+
+        properties = new UserImportProperties();
+        PasswordHashingProperties hashingProperties = new PasswordHashingProperties();
+        hashingProperties.setThreads(2);
+        hashingProperties.setQueueCapacity(1);
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(6), hashingProperties);
+        service = new UserImportService(sqlSessionFactory, userMapper, userCache, userExistenceFilter,
+                properties, new ObjectMapper(), passwordHashingService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    @DisplayName("明文密码按注册强度哈希，队列容量小于行数时也不拒绝")
+    void testHashesAtConfiguredStrength() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 5; i++) {
+            csv.append("user").append(i).append(",secret").append(i).append(",,\n");
+        }
+
+        UserImportResponse report = importCsv(csv.toString());
+
+        assertEquals(5, report.getSucceeded());
+        assertEquals(5, inserted.size());
+        for (int i = 0; i < 5; i++) {
+            User user = inserted.get(i);
+            assertEquals("user" + i, user.getUsername());
+            assertTrue(user.getPassword().startsWith("$2a$06$"));
+            assertTrue(passwordHashingService.matches("secret" + i, user.getPassword()));
+        }
+    }
+
+    @Test
+    @DisplayName("导入的哈希强度低于当前配置时拒绝该行，达到配置的原样写入")
+    void testRejectsWeakImportedHash() throws IOException {
+        String weak = new BCryptPasswordEncoder(4).encode("secret1");
+        String strong = new BCryptPasswordEncoder(6).encode("secret1");
+
+        UserImportResponse report = importCsv(HEADER + "weak,," + weak + ",\nstrong,," + strong + ",\n");
+
+        assertEquals(1, report.getSucceeded());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals("密码哈希强度低于当前配置", report.getErrors().get(0).getMessage());
+        assertEquals(1, inserted.size());
+        assertEquals(strong, inserted.get(0).getPassword());
+    }
+
+    @Test
+    @DisplayName("批量写入有行冲突时回滚整批并逐行重试，只有冲突的行计入错误")
+    void testConflictRetriedRowByRow() throws IOException {
+        doThrow(batchFailure(new int[]{1, Statement.EXECUTE_FAILED, 1})).when(session).flushStatements();
+
+        UserImportResponse report = importCsv(HEADER
+                + "alice,secret1,,alice@example.com\n"
+                + "bob,secret2,,bob@example.com\n"
+                + "carol,secret3,,\n");
+
+        assertEquals(2, report.getSucceeded());
+        assertEquals(1, report.getFailed());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals("bob", report.getErrors().get(0).getUsername());
+        assertEquals("写入失败，用户名或邮箱可能已被并发注册", report.getErrors().get(0).getMessage());
+        verify(session).rollback();
+        verify(session, never()).commit();
+        verify(retryMapper, times(3)).insertImported(any());
+        verify(retrySession).commit();
+        verify(userExistenceFilter).record("alice", "alice@example.com");
+        verify(userExistenceFilter).record("carol", null);
+        verify(userExistenceFilter, never()).record(eq("bob"), any());
+        verify(userCache, never()).invalidate(isNull(), eq("bob"), any());
+    }
+
+    @Test
+    @DisplayName("驱动改写为多行 INSERT 时一行冲突导致整条语句失败，逐行重试后其他行仍然写入")
+    void testRewrittenBatchFailureRetried() throws IOException {
+        int failed = Statement.EXECUTE_FAILED;
+        doThrow(batchFailure(new int[]{failed, failed, failed})).when(session).flushStatements();
+
+        UserImportResponse report = importCsv(HEADER + "alice,secret1,,\nbob,secret2,,\ncarol,secret3,,\n");
+
+        assertEquals(2, report.getSucceeded());
+        assertEquals(1, report.getFailed());
+        assertEquals(List.of(3), report.getErrors().stream().map(UserImportResponse.RowError::getLine).toList());
+    }
+
+    @Test
+    @DisplayName("某一批整体写入失败时只影响该批，后续批次继续导入")
+    void testChunkFailureIsolated() throws IOException {
+        properties.setBatchSize(2);
+        when(session.flushStatements())
+                .thenThrow(new PersistenceException("connection lost"))
+                .thenReturn(List.of());
+
+        UserImportResponse report = importCsv(HEADER
+                + "alice,secret1,,\nbob,secret2,,\ncarol,secret3,,\ndave,secret4,,\n");
+
+        assertEquals(4, report.getTotal());
+        assertEquals(2, report.getSucceeded());
+        assertEquals(2, report.getFailed());
+        assertEquals(List.of(2, 3), report.getErrors().stream().map(UserImportResponse.RowError::getLine).toList());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("写入失败"));
+        verify(session, times(1)).commit();
+        verify(userExistenceFilter).record("carol", null);
+        verify(userExistenceFilter, never()).record(eq("alice"), any());
+    }
+
+    @Test
+    @DisplayName("只查询过滤器判定可能存在的值，已被占用的行不写入")
+    void testExcludeExisting() throws IOException {
+        when(userExistenceFilter.mightContainUsername("alice")).thenReturn(true);
+        when(userExistenceFilter.mightContainEmail("bob@example.com")).thenReturn(true);
+        when(userMapper.selectExistingIdentities(anyList(), anyList())).thenReturn(List.of(
+                User.builder().username("ALICE").build(),
+                User.builder().username("someone").email("Bob@Example.com").build()));
+
+        UserImportResponse report = importCsv(HEADER
+                + "alice,secret1,,alice@example.com\n"
+                + "bob,secret2,,bob@example.com\n"
+                + "carol,secret3,,carol@example.com\n");
+
+        verify(userMapper).selectExistingIdentities(List.of("alice"), List.of("bob@example.com"));
+        assertEquals(1, report.getSucceeded());
+        assertEquals(2, report.getFailed());
+        assertEquals("用户名已存在", report.getErrors().get(0).getMessage());
+        assertEquals("邮箱已被注册", report.getErrors().get(1).getMessage());
+        assertEquals(List.of("carol"), inserted.stream().map(User::getUsername).toList());
+    }
+
+    @Test
+    @DisplayName("过滤器判定都不存在时不查询数据库")
+    void testExcludeExistingSkipsQuery() throws IOException {
+        UserImportResponse report = importCsv(HEADER + "alice,secret1,,alice@example.com\n");
+
+        assertEquals(1, report.getSucceeded());
+        verifyNoInteractions(userMapper);
+    }
+
+    private UserImportResponse importCsv(String csv) throws IOException {
+        return service.importUsers(new StringReader(csv), UserImportReader.Format.CSV);
+    }
+
+    private static PersistenceException batchFailure(int[] updateCounts) {
+        BatchUpdateException cause = new BatchUpdateException("Duplicate entry for key 'uk_username'", updateCounts);
+        BatchExecutorException batchException = new BatchExecutorException("batch failed", cause,
+                List.of(), new BatchResult(null, "INSERT"));
+        return new PersistenceException("flush failed", batchException);
+    }
+}
@@ -0,0 +1,138 @@
+package com.lynn.papertrail.service.quota;
+
+import com.lynn.papertrail.config.PaymentStorageProperties;
+import com.lynn.papertrail.config.TokenQuotaProperties;
+import com.lynn.papertrail.entity.UserTokenUsage;
+import com.lynn.papertrail.mapper.PaymentOrderMapper;
+import com.lynn.papertrail.mapper.UserTokenUsageMapper;
+import com.lynn.papertrail.service.payment.PaymentOrderShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TokenQuotaService 单元测试
+ */
+@DisplayName("token 配额服务测试")
+class TokenQuotaServiceTest {
+
+    private TokenUsageMeter meter;
+    private UserTokenUsageMapper usageMapper;
+    private PaymentOrderMapper paymentOrderMapper;
+    private TokenQuotaProperties properties;
+    private TokenQuotaService service;
+
+    @BeforeEach
+    void setUp() {
+        meter = new TokenUsageMeter();
+        usageMapper = mock(UserTokenUsageMapper.class);
+        paymentOrderMapper = mock(PaymentOrderMapper.class);
+        properties = new TokenQuotaProperties();
+        properties.setFreeTokens(1_000);
+        properties.setTokensPerYuan(100);
+        PaymentStorageProperties storageProperties = new PaymentStorageProperties();
+        storageProperties.setShardCount(2);
+        service = new TokenQuotaService(meter, usageMapper, paymentOrderMapper,
+                new PaymentOrderShards(storageProperties), properties);
+    }
+
+    @Test
+    @DisplayName("快照加载前按免费额度放行，未落库的用量实时计入")
+    void testFreeQuotaBeforeRefresh() {
+        assertEquals(1_000, service.getRemainingTokens(1L));
+        meter.record(1L, 600, 400);
+        assertEquals(0, service.getRemainingTokens(1L));
+        assertThrows(QuotaExceededException.class, () -> service.checkQuota(1L));
+        assertDoesNotThrow(() -> service.checkQuota(null));
+    }
+
+    @Test
+    @DisplayName("刷新时汇总所有分表的已支付金额并写入用量")
+    void testFlushRefreshesAcrossShards() {
+        service.getRemainingTokens(1L);
+        meter.record(1L, 150, 50);
+        when(usageMapper.selectByUserIds(anyCollection())).thenReturn(List.of(
+                UserTokenUsage.builder().userId(1L).totalTokens(700L).build()));
+        when(paymentOrderMapper.selectPaidAmountByUserIds(anyCollection()))
+                .thenReturn(List.of(paid(1L, "3")))
+                .thenReturn(List.of(paid(1L, "2")));
+
+        service.flush();
+
+        verify(usageMapper).accumulateBatch(argThat(usages -> usages.size() == 1
+                && usages.get(0).getTotalTokens() == 200L));
+        verify(paymentOrderMapper, times(2)).selectPaidAmountByUserIds(anyCollection());
+        // 1000 免费 + 5 元 × 100 - 已用 700
+        assertEquals(800, service.getRemainingTokens(1L));
+    }
+
+    @Test
+    @DisplayName("写入用量失败时增量放回计数器，下次重试")
+    void testFlushFailureRestores() {
+        meter.record(1L, 100, 0);
+        doThrow(new IllegalStateException("db down")).when(usageMapper).accumulateBatch(anyList());
+
+        service.flush();
+
+        assertEquals(100, meter.pendingTokens(1L));
+        verify(usageMapper, never()).selectByUserIds(anyCollection());
+
+        reset(usageMapper);
+        service.flush();
+        verify(usageMapper).accumulateBatch(argThat(usages -> usages.get(0).getTotalTokens() == 100L));
+        assertEquals(0, meter.pendingTokens(1L));
+    }
+
+    @Test
+    @DisplayName("支付成功后使快照在下个周期重新加载")
+    void testInvalidate() {
+        service.getRemainingTokens(2L);
+        service.flush();
+        clearInvocations(paymentOrderMapper);
+
+        service.invalidate(2L);
+        when(paymentOrderMapper.selectPaidAmountByUserIds(anyCollection()))
+                .thenReturn(List.of(paid(2L, "1")))
+                .thenReturn(List.of());
+        service.flush();
+
+        verify(paymentOrderMapper, times(2)).selectPaidAmountByUserIds(argThat(ids -> ids.contains(2L)));
+        assertEquals(1_100, service.getRemainingTokens(2L));
+    }
+
+    @Test
+    @DisplayName("长时间未读取的快照在刷新时移出，再次访问时重新加载")
+    void testIdleSnapshotEvicted() throws InterruptedException {
+        properties.setSnapshotIdleTimeout(Duration.ofMillis(20));
+        when(paymentOrderMapper.selectPaidAmountByUserIds(anyCollection()))
+                .thenReturn(List.of(paid(3L, "1")))
+                .thenReturn(List.of());
+        service.getRemainingTokens(3L);
+        service.flush();
+        assertEquals(1_100, service.getRemainingTokens(3L));
+
+        Thread.sleep(50);
+        service.flush();
+        clearInvocations(usageMapper);
+
+        // 移出后按首次出现处理，下个周期重新加载
+        assertEquals(1_000, service.getRemainingTokens(3L));
+        service.flush();
+        verify(usageMapper).selectByUserIds(argThat(ids -> ids.contains(3L)));
+    }
+
+    private static UserPaidAmount paid(Long userId, String amount) {
+        UserPaidAmount paid = new UserPaidAmount();
+        paid.setUserId(userId);
+        paid.setPaidAmount(new BigDecimal(amount));
+        return paid;
+    }
+}
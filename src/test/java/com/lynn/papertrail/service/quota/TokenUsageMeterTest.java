@@ -0,0 +1,93 @@
+package com.lynn.papertrail.service.quota;
+
+import com.lynn.papertrail.entity.UserTokenUsage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenUsageMeter 单元测试
+ */
+@DisplayName("token 用量计数器测试")
+class TokenUsageMeterTest {
+
+    private final TokenUsageMeter meter = new TokenUsageMeter();
+
+    @Test
+    @DisplayName("取出增量后清零，写库失败可以放回")
+    void testDrainAndRestore() {
+        meter.record(1L, 100, 20);
+        meter.record(1L, 10, 2);
+        meter.record(2L, 5, 0);
+        meter.record(null, 5, 5);
+
+        assertEquals(132, meter.pendingTokens(1L));
+        List<UserTokenUsage> usages = meter.drain();
+        assertEquals(2, usages.size());
+        UserTokenUsage first = usages.stream().filter(u -> u.getUserId() == 1L).findFirst().orElseThrow();
+        assertEquals(110L, first.getPromptTokens());
+        assertEquals(22L, first.getCompletionTokens());
+        assertEquals(132L, first.getTotalTokens());
+        assertEquals(0, meter.pendingTokens(1L));
+
+        meter.restore(usages);
+        assertEquals(132, meter.pendingTokens(1L));
+        assertEquals(5, meter.pendingTokens(2L));
+    }
+
+    @Test
+    @DisplayName("空闲用户的计数器在下个周期移出")
+    void testIdleCounterRemoved() {
+        meter.record(1L, 10, 0);
+        assertEquals(1, meter.drain().size());
+        assertTrue(meter.drain().isEmpty());
+
+        meter.record(1L, 3, 4);
+        List<UserTokenUsage> usages = meter.drain();
+        assertEquals(1, usages.size());
+        assertEquals(7L, usages.get(0).getTotalTokens());
+    }
+
+    @Test
+    @DisplayName("并发累加与取出、移出交错时不丢失用量")
+    void testConcurrentRecordAndDrain() throws Exception {
+        int threads = 4;
+        int iterations = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    // 用户交替出现，使计数器频繁空闲并被移出
+                    meter.record((long) (i % 3), 1, 1);
+                }
+                done.countDown();
+            });
+        }
+
+        long drained = 0;
+        while (running.get()) {
+            for (UserTokenUsage usage : meter.drain()) {
+                drained += usage.getTotalTokens();
+            }
+            if (done.await(0, TimeUnit.MILLISECONDS)) {
+                running.set(false);
+            }
+        }
+        for (UserTokenUsage usage : meter.drain()) {
+            drained += usage.getTotalTokens();
+        }
+        executor.shutdown();
+
+        assertEquals(2L * threads * iterations, drained);
+    }
+}
@@ -0,0 +1,231 @@
+package com.lynn.papertrail.service.routing;
+
+import com.lynn.papertrail.config.AiRoutingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatModelRouter 单元测试，使用本地桩端点模拟不同延迟和故障
+ */
+@DisplayName("多模型路由测试")
+class ChatModelRouterTest {
+
+    private static final Prompt PROMPT = new Prompt("hello");
+
+    private ChatModelRouter router;
+
+    @AfterEach
+    void tearDown() {
+        if (router != null) {
+            router.close();
+        }
+    }
+
+    @Test
+    @DisplayName("首选端点超过等待时间后发起对冲请求，采用先返回的结果")
+    void testHedgeWinsWhenPrimaryIsSlow() {
+        StubChatModel slow = new StubChatModel("slow", Duration.ofSeconds(2), false);
+        StubChatModel fast = new StubChatModel("fast", Duration.ofMillis(10), false);
+        router = new ChatModelRouter(List.of(endpoint("slow", slow), endpoint("fast", fast)), properties());
+
+        long start = System.nanoTime();
+        ChatResponse response = router.call(PROMPT, new RoutingContext(5, null, "slow"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("fast", response.getResult().getOutput().getText());
+        assertTrue(elapsedMillis < 1000, "对冲后不应等待慢端点完成，实际耗时 " + elapsedMillis + "ms");
+        assertEquals(1L, router.getStatistics().get("hedgedRequests"));
+    }
+
+    @Test
+    @DisplayName("首选端点及时返回时不发起对冲")
+    void testNoHedgeWhenPrimaryIsFast() {
+        StubChatModel fast = new StubChatModel("fast", Duration.ZERO, false);
+        StubChatModel other = new StubChatModel("other", Duration.ZERO, false);
+        router = new ChatModelRouter(List.of(endpoint("fast", fast), endpoint("other", other)), properties());
+
+        ChatResponse response = router.call(PROMPT, new RoutingContext(5, null, "fast"));
+
+        assertEquals("fast", response.getResult().getOutput().getText());
+        assertEquals(0, other.calls.get());
+        assertEquals(0L, router.getStatistics().get("hedgedRequests"));
+    }
+
+    @Test
+    @DisplayName("首选端点失败时切换到备用端点")
+    void testFailover() {
+        StubChatModel broken = new StubChatModel("broken", Duration.ZERO, true);
+        StubChatModel healthy = new StubChatModel("healthy", Duration.ZERO, false);
+        router = new ChatModelRouter(List.of(endpoint("broken", broken), endpoint("healthy", healthy)), properties());
+
+        ChatResponse response = router.call(PROMPT, new RoutingContext(5, null, "broken"));
+
+        assertEquals("healthy", response.getResult().getOutput().getText());
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> endpoints =
+                (Map<String, Map<String, Object>>) router.getStatistics().get("endpoints");
+        assertEquals(1L, endpoints.get("broken").get("failures"));
+    }
+
+    @Test
+    @DisplayName("未启用对冲时首选端点失败同样切换到备用端点")
+    void testFailoverWithoutHedge() {
+        StubChatModel broken = new StubChatModel("broken", Duration.ZERO, true);
+        StubChatModel healthy = new StubChatModel("healthy", Duration.ZERO, false);
+        AiRoutingProperties properties = properties();
+        properties.setHedgeEnabled(false);
+        router = new ChatModelRouter(List.of(endpoint("broken", broken), endpoint("healthy", healthy)), properties);
+
+        ChatResponse response = router.call(PROMPT, new RoutingContext(5, null, null));
+        List<String> tokens = router.stream(PROMPT, new RoutingContext(5, null, "broken"))
+                .map(item -> item.getResult().getOutput().getText())
+                .collectList()
+                .block(Duration.ofSeconds(1));
+
+        assertEquals("healthy", response.getResult().getOutput().getText());
+        assertEquals(List.of("healthy", "healthy"), tokens);
+    }
+
+    @Test
+    @DisplayName("只失败的端点排在成功端点之后，没有样本的端点不再被当作最快")
+    void testFailingEndpointRanksLast() {
+        StubChatModel broken = new StubChatModel("broken", Duration.ZERO, true);
+        StubChatModel healthy = new StubChatModel("healthy", Duration.ofMillis(20), false);
+        StubChatModel unobserved = new StubChatModel("unobserved", Duration.ZERO, false);
+        AiRoutingProperties properties = properties();
+        properties.setHedgeEnabled(false);
+        router = new ChatModelRouter(List.of(endpoint("broken", broken), endpoint("healthy", healthy),
+                endpoint("unobserved", unobserved)), properties);
+
+        router.call(PROMPT, new RoutingContext(5, null, "broken"));
+        router.call(PROMPT, new RoutingContext(5, null, null));
+
+        assertEquals(1, broken.calls.get());
+        assertEquals(2, healthy.calls.get());
+        assertEquals(0, unobserved.calls.get());
+        assertEquals(List.of("healthy", "broken", "unobserved"), router.rank(new RoutingContext(5, null, null)).stream()
+                .map(ChatEndpoint::getName).toList());
+    }
+
+    @Test
+    @DisplayName("流式调用首个 token 超时后由备用端点输出")
+    void testStreamHedge() {
+        StubChatModel slow = new StubChatModel("slow", Duration.ofSeconds(2), false);
+        StubChatModel fast = new StubChatModel("fast", Duration.ofMillis(10), false);
+        router = new ChatModelRouter(List.of(endpoint("slow", slow), endpoint("fast", fast)), properties());
+
+        List<String> tokens = router.stream(PROMPT, new RoutingContext(5, null, "slow"))
+                .map(response -> response.getResult().getOutput().getText())
+                .collectList()
+                .block(Duration.ofSeconds(1));
+
+        assertEquals(List.of("fast", "fast"), tokens);
+    }
+
+    @Test
+    @DisplayName("流式调用首选端点在首个 token 前失败时立即切换，不等待对冲时间")
+    void testStreamFailoverOnEarlyError() {
+        StubChatModel broken = new StubChatModel("broken", Duration.ZERO, true);
+        StubChatModel healthy = new StubChatModel("healthy", Duration.ZERO, false);
+        AiRoutingProperties properties = properties();
+        properties.setWarmupHedgeDelay(Duration.ofSeconds(5));
+        router = new ChatModelRouter(List.of(endpoint("broken", broken), endpoint("healthy", healthy)), properties);
+
+        List<String> tokens = router.stream(PROMPT, new RoutingContext(5, null, "broken"))
+                .map(response -> response.getResult().getOutput().getText())
+                .collectList()
+                .block(Duration.ofSeconds(1));
+
+        assertEquals(List.of("healthy", "healthy"), tokens);
+    }
+
+    @Test
+    @DisplayName("按输入大小和用户等级过滤端点")
+    void testFilterBySizeAndTier() {
+        ChatEndpoint small = new ChatEndpoint("small", "m1", new StubChatModel("small", Duration.ZERO, false), 10, Set.of());
+        ChatEndpoint premium = new ChatEndpoint("premium", "m2", new StubChatModel("premium", Duration.ZERO, false), 0, Set.of("ADMIN"));
+        ChatEndpoint general = endpoint("general", new StubChatModel("general", Duration.ZERO, false));
+        router = new ChatModelRouter(List.of(small, premium, general), properties());
+
+        List<String> forLargeUserRequest = router.rank(new RoutingContext(100, "USER", null)).stream()
+                .map(ChatEndpoint::getName).toList();
+        assertEquals(List.of("general"), forLargeUserRequest);
+
+        List<String> forAdmin = router.rank(new RoutingContext(100, "ADMIN", "premium")).stream()
+                .map(ChatEndpoint::getName).toList();
+        assertEquals("premium", forAdmin.get(0));
+        assertEquals(2, forAdmin.size());
+    }
+
+    private static ChatEndpoint endpoint(String name, ChatModel model) {
+        return new ChatEndpoint(name, name + "-model", model, 0, Set.of());
+    }
+
+    private static AiRoutingProperties properties() {
+        AiRoutingProperties properties = new AiRoutingProperties();
+        properties.setMinHedgeDelay(Duration.ofMillis(50));
+        properties.setWarmupHedgeDelay(Duration.ofMillis(100));
+        properties.setMaxHedgeDelay(Duration.ofMillis(500));
+        return properties;
+    }
+
+    /**
+     * 本地桩端点：固定延迟后返回端点名称，或直接失败
+     */
+    private static final class StubChatModel implements ChatModel {
+
+        private final String name;
+        private final Duration delay;
+        private final boolean failing;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private StubChatModel(String name, Duration delay, boolean failing) {
+            this.name = name;
+            this.delay = delay;
+            this.failing = failing;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failing) {
+                throw new IllegalStateException(name + " unavailable");
+            }
+            return response();
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            calls.incrementAndGet();
+            if (failing) {
+                return Flux.error(new IllegalStateException(name + " unavailable"));
+            }
+            return Flux.just(response(), response()).delaySubscription(delay);
+        }
+
+        private ChatResponse response() {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(name))));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.lynn.papertrail.service.session;
+
+import com.lynn.papertrail.config.SessionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SessionStore 单元测试，使用可控时钟驱动过期和时间轮
+ */
+@DisplayName("会话存储测试")
+class SessionStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private SessionProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SessionProperties();
+        properties.setTtl(Duration.ofMinutes(30));
+        properties.setTouchInterval(Duration.ofMinutes(1));
+        properties.setMaxSessionsPerUser(3);
+        properties.setSegments(4);
+        properties.setInitialSegmentCapacity(16);
+        properties.setWheelTick(Duration.ofSeconds(1));
+        properties.setWheelSize(64);
+    }
+
+    @Test
+    @DisplayName("创建会话后可以通过令牌查询，无效令牌返回 null")
+    void testCreateAndGet() {
+        SessionStore store = new SessionStore(properties, clock::get);
+
+        String token = store.create(42L, "ADMIN");
+        Session session = store.get(token);
+
+        assertEquals(32, token.length());
+        assertEquals(42L, session.userId());
+        assertEquals("ADMIN", session.role());
+        assertNull(store.get("not-a-token"));
+        assertNull(store.get("0123456789abcdef0123456789abcdef"));
+    }
+
+    @Test
+    @DisplayName("访问会话后过期时间向后滑动，空闲超过 ttl 后失效并被清理")
+    void testSlidingExpiry() {
+        SessionStore store = new SessionStore(properties, clock::get);
+        String token = store.create(1L, "USER");
+
+        advance(Duration.ofMinutes(20));
+        assertNotNull(store.get(token));
+
+        // 距创建已 40 分钟，但距上次访问只有 20 分钟
+        advance(Duration.ofMinutes(20));
+        assertNotNull(store.get(token));
+        assertEquals(0, store.sweep());
+
+        advance(Duration.ofMinutes(31));
+        assertNull(store.get(token));
+        assertEquals(1, store.sweep());
+        assertEquals(0, store.size());
+        assertEquals(0, store.activeSessions(1L));
+    }
+
+    @Test
+    @DisplayName("大量会话在到期时间被时间轮清理")
+    void testSweepManySessions() {
+        SessionStore store = new SessionStore(properties, clock::get);
+        for (int i = 0; i < 10_000; i++) {
+            store.create(i, "USER");
+        }
+        assertEquals(10_000, store.size());
+
+        advance(Duration.ofMinutes(29));
+        assertEquals(0, store.sweep());
+
+        advance(Duration.ofMinutes(2));
+        assertEquals(10_000, store.sweep());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @DisplayName("超出每用户会话上限时移除最早的会话")
+    void testMaxSessionsPerUser() {
+        SessionStore store = new SessionStore(properties, clock::get);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tokens.add(store.create(7L, "USER"));
+        }
+
+        assertNull(store.get(tokens.get(0)));
+        assertNotNull(store.get(tokens.get(3)));
+        assertEquals(3, store.activeSessions(7L));
+    }
+
+    @Test
+    @DisplayName("注销单个会话和注销用户全部会话")
+    void testRevoke() {
+        SessionStore store = new SessionStore(properties, clock::get);
+        String first = store.create(5L, "USER");
+        String second = store.create(5L, "USER");
+        String other = store.create(6L, "USER");
+
+        assertTrue(store.revoke(first));
+        assertFalse(store.revoke(first));
+        assertNull(store.get(first));
+        assertEquals(1, store.activeSessions(5L));
+
+        assertEquals(1, store.revokeAll(5L));
+        assertNull(store.get(second));
+        assertNotNull(store.get(other));
+    }
+
+    @Test
+    @DisplayName("快照写入后重新加载，已过期的会话不恢复")
+    void testSnapshotRoundTrip(@TempDir Path dir) throws Exception {
+        properties.setSnapshotPath(dir.resolve("sessions.bin").toString());
+        SessionStore store = new SessionStore(properties, clock::get);
+        String live = store.create(1L, "ADMIN");
+        advance(Duration.ofMinutes(20));
+        String fresh = store.create(2L, "USER");
+        store.writeSnapshot();
+
+        advance(Duration.ofMinutes(15));
+        SessionStore restored = new SessionStore(properties, clock::get);
+        restored.loadSnapshot();
+
+        assertNull(restored.get(live));
+        Session session = restored.get(fresh);
+        assertEquals(2L, session.userId());
+        assertEquals("USER", session.role());
+        assertEquals(1, restored.activeSessions(2L));
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toMillis());
+    }
+}
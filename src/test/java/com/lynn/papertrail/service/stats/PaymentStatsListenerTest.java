@@ -0,0 +1,110 @@
+package com.lynn.papertrail.service.stats;
+
+import com.lynn.papertrail.entity.PaymentStatsApplied;
+import com.lynn.papertrail.entity.PaymentStatsRollup;
+import com.lynn.papertrail.mapper.PaymentStatsMapper;
+import com.lynn.papertrail.service.payment.PaymentEvent;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaymentStatsListener 单元测试
+ */
+@DisplayName("支付统计汇总测试")
+class PaymentStatsListenerTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 10, 19, 10, 5, 30);
+    private static final LocalDateTime PAID_AT = LocalDateTime.of(2026, 10, 19, 11, 20, 0);
+
+    private PaymentStatsMapper mapper;
+    private SqlSession session;
+    private PaymentStatsListener listener;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(PaymentStatsMapper.class);
+        session = mock(SqlSession.class);
+        SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+        when(sqlSessionFactory.openSession(false)).thenReturn(session);
+        when(session.getMapper(PaymentStatsMapper.class)).thenReturn(mapper);
+        listener = new PaymentStatsListener(sqlSessionFactory);
+    }
+
+    @Test
+    @DisplayName("下单计入创建时间段，支付计入支付时间段，转化计入下单时间段，已计入的事件跳过")
+    void testAccumulate() {
+        when(mapper.selectApplied(anyList())).thenReturn(List.of(
+                PaymentStatsApplied.builder().outTradeNo("B").orderVersion(0L).build()));
+
+        listener.onPaymentEvents(List.of(
+                event(1, PaymentEvent.Type.ORDER_CREATED, "A", 0, CREATED_AT),
+                event(2, PaymentEvent.Type.ORDER_CREATED, "B", 0, CREATED_AT),
+                event(3, PaymentEvent.Type.ORDER_PAID, "A", 1, PAID_AT)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentStatsApplied>> applied = ArgumentCaptor.forClass(List.class);
+        verify(mapper).insertApplied(applied.capture());
+        assertEquals(List.of("A:0", "A:1"), applied.getValue().stream()
+                .map(key -> key.getOutTradeNo() + ":" + key.getOrderVersion()).toList());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentStatsRollup>> rollups = ArgumentCaptor.forClass(List.class);
+        verify(mapper).accumulateBatch(rollups.capture());
+        Map<String, PaymentStatsRollup> byKey = rollups.getValue().stream()
+                .collect(Collectors.toMap(r -> r.getGranularity() + "@" + r.getBucketStart(), Function.identity()));
+        assertEquals(5, byKey.size());
+
+        PaymentStatsRollup createdHour = byKey.get("HOUR@2026-10-19T10:00");
+        assertEquals(1L, createdHour.getCreatedCount());
+        assertEquals(0, new BigDecimal("19.90").compareTo(createdHour.getCreatedAmount()));
+        assertEquals(1L, createdHour.getConvertedCount());
+        assertEquals(0L, createdHour.getPaidCount());
+
+        PaymentStatsRollup paidHour = byKey.get("HOUR@2026-10-19T11:00");
+        assertEquals(1L, paidHour.getPaidCount());
+        assertEquals(0, new BigDecimal("19.90").compareTo(paidHour.getPaidAmount()));
+        assertEquals(0L, paidHour.getCreatedCount());
+
+        PaymentStatsRollup day = byKey.get("DAY@2026-10-19T00:00");
+        assertEquals(1L, day.getCreatedCount());
+        assertEquals(1L, day.getPaidCount());
+        assertEquals(1L, day.getConvertedCount());
+        assertNotNull(byKey.get("MINUTE@2026-10-19T10:05"));
+        assertNotNull(byKey.get("MINUTE@2026-10-19T11:20"));
+
+        verify(session).commit();
+    }
+
+    @Test
+    @DisplayName("整批重复投递时不写入")
+    void testRedelivered() {
+        when(mapper.selectApplied(anyList())).thenReturn(List.of(
+                PaymentStatsApplied.builder().outTradeNo("A").orderVersion(0L).build()));
+
+        listener.onPaymentEvents(List.of(event(1, PaymentEvent.Type.ORDER_CREATED, "A", 0, CREATED_AT)));
+
+        verify(mapper, never()).insertApplied(any());
+        verify(mapper, never()).accumulateBatch(any());
+        verify(session, never()).commit();
+    }
+
+    private static PaymentEvent event(long id, PaymentEvent.Type type, String outTradeNo, long version,
+                                      LocalDateTime occurredAt) {
+        return new PaymentEvent(id, type, outTradeNo, version, 7L, new BigDecimal("19.90"), CREATED_AT, occurredAt);
+    }
+}
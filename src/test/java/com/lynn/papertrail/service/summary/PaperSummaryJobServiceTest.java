@@ -0,0 +1,176 @@
+package com.lynn.papertrail.service.summary;
+
+import com.lynn.papertrail.config.PaperSummaryProperties;
+import com.lynn.papertrail.dto.PaperSummaryJobResponse;
+import com.lynn.papertrail.entity.Paper;
+import com.lynn.papertrail.entity.PaperSummary;
+import com.lynn.papertrail.entity.PaperSummaryJob;
+import com.lynn.papertrail.mapper.PaperSummaryJobMapper;
+import com.lynn.papertrail.mapper.PaperSummaryMapper;
+import com.lynn.papertrail.service.PaperSearchService;
+import com.lynn.papertrail.service.prompt.PromptTemplateRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PaperSummaryJobService 单元测试，使用桩 ChatModel 代替真实大模型
+ */
+@DisplayName("论文摘要批处理测试")
+class PaperSummaryJobServiceTest {
+
+    private final AtomicInteger modelCalls = new AtomicInteger();
+    private final Set<String> summarizedTitles = ConcurrentHashMap.newKeySet();
+
+    private PaperSearchService paperSearchService;
+    private PaperSummaryMapper paperSummaryMapper;
+    private PaperSummaryJobMapper paperSummaryJobMapper;
+    private PaperSummaryJobService service;
+
+    @BeforeEach
+    void setUp() {
+        paperSearchService = mock(PaperSearchService.class);
+        paperSummaryMapper = mock(PaperSummaryMapper.class);
+        paperSummaryJobMapper = mock(PaperSummaryJobMapper.class);
+
+        ChatModel stubModel = prompt -> {
+            modelCalls.incrementAndGet();
+            summarizedTitles.add(prompt.getUserMessage().getText());
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("TL;DR"))));
+        };
+
+        PaperSummaryProperties properties = new PaperSummaryProperties();
+        properties.setWorkerThreads(4);
+        properties.setRequestsPerSecond(0);
+
+        service = new PaperSummaryJobService(paperSearchService, stubModel, new PromptTemplateRegistry(),
+                paperSummaryMapper, paperSummaryJobMapper, properties);
+
+        when(paperSearchService.getPaperById(anyString())).thenAnswer(invocation -> Paper.builder()
+                .id(invocation.getArgument(0))
+                .title("title-" + invocation.getArgument(0))
+                .summary("abstract")
+                .build());
+        when(paperSummaryJobMapper.selectByJobId(anyString())).thenReturn(PaperSummaryJob.builder()
+                .jobId("job").status(PaperSummaryJob.STATUS_RUNNING).total(3).completed(0).failed(0).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("只为尚未生成摘要的论文调用大模型")
+    void testSkipsStoredSummaries() throws InterruptedException {
+        when(paperSummaryMapper.selectByPaperIds(anyCollection())).thenReturn(List.of(
+                PaperSummary.builder().paperId("arxiv_1").summary("cached").build()));
+
+        PaperSummaryJobResponse response = service.submit(List.of("arxiv_1", "arxiv_2", "arxiv_3", "arxiv_2"));
+        assertNotNull(response);
+        assertTrue(service.awaitIdle(5, TimeUnit.SECONDS), "任务未在超时时间内完成");
+
+        assertEquals(2, modelCalls.get(), "已有摘要的论文不应再次调用大模型");
+        verify(paperSummaryMapper, times(2)).upsert(any(PaperSummary.class));
+        verify(paperSummaryJobMapper).resetProgress(anyString(), eq(1));
+        verify(paperSummaryJobMapper, times(2)).incrementCompleted(anyString());
+        verify(paperSummaryJobMapper).updateStatus(anyString(), eq(PaperSummaryJob.STATUS_COMPLETED));
+    }
+
+    @Test
+    @DisplayName("找不到的论文计为失败，任务以部分失败结束")
+    void testMissingPaperMarkedFailed() throws InterruptedException {
+        when(paperSummaryMapper.selectByPaperIds(anyCollection())).thenReturn(List.of());
+        when(paperSearchService.getPaperById("arxiv_missing")).thenReturn(null);
+
+        service.submit(List.of("arxiv_1", "arxiv_missing"));
+        assertTrue(service.awaitIdle(5, TimeUnit.SECONDS), "任务未在超时时间内完成");
+
+        assertEquals(1, modelCalls.get());
+        verify(paperSummaryJobMapper).incrementFailed(anyString());
+        verify(paperSummaryJobMapper).updateStatus(anyString(), eq(PaperSummaryJob.STATUS_COMPLETED_WITH_ERRORS));
+    }
+
+    @Test
+    @DisplayName("恢复任务时跳过已完成的论文")
+    void testResumeOnlyProcessesPending() throws InterruptedException {
+        when(paperSummaryJobMapper.selectByJobId("job")).thenReturn(PaperSummaryJob.builder()
+                .jobId("job").status(PaperSummaryJob.STATUS_RUNNING)
+                .paperIds("arxiv_1,arxiv_2,arxiv_3").total(3).completed(0).failed(0).build());
+        when(paperSummaryMapper.selectByPaperIds(anyCollection())).thenReturn(List.of(
+                PaperSummary.builder().paperId("arxiv_1").summary("done").build(),
+                PaperSummary.builder().paperId("arxiv_2").summary("done").build()));
+
+        service.resume("job");
+        assertTrue(service.awaitIdle(5, TimeUnit.SECONDS), "任务未在超时时间内完成");
+
+        assertEquals(1, modelCalls.get());
+        assertTrue(summarizedTitles.stream().anyMatch(text -> text.contains("title-arxiv_3")));
+    }
+
+    @Test
+    @DisplayName("并发恢复同一任务时只执行一次")
+    void testConcurrentResumeRunsOnce() throws Exception {
+        when(paperSummaryJobMapper.selectByJobId("job")).thenReturn(PaperSummaryJob.builder()
+                .jobId("job").status(PaperSummaryJob.STATUS_RUNNING)
+                .paperIds("arxiv_1,arxiv_2").total(2).completed(0).failed(0).build());
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paperSummaryMapper.selectByPaperIds(anyCollection())).thenAnswer(invocation -> {
+            // 第一个恢复请求停在查询已有摘要处，第二个请求此时到达
+            querying.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = callers.submit(() -> service.resume("job"));
+            assertTrue(querying.await(5, TimeUnit.SECONDS));
+            Future<?> second = callers.submit(() -> service.resume("job"));
+            second.get(5, TimeUnit.SECONDS);
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+        assertTrue(service.awaitIdle(5, TimeUnit.SECONDS), "任务未在超时时间内完成");
+
+        assertEquals(2, modelCalls.get());
+        verify(paperSummaryJobMapper, times(1)).resetProgress("job", 0);
+    }
+
+    @Test
+    @DisplayName("启动时查询未完成任务失败只记录日志，不影响应用启动")
+    void testResumeUnfinishedJobsToleratesDatabaseFailure() {
+        when(paperSummaryJobMapper.selectByStatus(anyString())).thenThrow(new IllegalStateException("db down"));
+
+        assertDoesNotThrow(() -> service.resumeUnfinishedJobs());
+    }
+
+    @Test
+    @DisplayName("空的论文ID列表被拒绝")
+    void testRejectsEmptyIds() {
+        assertThrows(IllegalArgumentException.class, () -> service.submit(List.of(" ", "")));
+    }
+}
@@ -0,0 +1,65 @@
+package com.lynn.papertrail.service.token;
+
+import com.lynn.papertrail.config.AccessTokenProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 签名令牌验证耗时基准测试
+ * <p>
+ * cacheSize=0 时每次都计算 HMAC，否则重复的令牌命中验证缓存；
+ * tokenCount 控制活跃令牌数，超过缓存槽位时部分请求会重新计算签名。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+public class SignedAccessTokenServiceBenchmark {
+
+    @Param({"0", "4096"})
+    public int cacheSize;
+
+    @Param({"1000", "100000"})
+    public int tokenCount;
+
+    private SignedAccessTokenService service;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccessTokenProperties properties = new AccessTokenProperties();
+        properties.setVerificationCacheSize(cacheSize);
+        service = new SignedAccessTokenService(properties);
+        tokens = new String[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = service.issue(i, i % 10 == 0 ? "ADMIN" : "USER");
+        }
+    }
+
+    @Benchmark
+    public AccessToken verify() {
+        return service.verify(tokens[ThreadLocalRandom.current().nextInt(tokenCount)]);
+    }
+
+    @Benchmark
+    public String issue() {
+        return service.issue(ThreadLocalRandom.current().nextLong(1_000_000), "USER");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SignedAccessTokenServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
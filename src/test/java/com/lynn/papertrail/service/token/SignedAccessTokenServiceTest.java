@@ -0,0 +1,94 @@
+package com.lynn.papertrail.service.token;
+
+import com.lynn.papertrail.config.AccessTokenProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SignedAccessTokenService 单元测试
+ */
+@DisplayName("签名访问令牌测试")
+class SignedAccessTokenServiceTest {
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private AccessTokenProperties properties;
+    private SignedAccessTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AccessTokenProperties();
+        properties.setSecret(Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        properties.setTtl(Duration.ofHours(1));
+        service = new SignedAccessTokenService(properties, clock::get);
+    }
+
+    @Test
+    @DisplayName("签发的令牌可以验证出用户ID和角色")
+    void testIssueAndVerify() {
+        String token = service.issue(42L, "ADMIN");
+
+        AccessToken accessToken = service.verify(token);
+
+        assertEquals(42L, accessToken.userId());
+        assertEquals("ADMIN", accessToken.role());
+        // 再次验证走缓存，结果一致
+        assertEquals(accessToken, service.verify(token));
+    }
+
+    @Test
+    @DisplayName("篡改载荷或使用其他密钥签名的令牌验证失败")
+    void testTamperedToken() {
+        String token = service.issue(42L, "USER");
+        String adminToken = service.issue(42L, "ADMIN");
+        String forged = adminToken.substring(0, adminToken.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        AccessTokenProperties otherProperties = new AccessTokenProperties();
+        otherProperties.setSecret(Base64.getEncoder().encodeToString("another-secret-another-secret-00".getBytes()));
+        SignedAccessTokenService other = new SignedAccessTokenService(otherProperties, clock::get);
+
+        assertNull(service.verify(forged));
+        assertNull(other.verify(token));
+        assertNull(service.verify("garbage"));
+        assertNull(service.verify("a.b"));
+        assertNull(service.verify(null));
+    }
+
+    @Test
+    @DisplayName("令牌过期后验证失败，即使已在缓存中")
+    void testExpiry() {
+        String token = service.issue(1L, "USER");
+        assertNotNull(service.verify(token));
+
+        clock.addAndGet(Duration.ofHours(1).toMillis());
+
+        assertNull(service.verify(token));
+    }
+
+    @Test
+    @DisplayName("注销单个令牌和注销用户全部令牌")
+    void testRevoke() {
+        String first = service.issue(1L, "USER");
+        String second = service.issue(1L, "USER");
+        String other = service.issue(2L, "USER");
+
+        assertTrue(service.revoke(first));
+        assertNull(service.verify(first));
+        assertNotNull(service.verify(second));
+
+        clock.addAndGet(1);
+        service.revokeAll(1L);
+        assertNull(service.verify(second));
+        assertNotNull(service.verify(other));
+
+        // 注销之后重新登录的令牌有效
+        clock.addAndGet(1);
+        assertNotNull(service.verify(service.issue(1L, "USER")));
+    }
+}
@@ -0,0 +1,56 @@
+package com.lynn.papertrail.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BloomFilter 单元测试
+ */
+@DisplayName("布隆过滤器测试")
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("已加入的元素一定命中")
+    void testNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("误判率接近配置值")
+    void testFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "误判率过高: " + rate);
+    }
+
+    @Test
+    @DisplayName("并发写入不丢失元素")
+    void testConcurrentPut() {
+        BloomFilter filter = BloomFilter.create(200_000, 0.01);
+        IntStream.range(0, 200_000).parallel().forEach(i -> filter.put("key-" + i));
+
+        IntStream.range(0, 200_000).forEach(i -> assertTrue(filter.mightContain("key-" + i)));
+    }
+}
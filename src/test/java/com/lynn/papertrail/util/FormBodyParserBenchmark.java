@@ -0,0 +1,84 @@
+package com.lynn.papertrail.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付宝异步通知请求体解析吞吐基准测试
+ * <p>
+ * 请求体为一条典型的支付宝交易通知，包含编码后的时间、中文标题和签名。
+ * legacy 为原来的转字符串后 split 加 substring，不做 URL 解码，结果不能直接用于验签；
+ * legacyDecoded 在 legacy 的基础上逐个调用 {@link URLDecoder}，结果正确；current 为 {@link FormBodyParser}。
+ * 运行方式：执行 main 方法，或 mvn test-compile 后通过 JMH Runner 运行。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(4)
+public class FormBodyParserBenchmark {
+
+    private static final byte[] BODY = ("gmt_create=2025-10-19+12%3A00%3A00&charset=UTF-8"
+            + "&gmt_payment=2025-10-19+12%3A00%3A08&notify_time=2025-10-19+12%3A00%3A09"
+            + "&subject=PaperTrail+%E4%BC%9A%E5%91%98%E6%9C%88%E5%8D%A1"
+            + "&sign=Kq3Zc%2BvX0a1fJH9mY%2Fq7Tn0o8pLr2sW4e6uI5bV%2Bd3cF1gH7jK9lM0nB2vC4xZ6aS8dF0gH2jK4lQ%3D%3D"
+            + "&buyer_id=2088102177846880&invoice_amount=19.90&version=1.0"
+            + "&notify_id=2025101900222120008046880123456789&fund_bill_list=%5B%7B%22amount%22%3A%2219.90%22%2C"
+            + "%22fundChannel%22%3A%22ALIPAYACCOUNT%22%7D%5D&notify_type=trade_status_sync"
+            + "&out_trade_no=02TJ0T40001A3&total_amount=19.90&trade_status=TRADE_SUCCESS"
+            + "&trade_no=2025101922001446880501234567&auth_app_id=2021000000000000&receipt_amount=19.90"
+            + "&point_amount=0.00&buyer_pay_amount=19.90&app_id=2021000000000000&sign_type=RSA2"
+            + "&seller_id=2088102177000000").getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public Map<String, String> legacy() {
+        String queryString = new String(BODY, StandardCharsets.UTF_8);
+        Map<String, String> params = new HashMap<>();
+        for (String pair : queryString.split("&")) {
+            int idx = pair.indexOf("=");
+            if (idx > 0) {
+                params.put(pair.substring(0, idx), pair.substring(idx + 1));
+            }
+        }
+        return params;
+    }
+
+    @Benchmark
+    public Map<String, String> legacyDecoded() {
+        String queryString = new String(BODY, StandardCharsets.UTF_8);
+        Map<String, String> params = new HashMap<>();
+        for (String pair : queryString.split("&")) {
+            int idx = pair.indexOf("=");
+            if (idx > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    @Benchmark
+    public Map<String, String> current() {
+        return FormBodyParser.parse(BODY);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FormBodyParserBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
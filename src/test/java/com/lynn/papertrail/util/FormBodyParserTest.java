@@ -0,0 +1,75 @@
+package com.lynn.papertrail.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FormBodyParser 单元测试
+ */
+@DisplayName("表单请求体解析测试")
+class FormBodyParserTest {
+
+    private static Map<String, String> parse(String body) {
+        return FormBodyParser.parse(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("URL 解码键和值，包括中文、加号和签名中的 base64 字符")
+    void testDecoding() {
+        Map<String, String> params = parse("subject=%E4%BC%9A%E5%91%98%E6%9C%88%E5%8D%A1"
+                + "&gmt_create=2025-10-19+12%3A00%3A00&sign=ab%2Bc%2Fd%3D%3D&out_trade_no=02TJ0T40001A3");
+
+        assertEquals("会员月卡", params.get("subject"));
+        assertEquals("2025-10-19 12:00:00", params.get("gmt_create"));
+        assertEquals("ab+c/d==", params.get("sign"));
+        assertEquals("02TJ0T40001A3", params.get("out_trade_no"));
+    }
+
+    @Test
+    @DisplayName("结果与 URLDecoder 逐个解码一致")
+    void testMatchesUrlDecoder() {
+        String body = "a=1&b=%7E%21%40%23%24&c%5B0%5D=x+y&d=&e=%e6%b5%8b&f=%25";
+        Map<String, String> expected = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int idx = pair.indexOf('=');
+            expected.put(URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+        }
+        assertEquals(expected, parse(body));
+    }
+
+    @Test
+    @DisplayName("空片段和没有等号的片段被忽略，同名参数后者覆盖前者，值中可以包含等号")
+    void testEdgeCases() {
+        Map<String, String> params = parse("&&flag&=orphan&k=1&k=2&v=a=b&");
+
+        assertEquals(Map.of("k", "2", "v", "a=b"), params);
+        assertTrue(parse("").isEmpty());
+        assertTrue(FormBodyParser.parse(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("每次解析清空复用的映射，参数名字符串被复用")
+    void testReuse() {
+        String first = parse("notify_id=1&trade_status=TRADE_SUCCESS").keySet().stream()
+                .filter("notify_id"::equals).findFirst().orElseThrow();
+        Map<String, String> params = parse("notify_id=2");
+
+        assertEquals(Map.of("notify_id", "2"), params);
+        assertSame(first, params.keySet().iterator().next());
+    }
+
+    @Test
+    @DisplayName("不完整或非法的百分号编码抛出异常")
+    void testMalformed() {
+        assertThrows(IllegalArgumentException.class, () -> parse("a=%E4%B"));
+        assertThrows(IllegalArgumentException.class, () -> parse("a=%zz"));
+    }
+}
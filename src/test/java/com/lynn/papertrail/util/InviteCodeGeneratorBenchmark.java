@@ -0,0 +1,82 @@
+package com.lynn.papertrail.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 邀请码生成吞吐基准测试
+ * <p>
+ * 对比逐个哈希生成、批量哈希生成（LongHashSet 查重）和计数器置换三种方式。
+ * 批量方法每次调用生成 batchSize 个邀请码，吞吐需乘以 batchSize 换算为每秒邀请码数；
+ * 结束时输出逐个哈希方式在 batchSize 个邀请码内的重复率。
+ * 运行方式：执行 main 方法，或 mvn test-compile 后通过 JMH Runner 运行。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class InviteCodeGeneratorBenchmark {
+
+    private static final String USER_ID = "benchmarkUser";
+
+    @Param({"6", "8"})
+    public int length;
+
+    @Param({"100000"})
+    public int batchSize;
+
+    private InviteCodeSequence sequence;
+    private final AtomicLong nextIndex = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sequence = new InviteCodeSequence(0x5DEECE66DL, length);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportCollisions() {
+        LongHashSet seen = new LongHashSet(batchSize);
+        int duplicates = 0;
+        for (int i = 0; i < batchSize; i++) {
+            if (!seen.add(InviteCodeSequence.pack(InviteCodeGenerator.generateInviteCode(USER_ID, length)))) {
+                duplicates++;
+            }
+        }
+        System.out.printf("%n长度 %d 逐个哈希生成 %d 个邀请码的重复数: %d (%.4f%%)%n",
+                length, batchSize, duplicates, duplicates * 100.0 / batchSize);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hashSingle() {
+        return InviteCodeGenerator.generateInviteCode(USER_ID, length);
+    }
+
+    @Benchmark
+    public List<String> hashBatch() {
+        return InviteCodeGenerator.generateInviteCodes(USER_ID, batchSize, length);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sequenceSingle() {
+        return sequence.encode(nextIndex.getAndIncrement() & (sequence.capacity() - 1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InviteCodeGeneratorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
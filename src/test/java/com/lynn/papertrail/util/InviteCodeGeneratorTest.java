@@ -56,6 +56,18 @@ class InviteCodeGeneratorTest {
         logger.info("最小长度邀请码: {}", code3);
     }
 
+    @Test
+    @DisplayName("批量生成 - 批内无重复")
+    void testBatchGeneration() {
+        List<String> codes = InviteCodeGenerator.generateInviteCodes(TEST_USER_ID, 100_000, 6);
+        assertEquals(100_000, codes.size());
+        assertEquals(codes.size(), new HashSet<>(codes).size(), "批内不应有重复邀请码");
+        codes.forEach(code -> assertTrue(code.matches("[23456789ABCDEFGHJKLMNPQRSTUVWXYZ]{6}")));
+
+        assertThrows(IllegalArgumentException.class, () ->
+            InviteCodeGenerator.generateInviteCodes(TEST_USER_ID, 10, InviteCodeSequence.MAX_LENGTH + 1));
+    }
+
     @Test
     @DisplayName("参数验证测试")
     void testParameterValidation() {
@@ -0,0 +1,52 @@
+package com.lynn.papertrail.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InviteCodeSequence 单元测试
+ */
+@DisplayName("邀请码序列测试")
+class InviteCodeSequenceTest {
+
+    @Test
+    @DisplayName("4 位邀请码的全部序号一一对应")
+    void testBijectionOverFullRange() {
+        InviteCodeSequence sequence = new InviteCodeSequence(42L, 4);
+        BitSet seen = new BitSet((int) sequence.capacity());
+        for (long index = 0; index < sequence.capacity(); index++) {
+            String code = sequence.encode(index);
+            int value = (int) InviteCodeSequence.pack(code);
+            assertFalse(seen.get(value), "重复邀请码: " + code);
+            seen.set(value);
+        }
+        assertEquals(sequence.capacity(), seen.cardinality());
+    }
+
+    @Test
+    @DisplayName("奇数位长度经 cycle walking 后可以反解")
+    void testDecodeRoundTrip() {
+        for (int length : new int[]{5, 8, 11, 12}) {
+            InviteCodeSequence sequence = new InviteCodeSequence(7L, length);
+            for (long index : new long[]{0, 1, 2, 1_000_003, sequence.capacity() - 1}) {
+                String code = sequence.encode(index);
+                assertEquals(length, code.length());
+                assertEquals(index, sequence.decode(code));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("不同密钥得到不同的序列，非法输入被拒绝")
+    void testKeyAndValidation() {
+        assertNotEquals(new InviteCodeSequence(1L, 8).encode(0), new InviteCodeSequence(2L, 8).encode(0));
+        assertEquals(-1, new InviteCodeSequence(1L, 8).decode("ABC0OI1X"));
+        assertEquals(-1, new InviteCodeSequence(1L, 8).decode("ABC"));
+        assertThrows(IllegalArgumentException.class, () -> new InviteCodeSequence(1L, 13));
+        assertThrows(IllegalArgumentException.class, () -> new InviteCodeSequence(1L, 4).encode(1L << 20));
+    }
+}
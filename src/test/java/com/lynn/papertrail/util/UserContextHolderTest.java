@@ -0,0 +1,73 @@
+package com.lynn.papertrail.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserContextHolder 单元测试
+ */
+@DisplayName("用户上下文测试")
+class UserContextHolderTest {
+
+    @AfterEach
+    void tearDown() {
+        UserContextHolder.clear();
+    }
+
+    @Test
+    @DisplayName("修改上下文不影响已经捕获的快照")
+    void testSnapshotIsImmutable() {
+        UserContextHolder.setUserId(1L);
+        UserContextHolder.setAttribute("traceId", "t-1");
+        UserContext snapshot = UserContextHolder.current();
+
+        UserContextHolder.setUserId(2L);
+        UserContextHolder.removeAttribute("traceId");
+
+        assertEquals(1L, snapshot.getUserId());
+        assertEquals("t-1", snapshot.getAttribute("traceId"));
+        assertEquals(2L, UserContextHolder.getUserId());
+        assertFalse(UserContextHolder.containsKey("traceId"));
+        assertTrue(UserContextHolder.containsKey(UserContextHolder.USER_ID));
+    }
+
+    @Test
+    @DisplayName("包装后的任务在工作线程上读取到提交时的上下文，结束后工作线程不残留")
+    void testPropagationAcrossExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            UserContextHolder.set(UserContext.of(7L, "alice", "ADMIN", null));
+            Long propagated = CompletableFuture.supplyAsync(
+                    UserContextHolder.wrapSupplier(UserContextHolder::getUserId), executor).get();
+            String role = CompletableFuture.supplyAsync(
+                    UserContextHolder::getUserRole, UserContextHolder.wrapExecutor(executor)).get();
+            Long leftover = CompletableFuture.supplyAsync(UserContextHolder::getUserId, executor).get();
+
+            assertEquals(7L, propagated);
+            assertEquals("ADMIN", role);
+            assertNull(leftover);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("runWith 结束后还原原来的上下文")
+    void testRunWithRestores() {
+        UserContextHolder.setUserId(1L);
+        UserContextHolder.runWith(UserContext.of(2L, null, null, null),
+                () -> assertEquals(2L, UserContextHolder.getUserId()));
+        assertEquals(1L, UserContextHolder.getUserId());
+
+        UserContextHolder.clear();
+        assertSame(UserContext.EMPTY, UserContextHolder.current());
+        assertTrue(UserContextHolder.getContext().isEmpty());
+    }
+}